@@ -18,33 +18,37 @@
  */
 package org.structr.agent;
 
-import java.util.Queue;
-import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import static org.structr.agent.ReturnValue.Retry;
+import org.structr.api.config.Settings;
 import org.structr.core.Services;
 import org.structr.core.app.StructrApp;
 import org.structr.core.graph.Tx;
 
 /**
  * Abstract base class for all agents.
+ *
+ * Agents are started by the {@link AgentService} when tasks of their
+ * supported type are queued, and stop when no task arrived for some
+ * time.
  */
 public abstract class Agent<T> extends Thread implements StatusInfo {
 
 	public static final String AVERAGE_EXECUTION_TIME = "average_execution_time";
 	public static final String EXECUTION_STATUS       = "execution_status";
 	public static final String MAX_QUEUE_SIZE         = "max_queue_size";
+	public static final String PROCESSED_TASKS        = "processed_tasks";
 	private static final Logger logger                = LoggerFactory.getLogger(Agent.class.getName());
 
 	private final AtomicBoolean suspended      = new AtomicBoolean(false);
-	private final Queue<Task<T>> taskQueue     = new ConcurrentLinkedQueue<>();
 	private final AtomicBoolean acceptingTasks = new AtomicBoolean(true);
 	private AgentService agentService          = null;
-	private long averageExecutionTime          = 0;
+	private AgentQueue queue                   = null;
+	private long totalExecutionTime            = 0L;
+	private long processedTasks                = 0L;
 	private int maxAgents                      = 10;
-	private int maxQueueSize                   = 200;
 
 	/**
 	 * This method will be called by the AgentService
@@ -56,27 +60,24 @@ public abstract class Agent<T> extends Thread implements StatusInfo {
 	@Override
 	public final void run() {
 
-		agentService.notifyAgentStart(this);
-
-		do {
-
-			while (suspended.get()) {
-
-				Thread.yield();
-
-			}
+		try {
 
-			final Task<T> currentTask;
+			while (acceptingTasks.get()) {
 
-			synchronized (taskQueue) {
+				while (suspended.get()) {
 
-				currentTask = taskQueue.poll();
+					try { Thread.sleep(100); } catch (InterruptedException ex) {}
+				}
 
-			}
+				final Task<T> currentTask = queue.next();
+				if (currentTask == null) {
 
-			if (currentTask != null) {
+					// no task within the idle timeout, quit.
+					break;
+				}
 
-				ReturnValue ret = null;
+				final long startTime = System.nanoTime();
+				ReturnValue ret      = null;
 
 				// only execute process if Service layer is ready
 				// (and not shutting down right now)
@@ -107,53 +108,48 @@ public abstract class Agent<T> extends Thread implements StatusInfo {
 							logger.error("Processing task {} failed: {}", currentTask.getType(), t.getMessage());
 						}
 					}
-				}
-
-				if (ret != null && Retry.equals(ret) && currentTask.getRetryCount() < 2) {
 
-					// wait some time
-					try { Thread.sleep(2000); } catch (InterruptedException ex) {}
+				} else {
 
-					synchronized (taskQueue) {
-
-						currentTask.incrementRetryCount();
-						taskQueue.add(currentTask);
-					}
+					// try again when the service layer is ready
+					ret = ReturnValue.Retry;
 				}
 
-				long endTime = System.nanoTime();
+				final long executionTime = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startTime);
 
-				// calc. average execution time
-				averageExecutionTime += endTime;
-				averageExecutionTime /= 2;
+				synchronized (this) {
 
-			} else {
+					totalExecutionTime += executionTime;
+					processedTasks++;
+				}
 
-				// queue is empty, quit.
-				acceptingTasks.set(false);
+				queue.finished(currentTask, ret, executionTime);
 			}
 
-		} while (acceptingTasks.get());
+		} finally {
 
-		// call beforeShutdown to allow agents to clean up
-		beforeShutdown();
-		agentService.notifyAgentStop(this);
+			// call beforeShutdown to allow agents to clean up
+			beforeShutdown();
+			queue.agentStopped(this);
+		}
 	}
 
+	/**
+	 * Adds the given task to the queue of this agent's task type.
+	 *
+	 * @param task the task
+	 * @return whether the task was accepted
+	 */
 	public final boolean assignTask(final Task<T> task) {
 
-		// TODO: do type check here
-		if (canHandleMore() && acceptingTasks.get()) {
+		if (acceptingTasks.get() && queue != null) {
 
-			synchronized (taskQueue) {
+			queue.add(task);
 
-				taskQueue.add(task);
-			}
-
-			return (true);
+			return true;
 		}
 
-		return (false);
+		return false;
 	}
 
 	public final void killAgent() {
@@ -161,9 +157,6 @@ public abstract class Agent<T> extends Thread implements StatusInfo {
 		// stop accepting tasks
 		acceptingTasks.set(false);
 
-		// clear queue
-		taskQueue.clear();
-
 		// interrupt running process..
 		// not sure if this works... see Thread.interrupt()'s description!
 		// may not work if the processTask method itself catches the interrupt..
@@ -172,13 +165,11 @@ public abstract class Agent<T> extends Thread implements StatusInfo {
 
 	public final void suspendAgent() {
 
-		acceptingTasks.set(false);
 		suspended.set(true);
 	}
 
 	public final void resumeAgent() {
 
-		acceptingTasks.set(true);
 		suspended.set(false);
 	}
 
@@ -187,36 +178,23 @@ public abstract class Agent<T> extends Thread implements StatusInfo {
 		// override me
 	}
 
-	private boolean canHandleMore() {
-
-		int size = 0;
-
-		synchronized (taskQueue) {
-
-			// FIXME: size may not be a constant time operation! slow?
-			size = taskQueue.size();
-		}
-
-		// queue is empty, assume new agent
-		if (size == 0) {
-
-			return true;
-
-		}
-
-		return size < maxQueueSize;
-	}
-
 	public boolean createEnclosingTransaction() {
 		return true;
 	}
 
 	public final int getMaxQueueSize() {
-		return maxQueueSize;
+		return Settings.AgentQueueSize.getValue();
+	}
+
+	/**
+	 * @return the average execution time of the tasks processed by this agent in milliseconds
+	 */
+	public final synchronized long getAverageExecutionTime() {
+		return processedTasks > 0 ? totalExecutionTime / processedTasks : 0L;
 	}
 
-	public final long getAverageExecutionTime() {
-		return averageExecutionTime;
+	public final synchronized long getProcessedTasks() {
+		return processedTasks;
 	}
 
 	public final void setAgentService(AgentService service) {
@@ -226,6 +204,13 @@ public abstract class Agent<T> extends Thread implements StatusInfo {
 		this.agentService = service;
 	}
 
+	/**
+	 * Returns the default number of agents that process tasks of the
+	 * supported type at the same time, which can be overridden with
+	 * the setting application.agents.concurrency.
+	 *
+	 * @return the maximum number of agents
+	 */
 	public int getMaxAgents() {
 		return maxAgents;
 	}
@@ -242,6 +227,10 @@ public abstract class Agent<T> extends Thread implements StatusInfo {
 
 			return (getMaxQueueSize());
 
+		} else if (key.equals(PROCESSED_TASKS)) {
+
+			return (getProcessedTasks());
+
 		} else if (key.equals(EXECUTION_STATUS)) {
 
 			// TODO.
@@ -261,4 +250,9 @@ public abstract class Agent<T> extends Thread implements StatusInfo {
 	public final boolean isAcceptingTasks() {
 		return acceptingTasks.get();
 	}
+
+	// ----- package methods -----
+	final void setQueue(final AgentQueue queue) {
+		this.queue = queue;
+	}
 }
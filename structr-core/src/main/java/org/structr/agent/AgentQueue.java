@@ -0,0 +1,298 @@
+/**
+ * Copyright (C) 2010-2018 Structr GmbH
+ *
+ * This file is part of Structr <http://structr.org>.
+ *
+ * Structr is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * Structr is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Structr.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.structr.agent;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.structr.api.config.Settings;
+import org.structr.core.graph.TransactionCommand;
+
+/**
+ * Bounded queue for the tasks of a single task type.
+ *
+ * Tasks are processed by up to a configurable number of agents that
+ * block on the queue while it is empty and stop after some idle time.
+ * When the queue is full, producers are blocked for a limited time
+ * unless they hold a transaction or run on an agent or the scheduler
+ * thread, in which case the task is re-queued after a delay. Failed
+ * tasks are re-queued after an exponentially increasing delay.
+ */
+public class AgentQueue {
+
+	private static final Logger logger             = LoggerFactory.getLogger(AgentQueue.class.getName());
+	private static final long MAX_PRODUCER_WAIT    = TimeUnit.SECONDS.toMillis(5);
+	private static final long MAX_RETRY_DELAY      = TimeUnit.MINUTES.toMillis(1);
+
+	private final List<Agent> agents                = new CopyOnWriteArrayList<>();
+	private final AtomicInteger idleAgents          = new AtomicInteger(0);
+	private final LongAdder processedTasks          = new LongAdder();
+	private final LongAdder failedTasks             = new LongAdder();
+	private final LongAdder retriedTasks            = new LongAdder();
+	private final LongAdder delayedTasks            = new LongAdder();
+	private final LongAdder totalLatency            = new LongAdder();
+	private final LongAdder totalExecutionTime      = new LongAdder();
+	private BlockingQueue<QueuedTask> tasks         = null;
+	private Class<? extends Agent> agentClass       = null;
+	private AgentService agentService               = null;
+	private Class taskType                          = null;
+	private int concurrency                         = 1;
+
+	public AgentQueue(final AgentService agentService, final Class taskType, final Class<? extends Agent> agentClass, final int concurrency) {
+
+		this.tasks        = new LinkedBlockingQueue<>(Math.max(1, Settings.AgentQueueSize.getValue()));
+		this.agentService = agentService;
+		this.taskType     = taskType;
+		this.agentClass   = agentClass;
+		this.concurrency  = Math.max(1, concurrency);
+	}
+
+	/**
+	 * Adds the given task to this queue and starts a new agent if all
+	 * running agents are busy. Blocks the calling thread for a limited
+	 * time if the queue is full and the thread does not hold locks or
+	 * process tasks, tasks that cannot be queued are added again after
+	 * a delay.
+	 *
+	 * @param task the task
+	 */
+	public void add(final Task task) {
+
+		final QueuedTask queuedTask = new QueuedTask(task);
+		boolean added               = tasks.offer(queuedTask);
+
+		if (!added && mayWait()) {
+
+			try {
+				added = tasks.offer(queuedTask, MAX_PRODUCER_WAIT, TimeUnit.MILLISECONDS);
+
+			} catch (InterruptedException iex) {
+				Thread.currentThread().interrupt();
+			}
+		}
+
+		if (added) {
+
+			startAgents();
+
+		} else {
+
+			logger.debug("Task queue for {} is full, delaying task {}", taskType.getSimpleName(), task.getType());
+
+			delayedTasks.increment();
+			agentService.schedule(() -> add(task), getRetryDelay(1));
+		}
+	}
+
+	/**
+	 * @return the tasks that are waiting to be processed
+	 */
+	public Collection<Task> getTasks() {
+
+		final List<Task> list = new ArrayList<>();
+
+		for (final QueuedTask queuedTask : tasks) {
+			list.add(queuedTask.task);
+		}
+
+		return list;
+	}
+
+	/**
+	 * @return the agents that are currently running
+	 */
+	public List<Agent> getAgents() {
+		return new ArrayList<>(agents);
+	}
+
+	/**
+	 * @return throughput and latency information for this task type
+	 */
+	public Map<String, Object> getMetrics() {
+
+		final Map<String, Object> metrics = new LinkedHashMap<>();
+		final long processed              = processedTasks.sum();
+
+		metrics.put("queuedTasks",          tasks.size());
+		metrics.put("runningAgents",        agents.size());
+		metrics.put("idleAgents",           idleAgents.get());
+		metrics.put("maxAgents",            concurrency);
+		metrics.put("processedTasks",       processed);
+		metrics.put("failedTasks",          failedTasks.sum());
+		metrics.put("retriedTasks",         retriedTasks.sum());
+		metrics.put("delayedTasks",         delayedTasks.sum());
+		metrics.put("averageLatency",       processed > 0 ? totalLatency.sum() / processed : 0L);
+		metrics.put("averageExecutionTime", processed > 0 ? totalExecutionTime.sum() / processed : 0L);
+
+		return metrics;
+	}
+
+	/**
+	 * Stops all agents and removes all queued tasks.
+	 */
+	public void clear() {
+
+		tasks.clear();
+
+		for (final Agent agent : agents) {
+			agent.killAgent();
+		}
+	}
+
+	// ----- package methods -----
+	/**
+	 * Waits for the next task.
+	 *
+	 * @return the next task, or null if there was no task within the idle timeout
+	 */
+	Task next() {
+
+		idleAgents.incrementAndGet();
+		try {
+
+			final QueuedTask queuedTask = tasks.poll(Math.max(1, Settings.AgentIdleTimeout.getValue()), TimeUnit.SECONDS);
+			if (queuedTask != null) {
+
+				totalLatency.add(System.currentTimeMillis() - queuedTask.queueTime);
+
+				return queuedTask.task;
+			}
+
+		} catch (InterruptedException iex) {
+
+			// agent was killed
+
+		} finally {
+
+			idleAgents.decrementAndGet();
+		}
+
+		return null;
+	}
+
+	void finished(final Task task, final ReturnValue result, final long executionTime) {
+
+		processedTasks.increment();
+		totalExecutionTime.add(executionTime);
+
+		if (result == null) {
+
+			failedTasks.increment();
+
+		} else if (ReturnValue.Retry.equals(result)) {
+
+			if (task.getRetryCount() < Settings.AgentMaxRetries.getValue()) {
+
+				task.incrementRetryCount();
+				retriedTasks.increment();
+
+				agentService.schedule(() -> add(task), getRetryDelay(task.getRetryCount()));
+
+			} else {
+
+				logger.warn("Giving up on task {} after {} retries", task.getType(), task.getRetryCount());
+				failedTasks.increment();
+			}
+		}
+	}
+
+	void agentStopped(final Agent agent) {
+
+		agents.remove(agent);
+
+		// a task may have been added after the agent's last poll
+		if (!tasks.isEmpty()) {
+			startAgents();
+		}
+	}
+
+	/**
+	 * Starts new agents while there are more queued tasks than idle
+	 * agents, up to the configured concurrency.
+	 */
+	synchronized void startAgents() {
+
+		while (idleAgents.get() < tasks.size() && agents.size() < Math.min(concurrency, tasks.size()) && agentService.isRunning()) {
+
+			try {
+
+				final Agent agent = agentClass.newInstance();
+
+				agent.setAgentService(agentService);
+				agent.setQueue(this);
+
+				agents.add(agent);
+
+				agent.start();
+
+			} catch (Throwable t) {
+
+				logger.warn("Unable to create agent of type {}: {}", agentClass.getName(), t.getMessage());
+				break;
+			}
+		}
+	}
+
+	// ----- private methods -----
+	/**
+	 * Threads that hold transaction locks, agents that create tasks of
+	 * their own type and the scheduler that re-queues tasks must not
+	 * wait for the queue to drain.
+	 *
+	 * @return whether the current thread may wait for free capacity
+	 */
+	private boolean mayWait() {
+
+		final Thread thread = Thread.currentThread();
+
+		if (thread instanceof Agent && agents.contains(thread)) {
+			return false;
+		}
+
+		return !TransactionCommand.inTransaction() && !agentService.isSchedulerThread();
+	}
+
+	private long getRetryDelay(final int retryCount) {
+
+		final long delay = Math.max(1, Settings.AgentRetryDelay.getValue()) * (1L << Math.min(retryCount - 1, 16));
+
+		return Math.min(delay, MAX_RETRY_DELAY);
+	}
+
+	// ----- nested classes -----
+	private static class QueuedTask {
+
+		private final long queueTime = System.currentTimeMillis();
+		private Task task            = null;
+
+		public QueuedTask(final Task task) {
+			this.task = task;
+		}
+	}
+}
@@ -18,19 +18,23 @@
  */
 package org.structr.agent;
 
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.LinkedHashSet;
-import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
-import java.util.Queue;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.structr.api.config.Settings;
 import org.structr.api.service.Command;
 import org.structr.api.service.RunnableService;
 import org.structr.api.service.StructrServices;
@@ -40,82 +44,67 @@ import org.structr.schema.ConfigurationProvider;
 /**
  * The agent service main class.
  *
- *
+ * Tasks are put into a bounded {@link AgentQueue} per task type, which
+ * starts agents on demand, so no thread is busy while there is nothing
+ * to do.
  */
-public class AgentService extends Thread implements RunnableService {
+public class AgentService implements RunnableService {
 
 	private static final Logger logger = LoggerFactory.getLogger(AgentService.class.getName());
 
-	private final int maxAgents                          = 10;    // TODO: make configurable
-	private final Map<String, List<Agent>> runningAgents = new ConcurrentHashMap<>(10, 0.9f, 8);
-	private final Map<String, Class> agentClassCache     = new ConcurrentHashMap<>(10, 0.9f, 8);
-	private final Queue<Task> taskQueue                  = new ConcurrentLinkedQueue<>();
-	private Set<Class> supportedCommands                 = null;
-	private boolean run                                  = false;
+	private final Map<String, AgentQueue> queues     = new ConcurrentHashMap<>(10, 0.9f, 8);
+	private final Map<String, Class> agentClassCache = new ConcurrentHashMap<>(10, 0.9f, 8);
+	private ScheduledExecutorService scheduler       = null;
+	private Set<Class> supportedCommands             = null;
+	private volatile Thread schedulerThread          = null;
+	private volatile boolean run                     = false;
 
 	public AgentService() {
 
-		super("AgentService");
 		supportedCommands = new LinkedHashSet<>();
 		supportedCommands.add(ProcessTaskCommand.class);
-
-		super.setDaemon(true);
 	}
 
 	public void processTask(Task task) {
 
-		synchronized (taskQueue) {
+		final AgentQueue queue = getQueueForTask(task.getClass());
+		if (queue != null) {
 
-			taskQueue.add(task);
+			queue.add(task);
 			logger.debug("Task {} added to task queue", task);
-		}
-	}
-
-	@Override
-	public void run() {
-
-		logger.info("AgentService started");
-
-		while (run) {
 
-			Task nextTask = taskQueue.poll();
-			if (nextTask != null) {
-
-				assignNextAgentForTask(nextTask);
-			}
+		} else {
 
-			// let others act
-			try { Thread.sleep(10); } catch(Throwable ignore) {}
+			logger.warn("No agent found for task {} of type {}, ignoring", task.getType(), task.getClass().getName());
 		}
 	}
 
-	public void notifyAgentStart(Agent agent) {
+	public Map<String, Class<? extends Agent>> getAgents() {
 
-		List<Agent> agents = getRunningAgentsForTask(agent.getSupportedTaskType());
+		final ConfigurationProvider configuration = Services.getInstance().getConfigurationProvider();
+		if (configuration != null) {
 
-		synchronized (agents) {
-			agents.add(agent);
+			return configuration.getAgents();
 		}
-	}
-
-	public void notifyAgentStop(Agent agent) {
 
-		List<Agent> agents = getRunningAgentsForTask(agent.getSupportedTaskType());
-
-		synchronized (agents) {
-			agents.remove(agent);
-		}
+		return Collections.emptyMap();
 	}
 
-	public Map<String, Class<? extends Agent>> getAgents() {
+	/**
+	 * Returns throughput and latency information about the agents
+	 * of each task type.
+	 *
+	 * @return a map of task type names to metrics
+	 */
+	public Map<String, Map<String, Object>> getMetrics() {
 
-		final ConfigurationProvider configuration = Services.getInstance().getConfigurationProvider();
-		if (configuration != null) {
+		final Map<String, Map<String, Object>> metrics = new LinkedHashMap<>();
 
-			return configuration.getAgents();
+		for (final Entry<String, AgentQueue> entry : queues.entrySet()) {
+			metrics.put(entry.getKey(), entry.getValue().getMetrics());
 		}
 
-		return Collections.emptyMap();
+		return metrics;
 	}
 
 	@Override
@@ -137,13 +126,40 @@ public class AgentService extends Thread implements RunnableService {
 	@Override
 	public void startService() throws Exception {
 
+		scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+
+			final Thread thread = new Thread(r, "AgentServiceScheduler");
+			thread.setDaemon(true);
+
+			schedulerThread = thread;
+
+			return thread;
+		});
+
 		run = true;
-		this.start();
+
+		// process tasks that were queued before the service was started
+		for (final AgentQueue queue : queues.values()) {
+			queue.startAgents();
+		}
+
+		logger.info("AgentService started");
 	}
 
 	@Override
 	public void stopService() {
+
 		run = false;
+
+		if (scheduler != null) {
+			scheduler.shutdownNow();
+		}
+
+		for (final AgentQueue queue : queues.values()) {
+			queue.clear();
+		}
+
+		queues.clear();
 	}
 
 	@Override
@@ -151,89 +167,112 @@ public class AgentService extends Thread implements RunnableService {
 		return true;
 	}
 
-	private void assignNextAgentForTask(Task nextTask) {
+	/**
+	 * Returns the current queue of remaining tasks.
+	 * @return tasks
+	 */
+	public Collection<Task> getTaskQueue() {
 
-		Class taskClass    = nextTask.getClass();
-		List<Agent> agents = getRunningAgentsForTask(taskClass);
+		final List<Task> tasks = new ArrayList<>();
 
-		// need to synchronize on agents
-		synchronized (agents) {
+		for (final AgentQueue queue : queues.values()) {
+			tasks.addAll(queue.getTasks());
+		}
 
-			// find next free agent (agents should be sorted by load, so one
-			// of the first should do..
-			for (Agent agent : agents) {
+		return tasks;
+	}
 
-				if (agent.assignTask(nextTask)) {
+	/**
+	 * Returns the current collection of running agents.
+	 * @return agents
+	 */
+	public Map<String, List<Agent>> getRunningAgents() {
 
-					// ok, task is assigned
-					logger.debug("Task assigned to agent {}", agent.getName());
+		final Map<String, List<Agent>> runningAgents = new LinkedHashMap<>();
 
-					return;
-				}
-			}
+		for (final Entry<String, AgentQueue> entry : queues.entrySet()) {
+			runningAgents.put(entry.getKey(), entry.getValue().getAgents());
 		}
 
-		// FIXME: find better solution for hard limit here!
-		if (agents.size() < maxAgents) {
+		return runningAgents;
+	}
 
-			// if we get here, task was not assigned to any agent, need to
-			// create a new one.
-			Agent agent = createAgent(nextTask);
+	@Override
+	public boolean isRunning() {
+		return (this.run);
+	}
 
-			if ((agent != null) && agent.assignTask(nextTask)) {
-				agent.start();
-			} else {
+	@Override
+	public boolean isVital() {
+		return false;
+	}
 
-				// re-add task..
-				synchronized (taskQueue) {
-					taskQueue.add(nextTask);
-				}
-			}
-		} else {
+	@Override
+	public boolean waitAndRetry() {
+		return false;
+	}
+
+	// ----- interface Feature -----
+	@Override
+	public String getModuleName() {
+		return "agents";
+	}
+
+	// ----- package methods -----
+	void schedule(final Runnable runnable, final long delay) {
+
+		if (run) {
 
-			logger.debug("Overall agents limit reached, re-queueing task");
+			try {
+				scheduler.schedule(runnable, delay, TimeUnit.MILLISECONDS);
 
-			// re-add task..
-			synchronized (taskQueue) {
-				taskQueue.add(nextTask);
+			} catch (RejectedExecutionException rex) {
+				logger.debug("AgentService is shutting down, not scheduling task");
 			}
 		}
 	}
 
-	/**
-	 * Creates a new agent for the given Task. Note that the agent must be
-	 * started manually after creation.
-	 *
-	 * @param forTask
-	 * @return a new agent for the given task
-	 */
-	private Agent createAgent(Task forTask) {
-
-		Agent agent = null;
+	boolean isSchedulerThread() {
+		return Thread.currentThread() == schedulerThread;
+	}
 
-		try {
+	// ----- private methods -----
+	private AgentQueue getQueueForTask(final Class taskClass) {
 
-			agent = lookupAgent(forTask);
+		AgentQueue queue = queues.get(taskClass.getName());
+		if (queue == null) {
 
-			if (agent != null) {
+			final Class<? extends Agent> agentClass = lookupAgentClass(taskClass);
+			if (agentClass != null) {
 
-				// register us in agent..
-				agent.setAgentService(this);
+				queue = queues.computeIfAbsent(taskClass.getName(), k -> new AgentQueue(this, taskClass, agentClass, getConcurrency(taskClass, agentClass)));
 			}
+		}
+
+		return queue;
+	}
+
+	private int getConcurrency(final Class taskClass, final Class<? extends Agent> agentClass) {
 
-		} catch (Exception ex) {
+		final Integer configured = Settings.getLimits(Settings.AgentConcurrency).get(taskClass.getSimpleName());
+		if (configured != null) {
 
-			// TODO: handle exception etc..
+			return configured;
 		}
 
-		return (agent);
+		// agents can limit the number of concurrent instances for their task type
+		try {
+			return agentClass.newInstance().getMaxAgents();
+
+		} catch (Throwable t) {
+			logger.warn("Unable to instantiate agent {}: {}", agentClass.getName(), t.getMessage());
+		}
+
+		return 1;
 	}
 
-	private Agent lookupAgent(Task task) {
+	private Class<? extends Agent> lookupAgentClass(final Class taskClass) {
 
-		// FIXME: superuser security context
-		Class taskClass  = task.getClass();
-		Agent agent      = null;
 		Class agentClass = agentClassCache.get(taskClass.getName());
 
 		// cache miss
@@ -263,66 +302,6 @@ public class AgentService extends Thread implements RunnableService {
 			}
 		}
 
-		if (agentClass != null) {
-
-			try {
-				agent = (Agent) agentClass.newInstance();
-
-			} catch (Throwable ignore) {}
-		}
-
-		return (agent);
-	}
-
-	/**
-	 * Returns the current queue of remaining tasks.
-	 * @return tasks
-	 */
-	public Collection<Task> getTaskQueue() {
-		return (taskQueue);
-	}
-
-	/**
-	 * Returns the current collection of running agents.
-	 * @return agents
-	 */
-	public Map<String, List<Agent>> getRunningAgents() {
-		return (runningAgents);
-	}
-
-	private List<Agent> getRunningAgentsForTask(Class taskClass) {
-
-		List<Agent> agents = runningAgents.get(taskClass.getName());
-
-		if (agents == null) {
-
-			agents = Collections.synchronizedList(new LinkedList<>());
-
-			// Hashtable is synchronized
-			runningAgents.put(taskClass.getName(), agents);
-		}
-
-		return (agents);
-	}
-
-	@Override
-	public boolean isRunning() {
-		return (this.run);
-	}
-
-	@Override
-	public boolean isVital() {
-		return false;
-	}
-
-	@Override
-	public boolean waitAndRetry() {
-		return false;
-	}
-
-	// ----- interface Feature -----
-	@Override
-	public String getModuleName() {
-		return "agents";
+		return agentClass;
 	}
 }
@@ -18,8 +18,11 @@
  */
 package org.structr.common;
 
+import java.util.ArrayList;
 import java.util.Collections;
+import java.util.Comparator;
 import java.util.List;
+import java.util.PriorityQueue;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.structr.core.GraphObject;
@@ -85,6 +88,74 @@ public class PagingHelper {
 
 	}
 
+	/**
+	 * Return a single page of the list with the given paging parameters,
+	 * sorted with the given comparator. For positive pages, only the
+	 * entries up to the end of the requested page are sorted, using a
+	 * bounded heap instead of sorting the whole list. Equal entries keep
+	 * their original order.
+	 *
+	 * @param list
+	 * @param comparator
+	 * @param pageSize
+	 * @param page
+	 * @return sorted subList
+	 */
+	public static List<GraphObject> sortedSubList(final List<? extends GraphObject> list, final Comparator<GraphObject> comparator, int pageSize, int page) {
+
+		if (pageSize <= 0 || page == 0) {
+
+			return Collections.EMPTY_LIST;
+		}
+
+		final int size   = list.size();
+		final long limit = (long)pageSize * (long)page;
+
+		if (page < 0 || limit >= size) {
+
+			final List<GraphObject> sorted = new ArrayList<>(list);
+
+			Collections.sort(sorted, comparator);
+
+			return (List<GraphObject>)subList(sorted, pageSize, page);
+		}
+
+		// compare positions so that equal entries keep their order
+		final Comparator<Integer> byPosition = (a, b) -> {
+
+			final int value = comparator.compare(list.get(a), list.get(b));
+
+			return value != 0 ? value : Integer.compare(a, b);
+		};
+
+		// the head of the heap is the largest of the smallest entries
+		final PriorityQueue<Integer> heap = new PriorityQueue<>((int)limit, byPosition.reversed());
+
+		for (int i=0; i<size; i++) {
+
+			if (heap.size() < limit) {
+
+				heap.add(i);
+
+			} else if (byPosition.compare(i, heap.peek()) < 0) {
+
+				heap.poll();
+				heap.add(i);
+			}
+		}
+
+		final List<Integer> positions  = new ArrayList<>(heap);
+		final List<GraphObject> result = new ArrayList<>(pageSize);
+
+		Collections.sort(positions, byPosition);
+
+		for (final Integer position : positions.subList((int)limit - pageSize, (int)limit)) {
+			result.add(list.get(position));
+		}
+
+		return result;
+	}
+
 	/**
 	 * Return a single page of the result with the given paging parameters.
 	 *
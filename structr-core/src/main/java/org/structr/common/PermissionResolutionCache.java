@@ -0,0 +1,440 @@
+/**
+ * Copyright (C) 2010-2018 Structr GmbH
+ *
+ * This file is part of Structr <http://structr.org>.
+ *
+ * Structr is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * Structr is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Structr.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.structr.common;
+
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedList;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import org.structr.api.config.Settings;
+import org.structr.api.graph.Direction;
+import org.structr.api.graph.Node;
+import org.structr.api.graph.Relationship;
+
+/**
+ * Thread-safe, bounded cache for permission resolution results, keyed by
+ * (node, principal). Each entry knows the nodes its result was derived
+ * from, so that a modification only invalidates the affected entries.
+ *
+ * Every invalidation increments a version. Results are stored with the
+ * version that was current when their resolution started, and results
+ * from before an invalidation are rejected, so that a reader that saw
+ * the state before a commit cannot store its result after the entries
+ * of the commit were invalidated.
+ */
+public class PermissionResolutionCache {
+
+	private static final Map<CacheKey, CacheEntry> cache          = new ConcurrentHashMap<>();
+	private static final Map<Long, Set<CacheKey>> nodeIndex       = new ConcurrentHashMap<>();
+	private static final Map<Long, Set<CacheKey>> principalIndex  = new ConcurrentHashMap<>();
+	private static final AtomicLong hits                          = new AtomicLong();
+	private static final AtomicLong misses                        = new AtomicLong();
+	private static final AtomicLong evictions                     = new AtomicLong();
+	private static final AtomicLong invalidations                 = new AtomicLong();
+	private static final AtomicLong version                       = new AtomicLong();
+
+	public static Boolean get(final long nodeId, final long principalId, final Permission permission) {
+
+		final CacheEntry entry = cache.get(new CacheKey(nodeId, principalId));
+		if (entry != null) {
+
+			final Boolean value = entry.get(permission);
+			if (value != null) {
+
+				hits.incrementAndGet();
+				return value;
+			}
+		}
+
+		misses.incrementAndGet();
+
+		return null;
+	}
+
+	/**
+	 * Returns the current version, which must be read before a permission
+	 * is resolved and passed to {@link #put} along with the result.
+	 *
+	 * @return the version
+	 */
+	public static long getVersion() {
+		return version.get();
+	}
+
+	/**
+	 * Stores a resolution result. A result that was derived from other
+	 * nodes (e.g. via permission propagation) must name these nodes in
+	 * the given dependencies, so it is invalidated when one of them
+	 * changes.
+	 *
+	 * @param nodeId
+	 * @param principalId
+	 * @param permission
+	 * @param value
+	 * @param dependencies the ids of the nodes the result depends on, or null
+	 * @param resolutionVersion the version that was current when the resolution started
+	 */
+	public static void put(final long nodeId, final long principalId, final Permission permission, final boolean value, final Collection<Long> dependencies, final long resolutionVersion) {
+
+		// result is outdated
+		if (version.get() != resolutionVersion) {
+			return;
+		}
+
+		final CacheKey key = new CacheKey(nodeId, principalId);
+		CacheEntry entry   = cache.get(key);
+
+		if (entry == null) {
+
+			final CacheEntry newEntry = new CacheEntry(key);
+
+			entry = cache.putIfAbsent(key, newEntry);
+			if (entry == null) {
+
+				entry = newEntry;
+
+				getIndexSet(principalIndex, principalId).add(key);
+				entry.addDependency(nodeId);
+
+				evictIfNecessary();
+			}
+		}
+
+		if (dependencies != null) {
+
+			for (final Long dependency : dependencies) {
+				entry.addDependency(dependency);
+			}
+		}
+
+		entry.set(permission, value);
+
+		// an invalidation that started while the entry was stored may
+		// have missed it
+		if (version.get() != resolutionVersion) {
+			remove(key, false);
+		}
+	}
+
+	/**
+	 * Invalidates all results for the given node and all results that
+	 * were derived from it.
+	 *
+	 * @param nodeId
+	 */
+	public static void invalidateNode(final long nodeId) {
+
+		version.incrementAndGet();
+
+		final Set<CacheKey> keys = nodeIndex.remove(nodeId);
+		if (keys != null) {
+
+			for (final CacheKey key : keys) {
+				remove(key, false);
+			}
+		}
+	}
+
+	/**
+	 * Invalidates all results for the given principal and, if the principal
+	 * is a group, all of its (transitive) members.
+	 *
+	 * @param principal
+	 */
+	public static void invalidatePrincipal(final Node principal) {
+
+		for (final Long principalId : getMembers(principal)) {
+			invalidatePrincipal(principalId);
+		}
+	}
+
+	/**
+	 * Invalidates all results for the principal with the given id.
+	 *
+	 * @param principalId
+	 */
+	public static void invalidatePrincipal(final long principalId) {
+
+		version.incrementAndGet();
+
+		final Set<CacheKey> keys = principalIndex.remove(principalId);
+		if (keys != null) {
+
+			for (final CacheKey key : keys) {
+				remove(key, false);
+			}
+		}
+	}
+
+	/**
+	 * Returns the ids of the given principal and of all of its (transitive)
+	 * members. Needs a transaction.
+	 *
+	 * @param principal
+	 * @return the ids of the principal and its members
+	 */
+	public static Set<Long> getMembers(final Node principal) {
+
+		final Queue<Node> queue = new LinkedList<>();
+		final Set<Long> visited = new HashSet<>();
+
+		queue.add(principal);
+
+		while (!queue.isEmpty()) {
+
+			final Node node = queue.poll();
+			if (visited.add(node.getId())) {
+
+				for (final Relationship rel : node.getRelationships(Direction.OUTGOING)) {
+
+					if ("CONTAINS".equals(rel.getType().name())) {
+						queue.add(rel.getEndNode());
+					}
+				}
+			}
+		}
+
+		return visited;
+	}
+
+	public static void invalidate() {
+
+		version.incrementAndGet();
+
+		cache.clear();
+		nodeIndex.clear();
+		principalIndex.clear();
+	}
+
+	public static Map<String, Object> getStatistics() {
+
+		final Map<String, Object> stats = new LinkedHashMap<>();
+
+		stats.put("size",          cache.size());
+		stats.put("maxSize",       Settings.PermissionCacheSize.getValue());
+		stats.put("hits",          hits.get());
+		stats.put("misses",        misses.get());
+		stats.put("evictions",     evictions.get());
+		stats.put("invalidations", invalidations.get());
+
+		return stats;
+	}
+
+	// ----- private methods -----
+	private static void remove(final CacheKey key, final boolean evicted) {
+
+		final CacheEntry entry = cache.remove(key);
+		if (entry != null) {
+
+			if (evicted) {
+				evictions.incrementAndGet();
+			} else {
+				invalidations.incrementAndGet();
+			}
+
+			// remove stale references from indexes
+			final Set<CacheKey> principalKeys = principalIndex.get(key.principalId);
+			if (principalKeys != null) {
+				principalKeys.remove(key);
+			}
+
+			for (final Long dependency : entry.dependencies) {
+
+				final Set<CacheKey> nodeKeys = nodeIndex.get(dependency);
+				if (nodeKeys != null) {
+					nodeKeys.remove(key);
+				}
+			}
+		}
+	}
+
+	private static void evictIfNecessary() {
+
+		final int maxSize = Settings.PermissionCacheSize.getValue();
+		if (cache.size() > maxSize) {
+
+			// evict about ten percent of the entries at once
+			int count = Math.max(1, maxSize / 10);
+
+			for (final Iterator<CacheKey> it = cache.keySet().iterator(); it.hasNext() && count-- > 0;) {
+				remove(it.next(), true);
+			}
+		}
+	}
+
+	private static Set<CacheKey> getIndexSet(final Map<Long, Set<CacheKey>> index, final long id) {
+		return index.computeIfAbsent(id, k -> ConcurrentHashMap.newKeySet());
+	}
+
+	// ----- nested classes -----
+	/**
+	 * Collects the nodes and principals that were modified in a transaction
+	 * while the transaction is still open, so that their results can be
+	 * invalidated when it is finished. A concurrent reader can cache a
+	 * result from the state before the commit after the invalidations that
+	 * ran inside the transaction.
+	 */
+	public static class Invalidation {
+
+		private final Set<Long> principalIds = new HashSet<>();
+		private final Set<Long> nodeIds      = new HashSet<>();
+		private boolean all                  = false;
+
+		public void addNode(final long nodeId) {
+			nodeIds.add(nodeId);
+		}
+
+		public void addPrincipal(final Node principal) {
+
+			try {
+
+				principalIds.addAll(getMembers(principal));
+
+			} catch (Throwable t) {
+
+				// principal was deleted, group closure cannot be resolved any more
+				all = true;
+			}
+		}
+
+		public void addAll() {
+			all = true;
+		}
+
+		public boolean isEmpty() {
+			return !all && nodeIds.isEmpty() && principalIds.isEmpty();
+		}
+
+		public void apply() {
+
+			if (all) {
+
+				invalidate();
+				return;
+			}
+
+			for (final Long nodeId : nodeIds) {
+				invalidateNode(nodeId);
+			}
+
+			for (final Long principalId : principalIds) {
+				invalidatePrincipal(principalId);
+			}
+		}
+	}
+
+	private static class CacheKey {
+
+		private final long nodeId;
+		private final long principalId;
+
+		public CacheKey(final long nodeId, final long principalId) {
+
+			this.nodeId      = nodeId;
+			this.principalId = principalId;
+		}
+
+		@Override
+		public int hashCode() {
+			return Long.hashCode(nodeId) * 31 + Long.hashCode(principalId);
+		}
+
+		@Override
+		public boolean equals(final Object other) {
+
+			if (other instanceof CacheKey) {
+
+				final CacheKey key = (CacheKey)other;
+
+				return key.nodeId == nodeId && key.principalId == principalId;
+			}
+
+			return false;
+		}
+	}
+
+	private static class CacheEntry {
+
+		private final Set<Long> dependencies = ConcurrentHashMap.newKeySet();
+		private final CacheKey key;
+
+		private volatile Boolean read          = null;
+		private volatile Boolean write         = null;
+		private volatile Boolean delete        = null;
+		private volatile Boolean accessControl = null;
+
+		public CacheEntry(final CacheKey key) {
+			this.key = key;
+		}
+
+		public void addDependency(final long nodeId) {
+
+			if (dependencies.add(nodeId)) {
+				getIndexSet(nodeIndex, nodeId).add(key);
+			}
+		}
+
+		public Boolean get(final Permission permission) {
+
+			if (permission.equals(Permission.read)) {
+				return read;
+			}
+
+			if (permission.equals(Permission.write)) {
+				return write;
+			}
+
+			if (permission.equals(Permission.delete)) {
+				return delete;
+			}
+
+			if (permission.equals(Permission.accessControl)) {
+				return accessControl;
+			}
+
+			return null;
+		}
+
+		public void set(final Permission permission, final boolean value) {
+
+			// a granted permission is never overwritten with a denial
+			if (permission.equals(Permission.read) && !Boolean.TRUE.equals(read)) {
+				read = value;
+			}
+
+			if (permission.equals(Permission.write) && !Boolean.TRUE.equals(write)) {
+				write = value;
+			}
+
+			if (permission.equals(Permission.delete) && !Boolean.TRUE.equals(delete)) {
+				delete = value;
+			}
+
+			if (permission.equals(Permission.accessControl) && !Boolean.TRUE.equals(accessControl)) {
+				accessControl = value;
+			}
+		}
+	}
+}
@@ -0,0 +1,95 @@
+/**
+ * Copyright (C) 2010-2018 Structr GmbH
+ *
+ * This file is part of Structr <http://structr.org>.
+ *
+ * Structr is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * Structr is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Structr.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.structr.common;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Thread-safe counter for the number and duration of events per key, e.g.
+ * lock acquisitions or script evaluations.
+ */
+public class TimingStatistics {
+
+	private final Map<String, Timing> timings = new ConcurrentHashMap<>();
+
+	/**
+	 * Records an event of the given duration for the given key.
+	 *
+	 * @param key
+	 * @param nanos the duration in nanoseconds
+	 */
+	public void record(final String key, final long nanos) {
+		timings.computeIfAbsent(key, k -> new Timing()).record(nanos);
+	}
+
+	/**
+	 * Returns the number of events and the total, maximum and average
+	 * duration in milliseconds for each key, in key order.
+	 *
+	 * @return the statistics
+	 */
+	public Map<String, Map<String, Object>> toMap() {
+
+		final Map<String, Map<String, Object>> result = new LinkedHashMap<>();
+
+		for (final String key : new TreeSet<>(timings.keySet())) {
+			result.put(key, timings.get(key).toMap());
+		}
+
+		return result;
+	}
+
+	public void clear() {
+		timings.clear();
+	}
+
+	// ----- nested classes -----
+	private static class Timing {
+
+		private final AtomicLong count   = new AtomicLong();
+		private final AtomicLong time    = new AtomicLong();
+		private final AtomicLong maxTime = new AtomicLong();
+
+		public void record(final long nanos) {
+
+			count.incrementAndGet();
+			time.addAndGet(nanos);
+			maxTime.accumulateAndGet(nanos, Math::max);
+		}
+
+		public Map<String, Object> toMap() {
+
+			final Map<String, Object> map = new LinkedHashMap<>();
+			final long c                  = count.get();
+			final long total              = time.get();
+
+			map.put("count",     c);
+			map.put("totalTime", TimeUnit.NANOSECONDS.toMillis(total));
+			map.put("maxTime",   TimeUnit.NANOSECONDS.toMillis(maxTime.get()));
+			map.put("avgTime",   c > 0 ? TimeUnit.NANOSECONDS.toMillis(total / c) : 0L);
+
+			return map;
+		}
+	}
+}
@@ -18,9 +18,11 @@
  */
 package org.structr.common;
 
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
 import java.util.regex.Pattern;
 import org.apache.commons.lang3.StringUtils;
 import org.slf4j.Logger;
@@ -41,6 +43,7 @@ import org.structr.core.graph.RelationshipInterface;
 import org.structr.core.property.GenericProperty;
 import org.structr.core.property.PropertyKey;
 import org.structr.core.property.PropertyMap;
+import org.structr.schema.SchemaService;
 
 /**
  * Defines helper methods for property validation.
@@ -53,6 +56,14 @@ public class ValidationHelper {
 
 	private static final PropertyKey UnknownType       = new GenericProperty("unknown type");
 	private static final Map<String, Pattern> patterns = new ConcurrentHashMap<>();
+	private static final ReentrantLock[] uniqueLocks   = new ReentrantLock[256];
+
+	static {
+
+		for (int i=0; i<uniqueLocks.length; i++) {
+			uniqueLocks[i] = new ReentrantLock();
+		}
+	}
 
 	// ----- public static methods -----
 	/**
@@ -507,7 +518,7 @@ public class ValidationHelper {
 		return true;
 	}
 
-	public static synchronized boolean isValidUniqueProperty(final GraphObject object, final PropertyKey key, final ErrorBuffer errorBuffer) {
+	public static boolean isValidUniqueProperty(final GraphObject object, final PropertyKey key, final ErrorBuffer errorBuffer) {
 
 		if (key != null) {
 
@@ -525,6 +536,15 @@ public class ValidationHelper {
 					type = object.getClass();
 				}
 
+				// uniqueness is enforced by the database on commit
+				if (object instanceof NodeInterface && SchemaService.hasUniquenessConstraint(type, key)) {
+					return true;
+				}
+
+				final ReentrantLock lock = getUniquenessLock(type, value, key);
+
+				lock.lock();
+
 				try {
 
 					if (object instanceof NodeInterface) {
@@ -547,6 +567,9 @@ public class ValidationHelper {
 
 					logger.warn("", fex);
 
+				} finally {
+
+					lock.unlock();
 				}
 
 				/* This validation code runs at the end of a transaction, so if there
@@ -582,7 +605,7 @@ public class ValidationHelper {
 		return true;
 	}
 
-	public static synchronized boolean areValidCompoundUniqueProperties(final GraphObject object, final ErrorBuffer errorBuffer, final PropertyKey... keys) {
+	public static boolean areValidCompoundUniqueProperties(final GraphObject object, final ErrorBuffer errorBuffer, final PropertyKey... keys) {
 
 		if (keys != null && keys.length > 0) {
 
@@ -607,6 +630,10 @@ public class ValidationHelper {
 				type = object.getClass();
 			}
 
+			final ReentrantLock lock = getUniquenessLock(type, new ArrayList<>(properties.values()), keys);
+
+			lock.lock();
+
 			try {
 
 				if (object instanceof NodeInterface) {
@@ -631,6 +658,9 @@ public class ValidationHelper {
 
 				logger.warn("", fex);
 
+			} finally {
+
+				lock.unlock();
 			}
 
 			/* This validation code runs at the end of a transaction, so if there
@@ -665,13 +695,16 @@ public class ValidationHelper {
 		return true;
 	}
 
-	public static synchronized boolean isValidGloballyUniqueProperty(final GraphObject object, final PropertyKey key, final ErrorBuffer errorBuffer) {
+	public static boolean isValidGloballyUniqueProperty(final GraphObject object, final PropertyKey key, final ErrorBuffer errorBuffer) {
 
 		if (key != null) {
 
 			final Object value                 = object.getProperty(key);
+			final ReentrantLock lock           = getUniquenessLock(GraphObject.class, value, key);
 			List<? extends GraphObject> result = null;
 
+			lock.lock();
+
 			try {
 
 				if (object instanceof NodeInterface) {
@@ -701,6 +734,10 @@ public class ValidationHelper {
 
 				logger.warn("Unable to fetch list of nodes for uniqueness check", fex);
 				// handle error
+
+			} finally {
+
+				lock.unlock();
 			}
 
 			if (result != null) {
@@ -726,4 +763,22 @@ public class ValidationHelper {
 		return true;
 
 	}
+
+	// ----- private methods -----
+	/**
+	 * Returns one of a fixed set of locks, selected by type, keys and value,
+	 * so that only uniqueness checks that can collide are serialized.
+	 */
+	private static ReentrantLock getUniquenessLock(final Class type, final Object value, final PropertyKey... keys) {
+
+		int hash = type.getName().hashCode();
+
+		for (final PropertyKey key : keys) {
+			hash = 31 * hash + key.dbName().hashCode();
+		}
+
+		hash = 31 * hash + (value != null ? value.hashCode() : 0);
+
+		return uniqueLocks[(hash & Integer.MAX_VALUE) % uniqueLocks.length];
+	}
 }
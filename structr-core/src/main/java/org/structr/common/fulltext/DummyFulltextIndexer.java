@@ -18,6 +18,7 @@
  */
 package org.structr.common.fulltext;
 
+import java.util.Collection;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.structr.common.error.FrameworkException;
@@ -42,4 +43,17 @@ public class DummyFulltextIndexer implements FulltextIndexer {
 
 		return new GraphObjectMap();
 	}
+
+	@Override
+	public FulltextSearchResult search(final String searchTerm, final int offset, final int maxResults) {
+
+		logger.warn("No fulltext indexer installed, this is a dummy implementation that does nothing.");
+
+		return new FulltextSearchResult();
+	}
+
+	@Override
+	public void removeFromFulltextIndex(final Collection<String> uuids) {
+		// nothing to remove, called for every deleted indexable object
+	}
 }
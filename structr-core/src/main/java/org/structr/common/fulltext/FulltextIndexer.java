@@ -18,6 +18,7 @@
  */
 package org.structr.common.fulltext;
 
+import java.util.Collection;
 import org.structr.common.error.FrameworkException;
 import org.structr.core.GraphObjectMap;
 
@@ -27,4 +28,22 @@ public interface FulltextIndexer {
 
 	void addToFulltextIndex(final Indexable indexable) throws FrameworkException;
 	GraphObjectMap getContextObject(final String searchTerm, final String text, final int contextLength);
+
+	/**
+	 * Searches the fulltext index and returns the given window of the
+	 * ranked hits.
+	 *
+	 * @param searchTerm the query
+	 * @param offset the number of top-ranked hits to skip
+	 * @param maxResults the maximum number of results
+	 * @return the hits in descending score order and the total number of hits
+	 */
+	FulltextSearchResult search(final String searchTerm, final int offset, final int maxResults);
+
+	/**
+	 * Removes the objects with the given UUIDs from the fulltext index.
+	 *
+	 * @param uuids
+	 */
+	void removeFromFulltextIndex(final Collection<String> uuids);
 }
@@ -0,0 +1,57 @@
+/**
+ * Copyright (C) 2010-2018 Structr GmbH
+ *
+ * This file is part of Structr <http://structr.org>.
+ *
+ * Structr is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * Structr is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Structr.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.structr.common.fulltext;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * A window of the hits of a fulltext query, along with the total number
+ * of documents that match the query.
+ */
+public class FulltextSearchResult {
+
+	private Map<String, Double> hits = null;
+	private int totalCount           = 0;
+
+	public FulltextSearchResult() {
+		this(new LinkedHashMap<>(), 0);
+	}
+
+	public FulltextSearchResult(final Map<String, Double> hits, final int totalCount) {
+
+		this.hits       = hits;
+		this.totalCount = totalCount;
+	}
+
+	/**
+	 * @return a map of the UUIDs of the hits in this window to their scores, in descending score order
+	 */
+	public Map<String, Double> getHits() {
+		return Collections.unmodifiableMap(hits);
+	}
+
+	/**
+	 * @return the number of documents that match the query
+	 */
+	public int getTotalCount() {
+		return totalCount;
+	}
+}
@@ -51,6 +51,7 @@ import org.structr.common.SecurityContext;
 import org.structr.common.error.ErrorBuffer;
 import org.structr.core.app.StructrApp;
 import org.structr.core.graph.NodeService;
+import org.structr.core.scheduler.JobQueueManager;
 import org.structr.schema.ConfigurationProvider;
 import org.structr.schema.SchemaService;
 import org.structr.util.StructrLicenseManager;
@@ -72,6 +73,7 @@ public class Services implements StructrServices {
 
 	// non-static members
 	private final List<InitializationCallback> callbacks       = new LinkedList<>();
+	private final List<Runnable> shutdownCallbacks             = new LinkedList<>();
 	private final Set<Permission> permissionsForOwnerlessNodes = new LinkedHashSet<>();
 	private final Map<String, Object> attributes               = new ConcurrentHashMap<>(10, 0.9f, 8);
 	private final Map<Class, Service> serviceCache             = new ConcurrentHashMap<>(10, 0.9f, 8);
@@ -315,6 +317,16 @@ public class Services implements StructrServices {
 		Collections.sort(callbacks, (o1, o2) -> { return Integer.valueOf(o1.priority()).compareTo(o2.priority()); });
 	}
 
+	/**
+	 * Registers a callback that is executed when the services are shut
+	 * down, before the individual services are stopped.
+	 *
+	 * @param callback
+	 */
+	public void registerShutdownCallback(final Runnable callback) {
+		shutdownCallbacks.add(callback);
+	}
+
 	@Override
 	public LicenseManager getLicenseManager() {
 		return licenseManager;
@@ -340,6 +352,21 @@ public class Services implements StructrServices {
 		if (!shutdownDone) {
 
 			System.out.println("INFO: Shutting down...");
+
+			// detach running jobs so they are resumed after the next start
+			JobQueueManager.getInstance().shutdown();
+
+			for (final Runnable callback : shutdownCallbacks) {
+
+				try {
+
+					callback.run();
+
+				} catch (Throwable t) {
+					logger.warn("Exception while executing shutdown callback", t);
+				}
+			}
+
 			for (Service service : serviceCache.values()) {
 
 				shutdownService(service);
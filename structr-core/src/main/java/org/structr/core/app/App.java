@@ -51,6 +51,17 @@ public interface App extends Closeable {
 	public <T extends NodeInterface> T create(final Class<T> type, final PropertyMap properties) throws FrameworkException;
 	public <T extends NodeInterface> T create(final Class<T> type, final NodeAttribute<?>... attributes) throws FrameworkException;
 
+	/**
+	 * Creates a node for each of the given property maps in bulk.
+	 *
+	 * @param <T>
+	 * @param type
+	 * @param properties
+	 * @return the new nodes, keyed by the index of their property map
+	 * @throws FrameworkException
+	 */
+	public <T extends NodeInterface> Map<Integer, T> createAll(final Class<T> type, final List<PropertyMap> properties) throws FrameworkException;
+
 	public void delete(final NodeInterface node) throws FrameworkException;
 
 	public <A extends NodeInterface, B extends NodeInterface, R extends Relation<A, B, ?, ?>> R create(final A fromNode, final B toNode, final Class<R> relType) throws FrameworkException;
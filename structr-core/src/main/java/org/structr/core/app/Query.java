@@ -51,6 +51,7 @@ public interface Query<T extends GraphObject> extends Iterable<T> {
 	public Query<T> includeDeletedAndHidden();
 	public Query<T> publicOnly(final boolean publicOnly);
 	public Query<T> includeDeletedAndHidden(final boolean includeDeletedAndHidden);
+	public Query<T> cached();
 	public Query<T> uuid(final String uuid);
 	public Query<T> andType(final Class<T> type);
 	public Query<T> orType(final Class<T> type);
@@ -66,6 +67,8 @@ public interface Query<T extends GraphObject> extends Iterable<T> {
 	public Query<T> location(final String street, final String postalCode, final String city, final String state, final String country, final double distance);
 	public Query<T> location(final String street, final String house, final String postalCode, final String city, final String state, final String country, final double distance);
 
+	public Query<T> fulltext(final String searchTerm);
+
 	default public <P> Query<T> and(final String name, final P value) {
 
 		final PropertyKey<P> key = StructrApp.getConfiguration().getPropertyKeyForJSONName(getType(), name, false);
@@ -21,6 +21,7 @@ package org.structr.core.app;
 import java.io.IOException;
 import java.lang.reflect.Modifier;
 import java.net.URI;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.LinkedHashMap;
 import java.util.LinkedList;
@@ -34,6 +35,7 @@ import org.structr.api.DatabaseService;
 import org.structr.api.NotFoundException;
 import org.structr.api.config.Settings;
 import org.structr.api.graph.GraphProperties;
+import org.structr.api.graph.Relationship;
 import org.structr.api.service.Command;
 import org.structr.api.service.Service;
 import org.structr.api.util.FixedSizeCache;
@@ -58,6 +60,7 @@ import org.structr.core.graph.NodeInterface;
 import org.structr.core.graph.NodeServiceCommand;
 import org.structr.core.graph.RelationshipFactory;
 import org.structr.core.graph.RelationshipInterface;
+import org.structr.core.graph.RelationshipUuidIndex;
 import org.structr.core.graph.Tx;
 import org.structr.core.graph.search.SearchNodeCommand;
 import org.structr.core.graph.search.SearchRelationshipCommand;
@@ -76,7 +79,6 @@ public class StructrApp implements App {
 	private static final Logger logger = LoggerFactory.getLogger(StructrApp.class);
 
 	private static FixedSizeCache<String, Long> nodeUuidMap = null;
-	private static FixedSizeCache<String, Long> relUuidMap  = null;
 	private static final URI schemaBaseURI                  = URI.create("https://structr.org/v1.1/#");
 	private static final Object globalConfigLock            = new Object();
 	private RelationshipFactory relFactory                  = null;
@@ -105,33 +107,25 @@ public class StructrApp implements App {
 		}
 
 		final CreateNodeCommand<T> command = command(CreateNodeCommand.class);
-		final PropertyMap properties       = new PropertyMap(source);
-		String finalType                   = type.getSimpleName();
 
-		// try to identify the actual type from input set (creation wouldn't work otherwise anyway)
-		final String typeFromInput = properties.get(NodeInterface.type);
-		if (typeFromInput != null) {
-
-			Class actualType = StructrApp.getConfiguration().getNodeEntityClass(typeFromInput);
-			if (actualType == null) {
-
-				// overwrite type information when creating a node (adhere to type specified by resource!)
-				properties.put(AbstractNode.type, type.getSimpleName());
+		return command.execute(getCreationProperties(type, source));
+	}
 
-			} else if (actualType.isInterface() || Modifier.isAbstract(actualType.getModifiers())) {
+	@Override
+	public <T extends NodeInterface> Map<Integer, T> createAll(final Class<T> type, final List<PropertyMap> source) throws FrameworkException {
 
-				throw new FrameworkException(422, "Invalid abstract type " + type.getSimpleName() + ", please supply a non-abstract class name in the type property");
+		if (type == null) {
+			throw new FrameworkException(422, "Empty type (null). Please supply a valid class name in the type property.");
+		}
 
-			} else {
+		final CreateNodeCommand<T> command = command(CreateNodeCommand.class);
+		final List<PropertyMap> properties = new ArrayList<>(source.size());
 
-				finalType = actualType.getSimpleName();
-			}
+		for (final PropertyMap map : source) {
+			properties.add(getCreationProperties(type, map));
 		}
 
-		// set type
-		properties.put(AbstractNode.type, finalType);
-
-		return command.execute(properties);
+		return command.executeBatch(properties);
 	}
 
 	@Override
@@ -164,7 +158,6 @@ public class StructrApp implements App {
 
 	@Override
 	public void delete(final RelationshipInterface relationship) {
-		removeRelFromCache(relationship);
 		command(DeleteRelationshipCommand.class).execute(relationship);
 	}
 
@@ -222,35 +215,58 @@ public class StructrApp implements App {
 			return null;
 		}
 
-		final Long id = getRelFromCache(uuid);
-		if (id == null) {
+		final DatabaseService db = getDatabaseService();
+		final Long id            = RelationshipUuidIndex.get(uuid);
 
-			final Query query = relationshipQuery().uuid(uuid);
+		if (id != null) {
 
-			// set type for faster query
-			if (type != null) {
-				query.andType(type);
-			} else {
+			try {
+				final RelationshipInterface rel = relFactory.instantiate(db.getRelationshipById(id));
 
-				logger.warn("Relationship access by UUID is deprecated and not supported by Neo4j, this can take a very long time. Please examine the following stack trace and amend.");
-				Thread.dumpStack();
-			}
+				// relationship IDs can be reused, so make sure the entry is still valid
+				if (rel != null && uuid.equals(rel.getUuid())) {
+					return rel;
+				}
 
-			final GraphObject entity = query.getFirst();
-			if (entity != null) {
+			} catch (NotFoundException ignore) {}
+
+			RelationshipUuidIndex.remove(uuid);
+		}
+
+		if (db.hasRelationshipUuidIndex()) {
 
-				relUuidMap.put(uuid, entity.getId());
-				return (RelationshipInterface)entity;
+			final Relationship dbRelationship = db.getRelationshipByUuid(uuid);
+			if (dbRelationship != null) {
+
+				final RelationshipInterface rel = relFactory.instantiate(dbRelationship);
+				if (rel != null) {
+
+					RelationshipUuidIndex.add(uuid, rel.getId());
+					return rel;
+				}
 			}
 
+			// relationships that are not in the index can only be found with a type
+			if (type == null) {
+				return null;
+			}
+		}
+
+		final Query query = relationshipQuery().uuid(uuid);
+
+		// set type for faster query
+		if (type != null) {
+			query.andType(type);
 		} else {
 
-			try {
-				return relFactory.instantiate(getDatabaseService().getRelationshipById(id));
+			logger.debug("Relationship UUID index not available, falling back to full scan for {}.", uuid);
+		}
 
-			} catch (NotFoundException ignore) {
-				relUuidMap.remove(uuid);
-			}
+		final GraphObject entity = query.getFirst();
+		if (entity != null) {
+
+			RelationshipUuidIndex.add(uuid, entity.getId());
+			return (RelationshipInterface)entity;
 		}
 
 		return null;
@@ -489,9 +505,7 @@ public class StructrApp implements App {
 			nodeUuidMap.remove(uuid);
 		}
 
-		if (relUuidMap != null) {
-			relUuidMap.remove(uuid);
-		}
+		RelationshipUuidIndex.remove(uuid);
 	}
 
 	public static <T> PropertyKey<T> key(final Class type, final String name) {
@@ -558,24 +572,45 @@ public class StructrApp implements App {
 	private static final Map<Class, URI> typeIdMap   = new LinkedHashMap<>();
 
 	// ---------- private methods -----
-	private synchronized Long getNodeFromCache(final String uuid) {
+	private PropertyMap getCreationProperties(final Class type, final PropertyMap source) throws FrameworkException {
 
-		if (nodeUuidMap == null) {
+		final PropertyMap properties = new PropertyMap(source);
+		String finalType             = type.getSimpleName();
 
-			nodeUuidMap = new FixedSizeCache<>(Settings.UuidCacheSize.getValue());
+		// try to identify the actual type from input set (creation wouldn't work otherwise anyway)
+		final String typeFromInput = properties.get(NodeInterface.type);
+		if (typeFromInput != null) {
+
+			Class actualType = StructrApp.getConfiguration().getNodeEntityClass(typeFromInput);
+			if (actualType == null) {
+
+				// overwrite type information when creating a node (adhere to type specified by resource!)
+				properties.put(AbstractNode.type, type.getSimpleName());
+
+			} else if (actualType.isInterface() || Modifier.isAbstract(actualType.getModifiers())) {
+
+				throw new FrameworkException(422, "Invalid abstract type " + type.getSimpleName() + ", please supply a non-abstract class name in the type property");
+
+			} else {
+
+				finalType = actualType.getSimpleName();
+			}
 		}
 
-		return nodeUuidMap.get(uuid);
+		// set type
+		properties.put(AbstractNode.type, finalType);
+
+		return properties;
 	}
 
-	private synchronized Long getRelFromCache(final String uuid) {
+	private synchronized Long getNodeFromCache(final String uuid) {
 
-		if (relUuidMap == null) {
+		if (nodeUuidMap == null) {
 
-			relUuidMap = new FixedSizeCache<>(Settings.UuidCacheSize.getValue());
+			nodeUuidMap = new FixedSizeCache<>(Settings.UuidCacheSize.getValue());
 		}
 
-		return relUuidMap.get(uuid);
+		return nodeUuidMap.get(uuid);
 	}
 
 	private synchronized void removeNodeFromCache(final NodeInterface node) {
@@ -594,22 +629,6 @@ public class StructrApp implements App {
 		}
 	}
 
-	private synchronized void removeRelFromCache(final RelationshipInterface rel) {
-
-		if (rel != null) {
-
-			final String uuid = rel.getUuid();
-			if (uuid != null) {
-
-				if (relUuidMap == null) {
-
-					relUuidMap = new FixedSizeCache<>(Settings.UuidCacheSize.getValue());
-				}
-
-			}
-		}
-	}
-
 	@Override
 	public void invalidateCache(){
 
@@ -617,9 +636,6 @@ public class StructrApp implements App {
 			nodeUuidMap.clear();
 		}
 
-		if (relUuidMap != null) {
-			relUuidMap.clear();
-		}
-
+		RelationshipUuidIndex.clear();
 	}
 }
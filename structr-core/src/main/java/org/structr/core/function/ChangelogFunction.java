@@ -38,6 +38,7 @@ import org.structr.core.GraphObjectMap;
 import org.structr.core.app.App;
 import org.structr.core.app.StructrApp;
 import org.structr.core.entity.AbstractNode;
+import org.structr.core.graph.ChangelogStore;
 import org.structr.core.property.EndNodeProperty;
 import org.structr.core.property.Property;
 import org.structr.core.property.StringProperty;
@@ -83,44 +84,37 @@ public class ChangelogFunction extends Function<Object, Object> {
 
 			if (sources[0] instanceof GraphObject) {
 
-				final String changelog = ((GraphObject) sources[0]).getProperty(GraphObject.structrChangeLog);
+				final ChangelogFilter changelogFilter = new ChangelogFilter();
 
-				if (changelog != null && !("".equals(changelog))) {
+				if (sources.length >= 3 && sources[2] != null) {
 
-					final ChangelogFilter changelogFilter = new ChangelogFilter();
+					if (sources[2] instanceof NativeObject) {
 
-					if (sources.length >= 3 && sources[2] != null) {
+						changelogFilter.processJavaScriptConfigurationObject((NativeObject) sources[2]);
 
-						if (sources[2] instanceof NativeObject) {
+					} else {
 
-							changelogFilter.processJavaScriptConfigurationObject((NativeObject) sources[2]);
+						final int maxLength = sources.length;
 
-						} else {
-
-							final int maxLength = sources.length;
-
-							for (int i = 2; (i + 2) <= maxLength; i += 2) {
-
-								if (sources[i] != null && sources[i+1] != null) {
-									changelogFilter.addFilterEntry(sources[i].toString(), sources[i+1]);
-								}
+						for (int i = 2; (i + 2) <= maxLength; i += 2) {
 
+							if (sources[i] != null && sources[i+1] != null) {
+								changelogFilter.addFilterEntry(sources[i].toString(), sources[i+1]);
 							}
 
-							if (maxLength % 2 == 1 && sources[maxLength-1] != null) {
-								logger.warn("Ignoring dangling filterKey: {}", sources[maxLength-1]);
-							}
 						}
-					}
 
-					if (sources.length >= 2 && Boolean.TRUE.equals(sources[1])) {
-						changelogFilter.setResolveTargets(true);
+						if (maxLength % 2 == 1 && sources[maxLength-1] != null) {
+							logger.warn("Ignoring dangling filterKey: {}", sources[maxLength-1]);
+						}
 					}
+				}
 
-					return changelogFilter.getFilteredChangelog(changelog);
+				if (sources.length >= 2 && Boolean.TRUE.equals(sources[1])) {
+					changelogFilter.setResolveTargets(true);
 				}
 
-				return new ArrayList();
+				return changelogFilter.getFilteredChangelog((GraphObject) sources[0]);
 
 			} else {
 
@@ -250,78 +244,93 @@ public class ChangelogFunction extends Function<Object, Object> {
 			_resolveTargets = resolve;
 		}
 
-		public List getFilteredChangelog (final String changelog) throws FrameworkException {
+		public List getFilteredChangelog (final GraphObject entity) throws FrameworkException {
 
-			final List list = new ArrayList();
+			final List<GraphObjectMap> list = new ArrayList();
 
 			_noFilterConfig = (
 					_filterVerbs.isEmpty() && _filterTimeFrom == null && _filterTimeTo == null && _filterUserId.isEmpty() &&
 					_filterUserName.isEmpty() && _filterRelType.isEmpty() && _filterRelDir == null && _filterTarget.isEmpty() && _filterKey.isEmpty()
 			);
 
-			for (final String entry : changelog.split("\n")) {
-
-				final JsonObject jsonObj = _jsonParser.parse(entry).getAsJsonObject();
-				final String verb = jsonObj.get("verb").getAsString();
-				final long time = jsonObj.get("time").getAsLong();
-				final String userId = jsonObj.get("userId").getAsString();
-				final String userName = jsonObj.get("userName").getAsString();
-				final String relType = (jsonObj.has("rel") ? jsonObj.get("rel").getAsString() : null);
-				final String relId = (jsonObj.has("relId") ? jsonObj.get("relId").getAsString() : null);
-				final String relDir = (jsonObj.has("relDir") ? jsonObj.get("relDir").getAsString() : null);
-				final String target = (jsonObj.has("target") ? jsonObj.get("target").getAsString() : null);
-				final String key = (jsonObj.has("key") ? jsonObj.get("key").getAsString() : null);
-
-				if (doesFilterApply(verb, time, userId, userName, relType, relDir, target, key)) {
-
-					final GraphObjectMap obj = new GraphObjectMap();
-
-					obj.put(changelog_verb, verb);
-					obj.put(changelog_time, time);
-					obj.put(changelog_userId, userId);
-					obj.put(changelog_userName, userName);
-
-					switch (verb) {
-						case "create":
-						case "delete":
-							obj.put(changelog_target, target);
-							if (_resolveTargets) {
-								obj.put(changelog_targetObj, _app.getNodeById(target));
-							}
-							list.add(obj);
-							break;
-
-						case "link":
-						case "unlink":
-							obj.put(changelog_rel, relType);
-							obj.put(changelog_relId, relId);
-							obj.put(changelog_relDir, relDir);
-							obj.put(changelog_target, target);
-							if (_resolveTargets) {
-								obj.put(changelog_targetObj, _app.getNodeById(target));
-							}
-							list.add(obj);
-							break;
-
-						case "change":
-							obj.put(changelog_key, key);
-							obj.put(changelog_prev, _gson.toJson(jsonObj.get("prev")));
-							obj.put(changelog_val, _gson.toJson(jsonObj.get("val")));
-							list.add(obj);
-							break;
-
-						default:
-							logger.warn("Unknown verb in changelog: \"{}\"", verb);
-							break;
-					}
+			// entries written before the changelog store was introduced
+			final String changelog = entity.getProperty(GraphObject.structrChangeLog);
+			if (changelog != null && !("".equals(changelog))) {
 
+				for (final String entry : changelog.split("\n")) {
+					filterEntry(entry, list);
 				}
+			}
 
+			ChangelogStore.getInstance().forEach(entity.getUuid(), entry -> filterEntry(entry, list));
+
+			if (_resolveTargets) {
+
+				for (final GraphObjectMap obj : list) {
+
+					final String target = obj.getProperty(changelog_target);
+					if (target != null) {
+
+						obj.put(changelog_targetObj, _app.getNodeById(target));
+					}
+				}
 			}
 
 			return list;
 		}
 
+		private void filterEntry (final String entry, final List<GraphObjectMap> list) {
+
+			final JsonObject jsonObj = _jsonParser.parse(entry).getAsJsonObject();
+			final String verb = jsonObj.get("verb").getAsString();
+			final long time = jsonObj.get("time").getAsLong();
+			final String userId = jsonObj.get("userId").getAsString();
+			final String userName = jsonObj.get("userName").getAsString();
+			final String relType = (jsonObj.has("rel") ? jsonObj.get("rel").getAsString() : null);
+			final String relId = (jsonObj.has("relId") ? jsonObj.get("relId").getAsString() : null);
+			final String relDir = (jsonObj.has("relDir") ? jsonObj.get("relDir").getAsString() : null);
+			final String target = (jsonObj.has("target") ? jsonObj.get("target").getAsString() : null);
+			final String key = (jsonObj.has("key") ? jsonObj.get("key").getAsString() : null);
+
+			if (doesFilterApply(verb, time, userId, userName, relType, relDir, target, key)) {
+
+				final GraphObjectMap obj = new GraphObjectMap();
+
+				obj.put(changelog_verb, verb);
+				obj.put(changelog_time, time);
+				obj.put(changelog_userId, userId);
+				obj.put(changelog_userName, userName);
+
+				switch (verb) {
+					case "create":
+					case "delete":
+						obj.put(changelog_target, target);
+						list.add(obj);
+						break;
+
+					case "link":
+					case "unlink":
+						obj.put(changelog_rel, relType);
+						obj.put(changelog_relId, relId);
+						obj.put(changelog_relDir, relDir);
+						obj.put(changelog_target, target);
+						list.add(obj);
+						break;
+
+					case "change":
+						obj.put(changelog_key, key);
+						obj.put(changelog_prev, _gson.toJson(jsonObj.get("prev")));
+						obj.put(changelog_val, _gson.toJson(jsonObj.get("val")));
+						list.add(obj);
+						break;
+
+					default:
+						logger.warn("Unknown verb in changelog: \"{}\"", verb);
+						break;
+				}
+			}
+		}
+
 		public boolean doesFilterApply (final String verb, final long time, final String userId, final String userName, final String relType, final String relDir, final String target, final String key) {
 
 			return (
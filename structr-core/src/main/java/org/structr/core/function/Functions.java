@@ -29,6 +29,7 @@ import java.util.LinkedList;
 import java.util.Map;
 import java.util.Set;
 import org.apache.commons.lang3.StringUtils;
+import org.structr.api.util.FixedSizeCache;
 import org.structr.common.error.FrameworkException;
 import org.structr.common.error.UnlicensedException;
 import org.structr.core.GraphObject;
@@ -61,6 +62,7 @@ import org.structr.schema.action.Function;
 public class Functions {
 
 	private static final Map<String, Function<Object, Object>> functions = new LinkedHashMap<>();
+	private static final FixedSizeCache<String, Expression> parseCache   = new FixedSizeCache<>(10000);
 	public static final String NULL_STRING                               = "___NULL___";
 
 	public static void put(final boolean licensed, final int edition, final String name, final Function<Object, Object> function) {
@@ -73,6 +75,8 @@ public class Functions {
 
 			functions.put(name, new UnlicensedFunction(name, edition));
 		}
+
+		parseCache.clear();
 	}
 
 	public static Set<String> getNames() {
@@ -89,6 +93,28 @@ public class Functions {
 
 	public static Object evaluate(final ActionContext actionContext, final GraphObject entity, final String expression) throws FrameworkException, UnlicensedException {
 
+		Expression root = parseCache.get(expression);
+		if (root == null) {
+
+			root = parse(expression);
+
+			parseCache.put(expression, root);
+		}
+
+		// parsed expressions are shared, all evaluation state is stored in the action context
+		return root.evaluate(actionContext, entity);
+	}
+
+	/**
+	 * Parses the given expression into an expression tree. The tree is not
+	 * modified during evaluation and can be cached and shared between threads.
+	 *
+	 * @param expression
+	 * @return the root of the expression tree
+	 * @throws FrameworkException
+	 */
+	public static Expression parse(final String expression) throws FrameworkException {
+
 		final String expressionWithoutNewlines = expression.replace('\n', ' ').replace('\r', ' ');
 		final StreamTokenizer tokenizer = new StreamTokenizer(new StringReader(expressionWithoutNewlines));
 		tokenizer.eolIsSignificant(true);
@@ -214,7 +240,15 @@ public class Functions {
 			throw new FrameworkException(422, "Invalid expression: mismatched closing bracket after " + lastToken);
 		}
 
-		return root.evaluate(actionContext, entity);
+		return root;
+	}
+
+	/**
+	 * Removes all parsed expressions, must be called when the set of
+	 * available functions changes.
+	 */
+	public static void clearParseCache() {
+		parseCache.clear();
 	}
 
 	public static String cleanString(final Object input) {
@@ -20,10 +20,12 @@ package org.structr.core.graph;
 
 import java.util.Collections;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.Map;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.structr.api.DatabaseService;
+import org.structr.api.NativeResult;
 import org.structr.api.util.Iterables;
 import org.structr.common.SecurityContext;
 import org.structr.common.StructrAndSpatialPredicate;
@@ -139,7 +141,22 @@ public class BulkRebuildIndexCommand extends NodeServiceCommand implements Maint
 
 			@Override
 			public void handleGraphObject(SecurityContext securityContext, AbstractRelationship rel) {
+
 				rel.updateInIndex();
+
+				// write the UUID again so that relationships created before the
+				// database-side relationship UUID index was enabled are indexed
+				final String uuid = rel.getUuid();
+				if (uuid != null && graphDb.hasRelationshipUuidIndex()) {
+
+					final Map<String, Object> parameters = new LinkedHashMap<>();
+
+					parameters.put("id",   rel.getId());
+					parameters.put("uuid", uuid);
+
+					// the property must be removed first, setting the same value again is not an index update
+					try (final NativeResult result = graphDb.execute("MATCH ()-[r]->() WHERE ID(r) = {id} REMOVE r.id SET r.id = {uuid}", parameters)) {}
+				}
 			}
 
 			@Override
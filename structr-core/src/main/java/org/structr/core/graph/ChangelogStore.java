@@ -0,0 +1,783 @@
+/**
+ * Copyright (C) 2010-2018 Structr GmbH
+ *
+ * This file is part of Structr <http://structr.org>.
+ *
+ * Structr is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * Structr is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Structr.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.structr.core.graph;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.structr.api.config.Settings;
+
+/**
+ * Append-only store for the changelog of nodes and relationships.
+ *
+ * Entries are appended to segment files in the changelog directory, an
+ * in-memory index maps the UUID of each entity to the positions of its
+ * entries and is rebuilt from the segments on startup. Removing the
+ * changelog of an entity appends a tombstone, i.e. an entry without
+ * content, that hides all earlier entries of the entity. Sealed segments
+ * are compacted when most of their entries belong to removed entities,
+ * and removed entirely when they are older than the retention period.
+ */
+public class ChangelogStore {
+
+	private static final Logger logger                  = LoggerFactory.getLogger(ChangelogStore.class.getName());
+	private static final String SEGMENT_SUFFIX          = ".log";
+	private static final String COMPACTION_SUFFIX       = ".compact";
+	private static final double COMPACTION_THRESHOLD    = 0.5;
+	private static final byte[] TOMBSTONE               = new byte[0];
+	private static final ExecutorService maintenance    = Executors.newSingleThreadExecutor(r -> {
+
+		final Thread thread = new Thread(r, "ChangelogMaintenance");
+		thread.setDaemon(true);
+
+		return thread;
+	});
+
+	private static ChangelogStore instance = null;
+
+	private final ReentrantReadWriteLock lock            = new ReentrantReadWriteLock();
+	private final TreeMap<Integer, Segment> segments     = new TreeMap<>();
+	private final Map<String, Positions> index           = new HashMap<>();
+	private final AtomicBoolean maintenanceScheduled     = new AtomicBoolean(false);
+	private File directory                               = null;
+	private Segment current                              = null;
+	private long maxSegmentSize                          = 0L;
+	private long retention                               = 0L;
+	private boolean closed                               = false;
+
+	/**
+	 * Opens the store in the given directory and rebuilds the index from
+	 * the existing segments.
+	 *
+	 * @param directory the directory that contains the segment files
+	 * @param maxSegmentSize the size in bytes after which a new segment is started
+	 * @param retention the time in milliseconds after which entries are removed, 0 keeps all entries
+	 */
+	public ChangelogStore(final File directory, final long maxSegmentSize, final long retention) {
+
+		this.directory      = directory;
+		this.maxSegmentSize = maxSegmentSize;
+		this.retention      = retention;
+
+		open();
+	}
+
+	/**
+	 * @return the store in the configured changelog directory
+	 */
+	public static synchronized ChangelogStore getInstance() {
+
+		final File directory = new File(Settings.getFullSettingPath(Settings.ChangelogPath));
+
+		if (instance == null || !instance.directory.equals(directory)) {
+
+			if (instance != null) {
+				instance.close();
+			}
+
+			instance = new ChangelogStore(
+				directory,
+				Settings.ChangelogSegmentSize.getValue() * 1024L * 1024L,
+				TimeUnit.DAYS.toMillis(Settings.ChangelogRetention.getValue())
+			);
+		}
+
+		return instance;
+	}
+
+	/**
+	 * Appends the given changelog entries, one per line, to the
+	 * changelog of the entity with the given UUID.
+	 *
+	 * @param changelogs map of UUIDs to newline-separated changelog entries
+	 */
+	public void append(final Map<String, String> changelogs) {
+
+		boolean sealed = false;
+
+		lock.writeLock().lock();
+		try {
+
+			if (closed) {
+				return;
+			}
+
+			for (final Entry<String, String> entry : changelogs.entrySet()) {
+
+				final String uuid = entry.getKey();
+
+				for (final String line : entry.getValue().split("\n")) {
+
+					if (!line.isEmpty()) {
+
+						sealed |= rollover();
+
+						final long position = current.append(uuid, line.getBytes(StandardCharsets.UTF_8));
+
+						index.computeIfAbsent(uuid, k -> new Positions()).add(encode(current.id, position));
+					}
+				}
+			}
+
+		} catch (IOException ioex) {
+
+			logger.warn("Unable to write changelog to {}: {}", directory.getAbsolutePath(), ioex.getMessage());
+
+		} finally {
+
+			lock.writeLock().unlock();
+		}
+
+		if (sealed) {
+			scheduleMaintenance();
+		}
+	}
+
+	/**
+	 * Removes the changelog of the entities with the given UUIDs. The
+	 * removal is persisted as a tombstone, the entries are dropped from
+	 * the segment files when they are compacted.
+	 *
+	 * @param uuids
+	 */
+	public void remove(final Collection<String> uuids) {
+
+		boolean compact = false;
+		boolean sealed  = false;
+
+		lock.writeLock().lock();
+		try {
+
+			if (closed) {
+				return;
+			}
+
+			for (final String uuid : uuids) {
+
+				final Positions positions = index.remove(uuid);
+				if (positions != null) {
+
+					compact |= markRemoved(positions);
+					sealed  |= rollover();
+
+					current.append(uuid, TOMBSTONE);
+				}
+			}
+
+		} catch (IOException ioex) {
+
+			logger.warn("Unable to write changelog to {}: {}", directory.getAbsolutePath(), ioex.getMessage());
+
+		} finally {
+
+			lock.writeLock().unlock();
+		}
+
+		if (compact || sealed) {
+			scheduleMaintenance();
+		}
+	}
+
+	/**
+	 * Passes the changelog entries of the entity with the given UUID to
+	 * the given consumer, in the order they were written. The store
+	 * cannot be modified while the consumer runs.
+	 *
+	 * @param uuid
+	 * @param consumer
+	 */
+	public void forEach(final String uuid, final Consumer<String> consumer) {
+
+		lock.readLock().lock();
+		try {
+
+			final Positions positions = index.get(uuid);
+			if (positions != null && !closed) {
+
+				for (int i=0; i<positions.size; i++) {
+
+					final Segment segment = segments.get(segment(positions.values[i]));
+					if (segment != null) {
+
+						consumer.accept(segment.read(offset(positions.values[i])));
+					}
+				}
+			}
+
+		} catch (IOException ioex) {
+
+			logger.warn("Unable to read changelog from {}: {}", directory.getAbsolutePath(), ioex.getMessage());
+
+		} finally {
+
+			lock.readLock().unlock();
+		}
+	}
+
+	/**
+	 * @param uuid
+	 * @return the changelog entries of the entity with the given UUID
+	 */
+	public List<String> get(final String uuid) {
+
+		final List<String> entries = new ArrayList<>();
+
+		forEach(uuid, entries::add);
+
+		return entries;
+	}
+
+	/**
+	 * Removes the segments that are older than the retention period and
+	 * compacts the sealed segments which mostly contain entries of removed
+	 * entities.
+	 */
+	public void maintain() {
+
+		lock.writeLock().lock();
+		try {
+
+			if (closed) {
+				return;
+			}
+
+			if (retention > 0L) {
+
+				final long cutoff = System.currentTimeMillis() - retention;
+
+				for (final Iterator<Segment> it = segments.values().iterator(); it.hasNext();) {
+
+					final Segment segment = it.next();
+
+					if (segment != current && segment.file.lastModified() < cutoff) {
+
+						segment.delete();
+						it.remove();
+
+						removePositions(segment.id);
+					}
+				}
+			}
+
+			for (final Segment segment : new ArrayList<>(segments.values())) {
+
+				if (segment != current && segment.needsCompaction()) {
+					compact(segment);
+				}
+			}
+
+		} catch (IOException ioex) {
+
+			logger.warn("Unable to compact changelog in {}: {}", directory.getAbsolutePath(), ioex.getMessage());
+
+		} finally {
+
+			lock.writeLock().unlock();
+		}
+	}
+
+	public void close() {
+
+		lock.writeLock().lock();
+		try {
+
+			for (final Segment segment : segments.values()) {
+				segment.close();
+			}
+
+			segments.clear();
+			index.clear();
+
+			closed = true;
+
+		} finally {
+
+			lock.writeLock().unlock();
+		}
+	}
+
+	// ----- private methods -----
+	private void open() {
+
+		lock.writeLock().lock();
+		try {
+
+			directory.mkdirs();
+
+			final File[] files = directory.listFiles();
+			if (files != null) {
+
+				for (final File file : files) {
+
+					final String name = file.getName();
+
+					if (name.endsWith(COMPACTION_SUFFIX)) {
+
+						// leftover of an interrupted compaction, the original segment is still intact
+						Files.deleteIfExists(file.toPath());
+
+					} else if (name.endsWith(SEGMENT_SUFFIX)) {
+
+						final int id = Integer.parseInt(name.substring(0, name.length() - SEGMENT_SUFFIX.length()));
+
+						segments.put(id, new Segment(id, file));
+					}
+				}
+			}
+
+			for (final Segment segment : segments.values()) {
+				recover(segment);
+			}
+
+			if (segments.isEmpty()) {
+
+				current = createSegment(1);
+
+			} else {
+
+				current = segments.lastEntry().getValue();
+			}
+
+		} catch (IOException | NumberFormatException ex) {
+
+			logger.warn("Unable to open changelog in {}: {}", directory.getAbsolutePath(), ex.getMessage());
+			closed = true;
+
+		} finally {
+
+			lock.writeLock().unlock();
+		}
+
+		scheduleMaintenance();
+	}
+
+	/**
+	 * Adds the entries of the given segment to the index, and truncates an
+	 * incomplete entry at the end of the segment. Segments must be
+	 * recovered in the order they were written, so that tombstones hide
+	 * the earlier entries of removed entities.
+	 */
+	private void recover(final Segment segment) throws IOException {
+
+		long position = 0L;
+
+		try (final DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(segment.file)))) {
+
+			while (position + 4 <= segment.size) {
+
+				final int length = in.readInt();
+
+				if (length < 2 || position + 4 + length > segment.size) {
+					break;
+				}
+
+				final String uuid = in.readUTF();
+				final int skip    = length - 2 - uuidLength(uuid);
+
+				if (skip < 0 || in.skipBytes(skip) != skip) {
+					break;
+				}
+
+				if (skip == 0) {
+
+					final Positions positions = index.remove(uuid);
+					if (positions != null) {
+
+						markRemoved(positions);
+					}
+
+					if (isOldest(segment)) {
+
+						// tombstones in the oldest segment hide nothing and can be dropped
+						segment.deadBytes += 4 + length;
+					}
+
+				} else {
+
+					index.computeIfAbsent(uuid, k -> new Positions()).add(encode(segment.id, position));
+				}
+
+				position += 4 + length;
+			}
+
+		} catch (EOFException eofex) {
+			// handled below
+		}
+
+		if (position < segment.size) {
+
+			logger.warn("Truncating incomplete changelog entry in {}", segment.file.getAbsolutePath());
+
+			segment.channel.truncate(position);
+			segment.size = position;
+		}
+	}
+
+	/**
+	 * Copies the entries of existing entities to a new file which replaces
+	 * the given segment. Tombstones are kept unless the segment is the
+	 * oldest one, because older segments can still contain entries of the
+	 * removed entities.
+	 */
+	private void compact(final Segment segment) throws IOException {
+
+		final File target            = new File(directory, segment.file.getName() + COMPACTION_SUFFIX);
+		final long time              = segment.file.lastModified();
+		final boolean keepTombstones = !isOldest(segment);
+
+		try (final Segment compacted = new Segment(segment.id, target)) {
+
+			try (final DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(segment.file)))) {
+
+				long position = 0L;
+
+				while (position < segment.size) {
+
+					final int length   = in.readInt();
+					final String uuid  = in.readUTF();
+					final byte[] entry = new byte[length - 2 - uuidLength(uuid)];
+
+					in.readFully(entry);
+
+					if (entry.length == 0) {
+
+						if (keepTombstones) {
+							compacted.append(uuid, entry);
+						}
+
+					} else {
+
+						final Positions positions = index.get(uuid);
+						final long oldPosition    = encode(segment.id, position);
+
+						if (positions != null && positions.contains(oldPosition)) {
+
+							positions.replace(oldPosition, encode(segment.id, compacted.append(uuid, entry)));
+						}
+					}
+
+					position += 4 + length;
+				}
+			}
+
+			compacted.channel.force(true);
+		}
+
+		segment.close();
+
+		// keep the original modification time for the retention period
+		target.setLastModified(time);
+
+		Files.move(target.toPath(), segment.file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+
+		segments.put(segment.id, new Segment(segment.id, segment.file));
+	}
+
+	/**
+	 * Starts a new segment if the current one is full.
+	 *
+	 * @return whether the current segment was sealed
+	 */
+	private boolean rollover() throws IOException {
+
+		if (current.size >= maxSegmentSize) {
+
+			current = createSegment(current.id + 1);
+
+			return true;
+		}
+
+		return false;
+	}
+
+	/**
+	 * Adds the size of the given entries to the dead bytes of their
+	 * segments.
+	 *
+	 * @return whether a sealed segment needs to be compacted
+	 */
+	private boolean markRemoved(final Positions positions) throws IOException {
+
+		boolean compact = false;
+
+		for (int i=0; i<positions.size; i++) {
+
+			final Segment segment = segments.get(segment(positions.values[i]));
+			if (segment != null) {
+
+				segment.deadBytes += segment.recordSize(offset(positions.values[i]));
+				compact |= segment != current && segment.needsCompaction();
+			}
+		}
+
+		return compact;
+	}
+
+	private boolean isOldest(final Segment segment) {
+		return segment.id == segments.firstKey();
+	}
+
+	private Segment createSegment(final int id) throws IOException {
+
+		final Segment segment = new Segment(id, new File(directory, String.format("%012d", id) + SEGMENT_SUFFIX));
+
+		segments.put(id, segment);
+
+		return segment;
+	}
+
+	private void removePositions(final int segmentId) {
+
+		for (final Iterator<Positions> it = index.values().iterator(); it.hasNext();) {
+
+			final Positions positions = it.next();
+
+			positions.removeSegment(segmentId);
+
+			if (positions.size == 0) {
+				it.remove();
+			}
+		}
+	}
+
+	private void scheduleMaintenance() {
+
+		if (maintenanceScheduled.compareAndSet(false, true)) {
+
+			maintenance.submit(() -> {
+
+				maintenanceScheduled.set(false);
+				maintain();
+			});
+		}
+	}
+
+	private static long encode(final int segment, final long offset) {
+		return ((long)segment << 32) | offset;
+	}
+
+	private static int segment(final long position) {
+		return (int)(position >>> 32);
+	}
+
+	private static long offset(final long position) {
+		return position & 0xffffffffL;
+	}
+
+	/**
+	 * Returns the number of bytes of the given string in modified UTF-8,
+	 * as written by {@link DataOutputStream#writeUTF(java.lang.String)}.
+	 */
+	private static int uuidLength(final String uuid) {
+
+		int length = 0;
+
+		for (int i=0; i<uuid.length(); i++) {
+
+			final char c = uuid.charAt(i);
+
+			if (c >= 0x0001 && c <= 0x007f) {
+
+				length += 1;
+
+			} else if (c <= 0x07ff) {
+
+				length += 2;
+
+			} else {
+
+				length += 3;
+			}
+		}
+
+		return length;
+	}
+
+	// ----- nested classes -----
+	/**
+	 * A segment file. Each entry consists of its length, the UUID of the
+	 * entity and the UTF-8 encoded changelog entry.
+	 */
+	private static class Segment implements AutoCloseable {
+
+		private FileChannel channel = null;
+		private File file           = null;
+		private long deadBytes      = 0L;
+		private long size           = 0L;
+		private int id              = 0;
+
+		public Segment(final int id, final File file) throws IOException {
+
+			this.id      = id;
+			this.file    = file;
+			this.channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+			this.size    = channel.size();
+		}
+
+		public long append(final String uuid, final byte[] entry) throws IOException {
+
+			final ByteArrayOutputStream bytes = new ByteArrayOutputStream(entry.length + uuid.length() + 6);
+			final DataOutputStream out        = new DataOutputStream(bytes);
+			final long position               = size;
+
+			out.writeInt(2 + uuidLength(uuid) + entry.length);
+			out.writeUTF(uuid);
+			out.write(entry);
+
+			final ByteBuffer buffer = ByteBuffer.wrap(bytes.toByteArray());
+
+			while (buffer.hasRemaining()) {
+				size += channel.write(buffer, size);
+			}
+
+			return position;
+		}
+
+		public String read(final long position) throws IOException {
+
+			final ByteBuffer header = read(position, 6);
+			final int length        = header.getInt();
+			final int uuidLength    = header.getShort() & 0xffff;
+			final ByteBuffer entry  = read(position + 6 + uuidLength, length - 2 - uuidLength);
+
+			return new String(entry.array(), StandardCharsets.UTF_8);
+		}
+
+		public int recordSize(final long position) throws IOException {
+			return 4 + read(position, 4).getInt();
+		}
+
+		public boolean needsCompaction() {
+			return size > 0 && deadBytes >= size * COMPACTION_THRESHOLD;
+		}
+
+		public void delete() throws IOException {
+
+			close();
+			Files.deleteIfExists(file.toPath());
+		}
+
+		@Override
+		public void close() {
+
+			try {
+
+				channel.close();
+
+			} catch (IOException ioex) {
+				logger.warn("Unable to close changelog segment {}: {}", file.getAbsolutePath(), ioex.getMessage());
+			}
+		}
+
+		private ByteBuffer read(final long position, final int length) throws IOException {
+
+			final ByteBuffer buffer = ByteBuffer.allocate(length);
+
+			while (buffer.hasRemaining()) {
+
+				if (channel.read(buffer, position + buffer.position()) < 0) {
+					throw new EOFException();
+				}
+			}
+
+			buffer.flip();
+
+			return buffer;
+		}
+	}
+
+	/**
+	 * The positions of the changelog entries of a single entity, in the
+	 * order they were written.
+	 */
+	private static class Positions {
+
+		private long[] values = new long[4];
+		private int size      = 0;
+
+		public void add(final long position) {
+
+			if (size == values.length) {
+
+				final long[] newValues = new long[size * 2];
+
+				System.arraycopy(values, 0, newValues, 0, size);
+
+				values = newValues;
+			}
+
+			values[size++] = position;
+		}
+
+		public boolean contains(final long position) {
+			return Arrays.binarySearch(values, 0, size, position) >= 0;
+		}
+
+		public void replace(final long position, final long newPosition) {
+
+			final int i = Arrays.binarySearch(values, 0, size, position);
+			if (i >= 0) {
+
+				values[i] = newPosition;
+			}
+		}
+
+		public void removeSegment(final int segmentId) {
+
+			int count = 0;
+
+			for (int i=0; i<size; i++) {
+
+				if (segment(values[i]) != segmentId) {
+					values[count++] = values[i];
+				}
+			}
+
+			size = count;
+		}
+	}
+}
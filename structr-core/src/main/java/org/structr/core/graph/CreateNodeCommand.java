@@ -18,9 +18,12 @@
  */
 package org.structr.core.graph;
 
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Date;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
@@ -86,135 +89,217 @@ public class CreateNodeCommand<T extends NodeInterface> extends NodeServiceComma
 
 		if (graphDb != null) {
 
-			final NodeFactory<T> nodeFactory = new NodeFactory<>(securityContext);
-			final PropertyMap properties     = new PropertyMap(attributes);
-			final PropertyMap toNotify       = new PropertyMap();
-			final Object typeObject          = properties.get(AbstractNode.type);
-			final Class nodeType             = getTypeOrGeneric(typeObject);
-			final Set<String> labels         = TypeProperty.getLabelsForType(nodeType);
-			final CreationContainer tmp      = new CreationContainer();
-			final Date now                   = new Date();
-			final boolean isCreation         = true;
+			final NodeCreation creation = prepare(user, attributes);
 
-			// use user-supplied UUID?
-			String uuid = properties.get(GraphObject.id);
-			if (uuid == null) {
+			node = finish(user, creation, createNode(graphDb, user, creation.labels, creation.container.getData()));
+		}
 
-				// no, create new one
-				uuid = getNextUuid();
+		if (node != null) {
 
-				properties.put(GraphObject.id, uuid);
+			notifyCreation(node);
+		}
 
-			} else {
+		return node;
+	}
 
-				// enable UUID validation
-				securityContext.uuidWasSetManually(true);
-			}
+	/**
+	 * Creates a node for each of the given property maps, using a single
+	 * database statement for all nodes with the same set of labels. The
+	 * nodes are returned keyed by the index of their property map,
+	 * creation callbacks are called after all nodes have been created.
+	 *
+	 * @param attributes
+	 * @return the new nodes, keyed by the index of their property map
+	 * @throws FrameworkException
+	 */
+	public Map<Integer, T> executeBatch(final List<PropertyMap> attributes) throws FrameworkException {
 
-			// use property keys to set property values on creation dummy
-			// set default values for common properties in creation query
-			GraphObject.id.setProperty(securityContext, tmp, uuid);
-			GraphObject.type.setProperty(securityContext, tmp, nodeType.getSimpleName());
-			AbstractNode.createdDate.setProperty(securityContext, tmp, now);
-			AbstractNode.lastModifiedDate.setProperty(securityContext, tmp, now);
+		final DatabaseService graphDb                      = (DatabaseService) arguments.get("graphDb");
+		final Principal user                               = securityContext.getUser(false);
+		final Map<Set<String>, List<NodeCreation>> batches = new LinkedHashMap<>();
+		final List<NodeCreation> creations                 = new ArrayList<>(attributes.size());
+		final Map<Integer, T> nodes                        = new LinkedHashMap<>();
 
-			// default property values
-			AbstractNode.visibleToPublicUsers.setProperty(securityContext, tmp,        getOrDefault(properties, AbstractNode.visibleToPublicUsers, false));
-			AbstractNode.visibleToAuthenticatedUsers.setProperty(securityContext, tmp, getOrDefault(properties, AbstractNode.visibleToAuthenticatedUsers, false));
-			AbstractNode.hidden.setProperty(securityContext, tmp,                      getOrDefault(properties, AbstractNode.hidden, false));
-			AbstractNode.deleted.setProperty(securityContext, tmp,                     getOrDefault(properties, AbstractNode.deleted, false));
+		if (graphDb != null && !attributes.isEmpty()) {
 
-			if (user != null) {
+			for (final PropertyMap properties : attributes) {
 
-				final String userId = user.getProperty(GraphObject.id);
+				final NodeCreation creation = prepare(user, properties);
 
-				AbstractNode.createdBy.setProperty(securityContext, tmp, userId);
-				AbstractNode.lastModifiedBy.setProperty(securityContext, tmp, userId);
+				batches.computeIfAbsent(creation.labels, k -> new ArrayList<>()).add(creation);
+				creations.add(creation);
 			}
 
-			// prevent double setting of properties
-			properties.remove(AbstractNode.id);
-			properties.remove(AbstractNode.type);
-			properties.remove(AbstractNode.visibleToPublicUsers);
-			properties.remove(AbstractNode.visibleToAuthenticatedUsers);
-			properties.remove(AbstractNode.hidden);
-			properties.remove(AbstractNode.deleted);
-			properties.remove(AbstractNode.lastModifiedDate);
-			properties.remove(AbstractNode.lastModifiedBy);
-			properties.remove(AbstractNode.createdDate);
-			properties.remove(AbstractNode.createdBy);
+			for (final Entry<Set<String>, List<NodeCreation>> batch : batches.entrySet()) {
 
-			// move properties to creation container that can be set directly on creation
-			tmp.filterIndexableForCreation(securityContext, properties, tmp, toNotify);
+				final List<NodeCreation> list    = batch.getValue();
+				final Map<Integer, Node> created = createNodes(graphDb, user, batch.getKey(), list);
 
-			// collect default values and try to set them on creation
-			for (final PropertyKey key : StructrApp.getConfiguration().getPropertySet(nodeType, PropertyView.All)) {
+				for (int i=0; i<list.size(); i++) {
 
-				if (key instanceof AbstractPrimitiveProperty && !tmp.hasProperty(key.jsonName())) {
+					final Node dbNode = created.get(i);
+					if (dbNode == null) {
 
-					final Object defaultValue = key.defaultValue();
-					if (defaultValue != null) {
-
-						key.setProperty(securityContext, tmp, defaultValue);
+						throw new RuntimeException("Unable to create new node.");
 					}
+
+					list.get(i).dbNode = dbNode;
 				}
 			}
 
-			node = (T) nodeFactory.instantiateWithType(createNode(graphDb, user, labels, tmp.getData()), nodeType, null, isCreation);
-			if (node != null) {
+			for (int i=0; i<creations.size(); i++) {
 
-				TransactionCommand.nodeCreated(user, node);
+				final NodeCreation creation = creations.get(i);
+				final T node                = finish(user, creation, creation.dbNode);
 
-				securityContext.disableModificationOfAccessTime();
-				node.setProperties(securityContext, properties);
-				securityContext.enableModificationOfAccessTime();
+				if (node != null) {
 
-				// ensure modification callbacks are called (necessary for validation)
-				for (final Entry<PropertyKey, Object> entry : toNotify.entrySet()) {
+					nodes.put(i, node);
+				}
+			}
 
-					final PropertyKey key = entry.getKey();
-					final Object value    = entry.getValue();
+			for (final T node : nodes.values()) {
 
-					if (!key.isUnvalidated()) {
-						TransactionCommand.nodeModified(securityContext.getCachedUser(), (AbstractNode)node, key, null, value);
-					}
-				}
+				notifyCreation(node);
+			}
+		}
+
+		return nodes;
+	}
+
+	// ----- private methods -----
+	private NodeCreation prepare(final Principal user, final PropertyMap attributes) throws FrameworkException {
+
+		final PropertyMap properties     = new PropertyMap(attributes);
+		final PropertyMap toNotify       = new PropertyMap();
+		final Object typeObject          = properties.get(AbstractNode.type);
+		final Class nodeType             = getTypeOrGeneric(typeObject);
+		final Set<String> labels         = TypeProperty.getLabelsForType(nodeType);
+		final CreationContainer tmp      = new CreationContainer();
+		final Date now                   = new Date();
+
+		// use user-supplied UUID?
+		String uuid = properties.get(GraphObject.id);
+		if (uuid == null) {
+
+			// no, create new one
+			uuid = getNextUuid();
+
+			properties.put(GraphObject.id, uuid);
+
+		} else {
+
+			// enable UUID validation
+			securityContext.uuidWasSetManually(true);
+		}
+
+		// use property keys to set property values on creation dummy
+		// set default values for common properties in creation query
+		GraphObject.id.setProperty(securityContext, tmp, uuid);
+		GraphObject.type.setProperty(securityContext, tmp, nodeType.getSimpleName());
+		AbstractNode.createdDate.setProperty(securityContext, tmp, now);
+		AbstractNode.lastModifiedDate.setProperty(securityContext, tmp, now);
 
-				properties.clear();
+		// default property values
+		AbstractNode.visibleToPublicUsers.setProperty(securityContext, tmp,        getOrDefault(properties, AbstractNode.visibleToPublicUsers, false));
+		AbstractNode.visibleToAuthenticatedUsers.setProperty(securityContext, tmp, getOrDefault(properties, AbstractNode.visibleToAuthenticatedUsers, false));
+		AbstractNode.hidden.setProperty(securityContext, tmp,                      getOrDefault(properties, AbstractNode.hidden, false));
+		AbstractNode.deleted.setProperty(securityContext, tmp,                     getOrDefault(properties, AbstractNode.deleted, false));
 
-				// ensure indexing of newly created node
-				node.addToIndex();
+		if (user != null) {
 
-				// invalidate UUID cache
-				StructrApp.invalidate(uuid);
+			final String userId = user.getProperty(GraphObject.id);
+
+			AbstractNode.createdBy.setProperty(securityContext, tmp, userId);
+			AbstractNode.lastModifiedBy.setProperty(securityContext, tmp, userId);
+		}
+
+		// prevent double setting of properties
+		properties.remove(AbstractNode.id);
+		properties.remove(AbstractNode.type);
+		properties.remove(AbstractNode.visibleToPublicUsers);
+		properties.remove(AbstractNode.visibleToAuthenticatedUsers);
+		properties.remove(AbstractNode.hidden);
+		properties.remove(AbstractNode.deleted);
+		properties.remove(AbstractNode.lastModifiedDate);
+		properties.remove(AbstractNode.lastModifiedBy);
+		properties.remove(AbstractNode.createdDate);
+		properties.remove(AbstractNode.createdBy);
+
+		// move properties to creation container that can be set directly on creation
+		tmp.filterIndexableForCreation(securityContext, properties, tmp, toNotify);
+
+		// collect default values and try to set them on creation
+		for (final PropertyKey key : StructrApp.getConfiguration().getPropertySet(nodeType, PropertyView.All)) {
+
+			if (key instanceof AbstractPrimitiveProperty && !tmp.hasProperty(key.jsonName())) {
+
+				final Object defaultValue = key.defaultValue();
+				if (defaultValue != null) {
+
+					key.setProperty(securityContext, tmp, defaultValue);
+				}
 			}
 		}
 
+		return new NodeCreation(nodeType, labels, uuid, tmp, properties, toNotify);
+	}
+
+	private T finish(final Principal user, final NodeCreation creation, final Node dbNode) throws FrameworkException {
+
+		final NodeFactory<T> nodeFactory = new NodeFactory<>(securityContext);
+		final T node                     = (T) nodeFactory.instantiateWithType(dbNode, creation.nodeType, null, true);
+
 		if (node != null) {
 
-			// notify node of its creation
-			node.onNodeCreation();
+			TransactionCommand.nodeCreated(user, node);
+
+			securityContext.disableModificationOfAccessTime();
+			node.setProperties(securityContext, creation.properties);
+			securityContext.enableModificationOfAccessTime();
 
-			// iterate post creation transformations
-			final Set<Transformation<GraphObject>> transformations = StructrApp.getConfiguration().getEntityCreationTransformations(node.getClass());
-			for (Transformation<GraphObject> transformation : transformations) {
+			// ensure modification callbacks are called (necessary for validation)
+			for (final Entry<PropertyKey, Object> entry : creation.toNotify.entrySet()) {
 
-				transformation.apply(securityContext, node);
+				final PropertyKey key = entry.getKey();
+				final Object value    = entry.getValue();
+
+				if (!key.isUnvalidated()) {
+					TransactionCommand.nodeModified(securityContext.getCachedUser(), (AbstractNode)node, key, null, value);
+				}
 			}
+
+			creation.properties.clear();
+
+			// ensure indexing of newly created node
+			node.addToIndex();
+
+			// invalidate UUID cache
+			StructrApp.invalidate(creation.uuid);
 		}
 
 		return node;
 	}
 
-	// ----- private methods -----
+	private void notifyCreation(final T node) throws FrameworkException {
+
+		// notify node of its creation
+		node.onNodeCreation();
+
+		// iterate post creation transformations
+		final Set<Transformation<GraphObject>> transformations = StructrApp.getConfiguration().getEntityCreationTransformations(node.getClass());
+		for (Transformation<GraphObject> transformation : transformations) {
+
+			transformation.apply(securityContext, node);
+		}
+	}
+
 	private Node createNode(final DatabaseService graphDb, final Principal user, final Set<String> labels, final Map<String, Object> properties) throws FrameworkException {
 
-		final Map<String, Object> parameters         = new HashMap<>();
-		final Map<String, Object> ownsProperties     = new HashMap<>();
-		final Map<String, Object> securityProperties = new HashMap<>();
-		final StringBuilder buf                      = new StringBuilder();
-		final String newUuid                         = (String)properties.get("id");
-		final String tenantId                        = graphDb.getTenantIdentifier();
+		final Map<String, Object> parameters = new HashMap<>();
+		final StringBuilder buf              = new StringBuilder();
+		final String newUuid                 = (String)properties.get("id");
+		final String tenantId                = graphDb.getTenantIdentifier();
 
 		if (user != null && user.shouldSkipSecurityRelationships() == false) {
 
@@ -236,23 +321,10 @@ public class CreateNodeCommand<T extends NodeInterface> extends NodeServiceComma
 			buf.append(" {nodeProperties})<-[s:SECURITY {securityProperties}]-(u)");
 			buf.append(" RETURN n");
 
-			// configure OWNS relationship
-			ownsProperties.put(GraphObject.id.dbName(),                getNextUuid());
-			ownsProperties.put(GraphObject.type.dbName(),              PrincipalOwnsNode.class.getSimpleName());
-			ownsProperties.put(AbstractRelationship.sourceId.dbName(), user.getUuid());
-			ownsProperties.put(AbstractRelationship.targetId.dbName(), newUuid);
-
-			// configure SECURITY relationship
-			securityProperties.put(Security.allowed.dbName(),              new String[] { Permission.read.name(), Permission.write.name(), Permission.delete.name(), Permission.accessControl.name() } );
-			securityProperties.put(GraphObject.id.dbName(),                getNextUuid());
-			securityProperties.put(GraphObject.type.dbName(),              Security.class.getSimpleName());
-			securityProperties.put(AbstractRelationship.sourceId.dbName(), user.getUuid());
-			securityProperties.put(AbstractRelationship.targetId.dbName(), newUuid);
-
 			// store properties in statement
 			parameters.put("userId",             user.getId());
-			parameters.put("ownsProperties",     ownsProperties);
-			parameters.put("securityProperties", securityProperties);
+			parameters.put("ownsProperties",     getOwnsProperties(user, newUuid));
+			parameters.put("securityProperties", getSecurityProperties(user, newUuid));
 
 		} else {
 
@@ -291,12 +363,115 @@ public class CreateNodeCommand<T extends NodeInterface> extends NodeServiceComma
 		} catch (DataFormatException dex) {
 			throw new FrameworkException(422, dex.getMessage());
 		} catch (ConstraintViolationException qex) {
-			throw new FrameworkException(422, qex.getMessage());
+			throw TransactionCommand.translateConstraintViolation(qex);
 		}
 
 		throw new RuntimeException("Unable to create new node.");
 	}
 
+	private Map<Integer, Node> createNodes(final DatabaseService graphDb, final Principal user, final Set<String> labels, final List<NodeCreation> creations) throws FrameworkException {
+
+		final List<Map<String, Object>> rows = new ArrayList<>(creations.size());
+
+		try {
+
+			if (user != null && user.shouldSkipSecurityRelationships() == false) {
+
+				final Map<String, Object> parameters = new HashMap<>();
+				final Map<Integer, Node> nodes       = new LinkedHashMap<>();
+				final StringBuilder buf              = new StringBuilder();
+				final String tenantId                = graphDb.getTenantIdentifier();
+
+				buf.append("MATCH (u:Principal) WHERE id(u) = {userId}");
+				buf.append(" UNWIND range(0, size({rows}) - 1) AS index");
+				buf.append(" WITH u, index, {rows}[index] AS row");
+				buf.append(" CREATE (u)-[o:OWNS]->(n");
+
+				if (tenantId != null) {
+
+					buf.append(":");
+					buf.append(tenantId);
+				}
+
+				for (final String label : labels) {
+
+					buf.append(":");
+					buf.append(label);
+				}
+
+				buf.append(")<-[s:SECURITY]-(u)");
+				buf.append(" SET n = row.nodeProperties, o = row.ownsProperties, s = row.securityProperties");
+
+				// the MATCH can drop rows, so the result is keyed by the index of the row
+				buf.append(" RETURN index, n");
+
+				for (final NodeCreation creation : creations) {
+
+					final Map<String, Object> row = new HashMap<>();
+
+					row.put("nodeProperties",     creation.container.getData());
+					row.put("ownsProperties",     getOwnsProperties(user, creation.uuid));
+					row.put("securityProperties", getSecurityProperties(user, creation.uuid));
+
+					rows.add(row);
+				}
+
+				parameters.put("userId", user.getId());
+				parameters.put("rows",   rows);
+
+				try (final NativeResult result = graphDb.execute(buf.toString(), parameters)) {
+
+					while (result.hasNext()) {
+
+						final Map<String, Object> data = result.next();
+
+						nodes.put(((Number)data.get("index")).intValue(), (Node)data.get("n"));
+					}
+				}
+
+				return nodes;
+
+			} else {
+
+				for (final NodeCreation creation : creations) {
+					rows.add(creation.container.getData());
+				}
+
+				return graphDb.createNodes(labels, rows);
+			}
+
+		} catch (DataFormatException dex) {
+			throw new FrameworkException(422, dex.getMessage());
+		} catch (ConstraintViolationException qex) {
+			throw TransactionCommand.translateConstraintViolation(qex);
+		}
+	}
+
+	private Map<String, Object> getOwnsProperties(final Principal user, final String newUuid) {
+
+		final Map<String, Object> ownsProperties = new HashMap<>();
+
+		ownsProperties.put(GraphObject.id.dbName(),                getNextUuid());
+		ownsProperties.put(GraphObject.type.dbName(),              PrincipalOwnsNode.class.getSimpleName());
+		ownsProperties.put(AbstractRelationship.sourceId.dbName(), user.getUuid());
+		ownsProperties.put(AbstractRelationship.targetId.dbName(), newUuid);
+
+		return ownsProperties;
+	}
+
+	private Map<String, Object> getSecurityProperties(final Principal user, final String newUuid) {
+
+		final Map<String, Object> securityProperties = new HashMap<>();
+
+		securityProperties.put(Security.allowed.dbName(),              new String[] { Permission.read.name(), Permission.write.name(), Permission.delete.name(), Permission.accessControl.name() } );
+		securityProperties.put(GraphObject.id.dbName(),                getNextUuid());
+		securityProperties.put(GraphObject.type.dbName(),              Security.class.getSimpleName());
+		securityProperties.put(AbstractRelationship.sourceId.dbName(), user.getUuid());
+		securityProperties.put(AbstractRelationship.targetId.dbName(), newUuid);
+
+		return securityProperties;
+	}
+
 	private Class getTypeOrGeneric(final Object typeObject) {
 
 		if (typeObject != null) {
@@ -316,4 +491,26 @@ public class CreateNodeCommand<T extends NodeInterface> extends NodeServiceComma
 
 		return defaultValue;
 	}
+
+	// ----- nested classes -----
+	private static class NodeCreation {
+
+		private CreationContainer container = null;
+		private PropertyMap properties      = null;
+		private PropertyMap toNotify        = null;
+		private Set<String> labels          = null;
+		private Class nodeType              = null;
+		private String uuid                 = null;
+		private Node dbNode                 = null;
+
+		public NodeCreation(final Class nodeType, final Set<String> labels, final String uuid, final CreationContainer container, final PropertyMap properties, final PropertyMap toNotify) {
+
+			this.nodeType   = nodeType;
+			this.labels     = labels;
+			this.uuid       = uuid;
+			this.container  = container;
+			this.properties = properties;
+			this.toNotify   = toNotify;
+		}
+	}
 }
@@ -88,6 +88,9 @@ public class CreateRelationshipCommand extends NodeServiceCommand {
 		final R newRel         = factory.instantiateWithType(rel, relType, null, true);
 		if (newRel != null) {
 
+			// make relationship available for lookups by UUID
+			RelationshipUuidIndex.add(newRel.getUuid(), rel.getId());
+
 			newRel.setProperties(securityContext, properties);
 
 			// notify transaction handler
@@ -113,7 +116,7 @@ public class CreateRelationshipCommand extends NodeServiceCommand {
 
 		try {
 
-			return type.newInstance();
+			return EntityConstructors.newInstance(type);
 
 		} catch(Throwable t) {
 			logger.warn("", t);
@@ -24,6 +24,7 @@ import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.regex.Pattern;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.structr.api.DatabaseService;
@@ -45,7 +46,8 @@ import org.structr.core.property.GenericProperty;
  */
 public class CypherQueryCommand extends NodeServiceCommand {
 
-	private static final Logger logger = LoggerFactory.getLogger(CypherQueryCommand.class.getName());
+	private static final Logger logger       = LoggerFactory.getLogger(CypherQueryCommand.class.getName());
+	private static final Pattern writeClauses = Pattern.compile("\\b(CREATE|MERGE|SET|DELETE|REMOVE|DETACH|LOAD)\\b", Pattern.CASE_INSENSITIVE);
 
 	//protected static final ThreadLocalExecutionEngine engine = new ThreadLocalExecutionEngine();
 
@@ -73,6 +75,11 @@ public class CypherQueryCommand extends NodeServiceCommand {
 		// graphdb can be null..
 		if (graphDb != null) {
 
+			// modifications made by Cypher statements are not tracked
+			if (writeClauses.matcher(query).find()) {
+				TransactionCommand.invalidateAllQueryResults();
+			}
+
 			try (final NativeResult result = graphDb.execute(query, parameters != null ? parameters : Collections.emptyMap())) {
 
 				while (result.hasNext()) {
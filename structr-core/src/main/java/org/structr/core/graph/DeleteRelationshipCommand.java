@@ -69,6 +69,7 @@ public class DeleteRelationshipCommand extends NodeServiceCommand {
 
 			final Relationship relToDelete       = rel.getRelationship();
 			final RelationshipInterface finalRel = rel;
+			final String uuid                    = rel.getUuid();
 
 			TransactionCommand.relationshipDeleted(securityContext.getCachedUser(), finalRel, passiveDeletion);
 
@@ -80,6 +81,8 @@ public class DeleteRelationshipCommand extends NodeServiceCommand {
 
 			// delete node in database
 			relToDelete.delete();
+
+			RelationshipUuidIndex.remove(uuid);
 		}
 
 		return null;
@@ -0,0 +1,180 @@
+/**
+ * Copyright (C) 2010-2018 Structr GmbH
+ *
+ * This file is part of Structr <http://structr.org>.
+ *
+ * Structr is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * Structr is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Structr.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.structr.core.graph;
+
+import java.lang.invoke.CallSite;
+import java.lang.invoke.LambdaMetafactory;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Modifier;
+import java.lang.reflect.UndeclaredThrowableException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Registry of no-arg constructors for node and relationship types, used by
+ * the factories instead of {@link Class#newInstance()}.
+ *
+ * Dynamic types register the constructor references generated by the
+ * NodeExtender, static types get a lambda that is bound to their
+ * constructor on first use.
+ */
+public class EntityConstructors {
+
+	private static final Logger logger                         = LoggerFactory.getLogger(EntityConstructors.class.getName());
+	private static final Supplier<Object> NONE                 = () -> null;
+	private static final Map<Class, Supplier<Object>> registry = new ConcurrentHashMap<>();
+
+	private static final ClassValue<Supplier<Object>> constructors = new ClassValue<Supplier<Object>>() {
+
+		@Override
+		protected Supplier<Object> computeValue(final Class<?> type) {
+
+			final Supplier<Object> registered = registry.get(type);
+			if (registered != null) {
+
+				return registered;
+			}
+
+			return createConstructor(type);
+		}
+	};
+
+	/**
+	 * Implemented by the class the NodeExtender generates along with the
+	 * dynamic types.
+	 */
+	public interface Registry {
+
+		void register(final Map<Class, Supplier<Object>> constructors);
+	}
+
+	/**
+	 * Creates a new instance of the given type, without reflection if
+	 * possible.
+	 *
+	 * @param <T>
+	 * @param type
+	 * @return the new instance
+	 *
+	 * @throws InstantiationException
+	 * @throws IllegalAccessException
+	 */
+	public static <T> T newInstance(final Class<T> type) throws InstantiationException, IllegalAccessException {
+
+		final Supplier<Object> constructor = constructors.get(type);
+		if (constructor != NONE) {
+
+			return (T)constructor.get();
+		}
+
+		return type.newInstance();
+	}
+
+	/**
+	 * Replaces the constructors of the dynamic types with the ones from
+	 * the given registry.
+	 *
+	 * @param source
+	 */
+	public static void register(final Registry source) {
+
+		final Map<Class, Supplier<Object>> map = new LinkedHashMap<>();
+
+		source.register(map);
+
+		registry.clear();
+		registry.putAll(map);
+	}
+
+	/**
+	 * @param type
+	 * @return whether the given type uses a constructor registered by the NodeExtender
+	 */
+	public static boolean isRegistered(final Class type) {
+		return registry.containsKey(type) && constructors.get(type) == registry.get(type);
+	}
+
+	// ----- private methods -----
+	private static Supplier<Object> createConstructor(final Class<?> type) {
+
+		if (type.isInterface() || Modifier.isAbstract(type.getModifiers()) || !Modifier.isPublic(type.getModifiers())) {
+			return NONE;
+		}
+
+		try {
+
+			final MethodHandles.Lookup lookup = MethodHandles.lookup();
+			final MethodHandle handle         = lookup.findConstructor(type, MethodType.methodType(void.class));
+
+			if (isVisible(type)) {
+
+				final CallSite site = LambdaMetafactory.metafactory(
+					lookup,
+					"get",
+					MethodType.methodType(Supplier.class),
+					MethodType.methodType(Object.class),
+					handle,
+					MethodType.methodType(type)
+				);
+
+				return (Supplier<Object>)site.getTarget().invoke();
+			}
+
+			// classes from other class loaders cannot be linked to a lambda
+			// defined here, so they are called through the method handle
+			final MethodHandle generic = handle.asType(MethodType.methodType(Object.class));
+
+			return () -> {
+
+				try {
+
+					return (Object)generic.invokeExact();
+
+				} catch (RuntimeException | Error t) {
+					throw t;
+				} catch (Throwable t) {
+					throw new UndeclaredThrowableException(t);
+				}
+			};
+
+		} catch (Throwable t) {
+
+			logger.debug("Unable to create constructor for type {}: {}", type.getName(), t.getMessage());
+		}
+
+		return NONE;
+	}
+
+	private static boolean isVisible(final Class<?> type) {
+
+		try {
+
+			return Class.forName(type.getName(), false, EntityConstructors.class.getClassLoader()) == type;
+
+		} catch (ClassNotFoundException | LinkageError ex) {
+			return false;
+		}
+	}
+}
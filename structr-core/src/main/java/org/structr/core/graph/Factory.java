@@ -48,7 +48,8 @@ public abstract class Factory<S, T extends GraphObject> implements Adapter<S, T>
 
 	/**
 	 * This limit is the number of objects up to which the overall count
-	 * will be accurate.
+	 * will be accurate. Larger counts of database-paged results are
+	 * determined asynchronously and reported by subsequent requests.
 	 */
 	public static final int RESULT_COUNT_ACCURATE_LIMIT	= 5000;
 
@@ -151,6 +152,49 @@ public abstract class Factory<S, T extends GraphObject> implements Adapter<S, T>
 
 	}
 
+	/**
+	 * Create structr nodes for a single page of underlying database nodes
+	 * that was already filtered and paged by the database. Only the nodes
+	 * of the requested page are read and instantiated. Nodes that fail the
+	 * security check are replaced by the following rows of the input, so
+	 * that the page is only short at the end of the result.
+	 *
+	 * @param input
+	 * @param pageSize
+	 * @param resultCount the overall count determined by the database
+	 * @return result
+	 * @throws org.structr.common.error.FrameworkException
+	 */
+	public Result instantiatePage(final QueryResult<S> input, final int pageSize, final int resultCount) throws FrameworkException {
+
+		final List<T> nodes = new ArrayList<>();
+
+		try (final QueryResult<S> tmp = input) {
+
+			if (pageSize > 0) {
+
+				for (final S item : tmp) {
+
+					final T n = instantiate(item);
+					if (n != null) {
+
+						nodes.add(n);
+
+						// stop if we got enough nodes
+						if (nodes.size() == pageSize) {
+							break;
+						}
+					}
+				}
+			}
+
+		} catch (NetworkException nex) {
+			throw new FrameworkException(503, nex.getMessage());
+		}
+
+		return new Result(nodes, resultCount, true, false);
+	}
+
 	/**
 	 * Create structr nodes from all given underlying database nodes
 	 * No paging, but security check
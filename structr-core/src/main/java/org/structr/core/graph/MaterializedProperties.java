@@ -0,0 +1,517 @@
+/**
+ * Copyright (C) 2010-2018 Structr GmbH
+ *
+ * This file is part of Structr <http://structr.org>.
+ *
+ * Structr is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * Structr is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Structr.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.structr.core.graph;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.structr.api.DatabaseService;
+import org.structr.api.Predicate;
+import org.structr.api.graph.PropertyContainer;
+import org.structr.common.PropertyView;
+import org.structr.common.SecurityContext;
+import org.structr.core.GraphObject;
+import org.structr.core.app.App;
+import org.structr.core.app.StructrApp;
+import org.structr.core.entity.Relation;
+import org.structr.core.property.MaterializableProperty;
+import org.structr.core.property.PropertyKey;
+import org.structr.core.property.RelationProperty;
+import org.structr.core.property.TypeProperty;
+import org.structr.schema.ConfigurationProvider;
+
+/**
+ * Stores the values of materialized properties on their nodes and updates
+ * them in the background after a transaction modified one of their
+ * dependencies.
+ *
+ * Values are computed with superuser permissions. A value that depends on
+ * related nodes is only returned to superusers and admins, other readers
+ * compute it with their own permissions, because they may not be allowed
+ * to see all related nodes. Values that depend on local keys only are
+ * returned to every reader, so their functions must not read anything but
+ * the declared dependencies. Values that cannot be stored in the database
+ * (e.g. nodes or collections) are computed on every read, as are null
+ * values.
+ */
+public class MaterializedProperties {
+
+	private static final Logger logger                     = LoggerFactory.getLogger(MaterializedProperties.class.getName());
+	private static final int MAX_PROPAGATION_DEPTH         = 5;
+	private static final Set<PropertyKey> unsupportedKeys  = ConcurrentHashMap.newKeySet();
+	private static final ExecutorService executor          = Executors.newSingleThreadExecutor(r -> {
+
+		final Thread thread = new Thread(r, "MaterializedProperties");
+		thread.setDaemon(true);
+
+		return thread;
+	});
+
+	private static volatile List<Dependency> dependencies          = null;
+	private static volatile Set<PropertyKey> contextDependentKeys  = null;
+
+	/**
+	 * Returns the stored value of the given property, or computes it if
+	 * the property is not materialized or no value was stored yet.
+	 *
+	 * @param <T>
+	 * @param securityContext
+	 * @param obj
+	 * @param key
+	 * @param predicate
+	 * @return the value
+	 */
+	public static <T> T getValue(final SecurityContext securityContext, final GraphObject obj, final MaterializableProperty<T> key, final Predicate<GraphObject> predicate) {
+
+		if (key.materializedDependencies() == null || predicate != null || !(obj instanceof NodeInterface) || unsupportedKeys.contains(key)) {
+			return key.computeValue(securityContext, obj, predicate);
+		}
+
+		// stored values of context-dependent keys are computed with superuser permissions
+		if (!isPrivileged(securityContext) && getContextDependentKeys().contains(key)) {
+			return key.computeValue(securityContext, obj, predicate);
+		}
+
+		final PropertyContainer container = obj.getPropertyContainer();
+		if (container != null && container.hasProperty(key.dbName())) {
+
+			return (T)fromDatabase(key, container.getProperty(key.dbName()));
+		}
+
+		final T value = key.computeValue(securityContext, obj, predicate);
+		if (value != null && obj.getUuid() != null) {
+
+			final Map<String, Set<PropertyKey>> pending = new LinkedHashMap<>();
+
+			pending.put(obj.getUuid(), Collections.singleton(key));
+
+			executor.submit(() -> store(pending));
+		}
+
+		return value;
+	}
+
+	/**
+	 * Schedules the update of all materialized properties that depend on
+	 * the given modifications. Must be called after the transaction was
+	 * committed.
+	 *
+	 * @param modifications
+	 */
+	public static void update(final Collection<GraphObjectModificationState> modifications) {
+
+		if (getDependencies().isEmpty()) {
+			return;
+		}
+
+		final List<Modification> list = new ArrayList<>();
+
+		for (final GraphObjectModificationState state : modifications) {
+
+			if (state.isNode() && !state.isDeleted() && state.getUuid() != null) {
+
+				final Set<String> keys = new LinkedHashSet<>();
+
+				for (final PropertyKey key : state.getModifiedProperties().keySet()) {
+					keys.add(key.jsonName());
+				}
+
+				for (final PropertyKey key : state.getRemovedProperties().keySet()) {
+					keys.add(key.jsonName());
+				}
+
+				list.add(new Modification(state.getUuid(), state.isCreated(), true, keys));
+			}
+		}
+
+		if (!list.isEmpty()) {
+
+			executor.submit(() -> process(list));
+		}
+	}
+
+	/**
+	 * Waits until all updates that were scheduled before this call are
+	 * finished.
+	 *
+	 * @throws InterruptedException
+	 * @throws ExecutionException
+	 */
+	public static void awaitUpdates() throws InterruptedException, ExecutionException {
+		executor.submit(() -> {}).get();
+	}
+
+	/**
+	 * Clears the dependencies, must be called when the schema changes.
+	 */
+	public static void clear() {
+
+		dependencies         = null;
+		contextDependentKeys = null;
+		unsupportedKeys.clear();
+	}
+
+	// ----- private methods -----
+	private static void process(final List<Modification> modifications) {
+
+		final App app           = StructrApp.getInstance();
+		List<Modification> list = modifications;
+
+		// materialized values can depend on other materialized values
+		for (int depth=0; depth<MAX_PROPAGATION_DEPTH && !list.isEmpty(); depth++) {
+
+			final Map<String, Set<PropertyKey>> pending = new LinkedHashMap<>();
+
+			try (final Tx tx = app.tx(false, false, false)) {
+
+				for (final Modification modification : list) {
+
+					final NodeInterface node = app.getNodeById(modification.uuid);
+					if (node != null) {
+
+						collect(node, modification, pending);
+					}
+				}
+
+				tx.success();
+
+			} catch (Throwable t) {
+
+				logger.warn("Unable to determine materialized properties to update: {}", t.getMessage());
+			}
+
+			list = store(pending);
+		}
+	}
+
+	/**
+	 * Collects the materialized properties of the given node and of the
+	 * nodes that depend on it.
+	 */
+	private static void collect(final NodeInterface node, final Modification modification, final Map<String, Set<PropertyKey>> pending) {
+
+		for (final Dependency dependency : getDependencies()) {
+
+			if (dependency.ownerType.isInstance(node)) {
+
+				if (dependency.relationType != null) {
+
+					// added or removed relationships are not tracked by key
+					if (modification.linked) {
+						add(pending, node, dependency.key);
+					}
+
+				} else if (modification.created || modification.keys.contains(dependency.keyName)) {
+
+					add(pending, node, dependency.key);
+				}
+			}
+
+			if (dependency.relationType != null && dependency.relatedType.isInstance(node)) {
+
+				if (modification.created || dependency.keyName == null || modification.keys.contains(dependency.keyName)) {
+
+					for (final RelationshipInterface rel : node.getIncomingRelationships()) {
+
+						if (dependency.relationType.isInstance(rel) && dependency.ownerType.isInstance(rel.getSourceNode())) {
+							add(pending, rel.getSourceNode(), dependency.key);
+						}
+					}
+
+					for (final RelationshipInterface rel : node.getOutgoingRelationships()) {
+
+						if (dependency.relationType.isInstance(rel) && dependency.ownerType.isInstance(rel.getTargetNode())) {
+							add(pending, rel.getTargetNode(), dependency.key);
+						}
+					}
+				}
+			}
+		}
+	}
+
+	/**
+	 * Computes and stores the given properties and returns the nodes whose
+	 * stored values have changed.
+	 */
+	private static List<Modification> store(final Map<String, Set<PropertyKey>> pending) {
+
+		final List<Modification> changed = new ArrayList<>();
+		final Set<String> labels         = new LinkedHashSet<>();
+
+		if (pending.isEmpty()) {
+			return changed;
+		}
+
+		final App app = StructrApp.getInstance();
+
+		try (final Tx tx = app.tx(false, false, false)) {
+
+			final SecurityContext securityContext = SecurityContext.getSuperUserInstance();
+
+			for (final Entry<String, Set<PropertyKey>> entry : pending.entrySet()) {
+
+				final NodeInterface node = app.getNodeById(entry.getKey());
+				if (node != null) {
+
+					final PropertyContainer container = node.getPropertyContainer();
+					final Set<String> keys            = new LinkedHashSet<>();
+
+					for (final PropertyKey key : entry.getValue()) {
+
+						final Object value    = ((MaterializableProperty)key).computeValue(securityContext, node, null);
+						final Object existing = container.hasProperty(key.dbName()) ? fromDatabase(key, container.getProperty(key.dbName())) : null;
+
+						if (value != null && !isStorable(value)) {
+
+							logger.warn("Unable to materialize property {}.{}, values of type {} cannot be stored.", node.getClass().getSimpleName(), key.jsonName(), value.getClass().getName());
+							unsupportedKeys.add(key);
+
+							container.removeProperty(key.dbName());
+
+						} else if (!Objects.equals(value, existing)) {
+
+							if (value != null) {
+
+								container.setProperty(key.dbName(), value);
+
+							} else {
+
+								container.removeProperty(key.dbName());
+							}
+
+							keys.add(key.jsonName());
+						}
+					}
+
+					if (!keys.isEmpty()) {
+
+						changed.add(new Modification(node.getUuid(), false, false, keys));
+						labels.addAll(TypeProperty.getLabelsForType(node.getClass()));
+					}
+				}
+			}
+
+			tx.success();
+
+		} catch (Throwable t) {
+
+			logger.warn("Unable to update materialized properties: {}", t.getMessage());
+		}
+
+		if (!labels.isEmpty()) {
+
+			final DatabaseService graphDb = app.getDatabaseService();
+			if (graphDb != null) {
+
+				// values were written without a modification queue
+				graphDb.invalidateQueryCache(labels);
+			}
+		}
+
+		return changed;
+	}
+
+	private static void add(final Map<String, Set<PropertyKey>> pending, final NodeInterface node, final PropertyKey key) {
+		pending.computeIfAbsent(node.getUuid(), k -> new LinkedHashSet<>()).add(key);
+	}
+
+	private static boolean isStorable(final Object value) {
+		return value instanceof String || value instanceof Boolean || value instanceof Integer || value instanceof Long || value instanceof Double || value instanceof Float;
+	}
+
+	private static Object fromDatabase(final PropertyKey key, final Object value) {
+
+		if (value instanceof Number) {
+
+			final Number number = (Number)value;
+			final Class type    = key.valueType();
+
+			if (Integer.class.equals(type)) {
+				return number.intValue();
+			}
+
+			if (Long.class.equals(type)) {
+				return number.longValue();
+			}
+
+			if (Double.class.equals(type)) {
+				return number.doubleValue();
+			}
+
+			if (Float.class.equals(type)) {
+				return number.floatValue();
+			}
+		}
+
+		return value;
+	}
+
+	private static List<Dependency> getDependencies() {
+
+		List<Dependency> list = dependencies;
+		if (list == null) {
+
+			list = createDependencies();
+			dependencies = list;
+		}
+
+		return list;
+	}
+
+	/**
+	 * Returns the materialized properties that depend on related nodes, i.e.
+	 * whose values depend on the permissions of the reader.
+	 */
+	private static Set<PropertyKey> getContextDependentKeys() {
+
+		Set<PropertyKey> keys = contextDependentKeys;
+		if (keys == null) {
+
+			keys = new LinkedHashSet<>();
+
+			for (final Dependency dependency : getDependencies()) {
+
+				if (dependency.relationType != null) {
+					keys.add(dependency.key);
+				}
+			}
+
+			contextDependentKeys = keys;
+		}
+
+		return keys;
+	}
+
+	private static boolean isPrivileged(final SecurityContext securityContext) {
+		return securityContext == null || securityContext.isSuperUser();
+	}
+
+	private static List<Dependency> createDependencies() {
+
+		final ConfigurationProvider config   = StructrApp.getConfiguration();
+		final Map<PropertyKey, Class> owners = new LinkedHashMap<>();
+		final List<Dependency> list          = new ArrayList<>();
+
+		// find the most general type that declares each materialized property
+		for (final Class type : config.getNodeEntities().values()) {
+
+			for (final PropertyKey key : config.getPropertySet(type, PropertyView.All)) {
+
+				if (key instanceof MaterializableProperty && key.materializedDependencies() != null) {
+
+					final Class existing = owners.get(key);
+					if (existing == null || type.isAssignableFrom(existing)) {
+
+						owners.put(key, type);
+					}
+				}
+			}
+		}
+
+		for (final Entry<PropertyKey, Class> entry : owners.entrySet()) {
+
+			final PropertyKey key = entry.getKey();
+			final Class type      = entry.getValue();
+
+			for (final String name : key.materializedDependencies()) {
+
+				final String[] parts         = name.split("\\.", 2);
+				final PropertyKey dependency = config.getPropertyKeyForJSONName(type, parts[0], false);
+
+				if (dependency instanceof RelationProperty) {
+
+					final Relation relation = ((RelationProperty)dependency).getRelation();
+
+					list.add(new Dependency(type, key, relation.getClass(), dependency.relatedType(), parts.length > 1 ? parts[1] : null));
+
+				} else if (dependency != null && parts.length == 1) {
+
+					list.add(new Dependency(type, key, null, null, parts[0]));
+
+				} else {
+
+					logger.warn("Invalid dependency {} of materialized property {}.{}", name, type.getSimpleName(), key.jsonName());
+				}
+			}
+		}
+
+		return list;
+	}
+
+	// ----- nested classes -----
+	private static class Dependency {
+
+		private PropertyKey key    = null;
+		private Class ownerType    = null;
+		private Class relationType = null;
+		private Class relatedType  = null;
+		private String keyName     = null;
+
+		/**
+		 * @param ownerType the type that declares the materialized property
+		 * @param key the materialized property
+		 * @param relationType the relationship to the related nodes, or null for a key of the owner
+		 * @param relatedType the type of the related nodes
+		 * @param keyName the key of the owner or of the related nodes, null for any key
+		 */
+		public Dependency(final Class ownerType, final PropertyKey key, final Class relationType, final Class relatedType, final String keyName) {
+
+			this.ownerType    = ownerType;
+			this.key          = key;
+			this.relationType = relationType;
+			this.relatedType  = relatedType;
+			this.keyName      = keyName;
+		}
+	}
+
+	private static class Modification {
+
+		private Set<String> keys = null;
+		private boolean created  = false;
+		private boolean linked   = false;
+		private String uuid      = null;
+
+		/**
+		 * @param uuid the UUID of the modified node
+		 * @param created whether the node was created
+		 * @param linked whether relationships of the node may have been added or removed
+		 * @param keys the modified keys
+		 */
+		public Modification(final String uuid, final boolean created, final boolean linked, final Set<String> keys) {
+
+			this.uuid    = uuid;
+			this.created = created;
+			this.linked  = linked;
+			this.keys    = keys;
+		}
+	}
+}
@@ -30,17 +30,24 @@ import java.util.TreeSet;
 import java.util.concurrent.ConcurrentSkipListMap;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.structr.api.DatabaseService;
 import org.structr.api.config.Settings;
 import org.structr.api.graph.Node;
 import org.structr.api.graph.Relationship;
 import org.structr.api.graph.RelationshipType;
+import org.structr.common.PermissionResolutionCache;
 import org.structr.common.RelType;
 import org.structr.common.SecurityContext;
 import org.structr.common.error.ErrorBuffer;
 import org.structr.common.error.FrameworkException;
+import org.structr.common.fulltext.Indexable;
 import org.structr.core.GraphObject;
+import org.structr.core.app.StructrApp;
+import org.structr.core.entity.AbstractNode;
 import org.structr.core.entity.Principal;
 import org.structr.core.property.PropertyKey;
+import org.structr.core.property.TypeProperty;
+import org.structr.schema.SchemaService;
 
 /**
  *
@@ -56,6 +63,7 @@ public class ModificationQueue {
 	private final Map<String, TransactionPostProcess> postProcesses                         = new LinkedHashMap<>();
 	private final Set<String> alreadyPropagated                                             = new LinkedHashSet<>();
 	private final Set<String> synchronizationKeys                                           = new TreeSet<>();
+	private boolean invalidateAllQueryResults                                               = false;
 
 	/**
 	 * Returns a set containing the different entity types of
@@ -162,30 +170,162 @@ public class ModificationQueue {
 
 		if (Settings.ChangelogEnabled.getValue() && !modificationEvents.isEmpty()) {
 
+			final Map<String, String> changelogs = new LinkedHashMap<>();
+			final Set<String> deleted            = new LinkedHashSet<>();
+
 			for (final ModificationEvent ev: modificationEvents) {
 
-				if (!ev.isDeleted()) {
+				final String uuid = ev.getUuid();
+				if (uuid != null) {
 
-					try {
-						final GraphObject obj = ev.getGraphObject();
-						if (obj != null) {
+					if (ev.isDeleted()) {
 
-							final String existingLog = obj.getProperty(GraphObject.structrChangeLog);
-							final String newLog      = ev.getChangeLog();
-							final String newValue    = existingLog != null ? existingLog + newLog : newLog;
+						deleted.add(uuid);
 
-							obj.unlockSystemPropertiesOnce();
-							obj.setProperty(GraphObject.structrChangeLog, newValue);
-						}
+					} else {
+
+						final String newLog = ev.getChangeLog();
+						if (newLog != null && !newLog.isEmpty()) {
 
-					} catch (Throwable t) {
-						logger.warn("", t);
+							changelogs.merge(uuid, newLog, String::concat);
+						}
 					}
 				}
 			}
+
+			final ChangelogStore store = ChangelogStore.getInstance();
+
+			store.append(changelogs);
+			store.remove(deleted);
 		}
 	}
 
+	/**
+	 * Invalidates the cached query results for all types that were
+	 * modified in this transaction. Must be called after the transaction
+	 * was committed.
+	 *
+	 * @param graphDb the database service
+	 */
+	public void invalidateQueryCache(final DatabaseService graphDb) {
+
+		if (graphDb == null || (modifications.isEmpty() && !invalidateAllQueryResults)) {
+			return;
+		}
+
+		if (invalidateAllQueryResults) {
+
+			graphDb.invalidateQueryCache(null);
+			return;
+		}
+
+		final Set<String> labels = new LinkedHashSet<>();
+
+		for (final GraphObjectModificationState state : modifications.values()) {
+
+			final GraphObject obj = state.getGraphObject();
+			if (obj != null) {
+
+				// a type change modifies the labels of the node, so we
+				// cannot know which results are affected
+				if (state.getModifiedProperties().containsKey(GraphObject.type)) {
+
+					graphDb.invalidateQueryCache(null);
+					return;
+				}
+
+				if (obj instanceof RelationshipInterface) {
+
+					labels.add(((RelationshipInterface)obj).getRelType().name());
+
+				} else {
+
+					labels.addAll(TypeProperty.getLabelsForType(obj.getClass()));
+				}
+			}
+		}
+
+		graphDb.invalidateQueryCache(labels);
+	}
+
+	/**
+	 * Collects the nodes and principals whose cached permission resolution
+	 * results must be invalidated after this transaction. Must be called
+	 * while the transaction is still open.
+	 *
+	 * @return the invalidation
+	 */
+	public PermissionResolutionCache.Invalidation getPermissionInvalidation() {
+
+		final PermissionResolutionCache.Invalidation invalidation = new PermissionResolutionCache.Invalidation();
+
+		for (final GraphObjectModificationState state : modifications.values()) {
+
+			final GraphObject obj = state.getGraphObject();
+
+			try {
+
+				if (obj instanceof NodeInterface) {
+
+					addToInvalidation(invalidation, (NodeInterface)obj);
+
+				} else if (obj instanceof RelationshipInterface) {
+
+					final RelationshipInterface rel = (RelationshipInterface)obj;
+
+					addToInvalidation(invalidation, rel.getSourceNode());
+					addToInvalidation(invalidation, rel.getTargetNode());
+				}
+
+			} catch (Throwable t) {
+
+				// deleted objects cannot always be resolved
+				invalidation.addAll();
+			}
+		}
+
+		return invalidation;
+	}
+
+	/**
+	 * Schedules the update of the materialized properties that depend on
+	 * the objects modified in this transaction. Must be called after the
+	 * transaction was committed.
+	 */
+	public void updateMaterializedProperties() {
+		MaterializedProperties.update(modifications.values());
+	}
+
+	/**
+	 * Removes the indexable objects that were deleted in this transaction
+	 * from the fulltext index. Must be called after the transaction was
+	 * committed.
+	 */
+	public void updateFulltextIndex() {
+
+		final Set<String> deleted = new LinkedHashSet<>();
+
+		for (final GraphObjectModificationState state : modifications.values()) {
+
+			if (state.isDeleted() && state.getGraphObject() instanceof Indexable) {
+				deleted.add(state.getUuid());
+			}
+		}
+
+		if (!deleted.isEmpty()) {
+			StructrApp.getInstance().getFulltextIndexer().removeFromFulltextIndex(deleted);
+		}
+	}
+
+	/**
+	 * Marks this transaction as containing modifications that are not
+	 * tracked by this queue (e.g. Cypher statements), so that all cached
+	 * query results are invalidated after the commit.
+	 */
+	public void invalidateAllQueryResults() {
+		this.invalidateAllQueryResults = true;
+	}
+
 	public void clear() {
 
 		// clear collections afterwards
@@ -240,7 +380,7 @@ public class ModificationQueue {
 	public void modify(final Principal user, final NodeInterface node, final PropertyKey key, final Object previousValue, final Object newValue) {
 		getState(node).modify(user, key, previousValue, newValue);
 
-		if (key != null&& key.requiresSynchronization()) {
+		if (key != null && key.requiresSynchronization() && !hasUniquenessConstraint(node, key)) {
 			synchronizationKeys.add(key.getSynchronizationKey());
 		}
 	}
@@ -408,6 +548,35 @@ public class ModificationQueue {
 	}
 
 	// ----- private methods -----
+	/**
+	 * Uniqueness of node properties with a database constraint is enforced
+	 * by the database on commit, so modifications of these properties do
+	 * not need to be synchronized. This must match the type resolution in
+	 * ValidationHelper#isValidUniqueProperty.
+	 */
+	private boolean hasUniquenessConstraint(final NodeInterface node, final PropertyKey key) {
+
+		Class type = key.getDeclaringClass();
+		if (type == null || (AbstractNode.name.equals(key) && NodeInterface.class.equals(type))) {
+
+			type = node.getClass();
+		}
+
+		return SchemaService.hasUniquenessConstraint(type, key);
+	}
+
+	private void addToInvalidation(final PermissionResolutionCache.Invalidation invalidation, final NodeInterface node) {
+
+		if (node != null) {
+
+			invalidation.addNode(node.getId());
+
+			if (node instanceof Principal) {
+				invalidation.addPrincipal(node.getNode());
+			}
+		}
+	}
+
 	private void modifyEndNodes(final Principal user, final NodeInterface startNode, final NodeInterface endNode, final RelationshipType relType) {
 
 		// only modify if nodes are accessible
@@ -18,29 +18,64 @@
  */
 package org.structr.core.graph;
 
-import java.util.LinkedHashSet;
+import java.util.LinkedList;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.SortedSet;
+import java.util.TreeSet;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.structr.common.TimingStatistics;
 
 /**
- *
+ * A set of per-key semaphores that are always acquired in sorted key order,
+ * so that concurrent callers cannot deadlock without the need for a global
+ * monitor.
  */
 public class MultiSemaphore {
 
 	private static final Logger logger = LoggerFactory.getLogger(MultiSemaphore.class.getName());
 
+	private final TimingStatistics statistics         = new TimingStatistics();
 	private final Map<String, Semaphore> semaphoreMap = new ConcurrentHashMap<>();
 
-	public synchronized void acquire(final Set<String> types) throws InterruptedException {
+	public void acquire(final Set<String> types) throws InterruptedException {
 
 		if (types != null && !types.isEmpty()) {
 
-			for (Semaphore semaphore : getSemaphores(types)) {
-				semaphore.acquire();
+			final List<Semaphore> acquired = new LinkedList<>();
+
+			try {
+
+				for (final String type : sorted(types)) {
+
+					final Semaphore semaphore = getSemaphore(type);
+					final long t0             = System.nanoTime();
+
+					semaphore.acquire();
+					acquired.add(semaphore);
+
+					final long waitTime = System.nanoTime() - t0;
+
+					statistics.record(type, waitTime);
+
+					if (waitTime > TimeUnit.SECONDS.toNanos(1)) {
+						logger.info("Waited {} ms for synchronization key {}", TimeUnit.NANOSECONDS.toMillis(waitTime), type);
+					}
+				}
+
+			} catch (InterruptedException iex) {
+
+				// do not keep a partial set of semaphores
+				for (final Semaphore semaphore : acquired) {
+					semaphore.release();
+				}
+
+				throw iex;
 			}
 		}
 	}
@@ -49,34 +84,38 @@ public class MultiSemaphore {
 
 		if (types != null && !types.isEmpty()) {
 
-			for (Semaphore semaphore : getSemaphores(types)) {
-				semaphore.release();
+			for (final String type : sorted(types)) {
+				getSemaphore(type).release();
 			}
 		}
 	}
 
-	private Set<Semaphore> getSemaphores(final Set<String> types) {
-
-		Set<Semaphore> semaphores = new LinkedHashSet<>();
-
-		if (types != null) {
-
-			for (String type : types) {
+	/**
+	 * Returns the number of acquisitions and the wait times in milliseconds
+	 * for each synchronization key.
+	 *
+	 * @return the statistics
+	 */
+	public Map<String, Map<String, Object>> getStatistics() {
+		return statistics.toMap();
+	}
 
-				if (type != null) {
+	// ----- private methods -----
+	private SortedSet<String> sorted(final Set<String> types) {
 
-					Semaphore semaphore = semaphoreMap.get(type);
-					if (semaphore == null) {
+		final SortedSet<String> sorted = new TreeSet<>();
 
-						semaphore = new Semaphore(1, true);
-						semaphoreMap.put(type, semaphore);
-					}
+		for (final String type : types) {
 
-					semaphores.add(semaphore);
-				}
+			if (type != null) {
+				sorted.add(type);
 			}
 		}
 
-		return semaphores;
+		return sorted;
+	}
+
+	private Semaphore getSemaphore(final String type) {
+		return semaphoreMap.computeIfAbsent(type, k -> new Semaphore(1, true));
 	}
 }
@@ -93,7 +93,7 @@ public class NodeFactory<T extends NodeInterface & AccessControllable> extends F
 		T newNode                       = null;
 
 		try {
-			newNode = nodeClass.newInstance();
+			newNode = EntityConstructors.newInstance(nodeClass);
 
 		} catch (NoClassDefFoundError|InstantiationException|IllegalAccessException itex) {
 			newNode = null;
@@ -136,7 +136,7 @@ public class NodeFactory<T extends NodeInterface & AccessControllable> extends F
 
 			try {
 
-				newNode = nodeClass.newInstance();
+				newNode = EntityConstructors.newInstance(nodeClass);
 				newNode.init(factoryProfile.getSecurityContext(), entity, nodeClass, false);
 
 			} catch (InstantiationException|IllegalAccessException itex) {
@@ -89,7 +89,7 @@ public class RelationshipFactory<T extends RelationshipInterface> extends Factor
 
 		try {
 
-			newRel = relClass.newInstance();
+			newRel = EntityConstructors.newInstance(relClass);
 
 		} catch (Throwable t) {
 			logger.warn("", t);
@@ -132,7 +132,7 @@ public class RelationshipFactory<T extends RelationshipInterface> extends Factor
 
 			try {
 
-				newRel = relClass.newInstance();
+				newRel = EntityConstructors.newInstance(relClass);
 				newRel.init(factoryProfile.getSecurityContext(), entity, relClass);
 
 				// let rel. know of its instantiation so it can cache its start- and end node ID.
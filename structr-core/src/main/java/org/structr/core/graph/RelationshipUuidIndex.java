@@ -0,0 +1,76 @@
+/**
+ * Copyright (C) 2010-2018 Structr GmbH
+ *
+ * This file is part of Structr <http://structr.org>.
+ *
+ * Structr is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * Structr is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Structr.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.structr.core.graph;
+
+import org.structr.api.config.Settings;
+import org.structr.api.util.FixedSizeCache;
+
+/**
+ * Caches the database IDs of recently used relationships by UUID.
+ *
+ * The cache is bounded and only sits in front of the database-side
+ * relationship UUID index (see DatabaseService#getRelationshipByUuid),
+ * so it never needs to be loaded in advance. Entries can be outdated
+ * after a rollback or a modification that bypassed Structr, so callers
+ * must verify the UUID of the relationship they find.
+ */
+public class RelationshipUuidIndex {
+
+	private static FixedSizeCache<String, Long> ids = null;
+
+	/**
+	 * Returns the cached database ID of the relationship with the given
+	 * UUID, or null if the UUID is not in the cache.
+	 *
+	 * @param uuid
+	 * @return the database ID or null
+	 */
+	public static Long get(final String uuid) {
+		return getCache().get(uuid);
+	}
+
+	public static void add(final String uuid, final long id) {
+
+		if (uuid != null) {
+			getCache().put(uuid, id);
+		}
+	}
+
+	public static void remove(final String uuid) {
+
+		if (uuid != null) {
+			getCache().remove(uuid);
+		}
+	}
+
+	public static void clear() {
+		getCache().clear();
+	}
+
+	// ----- private methods -----
+	private static synchronized FixedSizeCache<String, Long> getCache() {
+
+		if (ids == null) {
+
+			ids = new FixedSizeCache<>(Settings.UuidCacheSize.getValue());
+		}
+
+		return ids;
+	}
+}
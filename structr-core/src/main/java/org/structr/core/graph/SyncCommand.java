@@ -638,6 +638,13 @@ public class SyncCommand extends NodeServiceCommand implements MaintenanceComman
 		}
 	}
 
+	/**
+	 * Imports the raw nodes and relationships of an export. App.createAll()
+	 * cannot be used here: it would create new OWNS and SECURITY relationships
+	 * and run creation callbacks, while the export already contains the
+	 * ownership and security relationships of each node, and properties and
+	 * relationships are read from the stream after the node they belong to.
+	 */
 	private static void importDatabase(final DatabaseService graphDb, final SecurityContext securityContext, final ZipInputStream zis, boolean doValidation, final Long batchSize) throws FrameworkException, IOException {
 
 		final App app                   = StructrApp.getInstance();
@@ -23,23 +23,33 @@ import java.util.Collection;
 import java.util.LinkedHashSet;
 import java.util.Map;
 import java.util.Set;
+import java.util.TreeSet;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import org.apache.commons.lang3.StringUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.structr.api.ConstraintViolationException;
+import org.structr.api.DataFormatException;
 import org.structr.api.DatabaseService;
 import org.structr.api.NetworkException;
 import org.structr.api.NotInTransactionException;
 import org.structr.api.graph.Node;
 import org.structr.api.graph.Relationship;
+import org.structr.common.PermissionResolutionCache;
 import org.structr.common.error.DatabaseServiceNetworkException;
 import org.structr.common.error.DatabaseServiceNotAvailableException;
 import org.structr.common.error.ErrorBuffer;
 import org.structr.common.error.FrameworkException;
+import org.structr.common.error.UniqueToken;
+import org.structr.core.GraphObject;
 import org.structr.core.StructrTransactionListener;
 import org.structr.core.TransactionSource;
 import org.structr.core.app.StructrApp;
 import org.structr.core.entity.AbstractNode;
 import org.structr.core.entity.Principal;
 import org.structr.core.property.PropertyKey;
+import org.structr.schema.ConfigurationProvider;
 
 /**
  * Graph service command for database operations that need to be wrapped in
@@ -55,6 +65,9 @@ public class TransactionCommand extends NodeServiceCommand implements AutoClosea
 	private static final ThreadLocal<TransactionReference> transactions = new ThreadLocal<>();
 	private static final MultiSemaphore                    semaphore    = new MultiSemaphore();
 
+	// message format of Neo4j uniqueness constraint violations, e.g. "Node(12) already exists with label `Type` and property `key` = 'value'"
+	private static final Pattern CONSTRAINT_VIOLATION_PATTERN           = Pattern.compile("already exists with label `(.+?)` and property `(.+?)`");
+
 	public TransactionCommand beginTx() throws FrameworkException {
 
 		final DatabaseService graphDb = (DatabaseService)arguments.get("graphDb");
@@ -109,13 +122,24 @@ public class TransactionCommand extends NodeServiceCommand implements AutoClosea
 				throw new FrameworkException(422, "Unable to commit transaction, validation failed", errorBuffer);
 			}
 
-			// 2. fetch all types of entities modified in this tx
-			Set<String> synchronizationKeys = modificationQueue.getSynchronizationKeys();
+			// 2. fetch all types of entities modified in this tx (snapshot, the queue
+			//    can still add keys after this point, e.g. in post-commit callbacks)
+			final Set<String> synchronizationKeys = new TreeSet<>(modificationQueue.getSynchronizationKeys());
 
 			// we need to protect the validation and indexing part of every transaction
 			// from being entered multiple times in the presence of validators
-			// 3. acquire semaphores for each modified type
-			try { semaphore.acquire(synchronizationKeys); } catch (InterruptedException iex) { return; }
+			// 3. acquire semaphores for each modified type (not needed without validation).
+			//    The keys only contain properties whose uniqueness is checked by a query,
+			//    so types without such properties, or with a database constraint, are never
+			//    locked. Other validation (e.g. not null) does not depend on concurrent
+			//    transactions and runs without locks.
+			if (doValidation) {
+
+				try { semaphore.acquire(synchronizationKeys); } catch (InterruptedException iex) { return; }
+
+				// remember keys so that only acquired semaphores are released
+				tx.setLockedKeys(synchronizationKeys);
+			}
 
 			// do validation under the protection of the semaphores for each type
 			if (doValidation && !modificationQueue.doValidation(securityContext, errorBuffer, doValidation)) {
@@ -136,6 +160,12 @@ public class TransactionCommand extends NodeServiceCommand implements AutoClosea
 			try {
 				tx.success();
 
+			} catch (ConstraintViolationException | DataFormatException ex) {
+
+				// uniqueness constraints are enforced by the database when buffered writes are flushed
+				tx.failure();
+				throw translateWriteFailure(ex);
+
 			} catch (Throwable t) {
 				logger.error("Unable to commit transaction", t);
 			}
@@ -153,7 +183,10 @@ public class TransactionCommand extends NodeServiceCommand implements AutoClosea
 
 				modificationQueue = queues.get();
 
-				final Set<String> synchronizationKeys = modificationQueue.getSynchronizationKeys();
+				final Set<String> lockedKeys = tx.getLockedKeys();
+
+				// collected while the transaction is open, applied after it is finished (commit or rollback)
+				final PermissionResolutionCache.Invalidation permissionInvalidation = modificationQueue != null ? modificationQueue.getPermissionInvalidation() : null;
 
 				// cleanup
 				queues.remove();
@@ -164,10 +197,27 @@ public class TransactionCommand extends NodeServiceCommand implements AutoClosea
 				try {
 					tx.close();
 
+					if (modificationQueue != null) {
+						modificationQueue.invalidateQueryCache((DatabaseService)arguments.get("graphDb"));
+					}
+
 				} finally {
 
 					// release semaphores as the transaction is now finished
-					semaphore.release(synchronizationKeys);	// careful: this can be null
+					semaphore.release(lockedKeys);	// careful: this can be null
+
+					// concurrent readers may have cached results from the state before the commit
+					if (permissionInvalidation != null && !permissionInvalidation.isEmpty()) {
+						permissionInvalidation.apply();
+					}
+				}
+
+				// post-commit work runs in separate transactions and does disk I/O,
+				// so it must not hold the semaphores of this transaction
+				if (modificationQueue != null && tx.isSuccessful()) {
+
+					modificationQueue.updateMaterializedProperties();
+					modificationQueue.updateFulltextIndex();
 				}
 
 			} else {
@@ -184,6 +234,16 @@ public class TransactionCommand extends NodeServiceCommand implements AutoClosea
 		finishTx();
 	}
 
+	/**
+	 * Returns the number of acquisitions and the wait times in milliseconds
+	 * for each synchronization key.
+	 *
+	 * @return the lock statistics
+	 */
+	public static Map<String, Map<String, Object>> getLockStatistics() {
+		return semaphore.getStatistics();
+	}
+
 	public Collection<ModificationEvent> getModificationEvents() {
 
 		ModificationQueue modificationQueue = queues.get();
@@ -441,6 +501,20 @@ public class TransactionCommand extends NodeServiceCommand implements AutoClosea
 		return false;
 	}
 
+	/**
+	 * Invalidates all cached query results when the current transaction
+	 * is committed. Used for modifications that are not tracked in the
+	 * modification queue.
+	 */
+	public static void invalidateAllQueryResults() {
+
+		final ModificationQueue queue = queues.get();
+		if (queue != null) {
+
+			queue.invalidateAllQueryResults();
+		}
+	}
+
 	public static void registerNodeCallback(final NodeInterface node, final String callbackId) {
 
 		TransactionCommand command = currentCommand.get();
@@ -485,7 +559,87 @@ public class TransactionCommand extends NodeServiceCommand implements AutoClosea
 
 	}
 
+	/**
+	 * Translates the failure of a database write into a FrameworkException.
+	 * Writes are buffered by the database driver, so failures can surface
+	 * on a later write or read, or on commit.
+	 *
+	 * @param ex the exception thrown by the database driver
+	 * @return the exception to throw
+	 */
+	public static FrameworkException translateWriteFailure(final RuntimeException ex) {
+
+		if (ex instanceof ConstraintViolationException) {
+			return translateConstraintViolation((ConstraintViolationException)ex);
+		}
+
+		final FrameworkException fex = new FrameworkException(ex instanceof DataFormatException ? 422 : 500, ex.getMessage());
+		fex.initCause(ex);
+
+		return fex;
+	}
+
+	/**
+	 * Translates a uniqueness constraint violation reported by the
+	 * database into a FrameworkException with a UniqueToken, so that
+	 * clients get the same error as from the validation query. The UUID
+	 * in the token is the one of the node that was created or modified
+	 * in the current transaction.
+	 *
+	 * @param cvex the constraint violation
+	 * @return the exception to throw
+	 */
+	public static FrameworkException translateConstraintViolation(final ConstraintViolationException cvex) {
+
+		final Matcher matcher = CONSTRAINT_VIOLATION_PATTERN.matcher(StringUtils.defaultString(cvex.getMessage()));
+		if (matcher.find()) {
+
+			final ConfigurationProvider config = StructrApp.getConfiguration();
+			final String typeName              = matcher.group(1);
+			final Class type                   = config.getNodeEntityClass(typeName);
+
+			if (type != null) {
+
+				final PropertyKey key = config.getPropertyKeyForDatabaseName(type, matcher.group(2), false);
+				if (key != null) {
+
+					final ErrorBuffer errorBuffer = new ErrorBuffer();
+
+					errorBuffer.add(new UniqueToken(typeName, key, getViolatingUuid(type, key)));
+
+					final FrameworkException fex = new FrameworkException(422, "Unable to commit transaction, validation failed", errorBuffer);
+					fex.initCause(cvex);
+
+					return fex;
+				}
+			}
+		}
+
+		return new FrameworkException(422, cvex.getMessage());
+	}
+
 	// ----- private methods -----
+	private static String getViolatingUuid(final Class type, final PropertyKey key) {
+
+		final ModificationQueue queue = queues.get();
+		if (queue != null) {
+
+			for (final ModificationEvent event : queue.getModificationEvents()) {
+
+				final GraphObject obj = event.getGraphObject();
+
+				if (event.isNode() && !event.isDeleted() && obj != null && type.isAssignableFrom(obj.getClass())) {
+
+					if (event.isCreated() || event.getModifiedProperties().containsKey(key)) {
+						return event.getUuid();
+					}
+				}
+			}
+		}
+
+		return null;
+	}
+
 	private ModificationQueue getModificationQueue() {
 		return queues.get();
 	}
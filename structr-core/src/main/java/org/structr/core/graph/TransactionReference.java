@@ -18,6 +18,7 @@
  */
 package org.structr.core.graph;
 
+import java.util.Set;
 import org.structr.api.Transaction;
 import org.structr.core.TransactionSource;
 
@@ -27,6 +28,7 @@ import org.structr.core.TransactionSource;
  */
 public class TransactionReference implements Transaction {
 
+	private Set<String> lockedKeys   = null;
 	private TransactionSource source = null;
 	private Transaction tx           = null;
 	private int referenceCount       = 0;
@@ -64,6 +66,14 @@ public class TransactionReference implements Transaction {
 		return source;
 	}
 
+	public void setLockedKeys(final Set<String> lockedKeys) {
+		this.lockedKeys = lockedKeys;
+	}
+
+	public Set<String> getLockedKeys() {
+		return lockedKeys;
+	}
+
 	// ----- interface Transaction -----
 	@Override
 	public void failure() {
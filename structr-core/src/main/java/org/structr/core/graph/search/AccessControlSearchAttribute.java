@@ -0,0 +1,68 @@
+/**
+ * Copyright (C) 2010-2018 Structr GmbH
+ *
+ * This file is part of Structr <http://structr.org>.
+ *
+ * Structr is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * Structr is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Structr.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.structr.core.graph.search;
+
+import org.structr.api.search.AccessControlQuery;
+import org.structr.api.search.Occurrence;
+import org.structr.common.Permission;
+import org.structr.core.GraphObject;
+import org.structr.core.entity.Principal;
+
+/**
+ * Search attribute that restricts the database query to nodes the given
+ * principal can read. The resulting nodes are still checked in the factory,
+ * so this attribute does not filter in memory.
+ */
+public class AccessControlSearchAttribute extends SearchAttribute<String> implements AccessControlQuery {
+
+	public AccessControlSearchAttribute(final Principal principal) {
+		super(Occurrence.REQUIRED, GraphObject.id, principal.getUuid());
+	}
+
+	@Override
+	public String toString() {
+		return "AccessControlSearchAttribute(" + super.toString() + ")";
+	}
+
+	@Override
+	public Class getQueryType() {
+		return AccessControlQuery.class;
+	}
+
+	@Override
+	public boolean isExactMatch() {
+		return true;
+	}
+
+	@Override
+	public boolean includeInResult(final GraphObject entity) {
+		return true;
+	}
+
+	// ----- interface AccessControlQuery -----
+	@Override
+	public String getPrincipalUuid() {
+		return getValue();
+	}
+
+	@Override
+	public String getPermission() {
+		return Permission.read.name();
+	}
+}
@@ -0,0 +1,54 @@
+/**
+ * Copyright (C) 2010-2018 Structr GmbH
+ *
+ * This file is part of Structr <http://structr.org>.
+ *
+ * Structr is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * Structr is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Structr.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.structr.core.graph.search;
+
+import org.structr.api.search.CachedQuery;
+import org.structr.api.search.Occurrence;
+import org.structr.core.GraphObject;
+
+/**
+ * Search attribute that enables the query result cache for a single
+ * query, regardless of the configured types. Does not modify the query.
+ */
+public class CachedSearchAttribute extends SearchAttribute<String> implements CachedQuery {
+
+	public CachedSearchAttribute() {
+		super(Occurrence.REQUIRED, GraphObject.id, null);
+	}
+
+	@Override
+	public String toString() {
+		return "CachedSearchAttribute()";
+	}
+
+	@Override
+	public Class getQueryType() {
+		return CachedQuery.class;
+	}
+
+	@Override
+	public boolean isExactMatch() {
+		return true;
+	}
+
+	@Override
+	public boolean includeInResult(final GraphObject entity) {
+		return true;
+	}
+}
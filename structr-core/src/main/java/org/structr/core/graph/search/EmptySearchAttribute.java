@@ -45,6 +45,20 @@ public class EmptySearchAttribute<T> extends PropertySearchAttribute<T> {
 		return EmptyQuery.class;
 	}
 
+	/**
+	 * Indicates whether this attribute is evaluated completely by the
+	 * database, which is only possible for indexed properties that are
+	 * stored in the database.
+	 *
+	 * @return whether the result needs no filtering in memory
+	 */
+	public boolean isDatabaseQuery() {
+
+		final PropertyKey key = getKey();
+
+		return (key.isIndexed() || key.isPassivelyIndexed()) && key.relatedType() == null;
+	}
+
 	@Override
 	public boolean includeInResult(GraphObject entity) {
 
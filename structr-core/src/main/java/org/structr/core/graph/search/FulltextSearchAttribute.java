@@ -0,0 +1,117 @@
+/**
+ * Copyright (C) 2010-2018 Structr GmbH
+ *
+ * This file is part of Structr <http://structr.org>.
+ *
+ * Structr is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * Structr is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Structr.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.structr.core.graph.search;
+
+import java.util.function.Predicate;
+import org.structr.api.search.Occurrence;
+import org.structr.common.SecurityContext;
+import org.structr.common.error.FrameworkException;
+import org.structr.common.fulltext.FulltextIndexer;
+import org.structr.common.fulltext.FulltextSearchResult;
+import org.structr.core.GraphObject;
+import org.structr.core.app.App;
+import org.structr.core.app.StructrApp;
+import org.structr.core.graph.NodeInterface;
+
+/**
+ * Search attribute for the fulltext index. The matching nodes are resolved
+ * when the query is executed and kept in descending order of their score.
+ */
+public class FulltextSearchAttribute extends SourceSearchAttribute {
+
+	private static final int MIN_WINDOW_SIZE = 100;
+	private static final int MAX_WINDOW_SIZE = 10000;
+
+	private String searchTerm = null;
+	private boolean complete  = false;
+	private int totalCount    = 0;
+	private int rejected      = 0;
+
+	public FulltextSearchAttribute(final String searchTerm, final Occurrence occur) {
+
+		super(occur);
+
+		this.searchTerm = searchTerm;
+	}
+
+	@Override
+	public String toString() {
+		return "FulltextSearchAttribute(" + searchTerm + ")";
+	}
+
+	/**
+	 * Pages through the ranked hits of the fulltext index and adds the
+	 * matching nodes that are visible in the given security context and
+	 * accepted by the given filter to the result, until the given number
+	 * of nodes is collected or the hits are exhausted.
+	 *
+	 * @param securityContext
+	 * @param filter the filters of the enclosing query
+	 * @param requiredResults the number of nodes to collect
+	 * @throws FrameworkException
+	 */
+	public void search(final SecurityContext securityContext, final Predicate<GraphObject> filter, final int requiredResults) throws FrameworkException {
+
+		final App app                 = StructrApp.getInstance(securityContext);
+		final FulltextIndexer indexer = app.getFulltextIndexer();
+		final int windowSize          = Math.max(MIN_WINDOW_SIZE, Math.min(MAX_WINDOW_SIZE, requiredResults));
+		int offset                    = 0;
+		int found                     = 0;
+
+		while (found < requiredResults) {
+
+			final FulltextSearchResult hits = indexer.search(searchTerm, offset, windowSize);
+
+			totalCount = hits.getTotalCount();
+
+			for (final String uuid : hits.getHits().keySet()) {
+
+				final NodeInterface node = app.getNodeById(uuid);
+				if (node != null && filter.test(node)) {
+
+					addToResult(node);
+					found++;
+
+				} else {
+
+					rejected++;
+				}
+			}
+
+			offset += windowSize;
+
+			if (offset >= totalCount) {
+
+				complete = true;
+				break;
+			}
+		}
+	}
+
+	/**
+	 * Returns the number of matching nodes. This is the number of hits
+	 * reported by the fulltext index minus the hits that were rejected,
+	 * which is exact if all hits were examined.
+	 *
+	 * @return the number of matching nodes
+	 */
+	public int getResultCount() {
+		return complete ? getResult().size() : totalCount - rejected;
+	}
+}
@@ -0,0 +1,128 @@
+/**
+ * Copyright (C) 2010-2018 Structr GmbH
+ *
+ * This file is part of Structr <http://structr.org>.
+ *
+ * Structr is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * Structr is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Structr.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.structr.core.graph.search;
+
+import java.util.LinkedHashSet;
+import java.util.Set;
+import org.structr.api.search.GraphQuery;
+import org.structr.api.search.Occurrence;
+import org.structr.core.GraphObject;
+import org.structr.core.entity.Relation;
+import org.structr.core.property.PropertyKey;
+
+/**
+ * Search attribute for a relationship property, evaluated by the database
+ * as a pattern predicate instead of collecting the related nodes in
+ * memory. An empty set of values matches nodes without related nodes.
+ */
+public class GraphSearchAttribute<T> extends SearchAttribute<T> implements GraphQuery {
+
+	private final Set<String> values = new LinkedHashSet<>();
+	private Relation relation        = null;
+	private boolean isOutgoing       = false;
+	private boolean isExactMatch     = false;
+
+	public GraphSearchAttribute(final PropertyKey<T> key, final Relation relation, final boolean isOutgoing, final Set<String> values, final Occurrence occur, final boolean isExactMatch) {
+
+		super(occur, key, null);
+
+		this.relation     = relation;
+		this.isOutgoing   = isOutgoing;
+		this.isExactMatch = isExactMatch;
+
+		if (values != null) {
+			this.values.addAll(values);
+		}
+	}
+
+	@Override
+	public String toString() {
+		return "GraphSearchAttribute(" + getKey().jsonName() + ", " + values + ")";
+	}
+
+	@Override
+	public Class getQueryType() {
+		return GraphQuery.class;
+	}
+
+	@Override
+	public boolean isExactMatch() {
+		return isExactMatch;
+	}
+
+	@Override
+	public boolean includeInResult(final GraphObject entity) {
+
+		final Set<String> related = new LinkedHashSet<>();
+		final Object value        = entity.getProperty(getKey());
+
+		if (value instanceof Iterable) {
+
+			for (final Object obj : (Iterable)value) {
+
+				if (obj instanceof GraphObject) {
+					related.add(((GraphObject)obj).getUuid());
+				}
+			}
+
+		} else if (value instanceof GraphObject) {
+
+			related.add(((GraphObject)value).getUuid());
+		}
+
+		final boolean matches;
+
+		if (values.isEmpty()) {
+
+			matches = related.isEmpty();
+
+		} else if (isExactMatch && Occurrence.REQUIRED.equals(getOccurrence())) {
+
+			matches = related.containsAll(values);
+
+		} else {
+
+			related.retainAll(values);
+			matches = !related.isEmpty();
+		}
+
+		return Occurrence.FORBIDDEN.equals(getOccurrence()) ? !matches : matches;
+	}
+
+	// ----- interface GraphQuery -----
+	@Override
+	public String getRelationshipType() {
+		return relation.name();
+	}
+
+	@Override
+	public String getOtherLabel() {
+		return isOutgoing ? relation.getTargetType().getSimpleName() : relation.getSourceType().getSimpleName();
+	}
+
+	@Override
+	public boolean isOutgoing() {
+		return isOutgoing;
+	}
+
+	@Override
+	public Set<String> getValues() {
+		return values;
+	}
+}
@@ -26,10 +26,12 @@ import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import org.apache.commons.lang3.StringUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.structr.api.Predicate;
 import org.structr.api.QueryResult;
+import org.structr.api.config.Settings;
 import org.structr.api.graph.PropertyContainer;
 import org.structr.api.index.Index;
 import org.structr.api.search.Occurrence;
@@ -44,6 +46,8 @@ import org.structr.core.Result;
 import org.structr.core.app.StructrApp;
 import org.structr.core.entity.AbstractNode;
 import org.structr.core.entity.AbstractRelationship;
+import org.structr.core.entity.Principal;
+import org.structr.core.entity.SchemaRelationshipNode;
 import org.structr.core.graph.Factory;
 import org.structr.core.graph.NodeInterface;
 import org.structr.core.graph.NodeServiceCommand;
@@ -76,6 +80,7 @@ public abstract class SearchCommand<S extends PropertyContainer, T extends Graph
 	public static final String DISTANCE_SEARCH_KEYWORD    = "distance";
 	public static final String CITY_SEARCH_KEYWORD        = "city";
 	public static final String STREET_SEARCH_KEYWORD      = "street";
+	public static final String FULLTEXT_SEARCH_KEYWORD    = "fulltext";
 
 	static {
 
@@ -92,6 +97,7 @@ public abstract class SearchCommand<S extends PropertyContainer, T extends Graph
 	private boolean includeDeletedAndHidden      = true;
 	private boolean sortDescending               = false;
 	private boolean doNotSort                    = false;
+	private boolean cached                       = false;
 	private Class type                           = null;
 	private int pageSize                         = Integer.MAX_VALUE;
 	private int page                             = 1;
@@ -110,6 +116,7 @@ public abstract class SearchCommand<S extends PropertyContainer, T extends Graph
 		final Factory<S, T> factory  = getFactory(securityContext, includeDeletedAndHidden, publicOnly, pageSize, page);
 		boolean hasGraphSources      = false;
 		boolean hasSpatialSource     = false;
+		boolean hasAccessControl     = false;
 
 		if (securityContext.getUser(false) == null && !isRelationshipSearch()) {
 
@@ -119,6 +126,20 @@ public abstract class SearchCommand<S extends PropertyContainer, T extends Graph
 
 			rootGroup.add(new RelationshipVisibilitySearchAttribute());
 
+		} else if (canUseAccessControlQuery()) {
+
+			// let the database filter out nodes that cannot be read, the
+			// factory still checks each instantiated node
+			rootGroup.add(new AccessControlSearchAttribute(securityContext.getUser(false)));
+
+			hasAccessControl = true;
+		}
+
+		if (cached) {
+
+			// cache the result of this query even if its type
+			// is not configured for the query result cache
+			rootGroup.add(new CachedSearchAttribute());
 		}
 
 		// special handling of deleted and hidden flags
@@ -157,7 +178,7 @@ public abstract class SearchCommand<S extends PropertyContainer, T extends Graph
 
 					}
 
-					if (item instanceof EmptySearchAttribute) {
+					if (item instanceof EmptySearchAttribute && !((EmptySearchAttribute)item).isDatabaseQuery()) {
 						hasEmptySearchFields = true;
 					}
 				}
@@ -187,7 +208,7 @@ public abstract class SearchCommand<S extends PropertyContainer, T extends Graph
 				hasGraphSources = true;
 			}
 
-			if (attr instanceof EmptySearchAttribute) {
+			if (attr instanceof EmptySearchAttribute && !((EmptySearchAttribute)attr).isDatabaseQuery()) {
 				hasEmptySearchFields = true;
 			}
 
@@ -196,6 +217,18 @@ public abstract class SearchCommand<S extends PropertyContainer, T extends Graph
 			}
 		}
 
+		// fulltext sources are resolved from the fulltext index, a single
+		// source only needs to collect the hits up to the requested page
+		final FulltextSearchAttribute fulltextSource = getSingleFulltextSource(sources, hasSpatialSource);
+		final int requiredResults                    = fulltextSource != null ? getRequiredResults() : Integer.MAX_VALUE;
+
+		for (final SourceSearchAttribute source : sources) {
+
+			if (source instanceof FulltextSearchAttribute) {
+				((FulltextSearchAttribute)source).search(securityContext, this::matchesRootGroup, requiredResults);
+			}
+		}
+
 		// only do "normal" query if no other sources are present
 		// use filters to filter sources otherwise
 		if (!hasSpatialSource && !sources.isEmpty()) {
@@ -219,13 +252,24 @@ public abstract class SearchCommand<S extends PropertyContainer, T extends Graph
 					factory.disablePaging();
 				}
 
-				// do query
-				final QueryResult hits = getIndex().query(rootGroup);
-				intermediateResult     = factory.instantiate(hits);
+				if (!hasEmptySearchFields && sources.isEmpty() && isDatabaseFiltered(hasAccessControl)) {
+
+					// let the database skip to the requested page
+					intermediateResult = getDatabasePage(index, factory);
+				}
+
+				if (intermediateResult == null) {
+
+					// do query
+					final QueryResult hits = index.query(rootGroup);
+					intermediateResult     = factory.instantiate(hits);
+				}
 			}
 		}
 
-		if (intermediateResult != null && (hasEmptySearchFields || hasGraphSources || hasSpatialSource || hasRelationshipVisibilitySearch)) {
+		// distance queries are evaluated completely in the database, so they
+		// do not need to be filtered in memory unless combined with sources
+		if (intermediateResult != null && (hasEmptySearchFields || hasGraphSources || hasRelationshipVisibilitySearch)) {
 
 			// sorted result set
 			final Set<GraphObject> intermediateResultSet = new LinkedHashSet<>(intermediateResult.getResults());
@@ -255,26 +299,25 @@ public abstract class SearchCommand<S extends PropertyContainer, T extends Graph
 			// Filter intermediate result
 			for (final GraphObject obj : intermediateResultSet) {
 
-				boolean addToResult = true;
-
-				// check all attributes before adding a node
-				for (SearchAttribute attr : rootGroup.getSearchAttributes()) {
-
-					// check all search attributes
-					addToResult &= attr.includeInResult(obj);
-				}
-
-				if (addToResult) {
+				if (matchesRootGroup(obj)) {
 
 					finalResult.add(obj);
 					resultCount++;
 				}
 			}
 
-			// sort list
-			Collections.sort(finalResult, new GraphObjectComparator(sortKey, sortDescending));
+			// the fulltext index knows about the hits that were not collected
+			if (fulltextSource != null) {
+				resultCount = Math.max(resultCount, fulltextSource.getResultCount());
+			}
+
+			// return sorted and paged final result, only the entries
+			// up to the requested page are sorted
+			if (sortKey != null) {
+
+				return new Result(PagingHelper.sortedSubList(finalResult, new GraphObjectComparator(sortKey, sortDescending), pageSize, page), resultCount, true, false);
+			}
 
-			// return paged final result
 			return new Result(PagingHelper.subList(finalResult, pageSize, page), resultCount, true, false);
 
 		} else {
@@ -284,6 +327,149 @@ public abstract class SearchCommand<S extends PropertyContainer, T extends Graph
 		}
 	}
 
+	private boolean matchesRootGroup(final GraphObject obj) {
+
+		boolean addToResult = true;
+
+		// check all attributes before adding a node
+		for (SearchAttribute attr : rootGroup.getSearchAttributes()) {
+
+			// check all search attributes
+			addToResult &= attr.includeInResult(obj);
+		}
+
+		return addToResult;
+	}
+
+	/**
+	 * Returns the fulltext source if it is the only source of this query,
+	 * so that its hits are the result of the query.
+	 */
+	private FulltextSearchAttribute getSingleFulltextSource(final List<SourceSearchAttribute> sources, final boolean hasSpatialSource) {
+
+		if (!hasSpatialSource && sources.size() == 1 && sources.get(0) instanceof FulltextSearchAttribute) {
+			return (FulltextSearchAttribute)sources.get(0);
+		}
+
+		return null;
+	}
+
+	/**
+	 * Returns the number of results up to the end of the requested page,
+	 * or Integer.MAX_VALUE if all results are needed for sorting or for
+	 * paging from the end.
+	 */
+	private int getRequiredResults() {
+
+		if (sortKey != null || page < 1 || pageSize == Integer.MAX_VALUE) {
+			return Integer.MAX_VALUE;
+		}
+
+		return (int)Math.min(Integer.MAX_VALUE, (long)page * Math.max(1, pageSize));
+	}
+
+	/**
+	 * Indicates whether read permissions can be resolved in the database
+	 * query. This is only possible if enabled, for non-admin users and as
+	 * long as there are no permission grants that can only be resolved
+	 * in the JVM (propagating relationships, custom permission queries).
+	 */
+	private boolean canUseAccessControlQuery() {
+
+		if (!Settings.AccessControlQueries.getValue() || isRelationshipSearch() || securityContext.isSuperUser()) {
+			return false;
+		}
+
+		final Principal user = securityContext.getUser(false);
+		if (user == null || user.isAdmin()) {
+			return false;
+		}
+
+		if (!SchemaRelationshipNode.getPropagatingRelationshipTypes().isEmpty()) {
+			return false;
+		}
+
+		final PropertyKey<String> customQueryKey = StructrApp.getConfiguration().getPropertyKeyForJSONName(Principal.class, "customPermissionQueryRead", false);
+		if (customQueryKey != null && StringUtils.isNotEmpty(user.getProperty(customQueryKey))) {
+			return false;
+		}
+
+		return true;
+	}
+
+	/**
+	 * Indicates whether the database query applies all criteria that the
+	 * factory checks for each node, so that paging and counting can be
+	 * done by the database without instantiating the skipped nodes.
+	 */
+	private boolean isDatabaseFiltered(final boolean hasAccessControl) {
+
+		if (isRelationshipSearch() || publicOnly || pageSize == Integer.MAX_VALUE) {
+			return false;
+		}
+
+		if (securityContext.isSuperUser()) {
+			return true;
+		}
+
+		final Principal user = securityContext.getUser(false);
+
+		// anonymous users are restricted to public nodes by the query
+		return user == null || user.isAdmin() || hasAccessControl;
+	}
+
+	/**
+	 * Reads only the requested page from the database. The result count
+	 * is exact up to RESULT_COUNT_ACCURATE_LIMIT, larger counts are
+	 * determined asynchronously by the database and reported by
+	 * subsequent requests.
+	 *
+	 * @return the page, or null if the query cannot be counted by the database
+	 */
+	private Result getDatabasePage(final Index<S> index, final Factory<S, T> factory) throws FrameworkException {
+
+		final boolean ignoreCount = securityContext.ignoreResultCount();
+		int resultCount           = 0;
+		int offset                = 0;
+		int length                = pageSize;
+
+		if (page < 0) {
+
+			// negative pages need the exact count
+			final long count = index.count(rootGroup, Integer.MAX_VALUE);
+			if (count < 0) {
+				return null;
+			}
+
+			final long fromIndex = count + ((long)page * pageSize);
+
+			offset      = (int)Math.max(0, fromIndex);
+			length      = (int)Math.max(0, Math.min(count, fromIndex + pageSize) - offset);
+			resultCount = (int)Math.min(Integer.MAX_VALUE, count);
+
+		} else {
+
+			offset = (page - 1) * pageSize;
+
+			if (!ignoreCount) {
+
+				final long count = index.count(rootGroup, Factory.RESULT_COUNT_ACCURATE_LIMIT);
+				if (count < 0) {
+					return null;
+				}
+
+				resultCount = (int)Math.min(Integer.MAX_VALUE, count);
+			}
+		}
+
+		final Result result = factory.instantiatePage(index.query(rootGroup, offset, length), length, resultCount);
+
+		// the count must at least include the current page
+		result.setRawResultCount(Math.max(resultCount, offset + result.size()));
+
+		return result;
+	}
+
 	private Set<GraphObject> mergeSources(List<SourceSearchAttribute> sources) {
 
 		final Set<GraphObject> mergedResult = new LinkedHashSet<>();
@@ -434,6 +620,12 @@ public abstract class SearchCommand<S extends PropertyContainer, T extends Graph
 		return this;
 	}
 
+	@Override
+	public org.structr.core.app.Query<T> cached() {
+		this.cached = true;
+		return this;
+	}
+
 	@Override
 	public org.structr.core.app.Query<T> uuid(final String uuid) {
 
@@ -517,6 +709,12 @@ public abstract class SearchCommand<S extends PropertyContainer, T extends Graph
 		return this;
 	}
 
+	@Override
+	public org.structr.core.app.Query<T> fulltext(final String searchTerm) {
+		currentGroup.getSearchAttributes().add(new FulltextSearchAttribute(searchTerm, Occurrence.REQUIRED));
+		return this;
+	}
+
 	@Override
 	public <P> org.structr.core.app.Query<T> and(final PropertyKey<P> key, final P value) {
 
@@ -20,6 +20,8 @@ package org.structr.core.property;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.structr.api.ConstraintViolationException;
+import org.structr.api.DataFormatException;
 import org.structr.api.NotInTransactionException;
 import org.structr.api.Predicate;
 import org.structr.api.RetryException;
@@ -220,6 +222,11 @@ public abstract class AbstractPrimitiveProperty<T> extends Property<T> {
 				// don't catch RetryException here
 				throw rex;
 
+			} catch (final ConstraintViolationException | DataFormatException ex) {
+
+				// failure of buffered writes that were flushed by this write
+				throw TransactionCommand.translateWriteFailure(ex);
+
 			} catch (Throwable t) {
 
 				// throw FrameworkException with the given cause
@@ -23,13 +23,14 @@ import org.structr.api.Predicate;
 import org.structr.api.search.SortType;
 import org.structr.common.SecurityContext;
 import org.structr.core.GraphObject;
+import org.structr.core.graph.MaterializedProperties;
 import org.structr.core.graph.NodeInterface;
 
 /**
  *
  *
  */
-public class CollectionSumProperty<T extends NodeInterface, S extends Number> extends AbstractReadOnlyProperty<S> {
+public class CollectionSumProperty<T extends NodeInterface, S extends Number> extends AbstractReadOnlyProperty<S> implements MaterializableProperty<S> {
 
 	private Property<List<T>> collectionKey = null;
 	private Property<S> valueKey            = null;
@@ -70,6 +71,11 @@ public class CollectionSumProperty<T extends NodeInterface, S extends Number> ex
 
 	@Override
 	public S getProperty(SecurityContext securityContext, GraphObject obj, boolean applyConverter, final Predicate<GraphObject> pred) {
+		return MaterializedProperties.getValue(securityContext, obj, this, pred);
+	}
+
+	@Override
+	public S computeValue(final SecurityContext securityContext, final GraphObject obj, final Predicate<GraphObject> pred) {
 
 		int     intSum    = 0;
 		long    longSum   = 0L;
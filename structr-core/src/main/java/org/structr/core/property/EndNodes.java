@@ -40,7 +40,7 @@ import org.structr.core.entity.ManyEndpoint;
 import org.structr.core.entity.Relation;
 import org.structr.core.entity.Source;
 import org.structr.core.graph.NodeInterface;
-import org.structr.core.graph.search.EmptySearchAttribute;
+import org.structr.core.graph.search.GraphSearchAttribute;
 import org.structr.core.graph.search.SearchAttribute;
 import org.structr.core.graph.search.SourceSearchAttribute;
 import org.structr.core.notion.Notion;
@@ -249,65 +249,27 @@ public class EndNodes<S extends NodeInterface, T extends NodeInterface> extends
 	@Override
 	public SearchAttribute getSearchAttribute(SecurityContext securityContext, Occurrence occur, List<T> searchValue, boolean exactMatch, final Query query) {
 
-		final Predicate<GraphObject> predicate    = query != null ? query.toPredicate() : null;
-		final SourceSearchAttribute attr          = new SourceSearchAttribute(occur);
-		final Set<GraphObject> intersectionResult = new LinkedHashSet<>();
-		boolean alreadyAdded                      = false;
+		final Set<String> uuids = new LinkedHashSet<>();
 
 		if (searchValue != null && !StringUtils.isBlank(searchValue.toString())) {
 
-			if (exactMatch) {
+			for (final NodeInterface node : searchValue) {
 
-				for (NodeInterface node : searchValue) {
-
-					switch (occur) {
-
-						case REQUIRED:
-
-							if (!alreadyAdded) {
-
-								// the first result is the basis of all subsequent intersections
-								intersectionResult.addAll(getRelatedNodesReverse(securityContext, node, declaringClass, predicate));
-
-								// the next additions are intersected with this one
-								alreadyAdded = true;
-
-							} else {
-
-								intersectionResult.retainAll(getRelatedNodesReverse(securityContext, node, declaringClass, predicate));
-							}
-
-							break;
-
-						case OPTIONAL:
-							intersectionResult.addAll(getRelatedNodesReverse(securityContext, node, declaringClass, predicate));
-							break;
-
-						case FORBIDDEN:
-							break;
-					}
-				}
-
-			} else {
-
-				// loose search behaves differently, all results must be combined
-				for (NodeInterface node : searchValue) {
-
-					intersectionResult.addAll(getRelatedNodesReverse(securityContext, node, declaringClass, predicate));
+				if (node != null) {
+					uuids.add(node.getUuid());
 				}
 			}
 
-			attr.setResult(intersectionResult);
-
-		} else {
+			if (uuids.isEmpty()) {
 
-			// experimental filter attribute that
-			// removes entities with a non-empty
-			// value in the given field
-			return new EmptySearchAttribute(this, null);
+				// none of the given nodes exists
+				return new SourceSearchAttribute(occur);
+			}
 		}
 
-		return attr;
+		// let the database match the related nodes, an empty set
+		// matches entities without related nodes
+		return new GraphSearchAttribute(this, relation, true, uuids, occur, exactMatch);
 	}
 
 	// ----- overridden methods from super class -----
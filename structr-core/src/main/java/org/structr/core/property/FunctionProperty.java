@@ -26,6 +26,7 @@ import org.structr.common.SecurityContext;
 import org.structr.common.error.FrameworkException;
 import org.structr.core.GraphObject;
 import org.structr.core.converter.PropertyConverter;
+import org.structr.core.graph.MaterializedProperties;
 import org.structr.core.script.Scripting;
 import org.structr.schema.action.ActionContext;
 
@@ -33,7 +34,7 @@ import org.structr.schema.action.ActionContext;
  *
  *
  */
-public class FunctionProperty<T> extends Property<T> {
+public class FunctionProperty<T> extends Property<T> implements MaterializableProperty<T> {
 
 	private static final Logger logger = LoggerFactory.getLogger(FunctionProperty.class.getName());
 
@@ -62,6 +63,11 @@ public class FunctionProperty<T> extends Property<T> {
 
 	@Override
 	public T getProperty(final SecurityContext securityContext, final GraphObject obj, final boolean applyConverter, final Predicate<GraphObject> predicate) {
+		return MaterializedProperties.getValue(securityContext, obj, this, predicate);
+	}
+
+	@Override
+	public T computeValue(final SecurityContext securityContext, final GraphObject obj, final Predicate<GraphObject> predicate) {
 
 		try {
 
@@ -25,12 +25,13 @@ import org.structr.api.Predicate;
 import org.structr.api.search.SortType;
 import org.structr.common.SecurityContext;
 import org.structr.core.GraphObject;
+import org.structr.core.graph.MaterializedProperties;
 
 /**
  *
  *
  */
-public class IntegerSumProperty extends AbstractReadOnlyProperty<Integer> {
+public class IntegerSumProperty extends AbstractReadOnlyProperty<Integer> implements MaterializableProperty<Integer> {
 
 	private List<Property<Integer>> sumProperties = new LinkedList<>();
 
@@ -63,6 +64,11 @@ public class IntegerSumProperty extends AbstractReadOnlyProperty<Integer> {
 
 	@Override
 	public Integer getProperty(SecurityContext securityContext, GraphObject obj, boolean applyConverter, final Predicate<GraphObject> predicate) {
+		return MaterializedProperties.getValue(securityContext, obj, this, predicate);
+	}
+
+	@Override
+	public Integer computeValue(final SecurityContext securityContext, final GraphObject obj, final Predicate<GraphObject> predicate) {
 
 		int sum = 0;
 
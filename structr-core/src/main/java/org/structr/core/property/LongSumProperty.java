@@ -23,12 +23,13 @@ import org.structr.api.Predicate;
 import org.structr.api.search.SortType;
 import org.structr.common.SecurityContext;
 import org.structr.core.GraphObject;
+import org.structr.core.graph.MaterializedProperties;
 
 /**
  *
  *
  */
-public class LongSumProperty extends AbstractReadOnlyProperty<Long> {
+public class LongSumProperty extends AbstractReadOnlyProperty<Long> implements MaterializableProperty<Long> {
 
 	private EndNodes<?, ?> collectionProperty = null;
 	private Property<Long> valueProperty                = null;
@@ -59,6 +60,11 @@ public class LongSumProperty extends AbstractReadOnlyProperty<Long> {
 
 	@Override
 	public Long getProperty(SecurityContext securityContext, GraphObject obj, boolean applyConverter, final Predicate<GraphObject> predicate) {
+		return MaterializedProperties.getValue(securityContext, obj, this, predicate);
+	}
+
+	@Override
+	public Long computeValue(final SecurityContext securityContext, final GraphObject obj, final Predicate<GraphObject> predicate) {
 
 		List<? extends GraphObject> collection = obj.getProperty(collectionProperty);
 		if (collection != null) {
@@ -0,0 +1,43 @@
+/**
+ * Copyright (C) 2010-2018 Structr GmbH
+ *
+ * This file is part of Structr <http://structr.org>.
+ *
+ * Structr is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * Structr is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Structr.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.structr.core.property;
+
+import org.structr.api.Predicate;
+import org.structr.common.SecurityContext;
+import org.structr.core.GraphObject;
+
+/**
+ * A property whose value is computed from other values and can be stored
+ * in the database, see {@link Property#materialized(java.lang.String...)}.
+ *
+ * @param <T>
+ */
+public interface MaterializableProperty<T> extends PropertyKey<T> {
+
+	/**
+	 * Computes the value of this property for the given object, ignoring
+	 * a stored value.
+	 *
+	 * @param securityContext
+	 * @param obj
+	 * @param predicate
+	 * @return the computed value
+	 */
+	T computeValue(final SecurityContext securityContext, final GraphObject obj, final Predicate<GraphObject> predicate);
+}
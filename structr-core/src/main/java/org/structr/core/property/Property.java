@@ -79,6 +79,7 @@ public abstract class Property<T> implements PropertyKey<T> {
 	protected String format                                = null;
 	protected String readFunction                          = null;
 	protected String writeFunction                         = null;
+	protected String[] materializedDependencies            = null;
 	protected String hint                                  = null;
 	protected String category                              = null;
 
@@ -365,6 +366,35 @@ public abstract class Property<T> implements PropertyKey<T> {
 		return this;
 	}
 
+	@Override
+	public String[] materializedDependencies() {
+		return materializedDependencies;
+	}
+
+	/**
+	 * Use this method to store the computed value of this property in the
+	 * database. The value is updated after each transaction that modifies
+	 * one of the given dependencies, which are either keys of the same
+	 * object, the name of a relationship property, or the name of a
+	 * relationship property and a key of the related objects, separated
+	 * by a dot, e.g. "items.price".
+	 *
+	 * Values that depend on related objects are only read from the database
+	 * by superusers and admins. Values that depend on keys of the same
+	 * object are read by everyone, so the function must not read anything
+	 * but these keys.
+	 *
+	 * Only supported by properties that implement {@link MaterializableProperty}.
+	 *
+	 * @param dependencies
+	 * @return the Property to satisfy the builder pattern
+	 */
+	@Override
+	public Property<T> materialized(final String... dependencies) {
+		this.materializedDependencies = dependencies;
+		return this;
+	}
+
 	@Override
 	public Property<T> transformators(final String... transformators) {
 		this.transformators.addAll(Arrays.asList(transformators));
@@ -152,6 +152,14 @@ public interface PropertyKey<T> extends Comparable<PropertyKey> {
 	 */
 	public String writeFunction();
 
+	/**
+	 * Returns the dependencies of the stored value of this property, or
+	 * null if the value is computed on every read.
+	 *
+	 * @return materializedDependencies
+	 */
+	public String[] materializedDependencies();
+
 
 	public PropertyConverter<T, ?> databaseConverter(final SecurityContext securityContext);
 	public PropertyConverter<T, ?> databaseConverter(final SecurityContext securityContext, final GraphObject entity);
@@ -331,6 +339,7 @@ public interface PropertyKey<T> extends Comparable<PropertyKey> {
 	public PropertyKey<T> readFunction(final String readFunction);
 	public PropertyKey<T> writeFunction(final String writeFunction);
 	public PropertyKey<T> transformators(final String... transformators);
+	public PropertyKey<T> materialized(final String... dependencies);
 
 	// ----- CMIS support -----
 	public PropertyType getDataType();
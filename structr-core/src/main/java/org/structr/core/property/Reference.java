@@ -133,6 +133,11 @@ public class Reference<T> implements PropertyKey<T> {
 		return propertyKey.writeFunction();
 	}
 
+	@Override
+	public String[] materializedDependencies() {
+		return propertyKey.materializedDependencies();
+	}
+
 	@Override
 	public SortType getSortType() {
 		return propertyKey.getSortType();
@@ -321,6 +326,11 @@ public class Reference<T> implements PropertyKey<T> {
 		return null;
 	}
 
+	@Override
+	public Property<T> materialized(final String... dependencies) {
+		return null;
+	}
+
 	@Override
 	public Property<T> unique(final boolean unique) {
 		return null;
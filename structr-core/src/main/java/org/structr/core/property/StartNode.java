@@ -36,9 +36,8 @@ import org.structr.core.entity.OneStartpoint;
 import org.structr.core.entity.Relation;
 import org.structr.core.entity.Target;
 import org.structr.core.graph.NodeInterface;
-import org.structr.core.graph.search.EmptySearchAttribute;
+import org.structr.core.graph.search.GraphSearchAttribute;
 import org.structr.core.graph.search.SearchAttribute;
-import org.structr.core.graph.search.SourceSearchAttribute;
 import org.structr.core.notion.Notion;
 import org.structr.core.notion.ObjectNotion;
 
@@ -200,58 +199,15 @@ public class StartNode<S extends NodeInterface, T extends NodeInterface> extends
 	@Override
 	public SearchAttribute getSearchAttribute(SecurityContext securityContext, Occurrence occur, S searchValue, boolean exactMatch, final Query query) {
 
-		final Predicate<GraphObject> predicate    = query != null ? query.toPredicate() : null;
-		final SourceSearchAttribute attr          = new SourceSearchAttribute(occur);
-		final Set<GraphObject> intersectionResult = new LinkedHashSet<>();
-		boolean alreadyAdded                      = false;
+		final Set<String> uuids = new LinkedHashSet<>();
 
 		if (searchValue != null && !StringUtils.isBlank(searchValue.toString())) {
-
-			if (exactMatch) {
-
-				switch (occur) {
-
-					case REQUIRED:
-
-						if (!alreadyAdded) {
-
-							// the first result is the basis of all subsequent intersections
-							intersectionResult.addAll(getRelatedNodesReverse(securityContext, searchValue, declaringClass, predicate));
-
-							// the next additions are intersected with this one
-							alreadyAdded = true;
-
-						} else {
-
-							intersectionResult.retainAll(getRelatedNodesReverse(securityContext, searchValue, declaringClass, predicate));
-						}
-
-						break;
-
-					case OPTIONAL:
-						intersectionResult.addAll(getRelatedNodesReverse(securityContext, searchValue, declaringClass, predicate));
-						break;
-
-					case FORBIDDEN:
-						break;
-				}
-
-			} else {
-
-				intersectionResult.addAll(getRelatedNodesReverse(securityContext, searchValue, declaringClass, predicate));
-			}
-
-			attr.setResult(intersectionResult);
-
-		} else {
-
-			// experimental filter attribute that
-			// removes entities with a non-empty
-			// value in the given field
-			return new EmptySearchAttribute(this, null);
+			uuids.add(searchValue.getUuid());
 		}
 
-		return attr;
+		// let the database match the related nodes, an empty set
+		// matches entities without related nodes
+		return new GraphSearchAttribute(this, relation, false, uuids, occur, exactMatch);
 	}
 
 	// ----- overridden methods from super class -----
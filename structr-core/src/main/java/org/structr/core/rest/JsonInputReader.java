@@ -0,0 +1,193 @@
+/**
+ * Copyright (C) 2010-2018 Structr GmbH
+ *
+ * This file is part of Structr <http://structr.org>.
+ *
+ * Structr is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * Structr is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Structr.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.structr.core.rest;
+
+import com.google.gson.JsonElement;
+import com.google.gson.JsonIOException;
+import com.google.gson.JsonParser;
+import com.google.gson.JsonSyntaxException;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.MalformedJsonException;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.LinkedList;
+import java.util.List;
+import org.structr.core.JsonInput;
+
+/**
+ * Streaming counterpart of {@link JsonInputGSONAdapter} that reads a single
+ * JSON object or an array of JSON objects from a reader and converts one
+ * object at a time, so that only the object currently being converted is
+ * held in memory.
+ *
+ * An empty document yields a single empty {@link JsonInput}, a top-level
+ * <code>null</code> yields no input at all.
+ */
+public class JsonInputReader {
+
+	private final JsonParser parser = new JsonParser();
+	private JsonReader reader       = null;
+	private JsonInput emptyInput    = null;
+	private boolean initialized     = false;
+	private boolean isArray         = false;
+	private boolean done            = false;
+
+	public JsonInputReader(final Reader input) {
+
+		this.reader = new JsonReader(input);
+
+		// same leniency as Gson#fromJson
+		this.reader.setLenient(true);
+	}
+
+	public boolean hasNext() throws JsonSyntaxException, JsonIOException {
+
+		try {
+
+			initialize();
+
+			if (emptyInput != null) {
+				return true;
+			}
+
+			if (done) {
+				return false;
+			}
+
+			if (isArray && !reader.hasNext()) {
+
+				reader.endArray();
+				finish();
+
+				return false;
+			}
+
+			return true;
+
+		} catch (MalformedJsonException | EOFException mex) {
+			throw new JsonSyntaxException(mex);
+		} catch (IOException ioex) {
+			throw new JsonIOException(ioex);
+		}
+	}
+
+	public JsonInput next() throws JsonSyntaxException, JsonIOException {
+
+		if (!hasNext()) {
+			return null;
+		}
+
+		if (emptyInput != null) {
+
+			final JsonInput input = emptyInput;
+
+			emptyInput = null;
+			done       = true;
+
+			return input;
+		}
+
+		final JsonElement element = parser.parse(reader);
+
+		if (!isArray) {
+			finish();
+		}
+
+		return JsonInputGSONAdapter.deserialize(element, null);
+	}
+
+	/**
+	 * Reads up to <code>maxCount</code> inputs from the underlying reader.
+	 *
+	 * @param maxCount the maximum number of inputs to read
+	 * @return the inputs read, empty if there are no more inputs
+	 */
+	public List<JsonInput> next(final int maxCount) throws JsonSyntaxException, JsonIOException {
+
+		final List<JsonInput> inputs = new LinkedList<>();
+
+		while (inputs.size() < maxCount && hasNext()) {
+
+			inputs.add(next());
+		}
+
+		return inputs;
+	}
+
+	// ----- private methods -----
+	private void initialize() throws IOException {
+
+		if (initialized) {
+			return;
+		}
+
+		initialized = true;
+
+		final JsonToken token;
+
+		try {
+
+			token = reader.peek();
+
+		} catch (EOFException eof) {
+
+			// empty or blank document, treated like "{}"
+			emptyInput = new JsonInput();
+			return;
+		}
+
+		switch (token) {
+
+			case BEGIN_OBJECT:
+				break;
+
+			case BEGIN_ARRAY:
+				reader.beginArray();
+				isArray = true;
+				break;
+
+			case NULL:
+				reader.nextNull();
+				finish();
+				break;
+
+			default:
+				throw new JsonSyntaxException("Invalid JSON, expecting object or array");
+		}
+	}
+
+	private void finish() throws JsonSyntaxException {
+
+		done = true;
+
+		try {
+
+			if (reader.peek() != JsonToken.END_DOCUMENT) {
+				throw new JsonSyntaxException("JSON document was not fully consumed.");
+			}
+
+		} catch (MalformedJsonException | EOFException mex) {
+			throw new JsonSyntaxException(mex);
+		} catch (IOException ioex) {
+			throw new JsonIOException(ioex);
+		}
+	}
+}
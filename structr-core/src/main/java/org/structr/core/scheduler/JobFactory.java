@@ -0,0 +1,42 @@
+/**
+ * Copyright (C) 2010-2018 Structr GmbH
+ *
+ * This file is part of Structr <http://structr.org>.
+ *
+ * Structr is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * Structr is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Structr.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.structr.core.scheduler;
+
+import java.util.Map;
+import org.structr.common.error.FrameworkException;
+import org.structr.core.entity.Principal;
+
+/**
+ * Recreates a job of a given type from the job journal after a restart.
+ */
+public interface JobFactory {
+
+	/**
+	 * Creates a job from the journaled state of a job that was not finished.
+	 *
+	 * @param user the user that owns the job
+	 * @param configuration the configuration of the job
+	 * @param data the data returned by {@link ScheduledJob#getResumeData()}
+	 * @param interrupted whether the job was running when the process stopped
+	 *
+	 * @return the job, or null if it cannot be resumed
+	 * @throws FrameworkException
+	 */
+	ScheduledJob create(final Principal user, final Map<String, Object> configuration, final Map<String, Object> data, final boolean interrupted) throws FrameworkException;
+}
@@ -0,0 +1,388 @@
+/**
+ * Copyright (C) 2010-2018 Structr GmbH
+ *
+ * This file is part of Structr <http://structr.org>.
+ *
+ * Structr is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * Structr is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Structr.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.structr.core.scheduler;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonParseException;
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Append-only journal of the jobs in the job queue.
+ *
+ * Every change of a job is written as a single JSON line and synced to
+ * disk. When the journal is opened, the lines are replayed to find the
+ * jobs that were queued or running when the process stopped, and the
+ * file is rewritten to contain only those jobs.
+ */
+public class JobJournal {
+
+	private static final Logger logger = LoggerFactory.getLogger(JobJournal.class.getName());
+
+	private static final String QUEUED   = "queued";
+	private static final String STARTED  = "started";
+	private static final String PROGRESS = "progress";
+	private static final String FINISHED = "finished";
+
+	private final Map<Long, Entry> entries = new LinkedHashMap<>();
+	private final Gson gson                = new GsonBuilder().create();
+	private FileOutputStream output        = null;
+	private Writer writer                  = null;
+	private File file                      = null;
+	private long maxJobId                  = 0L;
+
+	/**
+	 * Opens the journal in the given file and replays its entries.
+	 *
+	 * @param file the journal file
+	 */
+	public JobJournal(final File file) {
+
+		this.file = file;
+
+		open();
+	}
+
+	/**
+	 * Records a new job.
+	 *
+	 * @param jobId the ID of the job
+	 * @param jobType the type of the job, used to find the factory that recreates it
+	 * @param userId the UUID of the user that owns the job
+	 * @param priority the priority of the job
+	 * @param configuration the configuration of the job
+	 * @param data the data that is needed to recreate the job
+	 */
+	public synchronized void queued(final Long jobId, final String jobType, final String userId, final int priority, final Map<String, Object> configuration, final Map<String, Object> data) {
+
+		final Entry entry = new Entry();
+
+		entry.op            = QUEUED;
+		entry.jobId         = jobId;
+		entry.jobType       = jobType;
+		entry.userId        = userId;
+		entry.priority      = priority;
+		entry.configuration = configuration;
+		entry.data          = data;
+
+		if (write(entry)) {
+			entries.put(jobId, entry);
+		}
+	}
+
+	/**
+	 * Records that a job was started.
+	 *
+	 * @param jobId the ID of the job
+	 */
+	public synchronized void started(final Long jobId) {
+
+		final Entry entry = entries.get(jobId);
+		if (entry != null) {
+
+			entry.started = true;
+
+			write(record(STARTED, jobId, null));
+		}
+	}
+
+	/**
+	 * Records the progress of a job.
+	 *
+	 * @param jobId the ID of the job
+	 * @param data the data that is needed to resume the job
+	 */
+	public synchronized void progress(final Long jobId, final Map<String, Object> data) {
+
+		final Entry entry = entries.get(jobId);
+		if (entry != null) {
+
+			entry.data = data;
+
+			write(record(PROGRESS, jobId, data));
+		}
+	}
+
+	/**
+	 * Records that a job was finished, aborted or cancelled.
+	 *
+	 * @param jobId the ID of the job
+	 */
+	public synchronized void finished(final Long jobId) {
+
+		if (entries.remove(jobId) != null) {
+
+			if (entries.isEmpty()) {
+
+				// nothing left to resume, start over with an empty file
+				truncate();
+
+			} else {
+
+				write(record(FINISHED, jobId, null));
+			}
+		}
+	}
+
+	/**
+	 * @return the jobs that were not finished, in the order they were queued
+	 */
+	public synchronized List<Entry> getEntries() {
+		return new ArrayList<>(entries.values());
+	}
+
+	/**
+	 * @return the highest job ID that was ever recorded in this journal
+	 */
+	public synchronized long getMaxJobId() {
+		return maxJobId;
+	}
+
+	public File getFile() {
+		return file;
+	}
+
+	public synchronized void close() {
+
+		if (writer != null) {
+
+			try {
+				writer.close();
+
+			} catch (IOException ioex) {
+				logger.warn("Unable to close job journal {}: {}", file, ioex.getMessage());
+			}
+
+			writer = null;
+			output = null;
+		}
+	}
+
+	// ----- private methods -----
+	private void open() {
+
+		file.getAbsoluteFile().getParentFile().mkdirs();
+
+		if (file.exists()) {
+
+			try (final BufferedReader reader = new BufferedReader(new InputStreamReader(new FileInputStream(file), StandardCharsets.UTF_8))) {
+
+				String line = null;
+
+				while ((line = reader.readLine()) != null) {
+
+					final Entry record;
+
+					try {
+						record = gson.fromJson(line, Entry.class);
+
+					} catch (JsonParseException jex) {
+
+						// an incomplete line can only be the result of an interrupted write
+						logger.warn("Ignoring incomplete entry at the end of job journal {}", file);
+						break;
+					}
+
+					if (record != null && record.op != null && record.jobId != null) {
+						replay(record);
+					}
+				}
+
+			} catch (IOException ioex) {
+				logger.warn("Unable to read job journal {}: {}", file, ioex.getMessage());
+			}
+
+			compact();
+		}
+
+		try {
+
+			output = new FileOutputStream(file, true);
+			writer = new BufferedWriter(new OutputStreamWriter(output, StandardCharsets.UTF_8));
+
+		} catch (IOException ioex) {
+			logger.warn("Unable to open job journal {}, queued jobs will not be resumed after a restart: {}", file, ioex.getMessage());
+		}
+	}
+
+	private void replay(final Entry record) {
+
+		maxJobId = Math.max(maxJobId, record.jobId);
+
+		switch (record.op) {
+
+			case QUEUED:
+				entries.put(record.jobId, record);
+				break;
+
+			case STARTED:
+				final Entry started = entries.get(record.jobId);
+				if (started != null) {
+					started.started = true;
+				}
+				break;
+
+			case PROGRESS:
+				final Entry progress = entries.get(record.jobId);
+				if (progress != null) {
+					progress.data = record.data;
+				}
+				break;
+
+			case FINISHED:
+				entries.remove(record.jobId);
+				break;
+		}
+	}
+
+	private void compact() {
+
+		final File tmp = new File(file.getPath() + ".tmp");
+
+		try (final Writer out = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(tmp), StandardCharsets.UTF_8))) {
+
+			for (final Entry entry : entries.values()) {
+
+				entry.op = QUEUED;
+
+				out.write(gson.toJson(entry));
+				out.write("\n");
+			}
+
+			out.flush();
+
+			Files.move(tmp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+
+		} catch (IOException ioex) {
+			logger.warn("Unable to compact job journal {}: {}", file, ioex.getMessage());
+		}
+	}
+
+	private boolean write(final Entry record) {
+
+		if (writer != null) {
+
+			try {
+
+				writer.write(gson.toJson(record));
+				writer.write("\n");
+				writer.flush();
+
+				output.getFD().sync();
+
+				return true;
+
+			} catch (Throwable t) {
+				logger.warn("Unable to write job {} to job journal {}: {}", record.jobId, file, t.getMessage());
+			}
+		}
+
+		return false;
+	}
+
+	private void truncate() {
+
+		if (writer != null) {
+
+			try {
+
+				writer.flush();
+				output.getChannel().truncate(0L);
+
+			} catch (IOException ioex) {
+				logger.warn("Unable to truncate job journal {}: {}", file, ioex.getMessage());
+			}
+		}
+	}
+
+	private Entry record(final String op, final Long jobId, final Map<String, Object> data) {
+
+		final Entry record = new Entry();
+
+		record.op    = op;
+		record.jobId = jobId;
+		record.data  = data;
+
+		return record;
+	}
+
+	// ----- nested classes -----
+	/**
+	 * A job that was not finished.
+	 */
+	public static class Entry {
+
+		private String op                         = null;
+		private Long jobId                        = null;
+		private String jobType                    = null;
+		private String userId                     = null;
+		private Integer priority                  = null;
+		private Boolean started                   = null;
+		private Map<String, Object> configuration = null;
+		private Map<String, Object> data          = null;
+
+		public Long getJobId() {
+			return jobId;
+		}
+
+		public String getJobType() {
+			return jobType;
+		}
+
+		public String getUserId() {
+			return userId;
+		}
+
+		public int getPriority() {
+			return priority != null ? priority : 0;
+		}
+
+		/**
+		 * @return whether the job was running when the process stopped
+		 */
+		public boolean isStarted() {
+			return Boolean.TRUE.equals(started);
+		}
+
+		public Map<String, Object> getConfiguration() {
+			return configuration != null ? configuration : new LinkedHashMap<>();
+		}
+
+		public Map<String, Object> getData() {
+			return data != null ? data : new LinkedHashMap<>();
+		}
+	}
+}
@@ -4,37 +4,64 @@
  * This file is part of Structr <http://structr.org>.
  *
  * Structr is free software: you can redistribute it and/or modify
- * it under the terms of the GNU General Public License as
+ * it under the terms of the GNU Affero General Public License as
  * published by the Free Software Foundation, either version 3 of the
  * License, or (at your option) any later version.
  *
  * Structr is distributed in the hope that it will be useful,
  * but WITHOUT ANY WARRANTY; without even the implied warranty of
  * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
- * GNU General Public License for more details.
+ * GNU Affero General Public License for more details.
  *
- * You should have received a copy of the GNU General Public License
+ * You should have received a copy of the GNU Affero General Public License
  * along with Structr.  If not, see <http://www.gnu.org/licenses/>.
  */
 package org.structr.core.scheduler;
 
+import java.io.File;
+import java.util.HashMap;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.Queue;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicLong;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.structr.api.config.Settings;
 import org.structr.common.error.FrameworkException;
+import org.structr.core.app.App;
+import org.structr.core.app.StructrApp;
+import org.structr.core.entity.Principal;
+import org.structr.core.entity.SuperUser;
+import org.structr.core.graph.Tx;
 
+/**
+ * Queue for long-running jobs like file imports and scheduled scripts.
+ *
+ * Queued jobs are started in order of their priority as long as fewer
+ * than the configured number of jobs are active and the limit of their
+ * job type is not reached. Jobs that can be resumed are written to a
+ * {@link JobJournal} and recreated by the registered {@link JobFactory}
+ * after a restart.
+ */
 public class JobQueueManager {
 
-	private static JobQueueManager singletonInstance = null;
+	private static final Logger logger = LoggerFactory.getLogger(JobQueueManager.class.getName());
 
 	private final Map<Long, ScheduledJob> queuedJobs  = new ConcurrentHashMap<>();
 	private final Map<Long, ScheduledJob> activeJobs  = new ConcurrentHashMap<>();
+	private final Map<String, JobFactory> factories   = new ConcurrentHashMap<>();
 	private final Queue<Long> jobIdQueue              = new ConcurrentLinkedDeque<>();
 	private final AtomicLong importJobIdCount         = new AtomicLong(0);
+	private final ExecutorService workers             = Executors.newCachedThreadPool(new WorkerThreadFactory());
+	private JobJournal journal                        = null;
 
 	private JobQueueManager() { }
 
@@ -42,31 +69,36 @@ public class JobQueueManager {
 	 * Public API
 	 */
 	public static JobQueueManager getInstance() {
+		return InstanceHolder.instance;
+	}
 
-		if (singletonInstance == null) {
-			singletonInstance = new JobQueueManager();
-		}
-
-		return singletonInstance;
+	/**
+	 * Registers the factory that recreates journaled jobs of the given type.
+	 *
+	 * @param jobType the job type as returned by {@link ScheduledJob#getJobType()}
+	 * @param factory the factory
+	 */
+	public void registerJobFactory(final String jobType, final JobFactory factory) {
+		factories.put(jobType, factory);
 	}
 
 	public void addJob(final ScheduledJob job) throws FrameworkException {
 
 		if (job.runInitialChecks()) {
 
-			final Long jobId = importJobIdCount.incrementAndGet();
+			final JobJournal currentJournal = getJournal();
+			final Long jobId                = importJobIdCount.incrementAndGet();
 			job.setJobId(jobId);
 
-			appendToQueueInternal(job);
+			journalQueuedJob(currentJournal, job);
 
-			if (!hasRunningJobs()) {
+			appendToQueueInternal(job);
 
-				startNextJobInQueue();
+			startNextJobsInQueue();
 
-			} else {
+			if (queuedJobs.containsKey(jobId)) {
 
 				job.reportQueued();
-
 			}
 		}
 	}
@@ -77,12 +109,13 @@ public class JobQueueManager {
 	 * @param jobId Job to start
 	 * @return boolean "job started"
 	 */
-	public boolean startJob(final Long jobId) {
+	public synchronized boolean startJob(final Long jobId) {
 
 		final ScheduledJob job = removeFromQueueInternal(jobId);
 
 		if (job != null) {
 			activeJobs.put(jobId, job);
+			getJournal().started(jobId);
 			job.startJob();
 			return true;
 		} else {
@@ -103,7 +136,10 @@ public class JobQueueManager {
 	}
 
 	public void cancelQueuedJob(final Long jobId) {
-		removeFromQueueInternal(jobId);
+
+		if (removeFromQueueInternal(jobId) != null) {
+			getJournal().finished(jobId);
+		}
 	}
 
 	public List<Map<String, Object>> listJobs () {
@@ -115,78 +151,259 @@ public class JobQueueManager {
 		});
 
 		jobIdQueue.forEach((Long jobId) -> {
-			addJobToList(jobInfoList, queuedJobs.get(jobId));
+
+			final ScheduledJob job = queuedJobs.get(jobId);
+			if (job != null) {
+
+				addJobToList(jobInfoList, job);
+			}
 		});
 
 		return jobInfoList;
 	}
 
-	private void addJobToList (final List<Map<String, Object>> list, final ScheduledJob job) {
-		list.add(job.getJobInfo());
+	/**
+	 * Recreates the jobs that were queued or running when the process
+	 * stopped and queues them again. Jobs whose type has no registered
+	 * factory stay in the journal.
+	 */
+	public void resumeJobs() {
+
+		final JobJournal currentJournal = getJournal();
+		final App app                   = StructrApp.getInstance();
+		int count                       = 0;
+
+		for (final JobJournal.Entry entry : currentJournal.getEntries()) {
+
+			final Long jobId = entry.getJobId();
+
+			if (queuedJobs.containsKey(jobId) || activeJobs.containsKey(jobId)) {
+				continue;
+			}
+
+			final JobFactory factory = factories.get(entry.getJobType());
+			if (factory == null) {
+
+				logger.warn("Unable to resume job {}, no factory registered for job type {}", jobId, entry.getJobType());
+				continue;
+			}
+
+			try (final Tx tx = app.tx()) {
+
+				final Principal user   = getUser(app, entry.getUserId());
+				final ScheduledJob job = user != null ? factory.create(user, entry.getConfiguration(), entry.getData(), entry.isStarted()) : null;
+
+				if (job != null && job.runInitialChecks()) {
+
+					job.setJobId(jobId);
+					job.setPriority(entry.getPriority());
+					job.setResumed(true);
+
+					appendToQueueInternal(job);
+
+					count++;
+
+				} else {
+
+					logger.info("Not resuming job {} of type {}", jobId, entry.getJobType());
+					currentJournal.finished(jobId);
+				}
+
+				tx.success();
+
+			} catch (Throwable t) {
+
+				logger.warn("Unable to resume job {} of type {}: {}", jobId, entry.getJobType(), t.getMessage());
+				currentJournal.finished(jobId);
+			}
+		}
+
+		if (count > 0) {
+
+			logger.info("Resuming {} jobs from job journal {}", count, currentJournal.getFile());
+			startNextJobsInQueue();
+		}
 	}
 
-	protected void jobFinished (final ScheduledJob job) {
+	/**
+	 * Detaches all jobs from the queue and closes the journal, so jobs
+	 * that fail because the database is shut down are resumed after the
+	 * next start.
+	 */
+	public synchronized void shutdown() {
+
+		queuedJobs.clear();
+		activeJobs.clear();
+		jobIdQueue.clear();
 
-		activeJobs.remove(job.jobId());
+		if (journal != null) {
 
-		if (!hasRunningJobs()) {
-			startNextJobInQueue();
+			journal.close();
+			journal = null;
 		}
+	}
 
+	// ----- protected methods -----
+	protected Future<?> execute(final Runnable runnable) {
+		return workers.submit(runnable);
 	}
 
-	protected void jobAborted (final ScheduledJob job) {
+	protected void jobProgress(final ScheduledJob job) {
+
+		if (activeJobs.containsKey(job.jobId())) {
 
-		activeJobs.remove(job.jobId());
+			final Map<String, Object> data = job.getResumeData();
+			if (data != null) {
 
-		if (!hasRunningJobs()) {
-			startNextJobInQueue();
+				getJournal().progress(job.jobId(), data);
+			}
 		}
+	}
 
+	protected void jobFinished (final ScheduledJob job) {
+		removeFromActiveJobs(job);
 	}
 
+	protected void jobAborted (final ScheduledJob job) {
+		removeFromActiveJobs(job);
+	}
 
 	//~--- private methods ----------------------------------------------------
 
-	private void appendToQueueInternal (final ScheduledJob job) {
+	private void addJobToList (final List<Map<String, Object>> list, final ScheduledJob job) {
+
+		final Map<String, Object> jobInfo = job.getJobInfo();
+
+		jobInfo.putAll(job.getJobMetrics());
+
+		list.add(jobInfo);
+	}
+
+	private void removeFromActiveJobs(final ScheduledJob job) {
+
+		synchronized (this) {
+
+			// aborted jobs are reported twice
+			if (activeJobs.remove(job.jobId()) != null) {
+
+				getJournal().finished(job.jobId());
+			}
+		}
+
+		startNextJobsInQueue();
+	}
+
+	private synchronized void appendToQueueInternal (final ScheduledJob job) {
 		jobIdQueue.add(job.jobId());
 		queuedJobs.put(job.jobId(), job);
 	}
 
-	private ScheduledJob removeFromQueueInternal (final Long jobId) {
+	private synchronized ScheduledJob removeFromQueueInternal (final Long jobId) {
 		jobIdQueue.remove(jobId);
 		return queuedJobs.remove(jobId);
 	}
 
-	private boolean hasRunningJobs() {
+	private synchronized void startNextJobsInQueue() {
 
-		// if any job is RUNNING or PAUSED, dont auto-start new tasks
-		return (!activeJobs.isEmpty());
+		final int maxWorkers = Math.max(1, Settings.JobQueueWorkers.getValue());
 
-//		// if any job is RUNNING, dont auto-start new tasks
-//		// this effectively means that if a user PAUSES a job, the queue is stopped BUT
-//		// if another job is queued or the last running job finishes, then the next queued job is started
-//		boolean hasRunningJob = false;
-//
-//		for (ImportJob job : activeJobs.values()) {
-//			if (job.getCurrentStatus().equals(ImportJob.JobStatus.RUNNING)) {
-//				hasRunningJob = true;
-//			}
-//		}
-//
-//		return hasRunningJob;
+		// paused jobs occupy their worker until they are resumed or aborted
+		while (activeJobs.size() < maxWorkers) {
 
+			final ScheduledJob job = getNextJobInQueue();
+			if (job == null || !startJob(job.jobId())) {
+
+				break;
+			}
+		}
 	}
 
-	private void startNextJobInQueue() {
-		final Long jobId = jobIdQueue.peek();
+	private ScheduledJob getNextJobInQueue() {
+
+		final Map<String, Integer> limits = Settings.getLimits(Settings.JobQueueTypeLimits);
+		final Map<String, Integer> counts = new HashMap<>();
+		ScheduledJob next                 = null;
+
+		for (final ScheduledJob job : activeJobs.values()) {
+			counts.merge(job.getJobType(), 1, Integer::sum);
+		}
+
+		// the queue is in insertion order, so jobs with equal priority are started first come, first served
+		for (final Long jobId : jobIdQueue) {
 
-		if (jobId != null) {
-			boolean didStart = startJob(jobId);
-			if (!didStart) {
-				startNextJobInQueue();
+			final ScheduledJob job = queuedJobs.get(jobId);
+			if (job != null) {
+
+				final String type = job.getJobType();
+				final Integer max = limits.get(type);
+
+				if (max != null && counts.getOrDefault(type, 0) >= max) {
+					continue;
+				}
+
+				if (next == null || job.getPriority() > next.getPriority()) {
+					next = job;
+				}
 			}
 		}
+
+		return next;
 	}
-}
 
+	private synchronized JobJournal getJournal() {
+
+		final File file = new File(Settings.getFullSettingPath(Settings.JobQueuePath), "journal.log");
+
+		if (journal == null || !journal.getFile().equals(file)) {
+
+			if (journal != null) {
+				journal.close();
+			}
+
+			journal = new JobJournal(file);
+
+			// job IDs must stay unique across restarts
+			importJobIdCount.accumulateAndGet(journal.getMaxJobId(), Math::max);
+		}
+
+		return journal;
+	}
+
+	private void journalQueuedJob(final JobJournal currentJournal, final ScheduledJob job) {
+
+		final Map<String, Object> data = job.getResumeData();
+		if (data != null) {
+
+			currentJournal.queued(job.jobId(), job.getJobType(), job.user.getUuid(), job.getPriority(), job.getConfiguration(), data);
+		}
+	}
+
+	private Principal getUser(final App app, final String userId) throws FrameworkException {
+
+		if (Principal.SUPERUSER_ID.equals(userId)) {
+			return new SuperUser();
+		}
+
+		return app.get(Principal.class, userId);
+	}
+
+	// ----- nested classes -----
+	private static class InstanceHolder {
+
+		private static final JobQueueManager instance = new JobQueueManager();
+	}
+
+	private static class WorkerThreadFactory implements ThreadFactory {
+
+		private final AtomicInteger count = new AtomicInteger(0);
+
+		@Override
+		public Thread newThread(final Runnable runnable) {
+
+			final Thread thread = new Thread(runnable, "JobQueueWorker-" + count.incrementAndGet());
+			thread.setDaemon(true);
+
+			return thread;
+		}
+	}
+}
@@ -20,14 +20,18 @@ package org.structr.core.scheduler;
 
 import java.util.LinkedHashMap;
 import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
 import java.util.concurrent.locks.Condition;
 import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.IntConsumer;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.structr.common.error.FrameworkException;
 import org.structr.core.entity.Principal;
 import org.structr.core.graph.TransactionCommand;
+import org.structr.core.graph.Tx;
 
 public abstract class ScheduledJob {
 
@@ -46,8 +50,12 @@ public abstract class ScheduledJob {
 	final Lock lock          = new ReentrantLock();
 	final Condition paused   = lock.newCondition();
 
-	private Thread jobThread = null;
-	private Long jobId       = null;
+	private Future<?> jobFuture = null;
+	private Long jobId          = null;
+	private Integer priority    = null;
+	private long queuedTime     = 0L;
+	private long startTime      = 0L;
+	private boolean resumed     = false;
 
 	protected Map<String, Object> configuration;
 	protected Principal user;
@@ -63,6 +71,7 @@ public abstract class ScheduledJob {
 		this.configuration = configuration;
 
 		this.currentStatus = JobStatus.QUEUED;
+		this.queuedTime    = System.currentTimeMillis();
 	}
 
 	public abstract boolean runInitialChecks() throws FrameworkException;
@@ -76,8 +85,9 @@ public abstract class ScheduledJob {
 
 	public void startJob() {
 		currentStatus = JobStatus.RUNNING;
+		startTime     = System.currentTimeMillis();
 
-		startNewThread(getRunnable(), false);
+		startInWorker(getRunnable(), false);
 	}
 
 	public void pauseJob() {
@@ -125,6 +135,69 @@ public abstract class ScheduledJob {
 		this.jobId = jobId;
 	}
 
+	/**
+	 * Returns the priority of this job. Queued jobs with a higher priority
+	 * are started first, the default priority can be overridden with the
+	 * "priority" configuration parameter.
+	 *
+	 * @return the priority
+	 */
+	public int getPriority() {
+
+		if (priority == null) {
+			priority = parseInt(configuration != null ? configuration.get("priority") : null, 0);
+		}
+
+		return priority;
+	}
+
+	public void setPriority(final int priority) {
+		this.priority = priority;
+	}
+
+	public boolean isResumed() {
+		return resumed;
+	}
+
+	public void setResumed(final boolean resumed) {
+		this.resumed = resumed;
+	}
+
+	/**
+	 * Returns the data that the {@link JobFactory} of this job type needs
+	 * to recreate this job after a restart, or null if the job cannot be
+	 * resumed. Jobs that return data are written to the job journal.
+	 *
+	 * @return the data or null
+	 */
+	public Map<String, Object> getResumeData() {
+		return null;
+	}
+
+	/**
+	 * @return the number of objects processed so far, or null if the job does not report progress
+	 */
+	public Number getProgress() {
+		return null;
+	}
+
+	/**
+	 * @return priority, timing and progress information about this job
+	 */
+	public Map<String, Object> getJobMetrics() {
+
+		final Map<String, Object> metrics = new LinkedHashMap<>();
+		final long now                    = System.currentTimeMillis();
+
+		metrics.put("priority", getPriority());
+		metrics.put("resumed",  resumed);
+		metrics.put("waitTime", (startTime > 0L ? startTime : now) - queuedTime);
+		metrics.put("runTime",  startTime > 0L ? now - startTime : 0L);
+		metrics.put("progress", getProgress());
+
+		return metrics;
+	}
+
 	public String getUsername () {
 		return username;
 	}
@@ -138,7 +211,13 @@ public abstract class ScheduledJob {
 	}
 
 	public void waitForExit() throws InterruptedException {
-		jobThread.join();
+
+		try {
+			jobFuture.get();
+
+		} catch (ExecutionException ex) {
+			logger.warn("Job {} ({}) failed: {}", jobId, jobName, ex.getMessage());
+		}
 	}
 
 	protected void jobFinished() {
@@ -149,14 +228,45 @@ public abstract class ScheduledJob {
 		JobQueueManager.getInstance().jobAborted(this);
 	}
 
-	protected void startNewThread(final Runnable runnable, final boolean wait) {
+	/**
+	 * Writes the current resume data of this job to the job journal, so
+	 * an interrupted job can continue where it stopped.
+	 */
+	protected void jobProgress() {
+		JobQueueManager.getInstance().jobProgress(this);
+	}
+
+	/**
+	 * Processes a chunk of this job in the given transaction and passes the
+	 * number of processed objects to the given callback after the transaction
+	 * was closed. Progress recorded in the callback therefore never includes
+	 * objects of a failed commit, so a resumed job does not skip them.
+	 *
+	 * @param tx the transaction of the chunk
+	 * @param chunk the work to do in the transaction
+	 * @param committed the callback that records the progress
+	 *
+	 * @throws FrameworkException
+	 */
+	public static void runChunk(final Tx tx, final Chunk chunk, final IntConsumer committed) throws FrameworkException {
+
+		final int count;
+
+		try (final Tx chunkTx = tx) {
+
+			count = chunk.process();
+			chunkTx.success();
+		}
 
-		jobThread = new Thread(runnable);
+		committed.accept(count);
+	}
+
+	protected void startInWorker(final Runnable runnable, final boolean wait) {
 
-		jobThread.start();
+		jobFuture = JobQueueManager.getInstance().execute(runnable);
 
 		if (wait) {
-			try { jobThread.join(); } catch (InterruptedException ex) {}
+			try { waitForExit(); } catch (InterruptedException ex) {}
 		}
 
 	}
@@ -274,4 +384,16 @@ public abstract class ScheduledJob {
 		return output;
 	}
 
+	// ----- nested classes -----
+	/**
+	 * The work done in a single chunk of a job.
+	 */
+	@FunctionalInterface
+	public interface Chunk {
+
+		/**
+		 * @return the number of processed objects
+		 */
+		int process() throws FrameworkException;
+	}
 }
@@ -37,11 +37,13 @@ import org.mozilla.javascript.Context;
 import org.mozilla.javascript.ContextFactory;
 import org.mozilla.javascript.Script;
 import org.mozilla.javascript.Scriptable;
+import org.mozilla.javascript.ScriptableObject;
 import org.mozilla.javascript.Undefined;
 import org.renjin.script.RenjinScriptEngine;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.structr.common.SecurityContext;
+import org.structr.common.TimingStatistics;
 import org.structr.common.error.FrameworkException;
 import org.structr.common.error.UnlicensedException;
 import org.structr.core.GraphObject;
@@ -60,6 +62,9 @@ public class Scripting {
 	private static final Logger logger                       = LoggerFactory.getLogger(Scripting.class.getName());
 	private static final Pattern ScriptEngineExpression      = Pattern.compile("^\\$\\{(\\w+)\\{(.*)\\}\\}$", Pattern.DOTALL);
 	private static final Map<String, Script> compiledScripts = Collections.synchronizedMap(new LRUMap<>(10000));
+	private static final TimingStatistics statistics         = new TimingStatistics();
+	private static final String[] LazilyLoadedObjects        = new String[] { "RegExp", "Packages", "java", "javax", "org", "com", "edu", "net", "getClass", "JavaAdapter", "JavaImporter", "Continuation", "XML", "XMLList", "Namespace", "QName" };
+	private static volatile ScriptableObject sharedScope     = null;
 
 	public static String replaceVariables(final ActionContext actionContext, final GraphObject entity, final Object rawValue) throws FrameworkException {
 
@@ -152,58 +157,33 @@ public class Scripting {
 	 */
 	public static Object evaluate(final ActionContext actionContext, final GraphObject entity, final String input, final String methodName) throws FrameworkException, UnlicensedException {
 
-		final String expression = input.trim();
-		boolean isJavascript    = expression.startsWith("${{") && expression.endsWith("}}");
-		final int prefixOffset  = isJavascript ? 1 : 0;
-		String source           = expression.substring(2 + prefixOffset, expression.length() - (1 + prefixOffset));
+		final long t0 = System.nanoTime();
 
-		String engine = "";
-		boolean isScriptEngine = false;
-
-		if (!isJavascript) {
+		try {
 
-			final Matcher matcher = ScriptEngineExpression.matcher(expression);
-			if (matcher.matches()) {
+			return evaluateInternal(actionContext, entity, input, methodName);
 
-				engine = matcher.group(1);
-				source = matcher.group(2);
-
-				logger.info("Scripting engine {} requested.", engine);
+		} finally {
 
-				isJavascript   = StringUtils.isBlank(engine) || "JavaScript".equals(engine);
-				isScriptEngine = !isJavascript && StringUtils.isNotBlank(engine);
+			if (methodName != null) {
+				statistics.record(methodName, System.nanoTime() - t0);
 			}
 		}
+	}
 
-		actionContext.setJavaScriptContext(isJavascript);
-
-		// disable notifications for scripted actions
-		final SecurityContext securityContext = actionContext.getSecurityContext();
-		if (securityContext != null) {
-
-			securityContext.setDoTransactionNotifications(false);
-		}
-
-		if (isScriptEngine) {
-
-			return evaluateScript(actionContext, entity, engine, source);
-
-		} else if (isJavascript) {
-
-			return evaluateJavascript(actionContext, entity, new Snippet(methodName, source));
-
-		} else {
-
-			Object extractedValue = Functions.evaluate(actionContext, entity, source);
-			final String value    = extractedValue != null ? extractedValue.toString() : "";
-			final String output   = actionContext.getOutput();
-
-			if (StringUtils.isEmpty(value) && output != null && !output.isEmpty()) {
-				extractedValue = output;
-			}
+	/**
+	 * Returns the number of evaluations and the evaluation times in
+	 * milliseconds for each schema method, function property or other
+	 * named script.
+	 *
+	 * @return evaluation statistics per method name
+	 */
+	public static Map<String, Map<String, Object>> getEvaluationStatistics() {
+		return statistics.toMap();
+	}
 
-			return extractedValue;
-		}
+	public static void clearEvaluationStatistics() {
+		statistics.clear();
 	}
 
 	public static Object evaluateJavascript(final ActionContext actionContext, final GraphObject entity, final Snippet snippet) throws FrameworkException {
@@ -221,9 +201,14 @@ public class Scripting {
 			scriptingContext.setGenerateObserverCount(false);
 			scriptingContext.setGeneratingDebug(true);
 
-			final Scriptable scope = scriptingContext.initStandardObjects();
+			// per-evaluation scope that inherits the standard objects from the shared scope
+			final ScriptableObject standard    = getSharedScope(scriptingContext);
+			final Scriptable scope             = scriptingContext.newObject(standard);
 			final StructrScriptable scriptable = new StructrScriptable(actionContext, entity, scriptingContext);
 
+			scope.setPrototype(standard);
+			scope.setParentScope(null);
+
 			scriptable.setParentScope(scope);
 
 			// register Structr scriptable
@@ -282,6 +267,87 @@ public class Scripting {
 	}
 
 	// ----- private methods -----
+	private static Object evaluateInternal(final ActionContext actionContext, final GraphObject entity, final String input, final String methodName) throws FrameworkException, UnlicensedException {
+
+		final String expression = input.trim();
+		boolean isJavascript    = expression.startsWith("${{") && expression.endsWith("}}");
+		final int prefixOffset  = isJavascript ? 1 : 0;
+		String source           = expression.substring(2 + prefixOffset, expression.length() - (1 + prefixOffset));
+
+		String engine = "";
+		boolean isScriptEngine = false;
+
+		if (!isJavascript) {
+
+			final Matcher matcher = ScriptEngineExpression.matcher(expression);
+			if (matcher.matches()) {
+
+				engine = matcher.group(1);
+				source = matcher.group(2);
+
+				logger.info("Scripting engine {} requested.", engine);
+
+				isJavascript   = StringUtils.isBlank(engine) || "JavaScript".equals(engine);
+				isScriptEngine = !isJavascript && StringUtils.isNotBlank(engine);
+			}
+		}
+
+		actionContext.setJavaScriptContext(isJavascript);
+
+		// disable notifications for scripted actions
+		final SecurityContext securityContext = actionContext.getSecurityContext();
+		if (securityContext != null) {
+
+			securityContext.setDoTransactionNotifications(false);
+		}
+
+		if (isScriptEngine) {
+
+			return evaluateScript(actionContext, entity, engine, source);
+
+		} else if (isJavascript) {
+
+			return evaluateJavascript(actionContext, entity, new Snippet(methodName, source));
+
+		} else {
+
+			Object extractedValue = Functions.evaluate(actionContext, entity, source);
+			final String value    = extractedValue != null ? extractedValue.toString() : "";
+			final String output   = actionContext.getOutput();
+
+			if (StringUtils.isEmpty(value) && output != null && !output.isEmpty()) {
+				extractedValue = output;
+			}
+
+			return extractedValue;
+		}
+	}
+
+	private static ScriptableObject getSharedScope(final Context context) {
+
+		if (sharedScope == null) {
+
+			synchronized (Scripting.class) {
+
+				if (sharedScope == null) {
+
+					// sealed standard objects can be shared between threads
+					final ScriptableObject scope = context.initStandardObjects(null, true);
+
+					// some constructors are loaded lazily on first access, which
+					// modifies the scope, so they must be loaded before publishing
+					for (final String name : LazilyLoadedObjects) {
+						ScriptableObject.getProperty(scope, name);
+					}
+
+					sharedScope = scope;
+				}
+			}
+		}
+
+		return sharedScope;
+	}
+
 	private static Object evaluateScript(final ActionContext actionContext, final GraphObject entity, final String engineName, final String script) throws FrameworkException {
 
 		final ScriptEngineManager manager = new ScriptEngineManager();
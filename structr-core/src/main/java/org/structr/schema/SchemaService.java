@@ -34,6 +34,7 @@ import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.atomic.AtomicBoolean;
 import org.apache.commons.lang3.StringUtils;
 import org.slf4j.Logger;
@@ -53,6 +54,7 @@ import org.structr.core.app.StructrApp;
 import org.structr.core.entity.AbstractNode;
 import org.structr.core.entity.SchemaNode;
 import org.structr.core.entity.SchemaRelationshipNode;
+import org.structr.core.graph.MaterializedProperties;
 import org.structr.core.graph.NodeInterface;
 import org.structr.core.graph.Tx;
 import org.structr.core.graph.search.SearchCommand;
@@ -76,6 +78,7 @@ public class SchemaService implements Service {
 	private static final JsonSchema dynamicSchema                 = StructrSchema.newInstance(DynamicSchemaRootURI);
 	private static final AtomicBoolean compiling                  = new AtomicBoolean(false);
 	private static final AtomicBoolean updating                   = new AtomicBoolean(false);
+	private static final Set<String> uniqueConstraints            = ConcurrentHashMap.newKeySet();
 
 	static {
 
@@ -92,6 +95,18 @@ public class SchemaService implements Service {
 		return reloadSchema(new ErrorBuffer(), null);
 	}
 
+	/**
+	 * Indicates whether uniqueness of the given key is enforced by a
+	 * database constraint, so that no validation query is necessary.
+	 *
+	 * @param type
+	 * @param key
+	 * @return whether a uniqueness constraint exists for the given type and key
+	 */
+	public static boolean hasUniquenessConstraint(final Class type, final PropertyKey key) {
+		return Settings.UniqueConstraints.getValue() && uniqueConstraints.contains(type.getSimpleName() + "." + key.dbName());
+	}
+
 	public static JsonSchema getDynamicSchema() {
 		return dynamicSchema;
 	}
@@ -182,6 +197,9 @@ public class SchemaService implements Service {
 						// clear permission cache
 						AbstractNode.clearPermissionResolutionCache();
 
+						// dependencies of materialized properties are resolved again
+						MaterializedProperties.clear();
+
 						// inject views in configuration provider
 						config.registerDynamicViews(dynamicViews);
 
@@ -377,6 +395,9 @@ public class SchemaService implements Service {
 						final Map<String, Object> params = new HashMap<>();
 						final App app                    = StructrApp.getInstance();
 
+						// create uniqueness constraints first, they replace the index for the given key
+						updateUniqueConstraints(app, params);
+
 						// create indices for properties of existing classes
 						for (final Entry<String, Map<String, PropertyKey>> entry : StructrApp.getConfiguration().getTypeAndPropertyMapping().entrySet()) {
 
@@ -396,6 +417,7 @@ public class SchemaService implements Service {
 
 										createIndex &= !NonIndexed.class.isAssignableFrom(type);
 										createIndex &= NodeInterface.class.equals(type) || !GraphObject.id.equals(key);
+										createIndex &= !uniqueConstraints.contains(typeName + "." + key.dbName());
 
 										if (createIndex) {
 
@@ -488,6 +510,114 @@ public class SchemaService implements Service {
 		indexUpdater.start();
 	}
 
+	private static void updateUniqueConstraints(final App app, final Map<String, Object> params) {
+
+		final boolean enabled = Settings.UniqueConstraints.getValue();
+
+		for (final Entry<String, Map<String, PropertyKey>> entry : StructrApp.getConfiguration().getTypeAndPropertyMapping().entrySet()) {
+
+			final Class type = getType(entry.getKey());
+			if (type != null && NodeInterface.class.isAssignableFrom(type) && !NodeInterface.class.equals(type)) {
+
+				final String typeName = type.getSimpleName();
+
+				for (final PropertyKey key : entry.getValue().values()) {
+
+					// constraints are only created on the label of the declaring type
+					if (!type.equals(key.getDeclaringClass()) || GraphObject.id.equals(key)) {
+						continue;
+					}
+
+					final String name              = typeName + "." + key.dbName();
+					final String constraintKey     = "constraint." + name;
+					final String indexKey          = "index." + name;
+					final String constraint        = "CONSTRAINT ON (n:`" + typeName + "`) ASSERT n.`" + key.dbName() + "` IS UNIQUE";
+					final boolean createConstraint = enabled && key.isUnique();
+					boolean alreadySet             = false;
+
+					try (final Tx tx = app.tx()) {
+
+						alreadySet = "true".equals(app.getGlobalSetting(constraintKey, null));
+
+						tx.success();
+
+					} catch (Throwable t) {
+						logger.warn("", t);
+					}
+
+					if (createConstraint) {
+
+						if (!alreadySet) {
+
+							try {
+
+								// an existing index on the same key prevents creation of the constraint
+								try (final Tx tx = app.tx()) {
+
+									if ("true".equals(app.getGlobalSetting(indexKey, null))) {
+
+										app.cypher("DROP INDEX ON :`" + typeName + "`(`" + key.dbName() + "`)", params);
+									}
+
+									tx.success();
+
+								} catch (Throwable t) {
+									logger.warn("Unable to drop index for {}: {}", name, t.getMessage());
+								}
+
+								try (final Tx tx = app.tx()) {
+
+									app.cypher("CREATE " + constraint, params);
+									tx.success();
+								}
+
+								try (final Tx tx = app.tx()) {
+
+									app.setGlobalSetting(indexKey, null);
+									app.setGlobalSetting(constraintKey, "true");
+									tx.success();
+								}
+
+								uniqueConstraints.add(name);
+
+							} catch (Throwable t) {
+
+								// existing duplicate values prevent creation, validation query is used instead
+								logger.warn("Unable to create uniqueness constraint for {}: {}", name, t.getMessage());
+							}
+
+						} else {
+
+							uniqueConstraints.add(name);
+						}
+
+					} else if (alreadySet) {
+
+						uniqueConstraints.remove(name);
+
+						try {
+
+							try (final Tx tx = app.tx()) {
+
+								app.cypher("DROP " + constraint, params);
+								tx.success();
+							}
+
+							try (final Tx tx = app.tx()) {
+
+								app.setGlobalSetting(constraintKey, null);
+								tx.success();
+							}
+
+						} catch (Throwable t) {
+							logger.warn("Unable to drop uniqueness constraint for {}: {}", name, t.getMessage());
+						}
+					}
+				}
+			}
+		}
+	}
+
 	private static Class getType(final String name) {
 
 		try { return Class.forName(name); } catch (ClassNotFoundException ignore) {}
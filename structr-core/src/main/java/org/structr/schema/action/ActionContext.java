@@ -60,6 +60,7 @@ public class ActionContext {
 	protected StringBuilder outputBuffer           = new StringBuilder();
 	protected Locale locale                        = Locale.getDefault();
 	private boolean javaScriptContext              = false;
+	private int batchSize                          = -1;
 
 	public ActionContext(final SecurityContext securityContext) {
 		this(securityContext, null);
@@ -93,6 +94,14 @@ public class ActionContext {
 		this.securityContext = securityContext;
 	}
 
+	public int getBatchSize() {
+		return batchSize;
+	}
+
+	public void setBatchSize(final int batchSize) {
+		this.batchSize = batchSize;
+	}
+
 	public boolean returnRawValue() {
 		return false;
 	}
@@ -0,0 +1,299 @@
+/**
+ * Copyright (C) 2010-2018 Structr GmbH
+ *
+ * This file is part of Structr <http://structr.org>.
+ *
+ * Structr is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * Structr is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Structr.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.structr.schema.compiler;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import org.apache.commons.codec.binary.Hex;
+import org.apache.commons.io.FileUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.structr.api.config.Settings;
+
+/**
+ * Stores the byte code of compiled dynamic types in memory and on disk,
+ * keyed by a hash of the type's source code, the source code of all types
+ * it depends on, and the class path it was compiled against.
+ */
+public class BytecodeCache {
+
+	private static final Logger logger                     = LoggerFactory.getLogger(BytecodeCache.class.getName());
+	private final Map<String, Entry> entries               = new ConcurrentHashMap<>();
+	private String fingerprint                             = null;
+
+	public BytecodeCache() {
+		this(createFingerprint(System.getProperty("java.version"), System.getProperty("java.class.path", "")));
+	}
+
+	BytecodeCache(final String fingerprint) {
+		this.fingerprint = fingerprint;
+	}
+
+	/**
+	 * Calculates the cache key for each type from its source and the sources of
+	 * all types it references directly or indirectly, so that a type is compiled
+	 * again when one of its dependencies changes.
+	 *
+	 * @param sources the source code of all types, keyed by type name
+	 * @return the cache keys, keyed by type name
+	 */
+	public Map<String, String> getKeys(final Map<String, String> sources) {
+
+		final Map<String, Set<String>> dependencies = new LinkedHashMap<>();
+		final Map<String, String> sourceHashes      = new LinkedHashMap<>();
+		final Map<String, String> keys              = new LinkedHashMap<>();
+
+		for (final Map.Entry<String, String> entry : sources.entrySet()) {
+
+			final Set<String> identifiers = new HashSet<>(Arrays.asList(entry.getValue().split("\\W+")));
+			final Set<String> references  = new LinkedHashSet<>();
+
+			for (final String name : sources.keySet()) {
+
+				if (!name.equals(entry.getKey()) && identifiers.contains(name)) {
+					references.add(name);
+				}
+			}
+
+			dependencies.put(entry.getKey(), references);
+			sourceHashes.put(entry.getKey(), hash(entry.getValue()));
+		}
+
+		for (final String name : sources.keySet()) {
+
+			final Set<String> closure           = new TreeSet<>();
+			final LinkedList<String> queue      = new LinkedList<>(dependencies.get(name));
+			final List<String> dependencyHashes = new ArrayList<>();
+
+			while (!queue.isEmpty()) {
+
+				final String dependency = queue.removeFirst();
+
+				if (!dependency.equals(name) && closure.add(dependency)) {
+					queue.addAll(dependencies.get(dependency));
+				}
+			}
+
+			for (final String dependency : closure) {
+				dependencyHashes.add(dependency + sourceHashes.get(dependency));
+			}
+
+			keys.put(name, getKey(sourceHashes.get(name), dependencyHashes));
+		}
+
+		return keys;
+	}
+
+	/**
+	 * Returns the byte code of all classes that were compiled from the
+	 * source of the given type, or null if the cache has no entry for
+	 * the given key.
+	 *
+	 * @param typeName
+	 * @param key
+	 * @return a map of binary class names to byte code, or null
+	 */
+	public Map<String, byte[]> get(final String typeName, final String key) {
+
+		final Entry entry = entries.get(typeName);
+		if (entry != null && entry.key.equals(key)) {
+
+			return entry.classes;
+		}
+
+		if (Settings.SchemaCacheEnabled.getValue()) {
+
+			final Map<String, byte[]> classes = read(getFile(typeName, key));
+			if (classes != null) {
+
+				entries.put(typeName, new Entry(key, classes));
+			}
+
+			return classes;
+		}
+
+		return null;
+	}
+
+	public void put(final String typeName, final String key, final Map<String, byte[]> classes) {
+
+		entries.put(typeName, new Entry(key, classes));
+
+		if (Settings.SchemaCacheEnabled.getValue()) {
+
+			final File file = getFile(typeName, key);
+
+			try {
+
+				// remove outdated entries for this type
+				FileUtils.deleteDirectory(file.getParentFile());
+
+				write(file, classes);
+
+			} catch (IOException ioex) {
+				logger.warn("Unable to store compiled classes of {}: {}", typeName, ioex.getMessage());
+			}
+		}
+	}
+
+	// ----- public static methods -----
+	public static String hash(final String source) {
+
+		try {
+
+			final MessageDigest digest = MessageDigest.getInstance("SHA-256");
+
+			return Hex.encodeHexString(digest.digest(source.getBytes(StandardCharsets.UTF_8)));
+
+		} catch (NoSuchAlgorithmException nsaex) {
+
+			// SHA-256 is available in every Java platform
+			throw new IllegalStateException(nsaex);
+		}
+	}
+
+	// ----- private methods -----
+	/**
+	 * Creates the cache key for a type from the given source hashes.
+	 *
+	 * @param sourceHash the hash of the type's source code
+	 * @param dependencyHashes the source hashes of all types it depends on, in a stable order
+	 * @return the cache key
+	 */
+	private String getKey(final String sourceHash, final Collection<String> dependencyHashes) {
+
+		final StringBuilder buf = new StringBuilder(fingerprint);
+
+		buf.append(sourceHash);
+
+		for (final String dependencyHash : dependencyHashes) {
+			buf.append(dependencyHash);
+		}
+
+		return hash(buf.toString());
+	}
+
+	private File getFile(final String typeName, final String key) {
+		return new File(Settings.getFullSettingPath(Settings.SchemaCachePath) + typeName, key);
+	}
+
+	private Map<String, byte[]> read(final File file) {
+
+		if (file.exists()) {
+
+			try (final DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+
+				final Map<String, byte[]> classes = new LinkedHashMap<>();
+				final int count                   = in.readInt();
+
+				for (int i=0; i<count; i++) {
+
+					final String name  = in.readUTF();
+					final byte[] bytes = new byte[in.readInt()];
+
+					in.readFully(bytes);
+
+					classes.put(name, bytes);
+				}
+
+				return classes;
+
+			} catch (IOException ioex) {
+				logger.warn("Unable to read cached classes from {}: {}", file.getAbsolutePath(), ioex.getMessage());
+			}
+		}
+
+		return null;
+	}
+
+	private void write(final File file, final Map<String, byte[]> classes) throws IOException {
+
+		file.getParentFile().mkdirs();
+
+		try (final DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file)))) {
+
+			out.writeInt(classes.size());
+
+			for (final Map.Entry<String, byte[]> entry : classes.entrySet()) {
+
+				final byte[] bytes = entry.getValue();
+
+				out.writeUTF(entry.getKey());
+				out.writeInt(bytes.length);
+				out.write(bytes);
+			}
+		}
+	}
+
+	/**
+	 * Identifies the Java version and class path, cached byte code must
+	 * not be used after an update of either.
+	 */
+	static String createFingerprint(final String javaVersion, final String classPath) {
+
+		final StringBuilder buf = new StringBuilder();
+
+		buf.append(javaVersion);
+
+		for (final String path : classPath.split(File.pathSeparator)) {
+
+			final File file = new File(path);
+
+			buf.append(path);
+			buf.append(file.length());
+			buf.append(file.lastModified());
+		}
+
+		return hash(buf.toString());
+	}
+
+	// ----- nested classes -----
+	private static class Entry {
+
+		private Map<String, byte[]> classes = null;
+		private String key                  = null;
+
+		public Entry(final String key, final Map<String, byte[]> classes) {
+
+			this.classes = classes;
+			this.key     = key;
+		}
+	}
+}
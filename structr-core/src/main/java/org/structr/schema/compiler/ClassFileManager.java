@@ -21,24 +21,30 @@ package org.structr.schema.compiler;
 import java.io.IOException;
 import java.security.SecureClassLoader;
 import java.util.LinkedHashMap;
+import java.util.LinkedList;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import javax.tools.FileObject;
 import javax.tools.ForwardingJavaFileManager;
 import javax.tools.JavaFileObject;
 import javax.tools.JavaFileObject.Kind;
 import javax.tools.StandardJavaFileManager;
+import javax.tools.StandardLocation;
+import org.structr.module.JarConfigurationProvider;
 
 /**
  *
  *
  */
-public class ClassFileManager extends ForwardingJavaFileManager {
+public class ClassFileManager extends ForwardingJavaFileManager<StandardJavaFileManager> {
 
 	/**
 	 * Instance of JavaClassObject that will store the compiled byte code of
 	 * our class
 	 */
-	private final Map<String, JavaClassObject> objects = new LinkedHashMap<>();
+	private final Map<String, JavaClassObject> objects = new ConcurrentHashMap<>();
 
 	/**
 	 * Will initialize the manager with the specified standard java file
@@ -92,9 +98,66 @@ public class ClassFileManager extends ForwardingJavaFileManager {
 	public JavaFileObject getJavaFileForOutput(final Location location, final String className, final Kind kind, final FileObject sibling) throws IOException {
 		
 		JavaClassObject obj = new JavaClassObject(className, kind);
+
+		if (sibling instanceof CharSequenceJavaFileObject) {
+			obj.setSourceName(((CharSequenceJavaFileObject)sibling).getClassName());
+		}
 		
 		objects.put(className, obj);
 		
 		return obj;
 	}
+
+	/**
+	 * Makes the byte code of classes that are not compiled again visible
+	 * to the compiler.
+	 */
+	@Override
+	public Iterable<JavaFileObject> list(final Location location, final String packageName, final Set<Kind> kinds, final boolean recurse) throws IOException {
+
+		final Iterable<JavaFileObject> files = super.list(location, packageName, kinds, recurse);
+
+		if (StandardLocation.CLASS_PATH.equals(location) && kinds.contains(Kind.CLASS) && JarConfigurationProvider.DYNAMIC_TYPES_PACKAGE.equals(packageName)) {
+
+			final List<JavaFileObject> result = new LinkedList<>();
+
+			for (final JavaFileObject file : files) {
+				result.add(file);
+			}
+
+			result.addAll(objects.values());
+
+			return result;
+		}
+
+		return files;
+	}
+
+	@Override
+	public String inferBinaryName(final Location location, final JavaFileObject file) {
+
+		if (file instanceof JavaClassObject) {
+			return ((JavaClassObject)file).getBinaryName();
+		}
+
+		return super.inferBinaryName(location, file);
+	}
+
+	/**
+	 * @return a copy of the compiled classes known to this file manager
+	 */
+	public Map<String, JavaClassObject> getClassObjects() {
+		return new LinkedHashMap<>(objects);
+	}
+
+	/**
+	 * Replaces the compiled classes known to this file manager.
+	 *
+	 * @param classObjects
+	 */
+	public void setClassObjects(final Map<String, JavaClassObject> classObjects) {
+
+		objects.clear();
+		objects.putAll(classObjects);
+	}
 }
\ No newline at end of file
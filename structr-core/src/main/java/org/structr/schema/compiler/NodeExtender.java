@@ -27,14 +27,15 @@ import java.util.LinkedList;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
+import java.util.Map.Entry;
 import java.util.Set;
 import java.util.TreeMap;
+import java.util.regex.Pattern;
 import java.util.stream.Collectors;
 import javax.tools.Diagnostic;
 import javax.tools.Diagnostic.Kind;
 import javax.tools.DiagnosticListener;
 import javax.tools.JavaCompiler;
-import javax.tools.JavaFileManager;
 import javax.tools.JavaFileObject;
 import javax.tools.ToolProvider;
 import org.apache.commons.lang.StringUtils;
@@ -45,6 +46,7 @@ import org.structr.common.error.DiagnosticErrorToken;
 import org.structr.common.error.ErrorBuffer;
 import org.structr.core.Services;
 import org.structr.core.app.StructrApp;
+import org.structr.core.graph.EntityConstructors;
 import org.structr.core.graph.TransactionCommand;
 import org.structr.module.JarConfigurationProvider;
 
@@ -56,11 +58,15 @@ public class NodeExtender {
 
 	private static final Logger logger   = LoggerFactory.getLogger(NodeExtender.class.getName());
 
-	private static final JavaCompiler compiler       = ToolProvider.getSystemJavaCompiler();
-	private static final JavaFileManager fileManager = new ClassFileManager(compiler.getStandardFileManager(null, null, null));
-	private static final ClassLoader classLoader     = fileManager.getClassLoader(null);
-	private static final Map<String, Class> classes  = new TreeMap<>();
+	private static final String CONSTRUCTORS_CLASS_NAME = "_DynamicConstructors";
 
+	private static final JavaCompiler compiler        = ToolProvider.getSystemJavaCompiler();
+	private static final ClassFileManager fileManager = new ClassFileManager(compiler.getStandardFileManager(null, null, null));
+	private static final ClassLoader classLoader      = fileManager.getClassLoader(null);
+	private static final Map<String, Class> classes   = new TreeMap<>();
+	private static final BytecodeCache bytecodeCache  = new BytecodeCache();
+
+	private Map<String, String> sources  = null;
 	private List<JavaFileObject> jfiles  = null;
 	private Set<String> fqcns            = null;
 	private String initiatedBySessionId  = null;
@@ -68,6 +74,7 @@ public class NodeExtender {
 	public NodeExtender(final String initiatedBySessionId) {
 
 		this.initiatedBySessionId = initiatedBySessionId;
+		this.sources              = new LinkedHashMap<>();
 		this.jfiles               = new ArrayList<>();
 		this.fqcns                = new LinkedHashSet<>();
 	}
@@ -90,6 +97,7 @@ public class NodeExtender {
 
 			final String packageName = JarConfigurationProvider.DYNAMIC_TYPES_PACKAGE;
 
+			sources.put(className, content);
 			jfiles.add(new CharSequenceJavaFileObject(className, content));
 			fqcns.add(packageName.concat(".".concat(className)));
 
@@ -113,9 +121,46 @@ public class NodeExtender {
 
 		if (!jfiles.isEmpty()) {
 
-			logger.info("Compiling {} dynamic entities...", jfiles.size());
+			addConstructorRegistry();
+
+			final Map<String, JavaClassObject> previousObjects = fileManager.getClassObjects();
+			final Map<String, JavaClassObject> cachedObjects   = new LinkedHashMap<>();
+			final Map<String, String> keys                     = bytecodeCache.getKeys(sources);
+			final List<JavaFileObject> changedFiles            = new ArrayList<>();
+
+			// use cached byte code for all types whose source and dependencies are unchanged
+			for (final JavaFileObject jfile : jfiles) {
+
+				final String className          = ((CharSequenceJavaFileObject)jfile).getClassName();
+				final Map<String, byte[]> bytes = bytecodeCache.get(className, keys.get(className));
+
+				if (bytes != null) {
+
+					for (final Entry<String, byte[]> entry : bytes.entrySet()) {
+						cachedObjects.put(entry.getKey(), new JavaClassObject(entry.getKey(), entry.getValue()));
+					}
+
+				} else {
+
+					changedFiles.add(jfile);
+				}
+			}
+
+			// compiler output is added to the cached classes
+			fileManager.setClassObjects(cachedObjects);
+
+			Boolean success = true;
+
+			if (!changedFiles.isEmpty()) {
 
-			Boolean success = compiler.getTask(errorWriter, fileManager, new Listener(errorBuffer), null, null, jfiles).call();
+				logger.info("Compiling {} of {} dynamic entities...", changedFiles.size(), jfiles.size());
+
+				success = compiler.getTask(errorWriter, fileManager, new Listener(errorBuffer), null, null, changedFiles).call();
+
+			} else {
+
+				logger.info("Loading {} dynamic entities from cache...", jfiles.size());
+			}
 
 			if (success) {
 
@@ -138,6 +183,8 @@ public class NodeExtender {
 
 				if (success) {
 
+					storeCompiledClasses(keys, cachedObjects.keySet());
+
 					for (final Class oldType : classes.values()) {
 						StructrApp.getConfiguration().unregisterEntityType(oldType);
 					}
@@ -150,6 +197,8 @@ public class NodeExtender {
 						classes.put(newType.getName(), newType);
 					}
 
+					registerConstructors(loader);
+
 					logger.info("Successfully compiled {} dynamic entities: {}", new Object[] { jfiles.size(), jfiles.stream().map(f -> f.getName().replaceFirst("/", "")).collect(Collectors.joining(", ")) });
 
 					final Map<String, Object> data = new LinkedHashMap();
@@ -162,6 +211,11 @@ public class NodeExtender {
 
 			}
 
+			if (!success) {
+
+				// keep the classes of the current schema available
+				fileManager.setClassObjects(previousObjects);
+			}
 		}
 
 		return classes;
@@ -175,6 +229,74 @@ public class NodeExtender {
 		this.initiatedBySessionId = initiatedBySessionId;
 	}
 
+	// ----- private methods -----
+	/**
+	 * Adds a class that registers a constructor reference for each concrete
+	 * dynamic type, so that the factories can instantiate dynamic types
+	 * without reflection.
+	 */
+	private void addConstructorRegistry() {
+
+		final StringBuilder src = new StringBuilder();
+
+		src.append("package ").append(JarConfigurationProvider.DYNAMIC_TYPES_PACKAGE).append(";\n\n");
+		src.append("public class ").append(CONSTRUCTORS_CLASS_NAME).append(" implements ").append(EntityConstructors.Registry.class.getCanonicalName()).append(" {\n\n");
+		src.append("\t@Override\n");
+		src.append("\tpublic void register(final java.util.Map<Class, java.util.function.Supplier<Object>> constructors) {\n");
+
+		for (final Entry<String, String> entry : sources.entrySet()) {
+
+			final String className = entry.getKey();
+
+			if (Pattern.compile("public\\s+class\\s+" + className + "\\b").matcher(entry.getValue()).find()) {
+
+				src.append("\t\tconstructors.put(").append(className).append(".class, ").append(className).append("::new);\n");
+			}
+		}
+
+		src.append("\t}\n}\n");
+
+		sources.put(CONSTRUCTORS_CLASS_NAME, src.toString());
+		jfiles.add(new CharSequenceJavaFileObject(CONSTRUCTORS_CLASS_NAME, src.toString()));
+	}
+
+	private void registerConstructors(final ClassLoader loader) {
+
+		try {
+
+			final Class registry = loader.loadClass(JarConfigurationProvider.DYNAMIC_TYPES_PACKAGE.concat(".").concat(CONSTRUCTORS_CLASS_NAME));
+
+			EntityConstructors.register((EntityConstructors.Registry)registry.newInstance());
+
+		} catch (Throwable t) {
+
+			logger.warn("Unable to register constructors of dynamic entities: {}", t.toString());
+		}
+	}
+
+	private void storeCompiledClasses(final Map<String, String> keys, final Set<String> cachedClassNames) {
+
+		final Map<String, Map<String, byte[]>> compiled = new LinkedHashMap<>();
+
+		for (final Entry<String, JavaClassObject> entry : fileManager.getClassObjects().entrySet()) {
+
+			final String sourceName = entry.getValue().getSourceName();
+
+			if (sourceName != null && !cachedClassNames.contains(entry.getKey())) {
+				compiled.computeIfAbsent(sourceName, k -> new LinkedHashMap<>()).put(entry.getKey(), entry.getValue().getBytes());
+			}
+		}
+
+		for (final Entry<String, Map<String, byte[]>> entry : compiled.entrySet()) {
+
+			final String key = keys.get(entry.getKey());
+			if (key != null) {
+
+				bytecodeCache.put(entry.getKey(), key, entry.getValue());
+			}
+		}
+	}
+
 	private static class Listener implements DiagnosticListener<JavaFileObject> {
 
 		private ErrorBuffer errorBuffer = null;
@@ -18,6 +18,8 @@
  */
 package org.structr.schema.export;
 
+import java.util.Arrays;
+import java.util.List;
 import java.util.Map;
 import org.structr.common.SecurityContext;
 import org.structr.common.error.FrameworkException;
@@ -35,9 +37,10 @@ import org.structr.schema.json.JsonSchema;
  */
 public class StructrFunctionProperty extends StructrStringProperty implements JsonFunctionProperty {
 
-	protected String readFunction  = null;
-	protected String writeFunction = null;
-	protected String contentType   = null;
+	protected String readFunction   = null;
+	protected String writeFunction  = null;
+	protected String contentType    = null;
+	protected String[] materialized = null;
 
 	public StructrFunctionProperty(final StructrTypeDefinition parent, final String name) {
 
@@ -73,6 +76,18 @@ public class StructrFunctionProperty extends StructrStringProperty implements Js
 		return writeFunction;
 	}
 
+	@Override
+	public JsonFunctionProperty setMaterialized(final String... dependencies) {
+
+		this.materialized = dependencies;
+		return this;
+	}
+
+	@Override
+	public String[] getMaterialized() {
+		return materialized;
+	}
+
 	@Override
 	public JsonFunctionProperty setContentType(String contentType) {
 
@@ -98,6 +113,10 @@ public class StructrFunctionProperty extends StructrStringProperty implements Js
 			map.put(JsonSchema.KEY_WRITE_FUNCTION, writeFunction);
 		}
 
+		if (materialized != null) {
+			map.put(JsonSchema.KEY_MATERIALIZED, Arrays.asList(materialized));
+		}
+
 		return map;
 	}
 
@@ -132,6 +151,19 @@ public class StructrFunctionProperty extends StructrStringProperty implements Js
 			}
 		}
 
+		final Object materializedValue = source.get(JsonSchema.KEY_MATERIALIZED);
+		if (materializedValue != null) {
+
+			if (materializedValue instanceof List) {
+
+				this.materialized = ((List<Object>)materializedValue).stream().map(Object::toString).toArray(String[]::new);
+
+			} else {
+
+				throw new IllegalStateException("Invalid materialized dependencies for property " + name + ", expected array.");
+			}
+		}
+
 		final Object contentTypeValue = source.get(JsonSchema.KEY_CONTENT_TYPE);
 		if (contentTypeValue != null) {
 
@@ -154,6 +186,7 @@ public class StructrFunctionProperty extends StructrStringProperty implements Js
 
 		setReadFunction(property.getReadFunction());
 		setWriteFunction(property.getWriteFunction());
+		setMaterialized(property.getMaterializedDependencies());
 		setContentType(property.getSourceContentType());
 	}
 
@@ -186,6 +219,7 @@ public class StructrFunctionProperty extends StructrStringProperty implements Js
 
 		properties.put(SchemaProperty.readFunction,  readFunction);
 		properties.put(SchemaProperty.writeFunction, writeFunction);
+		properties.put(SchemaProperty.materialized,  materialized);
 	
 		property.setProperties(SecurityContext.getSuperUserInstance(), properties);
 
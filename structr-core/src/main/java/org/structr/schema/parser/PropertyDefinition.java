@@ -45,6 +45,7 @@ public interface PropertyDefinition {
 	String getContentType();
 	String getReadFunction();
 	String getWriteFunction();
+	String[] getMaterializedDependencies();
 	String[] getTransformators();
 	String[] getValidators();
 }
@@ -154,6 +154,7 @@ public abstract class PropertySourceGenerator {
 				new NodeAttribute<>(SchemaProperty.isPartOfBuiltInSchema, source.isPartOfBuiltInSchema()),
 				new NodeAttribute<>(SchemaProperty.readFunction,          source.getReadFunction()),
 				new NodeAttribute<>(SchemaProperty.writeFunction,         source.getWriteFunction()),
+				new NodeAttribute<>(SchemaProperty.materialized,          source.getMaterializedDependencies()),
 				new NodeAttribute<>(SchemaProperty.transformers,          source.getTransformators()),
 				new NodeAttribute<>(SchemaProperty.validators,            source.getValidators())
 			);
@@ -227,6 +228,23 @@ public abstract class PropertySourceGenerator {
 			buf.append(".readOnly()");
 		}
 
+		final String[] materializedDependencies = source.getMaterializedDependencies();
+		if (materializedDependencies != null) {
+
+			buf.append(".materialized(");
+
+			for (int i=0; i<materializedDependencies.length; i++) {
+
+				if (i > 0) {
+					buf.append(", ");
+				}
+
+				buf.append("\"").append(StringEscapeUtils.escapeJava(materializedDependencies[i])).append("\"");
+			}
+
+			buf.append(")");
+		}
+
 		final String[] transformators = source.getTransformators();
 		if (transformators != null && transformators.length > 0) {
 
@@ -199,6 +199,11 @@ public class StringBasedPropertyDefinition implements PropertyDefinition {
 		return writeFunction;
 	}
 
+	@Override
+	public String[] getMaterializedDependencies() {
+		return null;
+	}
+
 	@Override
 	public String[] getTransformators() {
 		return transformators;
@@ -0,0 +1,205 @@
+/**
+ * Copyright (C) 2010-2018 Structr GmbH
+ *
+ * This file is part of Structr <http://structr.org>.
+ *
+ * Structr is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * Structr is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Structr.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.structr.agent;
+
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import org.junit.After;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import org.junit.Test;
+import org.structr.api.config.Settings;
+import org.structr.common.StructrTest;
+import org.structr.common.error.FrameworkException;
+import org.structr.core.graph.Tx;
+
+/**
+ *
+ *
+ */
+public class AgentQueueTest extends StructrTest {
+
+	private static final BlockingQueue<Long> attempts = new LinkedBlockingQueue<>();
+	private static volatile ReturnValue result        = ReturnValue.Success;
+
+	@After
+	public void resetAgentSettings() {
+
+		Settings.AgentQueueSize.setValue(Settings.AgentQueueSize.getDefaultValue());
+		Settings.AgentMaxRetries.setValue(Settings.AgentMaxRetries.getDefaultValue());
+		Settings.AgentRetryDelay.setValue(Settings.AgentRetryDelay.getDefaultValue());
+		Settings.AgentIdleTimeout.setValue(Settings.AgentIdleTimeout.getDefaultValue());
+
+		attempts.clear();
+		result = ReturnValue.Success;
+	}
+
+	@Test
+	public void testBoundedCapacity() {
+
+		Settings.AgentQueueSize.setValue(2);
+
+		// agent service is not started, so tasks stay in the queue
+		final AgentService agentService = new AgentService();
+		final AgentQueue queue          = new AgentQueue(agentService, TestTask.class, TestAgent.class, 1);
+
+		try (final Tx tx = app.tx()) {
+
+			final long start = System.currentTimeMillis();
+
+			for (int i=0; i<5; i++) {
+				queue.add(new TestTask());
+			}
+
+			assertTrue("Producers in a transaction must not wait for a full queue", System.currentTimeMillis() - start < 1000);
+
+			tx.success();
+
+		} catch (FrameworkException fex) {
+
+			fex.printStackTrace();
+			fail("Unexpected exception.");
+		}
+
+		assertEquals("Queue must not grow beyond its capacity", 2, queue.getTasks().size());
+		assertEquals("Invalid number of delayed tasks",         3L, queue.getMetrics().get("delayedTasks"));
+		assertTrue("No agents must be started while the service is stopped", queue.getAgents().isEmpty());
+	}
+
+	@Test
+	public void testRetryBackoff() {
+
+		Settings.AgentMaxRetries.setValue(2);
+		Settings.AgentRetryDelay.setValue(200);
+
+		final AgentService agentService = new AgentService();
+
+		try {
+
+			agentService.startService();
+
+			final AgentQueue queue = new AgentQueue(agentService, TestTask.class, TestAgent.class, 1);
+
+			result = ReturnValue.Retry;
+
+			queue.add(new TestTask());
+
+			final Long first  = attempts.poll(10, TimeUnit.SECONDS);
+			final Long second = attempts.poll(10, TimeUnit.SECONDS);
+			final Long third  = attempts.poll(10, TimeUnit.SECONDS);
+
+			assertNotNull("Task was not processed", first);
+			assertNotNull("Task was not retried", second);
+			assertNotNull("Task was not retried", third);
+
+			// retry delay doubles with each retry
+			assertTrue("First retry came too early",  second - first >= 200);
+			assertTrue("Second retry came too early", third - second >= 400);
+
+			assertNull("Task must not be retried more than the configured number of times", attempts.poll(2, TimeUnit.SECONDS));
+
+			assertEquals("Invalid number of processed tasks", 3L, queue.getMetrics().get("processedTasks"));
+			assertEquals("Invalid number of retried tasks",   2L, queue.getMetrics().get("retriedTasks"));
+			assertEquals("Invalid number of failed tasks",    1L, queue.getMetrics().get("failedTasks"));
+
+		} catch (Exception ex) {
+
+			ex.printStackTrace();
+			fail("Unexpected exception.");
+
+		} finally {
+
+			agentService.stopService();
+		}
+	}
+
+	@Test
+	public void testIdleShutdown() {
+
+		Settings.AgentIdleTimeout.setValue(1);
+
+		final AgentService agentService = new AgentService();
+
+		try {
+
+			agentService.startService();
+
+			final AgentQueue queue = new AgentQueue(agentService, TestTask.class, TestAgent.class, 1);
+
+			queue.add(new TestTask());
+
+			assertNotNull("Task was not processed", attempts.poll(10, TimeUnit.SECONDS));
+
+			final long deadline = System.currentTimeMillis() + 10000;
+
+			while (!queue.getAgents().isEmpty() && System.currentTimeMillis() < deadline) {
+				Thread.sleep(100);
+			}
+
+			assertTrue("Idle agent did not stop", queue.getAgents().isEmpty());
+
+			// a new task starts a new agent
+			queue.add(new TestTask());
+
+			assertNotNull("Task was not processed after idle shutdown", attempts.poll(10, TimeUnit.SECONDS));
+
+		} catch (Exception ex) {
+
+			ex.printStackTrace();
+			fail("Unexpected exception.");
+
+		} finally {
+
+			agentService.stopService();
+		}
+	}
+
+	// ----- nested classes -----
+	public static class TestTask extends AbstractTask<Object> {
+
+		public TestTask() {
+			super("Test", null);
+		}
+	}
+
+	public static class TestAgent extends Agent<Object> {
+
+		@Override
+		public ReturnValue processTask(final Task<Object> task) throws Throwable {
+
+			attempts.add(System.currentTimeMillis());
+
+			return result;
+		}
+
+		@Override
+		public Class getSupportedTaskType() {
+			return TestTask.class;
+		}
+
+		@Override
+		public boolean createEnclosingTransaction() {
+			return false;
+		}
+	}
+}
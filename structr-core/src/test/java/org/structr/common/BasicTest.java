@@ -22,11 +22,13 @@ import java.io.IOException;
 import java.util.Collections;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Map;
 import java.util.UUID;
 import java.util.stream.Collectors;
 import org.apache.commons.lang3.StringUtils;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 import org.junit.Test;
@@ -1776,6 +1778,146 @@ public class BasicTest extends StructrTest {
 
 	}
 
+	@Test
+	public void testCreateAll() {
+
+		final List<PropertyMap> properties = new LinkedList<>();
+		Map<Integer, TestOne> nodes        = null;
+
+		for (int i=0; i<100; i++) {
+
+			final PropertyMap map = new PropertyMap();
+
+			map.put(AbstractNode.name, "test" + i);
+			map.put(TestOne.anInt, i);
+
+			properties.add(map);
+		}
+
+		try (final Tx tx = app.tx()) {
+
+			nodes = app.createAll(TestOne.class, properties);
+
+			tx.success();
+
+		} catch (FrameworkException fex) {
+			logger.warn("", fex);
+			fail("Unexpected exception.");
+		}
+
+		try (final Tx tx = app.tx()) {
+
+			assertEquals("Invalid bulk creation result", 100, nodes.size());
+			assertEquals("Invalid bulk creation result", 100, app.nodeQuery(TestOne.class).getAsList().size());
+
+			for (int i=0; i<100; i++) {
+
+				final TestOne node = nodes.get(i);
+
+				assertNotNull("Bulk creation must assign a UUID", node.getUuid());
+				assertEquals("Invalid bulk creation result", "test" + i, node.getProperty(AbstractNode.name));
+				assertEquals("Invalid bulk creation result", (Integer)i, node.getProperty(TestOne.anInt));
+			}
+
+			tx.success();
+
+		} catch (FrameworkException fex) {
+			logger.warn("", fex);
+			fail("Unexpected exception.");
+		}
+
+		// nodes created by a user are owned by the user
+		try {
+
+			Principal tester = null;
+
+			try (final Tx tx = app.tx()) {
+
+				tester = app.create(Principal.class, "tester");
+				tx.success();
+			}
+
+			final App testerApp = StructrApp.getInstance(SecurityContext.getInstance(tester, AccessMode.Backend));
+
+			try (final Tx tx = testerApp.tx()) {
+
+				nodes = testerApp.createAll(TestOne.class, properties.subList(0, 10));
+				tx.success();
+			}
+
+			try (final Tx tx = app.tx()) {
+
+				assertEquals("Invalid bulk creation result", 10, nodes.size());
+
+				for (int i=0; i<10; i++) {
+
+					final TestOne node = nodes.get(i);
+
+					assertEquals("Invalid bulk creation result", "test" + i, node.getProperty(AbstractNode.name));
+					assertEquals("Bulk creation must set the owner", tester, node.getOwnerNode());
+				}
+
+				tx.success();
+			}
+
+		} catch (FrameworkException fex) {
+			logger.warn("", fex);
+			fail("Unexpected exception.");
+		}
+	}
+
+	@Test
+	public void testRelationshipLookupByUuid() {
+
+		SixOneOneToOne rel = null;
+		String uuid        = null;
+
+		try {
+
+			final TestOne testOne = createTestNode(TestOne.class);
+			final TestSix testSix = createTestNode(TestSix.class);
+
+			try (final Tx tx = app.tx()) {
+
+				rel  = app.create(testSix, testOne, SixOneOneToOne.class);
+				uuid = rel.getUuid();
+
+				// new relationships can be found before the transaction is committed
+				assertEquals("Invalid relationship lookup result", rel, app.getRelationshipById(uuid));
+
+				tx.success();
+			}
+
+			// the database-side index is used after the cache was cleared
+			app.invalidateCache();
+
+			try (final Tx tx = app.tx()) {
+
+				assertEquals("Invalid relationship lookup result", rel, app.getRelationshipById(uuid));
+				assertEquals("Invalid relationship lookup result", rel, app.get(SixOneOneToOne.class, uuid));
+
+				tx.success();
+			}
+
+			try (final Tx tx = app.tx()) {
+
+				app.delete(rel);
+				tx.success();
+			}
+
+			try (final Tx tx = app.tx()) {
+
+				assertNull("Deleted relationship should not be found", app.getRelationshipById(uuid));
+				tx.success();
+			}
+
+		} catch (FrameworkException ex) {
+
+			logger.warn("", ex);
+			fail("Unexpected exception");
+		}
+	}
+
 	// ----- private methods -----
 	private AbstractRelationship cascadeRel(final Class type1, final Class type2, final int cascadeDeleteFlag) throws FrameworkException {
 
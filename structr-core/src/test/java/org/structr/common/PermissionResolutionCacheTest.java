@@ -0,0 +1,95 @@
+/**
+ * Copyright (C) 2010-2018 Structr GmbH
+ *
+ * This file is part of Structr <http://structr.org>.
+ *
+ * Structr is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * Structr is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Structr.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.structr.common;
+
+import java.util.Arrays;
+import static junit.framework.TestCase.assertEquals;
+import static junit.framework.TestCase.assertNull;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ *
+ */
+public class PermissionResolutionCacheTest {
+
+	@Before
+	public void clear() {
+		PermissionResolutionCache.invalidate();
+	}
+
+	@Test
+	public void testGetAndPut() {
+
+		assertNull("Empty cache should not return a result", PermissionResolutionCache.get(1L, 100L, Permission.read));
+
+		PermissionResolutionCache.put(1L, 100L, Permission.read, true, null, PermissionResolutionCache.getVersion());
+
+		assertEquals("Cached result not returned", Boolean.TRUE, PermissionResolutionCache.get(1L, 100L, Permission.read));
+		assertNull("Result for other permission should be unknown", PermissionResolutionCache.get(1L, 100L, Permission.write));
+		assertNull("Result for other principal should be unknown", PermissionResolutionCache.get(1L, 101L, Permission.read));
+
+		// a granted permission must not be overwritten with a denial
+		PermissionResolutionCache.put(1L, 100L, Permission.read, false, null, PermissionResolutionCache.getVersion());
+
+		assertEquals("Granted permission was overwritten", Boolean.TRUE, PermissionResolutionCache.get(1L, 100L, Permission.read));
+	}
+
+	@Test
+	public void testTargetedInvalidation() {
+
+		// node 1 is readable via propagation from node 2 and 3
+		PermissionResolutionCache.put(1L, 100L, Permission.read, true, Arrays.asList(1L, 2L, 3L), PermissionResolutionCache.getVersion());
+		PermissionResolutionCache.put(4L, 100L, Permission.read, true, null, PermissionResolutionCache.getVersion());
+
+		PermissionResolutionCache.invalidateNode(3L);
+
+		assertNull("Dependent result was not invalidated", PermissionResolutionCache.get(1L, 100L, Permission.read));
+		assertEquals("Unrelated result was invalidated", Boolean.TRUE, PermissionResolutionCache.get(4L, 100L, Permission.read));
+
+		PermissionResolutionCache.invalidateNode(4L);
+
+		assertNull("Result was not invalidated", PermissionResolutionCache.get(4L, 100L, Permission.read));
+	}
+
+	@Test
+	public void testOutdatedResult() {
+
+		// resolution starts, then a modification of an unrelated node is
+		// committed before the result is stored
+		final long version = PermissionResolutionCache.getVersion();
+
+		PermissionResolutionCache.invalidateNode(2L);
+		PermissionResolutionCache.put(1L, 100L, Permission.read, true, null, version);
+
+		assertNull("Outdated result was stored in cache", PermissionResolutionCache.get(1L, 100L, Permission.read));
+
+		// collected invalidations are applied after the transaction
+		PermissionResolutionCache.put(1L, 100L, Permission.read, true, null, PermissionResolutionCache.getVersion());
+		PermissionResolutionCache.put(4L, 100L, Permission.read, true, null, PermissionResolutionCache.getVersion());
+
+		final PermissionResolutionCache.Invalidation invalidation = new PermissionResolutionCache.Invalidation();
+
+		invalidation.addNode(1L);
+		invalidation.apply();
+
+		assertNull("Result was not invalidated", PermissionResolutionCache.get(1L, 100L, Permission.read));
+		assertEquals("Unrelated result was invalidated", Boolean.TRUE, PermissionResolutionCache.get(4L, 100L, Permission.read));
+	}
+}
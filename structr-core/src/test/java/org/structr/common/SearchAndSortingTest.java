@@ -18,6 +18,7 @@
  */
 package org.structr.common;
 
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.Date;
 import java.util.Iterator;
@@ -33,6 +34,11 @@ import static org.junit.Assert.fail;
 import org.junit.Test;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.structr.api.QueryResult;
+import org.structr.api.config.Settings;
+import org.structr.api.graph.Node;
+import org.structr.api.index.Index;
+import org.structr.api.search.Occurrence;
 import org.structr.common.error.FrameworkException;
 import org.structr.core.GraphObject;
 import org.structr.core.Result;
@@ -50,6 +56,10 @@ import org.structr.core.graph.NodeAttribute;
 import org.structr.core.graph.NodeInterface;
 import org.structr.core.graph.RelationshipInterface;
 import org.structr.core.graph.Tx;
+import org.structr.core.graph.search.AccessControlSearchAttribute;
+import org.structr.core.graph.search.PropertySearchAttribute;
+import org.structr.core.graph.search.SearchAttributeGroup;
+import org.structr.core.graph.search.TypeSearchAttribute;
 import org.structr.core.property.PropertyKey;
 import org.structr.core.property.PropertyMap;
 import org.structr.core.property.StringProperty;
@@ -503,6 +513,69 @@ public class SearchAndSortingTest extends StructrTest {
 
 	}
 
+	@Test
+	public void test10SearchByRelatedNodesWithSortingAndPaging() {
+
+		try  {
+
+			final TestSix test6           = createTestNode(TestSix.class);
+			final List<TestOne> testOnes  = new LinkedList<>();
+			final List<TestOne> unrelated = new LinkedList<>();
+
+			try (final Tx tx = app.tx()) {
+
+				// create nodes in reverse order so that the result must be sorted
+				for (int i=29; i>=0; i--) {
+
+					final TestOne test1 = app.create(TestOne.class, "TestOne-" + StringUtils.leftPad(Integer.toString(i), 2, "0"));
+
+					if (i % 3 == 0) {
+
+						unrelated.add(test1);
+
+					} else {
+
+						testOnes.add(test1);
+					}
+				}
+
+				test6.setProperty(TestSix.manyToManyTestOnes, testOnes);
+
+				tx.success();
+			}
+
+			try (final Tx tx = app.tx()) {
+
+				final Result<TestOne> result = app.nodeQuery(TestOne.class).and(TestOne.manyToManyTestSixs, Collections.singletonList(test6)).sort(AbstractNode.name).pageSize(5).page(2).getResult();
+
+				assertEquals("Invalid related node query result count", 20, (int)result.getRawResultCount());
+				assertEquals("Invalid related node query page size",     5, result.size());
+				assertEquals("Invalid related node query sort order", "TestOne-08", result.get(0).getProperty(AbstractNode.name));
+				assertEquals("Invalid related node query sort order", "TestOne-14", result.get(4).getProperty(AbstractNode.name));
+
+				tx.success();
+			}
+
+			try (final Tx tx = app.tx()) {
+
+				final List<TestOne> result = app.nodeQuery(TestOne.class).and(TestOne.manyToManyTestSixs, null).sort(AbstractNode.name).getAsList();
+
+				assertEquals("Invalid empty related node query result", 10, result.size());
+				assertEquals("Invalid empty related node query result", "TestOne-00", result.get(0).getProperty(AbstractNode.name));
+				assertEquals("Invalid empty related node query result", "TestOne-27", result.get(9).getProperty(AbstractNode.name));
+
+				tx.success();
+			}
+
+		} catch (FrameworkException ex) {
+
+			logger.error(ex.toString());
+			fail("Unexpected exception");
+
+		}
+
+	}
+
 	@Test
 	public void test01SortByName() {
 
@@ -1945,7 +2018,204 @@ public class SearchAndSortingTest extends StructrTest {
 
 	}
 
+	@Test
+	public void test09DatabasePaging() {
+
+		Settings.AccessControlQueries.setValue(true);
+
+		try {
+
+			final Principal tester = createPagingTestData();
+			Principal admin        = null;
+
+			try (final Tx tx = app.tx()) {
+
+				admin = app.create(Principal.class, "admin");
+				admin.setIsAdmin(true);
+
+				tx.success();
+			}
+
+			final App adminApp     = StructrApp.getInstance(SecurityContext.getInstance(admin, AccessMode.Backend));
+			final App anonymousApp = StructrApp.getInstance(SecurityContext.getInstance(null, AccessMode.Frontend));
+			final App testerApp    = StructrApp.getInstance(SecurityContext.getInstance(tester, AccessMode.Backend));
+
+			// superuser and admin see all 25 nodes
+			assertPage(app,      2,  25, "TestOne-04", "TestOne-05", "TestOne-06", "TestOne-07");
+			assertPage(app,      -1, 25, "TestOne-21", "TestOne-22", "TestOne-23", "TestOne-24");
+			assertPage(adminApp, 2,  25, "TestOne-04", "TestOne-05", "TestOne-06", "TestOne-07");
+			assertPage(adminApp, -1, 25, "TestOne-21", "TestOne-22", "TestOne-23", "TestOne-24");
+
+			// anonymous users see the 5 public nodes
+			assertPage(anonymousApp, 2,  5, "TestOne-04");
+			assertPage(anonymousApp, -1, 5, "TestOne-01", "TestOne-02", "TestOne-03", "TestOne-04");
+
+			// the tester sees the public nodes and the 10 nodes it owns
+			assertPage(testerApp, 2,  15, "TestOne-04", "TestOne-10", "TestOne-11", "TestOne-12");
+			assertPage(testerApp, -1, 15, "TestOne-16", "TestOne-17", "TestOne-18", "TestOne-19");
+
+		} catch (FrameworkException fex) {
+
+			logger.warn("", fex);
+			fail("Unexpected exception");
+
+		} finally {
+
+			Settings.AccessControlQueries.setValue(false);
+		}
+	}
+
+	@Test
+	public void test10DatabaseCount() {
+
+		try {
+
+			final Principal tester  = createPagingTestData();
+			final Index<Node> index = app.getDatabaseService().nodeIndex();
+			Principal other         = null;
+
+			try (final Tx tx = app.tx()) {
+
+				other = app.create(Principal.class, "other");
+				tx.success();
+			}
+
+			final SearchAttributeGroup all = createPagingQuery();
+
+			final SearchAttributeGroup anonymous = createPagingQuery();
+			anonymous.add(new PropertySearchAttribute(GraphObject.visibleToPublicUsers, true, Occurrence.REQUIRED, true));
+
+			final SearchAttributeGroup testerQuery = createPagingQuery();
+			testerQuery.add(new AccessControlSearchAttribute(tester));
+
+			final SearchAttributeGroup otherQuery = createPagingQuery();
+			otherQuery.add(new AccessControlSearchAttribute(other));
+
+			try (final Tx tx = app.tx()) {
+
+				// counts over the limit report the limit until the exact count is known
+				assertEquals("Invalid count over the limit", 20, index.count(all, 20));
+				assertEquals("Invalid exact count", 25, index.count(all, Integer.MAX_VALUE));
+				assertEquals("Exact count should be cached", 25, index.count(all, 20));
+
+				assertEquals("Invalid count over the limit", 3, index.count(anonymous, 3));
+				assertEquals("Invalid exact count", 5, index.count(anonymous, Integer.MAX_VALUE));
+				assertEquals("Exact count should be cached", 5, index.count(anonymous, 3));
+
+				// counts of access control queries are cached per principal
+				assertEquals("Invalid count over the limit", 10, index.count(testerQuery, 10));
+				assertEquals("Invalid exact count", 15, index.count(testerQuery, Integer.MAX_VALUE));
+				assertEquals("Exact count should be cached", 15, index.count(testerQuery, 10));
+				assertEquals("Count must not be shared between principals", 5, index.count(otherQuery, 10));
+
+				assertPageNames(index.query(all,         4, 4), "TestOne-04", "TestOne-05", "TestOne-06", "TestOne-07");
+				assertPageNames(index.query(anonymous,   4, 4), "TestOne-04");
+				assertPageNames(index.query(testerQuery, 4, 4), "TestOne-04", "TestOne-10", "TestOne-11", "TestOne-12");
+				assertPageNames(index.query(otherQuery,  4, 4), "TestOne-04");
+
+				tx.success();
+			}
+
+			// a new grant invalidates the cached counts of access control queries
+			try (final Tx tx = app.tx()) {
+
+				app.nodeQuery(TestOne.class).and(AbstractNode.name, "TestOne-24").getFirst().grant(Permission.read, other);
+				tx.success();
+			}
+
+			try (final Tx tx = app.tx()) {
+
+				assertEquals("Count should include the granted node", 6, index.count(otherQuery, 10));
+				tx.success();
+			}
+
+		} catch (FrameworkException fex) {
+
+			logger.warn("", fex);
+			fail("Unexpected exception");
+		}
+	}
+
 	// ----- private methods -----
+	/**
+	 * Creates 25 nodes, the first 5 of which are public and the next 10
+	 * after that are owned by the returned principal.
+	 */
+	private Principal createPagingTestData() throws FrameworkException {
+
+		final List<TestOne> nodes = createTestNodes(TestOne.class, 25);
+
+		try (final Tx tx = app.tx()) {
+
+			final Principal tester = app.create(Principal.class, "tester");
+			int i                  = 0;
+
+			for (final TestOne node : nodes) {
+
+				node.setProperty(AbstractNode.name, "TestOne-" + StringUtils.leftPad(Integer.toString(i), 2, "0"));
+
+				if (i < 5) {
+
+					node.setProperty(GraphObject.visibleToPublicUsers, true);
+
+				} else if (i >= 10 && i < 20) {
+
+					node.setProperty(NodeInterface.owner, tester);
+				}
+
+				i++;
+			}
+
+			tx.success();
+
+			return tester;
+		}
+	}
+
+	private SearchAttributeGroup createPagingQuery() {
+
+		final SearchAttributeGroup group = new SearchAttributeGroup(Occurrence.REQUIRED);
+
+		group.add(new TypeSearchAttribute(TestOne.class, Occurrence.REQUIRED, true));
+		group.setSortKey(AbstractNode.name);
+
+		return group;
+	}
+
+	private void assertPage(final App pageApp, final int page, final int count, final String... names) throws FrameworkException {
+
+		try (final Tx tx = pageApp.tx()) {
+
+			final Result<TestOne> result = pageApp.nodeQuery(TestOne.class).sort(AbstractNode.name).pageSize(4).page(page).getResult();
+			final List<String> actual    = new LinkedList<>();
+
+			for (final TestOne node : result.getResults()) {
+				actual.add(node.getProperty(AbstractNode.name));
+			}
+
+			assertEquals("Invalid result count for page " + page, count, (int)result.getRawResultCount());
+			assertEquals("Invalid result for page " + page, Arrays.asList(names), actual);
+
+			tx.success();
+		}
+	}
+
+	private void assertPageNames(final QueryResult<Node> result, final String... names) {
+
+		final List<String> actual = new LinkedList<>();
+
+		try (final QueryResult<Node> closeable = result) {
+
+			final Iterator<Node> iterator = closeable.iterator();
+
+			while (iterator.hasNext() && actual.size() < names.length) {
+				actual.add((String)iterator.next().getProperty("name"));
+			}
+		}
+
+		assertEquals("Invalid database page", Arrays.asList(names), actual);
+	}
+
 	private void testPaging(final Class type, final int pageSize, final int page, final int number, final int offset, final boolean includeDeletedAndHidden, final boolean publicOnly, final PropertyKey sortKey, final boolean sortDesc) throws FrameworkException {
 
 		final Query query = app.nodeQuery(type).sort(sortKey).order(sortDesc).page(page).pageSize(pageSize);
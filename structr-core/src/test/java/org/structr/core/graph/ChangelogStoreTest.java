@@ -0,0 +1,207 @@
+/**
+ * Copyright (C) 2010-2018 Structr GmbH
+ *
+ * This file is part of Structr <http://structr.org>.
+ *
+ * Structr is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * Structr is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Structr.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.structr.core.graph;
+
+import java.io.File;
+import java.io.RandomAccessFile;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import static junit.framework.TestCase.assertEquals;
+import static junit.framework.TestCase.assertTrue;
+import org.junit.Test;
+
+/**
+ *
+ *
+ */
+public class ChangelogStoreTest {
+
+	@Test
+	public void testAppendAndReopen() {
+
+		final File directory = new File("/tmp/" + System.nanoTime() + ".changelog");
+
+		ChangelogStore store = new ChangelogStore(directory, 1024, 0);
+
+		store.append(changelog("a", "{\"n\":1}\n{\"n\":2}\n"));
+		store.append(changelog("b", "{\"n\":3}\n"));
+		store.append(changelog("a", "{\"n\":4}\n"));
+
+		assertEquals("Invalid changelog", Arrays.asList("{\"n\":1}", "{\"n\":2}", "{\"n\":4}"), store.get("a"));
+		assertEquals("Invalid changelog", Arrays.asList("{\"n\":3}"), store.get("b"));
+		assertEquals("Invalid changelog", Collections.emptyList(), store.get("c"));
+
+		store.close();
+
+		// the index must be rebuilt from the segment files
+		store = new ChangelogStore(directory, 1024, 0);
+
+		assertEquals("Invalid changelog after reopening", Arrays.asList("{\"n\":1}", "{\"n\":2}", "{\"n\":4}"), store.get("a"));
+		assertEquals("Invalid changelog after reopening", Arrays.asList("{\"n\":3}"), store.get("b"));
+
+		store.close();
+	}
+
+	@Test
+	public void testIncompleteEntry() throws Exception {
+
+		final File directory = new File("/tmp/" + System.nanoTime() + ".changelog");
+
+		ChangelogStore store = new ChangelogStore(directory, 1024, 0);
+
+		store.append(changelog("a", "{\"n\":1}\n"));
+		store.close();
+
+		// simulate a partial write
+		try (final RandomAccessFile file = new RandomAccessFile(directory.listFiles()[0], "rw")) {
+
+			file.seek(file.length());
+			file.writeInt(1000);
+			file.writeShort(1);
+		}
+
+		store = new ChangelogStore(directory, 1024, 0);
+		store.append(changelog("a", "{\"n\":2}\n"));
+
+		assertEquals("Invalid changelog after recovery", Arrays.asList("{\"n\":1}", "{\"n\":2}"), store.get("a"));
+
+		store.close();
+	}
+
+	@Test
+	public void testSegmentsAndCompaction() {
+
+		final File directory = new File("/tmp/" + System.nanoTime() + ".changelog");
+		final ChangelogStore store = new ChangelogStore(directory, 256, 0);
+
+		for (int i=0; i<100; i++) {
+
+			store.append(changelog("removed", "{\"removed\":" + i + "}\n"));
+			store.append(changelog("kept", "{\"kept\":" + i + "}\n"));
+		}
+
+		final long sizeBefore = size(directory);
+
+		assertTrue("Changelog should be split into segments", directory.listFiles().length > 1);
+
+		store.remove(Arrays.asList("removed"));
+		store.maintain();
+
+		assertTrue("Compaction should remove the entries of removed entities", size(directory) < sizeBefore);
+		assertEquals("Invalid changelog after removal", Collections.emptyList(), store.get("removed"));
+		assertEquals("Invalid number of entries after compaction", 100, store.get("kept").size());
+
+		for (int i=0; i<100; i++) {
+			assertEquals("Invalid entry after compaction", "{\"kept\":" + i + "}", store.get("kept").get(i));
+		}
+
+		store.close();
+	}
+
+	@Test
+	public void testRemoveAndReopen() {
+
+		final File directory = new File("/tmp/" + System.nanoTime() + ".changelog");
+
+		ChangelogStore store = new ChangelogStore(directory, 256, 0);
+
+		for (int i=0; i<100; i++) {
+
+			store.append(changelog("removed", "{\"removed\":" + i + "}\n"));
+			store.append(changelog("kept", "{\"kept\":" + i + "}\n"));
+		}
+
+		store.append(changelog("recreated", "{\"old\":0}\n"));
+		store.remove(Arrays.asList("removed", "recreated"));
+		store.append(changelog("recreated", "{\"new\":0}\n"));
+		store.close();
+
+		final long sizeBefore = size(directory);
+
+		// the removal must survive a restart
+		store = new ChangelogStore(directory, 256, 0);
+
+		assertEquals("Removed changelog must stay removed after reopening", Collections.emptyList(), store.get("removed"));
+		assertEquals("Invalid changelog after reopening", Arrays.asList("{\"new\":0}"), store.get("recreated"));
+		assertEquals("Invalid number of entries after reopening", 100, store.get("kept").size());
+
+		// the entries of removed entities must still be reclaimed
+		store.maintain();
+
+		assertTrue("Compaction after reopening should remove the entries of removed entities", size(directory) < sizeBefore);
+		assertEquals("Invalid number of entries after compaction", 100, store.get("kept").size());
+
+		store.close();
+
+		store = new ChangelogStore(directory, 256, 0);
+
+		assertEquals("Removed changelog must stay removed after compaction", Collections.emptyList(), store.get("removed"));
+		assertEquals("Invalid changelog after compaction", Arrays.asList("{\"new\":0}"), store.get("recreated"));
+		assertEquals("Invalid number of entries after compaction", 100, store.get("kept").size());
+
+		store.close();
+	}
+
+	@Test
+	public void testRetention() {
+
+		final File directory = new File("/tmp/" + System.nanoTime() + ".changelog");
+		final ChangelogStore store = new ChangelogStore(directory, 64, 1000);
+
+		// fill two segments completely so that the next entry starts a new one
+		for (int i=0; i<8; i++) {
+			store.append(changelog("a", "{\"old\":" + i + "}\n"));
+		}
+
+		// age all existing segments beyond the retention period
+		for (final File file : directory.listFiles()) {
+			file.setLastModified(System.currentTimeMillis() - 10000);
+		}
+
+		store.append(changelog("a", "{\"new\":0}\n"));
+		store.maintain();
+
+		assertEquals("Entries older than the retention period should be removed", Arrays.asList("{\"new\":0}"), store.get("a"));
+
+		store.close();
+	}
+
+	// ----- private methods -----
+	private Map<String, String> changelog(final String uuid, final String entries) {
+
+		final Map<String, String> map = new LinkedHashMap<>();
+
+		map.put(uuid, entries);
+
+		return map;
+	}
+
+	private long size(final File directory) {
+
+		long size = 0L;
+
+		for (final File file : directory.listFiles()) {
+			size += file.length();
+		}
+
+		return size;
+	}
+}
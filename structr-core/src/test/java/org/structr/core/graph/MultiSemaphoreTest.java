@@ -0,0 +1,165 @@
+/**
+ * Copyright (C) 2010-2018 Structr GmbH
+ *
+ * This file is part of Structr <http://structr.org>.
+ *
+ * Structr is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * Structr is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Structr.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.structr.core.graph;
+
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import org.junit.Test;
+
+/**
+ *
+ */
+public class MultiSemaphoreTest {
+
+	@Test
+	public void testSortedAcquisition() throws Exception {
+
+		final MultiSemaphore semaphore = new MultiSemaphore();
+		final ExecutorService executor = Executors.newFixedThreadPool(2);
+
+		try {
+
+			// the same keys in opposite order would deadlock without sorting
+			final Future f1 = executor.submit(() -> lockRepeatedly(semaphore, keys("A", "B", "C")));
+			final Future f2 = executor.submit(() -> lockRepeatedly(semaphore, keys("C", "B", "A")));
+
+			f1.get(30, TimeUnit.SECONDS);
+			f2.get(30, TimeUnit.SECONDS);
+
+		} catch (TimeoutException tex) {
+
+			fail("Semaphores were not acquired in sorted order, deadlock detected.");
+
+		} finally {
+
+			executor.shutdownNow();
+		}
+
+		assertEquals("Invalid number of acquisitions", 2000L, semaphore.getStatistics().get("A").get("count"));
+		assertEquals("Invalid number of acquisitions", 2000L, semaphore.getStatistics().get("C").get("count"));
+	}
+
+	@Test
+	public void testRelease() throws Exception {
+
+		final MultiSemaphore semaphore = new MultiSemaphore();
+		final ExecutorService executor = Executors.newSingleThreadExecutor();
+
+		try {
+
+			semaphore.acquire(keys("A", "B"));
+
+			final Future waiting = executor.submit(() -> { semaphore.acquire(keys("B")); return null; });
+
+			assertFalse("Semaphore must block while the key is held", isDone(waiting, 500));
+
+			semaphore.release(keys("A", "B"));
+
+			assertTrue("Semaphore was not released", isDone(waiting, 5000));
+
+			semaphore.release(keys("B"));
+
+			// keys that are not held by anybody are acquired without waiting
+			semaphore.acquire(keys("A", "B"));
+			semaphore.release(keys("A", "B"));
+
+		} finally {
+
+			executor.shutdownNow();
+		}
+	}
+
+	@Test
+	public void testInterruptedAcquisition() throws Exception {
+
+		final MultiSemaphore semaphore = new MultiSemaphore();
+		final ExecutorService executor = Executors.newSingleThreadExecutor();
+		final CountDownLatch started   = new CountDownLatch(1);
+
+		try {
+
+			// hold B, so that the other thread gets A and then waits for B
+			semaphore.acquire(keys("B"));
+
+			final Future waiting = executor.submit(() -> {
+
+				started.countDown();
+				semaphore.acquire(keys("A", "B"));
+
+				return null;
+			});
+
+			started.await();
+
+			assertFalse("Semaphore must block while the key is held", isDone(waiting, 500));
+
+			// interrupt the waiting thread, which must give up A again
+			waiting.cancel(true);
+
+			final Future other = executor.submit(() -> { semaphore.acquire(keys("A")); return null; });
+
+			assertTrue("Partially acquired semaphores were not released", isDone(other, 5000));
+
+			semaphore.release(keys("A", "B"));
+
+		} finally {
+
+			executor.shutdownNow();
+		}
+	}
+
+	// ----- private methods -----
+	private Void lockRepeatedly(final MultiSemaphore semaphore, final Set<String> keys) throws InterruptedException {
+
+		for (int i=0; i<1000; i++) {
+
+			semaphore.acquire(keys);
+			semaphore.release(keys);
+		}
+
+		return null;
+	}
+
+	private Set<String> keys(final String... keys) {
+		return new LinkedHashSet<>(Arrays.asList(keys));
+	}
+
+	private boolean isDone(final Future future, final long timeout) throws Exception {
+
+		try {
+
+			future.get(timeout, TimeUnit.MILLISECONDS);
+			return true;
+
+		} catch (TimeoutException tex) {
+			return false;
+		}
+	}
+}
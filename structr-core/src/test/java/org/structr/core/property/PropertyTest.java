@@ -18,12 +18,14 @@
  */
 package org.structr.core.property;
 
+import java.util.Arrays;
 import java.util.Date;
 import java.util.LinkedHashSet;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Objects;
 import java.util.Set;
+import java.util.concurrent.ExecutionException;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertNull;
@@ -36,14 +38,18 @@ import org.structr.api.DatabaseService;
 import org.structr.api.graph.Label;
 import org.structr.api.util.Iterables;
 import org.structr.common.AccessControllable;
+import org.structr.common.AccessMode;
+import org.structr.common.SecurityContext;
 import org.structr.common.StructrTest;
 import org.structr.common.error.FrameworkException;
 import org.structr.core.GraphObject;
 import org.structr.core.Result;
+import org.structr.core.app.App;
 import org.structr.core.app.StructrApp;
 import org.structr.core.converter.PropertyConverter;
 import org.structr.core.entity.AbstractNode;
 import org.structr.core.entity.OneFourOneToOne;
+import org.structr.core.entity.Principal;
 import org.structr.core.entity.SchemaNode;
 import org.structr.core.entity.SchemaProperty;
 import org.structr.core.entity.SchemaRelationshipNode;
@@ -53,7 +59,9 @@ import org.structr.core.entity.TestFour;
 import org.structr.core.entity.TestOne;
 import org.structr.core.entity.TestSix;
 import org.structr.core.entity.TestThree;
+import org.structr.core.graph.MaterializedProperties;
 import org.structr.core.graph.NodeAttribute;
+import org.structr.core.graph.NodeInterface;
 import org.structr.core.graph.Tx;
 import org.structr.schema.ConfigurationProvider;
 
@@ -1957,6 +1965,148 @@ public class PropertyTest extends StructrTest {
 		}
 
 	}
+
+	/**
+	 * This test creates a materialized function property that sums up the
+	 * prices of related items, and verifies that its stored value follows
+	 * changes of the items and of the relationships.
+	 */
+	@Test
+	public void testMaterializedFunctionProperty() {
+
+		// schema setup
+		try (final Tx tx = app.tx()) {
+
+			final SchemaNode order = app.create(SchemaNode.class, new NodeAttribute<>(SchemaNode.name, "Order"));
+			final SchemaNode item  = app.create(SchemaNode.class,
+				new NodeAttribute<>(SchemaNode.name, "Item"),
+				new NodeAttribute<>(new StringProperty("_price"), "Integer")
+			);
+
+			app.create(SchemaProperty.class,
+				new NodeAttribute<>(SchemaProperty.name, "total"),
+				new NodeAttribute<>(SchemaProperty.propertyType, "Function"),
+				new NodeAttribute<>(SchemaProperty.readFunction, "{ var sum = 0; var items = Structr.this.items; for (var i=0; i<items.length; i++) { sum += items[i].price; } return sum; }"),
+				new NodeAttribute<>(SchemaProperty.materialized, new String[] { "items.price", "items" }),
+				new NodeAttribute<>(SchemaProperty.schemaNode, order)
+			);
+
+			app.create(SchemaRelationshipNode.class,
+				new NodeAttribute<>(SchemaRelationshipNode.sourceNode, order),
+				new NodeAttribute<>(SchemaRelationshipNode.targetNode, item),
+				new NodeAttribute<>(SchemaRelationshipNode.sourceMultiplicity, "1"),
+				new NodeAttribute<>(SchemaRelationshipNode.targetMultiplicity, "*"),
+				new NodeAttribute<>(SchemaRelationshipNode.sourceJsonName, "order"),
+				new NodeAttribute<>(SchemaRelationshipNode.targetJsonName, "items"),
+				new NodeAttribute<>(SchemaRelationshipNode.relationshipType, "ITEM")
+			);
+
+			tx.success();
+
+		} catch (FrameworkException fex) {
+
+			logger.warn("", fex);
+			fail("Unexpected exception");
+		}
+
+		final ConfigurationProvider config = StructrApp.getConfiguration();
+		final Class orderType              = config.getNodeEntityClass("Order");
+		final Class itemType               = config.getNodeEntityClass("Item");
+		final PropertyKey items            = config.getPropertyKeyForJSONName(orderType, "items");
+		final PropertyKey price            = config.getPropertyKeyForJSONName(itemType, "price");
+		final PropertyKey total            = config.getPropertyKeyForJSONName(orderType, "total");
+		NodeInterface order                = null;
+		NodeInterface item1                = null;
+		NodeInterface item2                = null;
+
+		try (final Tx tx = app.tx()) {
+
+			item1 = app.create(itemType, new NodeAttribute<>(price, 10));
+			item2 = app.create(itemType, new NodeAttribute<>(price, 20));
+			order = app.create(orderType, new NodeAttribute<>(items, Arrays.asList(item1, item2)));
+
+			tx.success();
+
+		} catch (FrameworkException fex) {
+
+			logger.warn("", fex);
+			fail("Unexpected exception");
+		}
+
+		assertMaterializedValue(order, total, 30);
+
+		// modify a related item
+		try (final Tx tx = app.tx()) {
+
+			item1.setProperty(price, 15);
+			tx.success();
+
+		} catch (FrameworkException fex) {
+
+			logger.warn("", fex);
+			fail("Unexpected exception");
+		}
+
+		assertMaterializedValue(order, total, 35);
+
+		// remove a related item
+		try (final Tx tx = app.tx()) {
+
+			order.setProperty(items, Arrays.asList(item1));
+			tx.success();
+
+		} catch (FrameworkException fex) {
+
+			logger.warn("", fex);
+			fail("Unexpected exception");
+		}
+
+		assertMaterializedValue(order, total, 15);
+
+		// reading returns the stored value
+		try (final Tx tx = app.tx()) {
+
+			assertEquals("Invalid materialized value", 15, ((Number)order.getProperty(total)).intValue());
+			tx.success();
+
+		} catch (FrameworkException fex) {
+
+			logger.warn("", fex);
+			fail("Unexpected exception");
+		}
+
+		// a user that cannot see the items must not see the stored value
+		try {
+
+			Principal tester = null;
+
+			try (final Tx tx = app.tx()) {
+
+				tester = app.create(Principal.class, "tester");
+				order.setProperty(GraphObject.visibleToAuthenticatedUsers, true);
+
+				tx.success();
+			}
+
+			final App testerApp = StructrApp.getInstance(SecurityContext.getInstance(tester, AccessMode.Backend));
+
+			try (final Tx tx = testerApp.tx()) {
+
+				final NodeInterface testerOrder = (NodeInterface)testerApp.get(orderType, order.getUuid());
+
+				assertNotNull("Order should be visible", testerOrder);
+				assertEquals("Materialized value should be computed with the permissions of the reader", 0, ((Number)testerOrder.getProperty(total)).intValue());
+
+				tx.success();
+			}
+
+		} catch (FrameworkException fex) {
+
+			logger.warn("", fex);
+			fail("Unexpected exception");
+		}
+	}
+
 	// ----- notion property tests -----
 	
 	/**
@@ -2002,4 +2152,34 @@ public class PropertyTest extends StructrTest {
 		}
 	}	
 
+
+	// ----- private methods -----
+	private void assertMaterializedValue(final NodeInterface node, final PropertyKey key, final int expected) {
+
+		Object value = null;
+
+		try {
+
+			// values are updated in the background
+			MaterializedProperties.awaitUpdates();
+
+		} catch (InterruptedException | ExecutionException ex) {
+
+			logger.warn("", ex);
+			fail("Unexpected exception");
+		}
+
+		try (final Tx tx = app.tx()) {
+
+			value = app.getNodeById(node.getUuid()).getPropertyContainer().getProperty(key.dbName());
+			tx.success();
+
+		} catch (FrameworkException fex) {
+
+			logger.warn("", fex);
+			fail("Unexpected exception");
+		}
+
+		assertTrue("Materialized value was not updated, expected " + expected + ", was " + value, value instanceof Number && ((Number)value).intValue() == expected);
+	}
 }
\ No newline at end of file
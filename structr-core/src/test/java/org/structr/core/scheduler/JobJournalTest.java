@@ -0,0 +1,222 @@
+/**
+ * Copyright (C) 2010-2018 Structr GmbH
+ *
+ * This file is part of Structr <http://structr.org>.
+ *
+ * Structr is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * Structr is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Structr.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.structr.core.scheduler;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.IntConsumer;
+import static junit.framework.TestCase.assertEquals;
+import static junit.framework.TestCase.assertFalse;
+import static junit.framework.TestCase.assertTrue;
+import static junit.framework.TestCase.fail;
+import org.junit.Test;
+import org.structr.common.error.FrameworkException;
+import org.structr.core.graph.Tx;
+
+/**
+ *
+ *
+ */
+public class JobJournalTest {
+
+	@Test
+	public void testReplay() {
+
+		final File file = new File("/tmp/" + System.nanoTime() + ".jobqueue/journal.log");
+
+		JobJournal journal = new JobJournal(file);
+
+		journal.queued(1L, "CSV", "user", 0, config("targetType", "Item"), data("fileUuid", "a"));
+		journal.queued(2L, "XML", "user", 5, config("batchType", "Item"), data("fileUuid", "b"));
+		journal.queued(3L, "SCRIPT", "user", 0, config(), data("script", "log(1)"));
+
+		journal.started(1L);
+		journal.progress(1L, data("processedObjects", 1000));
+		journal.finished(3L);
+
+		journal.close();
+
+		journal = new JobJournal(file);
+
+		final List<JobJournal.Entry> entries = journal.getEntries();
+
+		assertEquals("Invalid number of unfinished jobs", 2, entries.size());
+		assertEquals("Invalid max job ID", 3L, journal.getMaxJobId());
+
+		final JobJournal.Entry first = entries.get(0);
+
+		assertEquals("Invalid job ID", Long.valueOf(1L), first.getJobId());
+		assertEquals("Invalid job type", "CSV", first.getJobType());
+		assertEquals("Invalid user", "user", first.getUserId());
+		assertTrue("Started job must be marked as interrupted", first.isStarted());
+		assertEquals("Invalid configuration", "Item", first.getConfiguration().get("targetType"));
+		assertEquals("Invalid progress", 1000, ((Number)first.getData().get("processedObjects")).intValue());
+
+		final JobJournal.Entry second = entries.get(1);
+
+		assertEquals("Invalid job ID", Long.valueOf(2L), second.getJobId());
+		assertEquals("Invalid priority", 5, second.getPriority());
+		assertFalse("Queued job must not be marked as interrupted", second.isStarted());
+		assertEquals("Invalid data", "b", second.getData().get("fileUuid"));
+
+		journal.close();
+	}
+
+	@Test
+	public void testIncompleteEntry() throws Exception {
+
+		final File file = new File("/tmp/" + System.nanoTime() + ".jobqueue/journal.log");
+
+		JobJournal journal = new JobJournal(file);
+
+		journal.queued(1L, "CSV", "user", 0, config(), data("fileUuid", "a"));
+		journal.close();
+
+		// simulate a partial write
+		try (final FileOutputStream out = new FileOutputStream(file, true)) {
+			out.write("{\"op\":\"finished\",\"jo".getBytes("utf-8"));
+		}
+
+		journal = new JobJournal(file);
+
+		assertEquals("Invalid number of unfinished jobs", 1, journal.getEntries().size());
+
+		journal.queued(2L, "CSV", "user", 0, config(), data("fileUuid", "b"));
+		journal.close();
+
+		journal = new JobJournal(file);
+
+		assertEquals("Invalid number of unfinished jobs", 2, journal.getEntries().size());
+
+		journal.close();
+	}
+
+	@Test
+	public void testTruncateWhenEmpty() {
+
+		final File file = new File("/tmp/" + System.nanoTime() + ".jobqueue/journal.log");
+
+		JobJournal journal = new JobJournal(file);
+
+		for (long i=1; i<=10; i++) {
+			journal.queued(i, "CSV", "user", 0, config(), data("fileUuid", "a"));
+		}
+
+		for (long i=1; i<=10; i++) {
+			journal.finished(i);
+		}
+
+		assertEquals("Journal must be empty when all jobs are finished", 0L, file.length());
+
+		journal.close();
+
+		journal = new JobJournal(file);
+
+		assertEquals("Invalid number of unfinished jobs", 0, journal.getEntries().size());
+
+		journal.close();
+	}
+
+	@Test
+	public void testProgressAfterFailedCommit() {
+
+		final File file               = new File("/tmp/" + System.nanoTime() + ".jobqueue/journal.log");
+		final AtomicInteger processed = new AtomicInteger(0);
+
+		JobJournal journal = new JobJournal(file);
+
+		final JobJournal currentJournal = journal;
+		final IntConsumer progress      = count -> currentJournal.progress(1L, data("processedObjects", processed.addAndGet(count)));
+
+		journal.queued(1L, "CSV", "user", 0, config(), data("fileUuid", "a"));
+		journal.started(1L);
+
+		try {
+
+			ScheduledJob.runChunk(new TestTx(false), () -> 100, progress);
+
+		} catch (FrameworkException fex) {
+			fail("Unexpected exception.");
+		}
+
+		try {
+
+			ScheduledJob.runChunk(new TestTx(true), () -> 100, progress);
+			fail("Failed commit must throw an exception.");
+
+		} catch (FrameworkException expected) {
+		}
+
+		journal.close();
+
+		journal = new JobJournal(file);
+
+		final List<JobJournal.Entry> entries = journal.getEntries();
+
+		assertEquals("Invalid number of unfinished jobs", 1, entries.size());
+		assertEquals("Resume offset must not include the failed chunk", 100, ((Number)entries.get(0).getData().get("processedObjects")).intValue());
+
+		journal.close();
+	}
+
+	// ----- private methods -----
+	private Map<String, Object> config(final Object... keysAndValues) {
+		return data(keysAndValues);
+	}
+
+	private Map<String, Object> data(final Object... keysAndValues) {
+
+		final Map<String, Object> map = new LinkedHashMap<>();
+
+		for (int i=0; i<keysAndValues.length; i+=2) {
+			map.put((String)keysAndValues[i], keysAndValues[i+1]);
+		}
+
+		return map;
+	}
+
+	// ----- nested classes -----
+	private static class TestTx extends Tx {
+
+		private boolean failCommit = false;
+
+		public TestTx(final boolean failCommit) {
+
+			super(null, null);
+
+			this.failCommit = failCommit;
+		}
+
+		@Override
+		public void success() {
+		}
+
+		@Override
+		public void close() throws FrameworkException {
+
+			if (failCommit) {
+				throw new FrameworkException(500, "Commit failed");
+			}
+		}
+	}
+}
@@ -66,6 +66,7 @@ import org.structr.core.entity.TestTwo;
 import org.structr.core.entity.Principal;
 import org.structr.core.function.DateFormatFunction;
 import org.structr.core.function.FindFunction;
+import org.structr.core.function.Functions;
 import org.structr.core.function.NumberFormatFunction;
 import org.structr.core.function.ParseDateFunction;
 import org.structr.core.function.RoundFunction;
@@ -2485,4 +2486,45 @@ public class ScriptingTest extends StructrTest {
 			fail("Unexpected exception.");
 		}
 	}
+
+	@Test
+	public void testParsedExpressionReuse() {
+
+		final String expression = "concat(this.name, '-', data)";
+
+		try (final Tx tx = app.tx()) {
+
+			final TestOne first     = app.create(TestOne.class, "first");
+			final TestOne second    = app.create(TestOne.class, "second");
+			final ActionContext ctx = new ActionContext(securityContext, null);
+
+			// the parsed expression is cached, evaluation must not carry over any state
+			ctx.setConstant("data", "a");
+			assertEquals("Invalid result of cached expression", "first-a",  Functions.evaluate(ctx, first, expression));
+
+			ctx.setConstant("data", "b");
+			assertEquals("Invalid result of cached expression", "second-b", Functions.evaluate(ctx, second, expression));
+			assertEquals("Invalid result of cached expression", "first-b",  Functions.evaluate(ctx, first, expression));
+
+			// invalid expressions must fail on every evaluation
+			for (int i=0; i<2; i++) {
+
+				try {
+
+					Functions.evaluate(ctx, first, "concat(this.name");
+					fail("Invalid expression should throw an exception.");
+
+				} catch (FrameworkException fex) {
+					assertEquals("Invalid error code", 422, fex.getStatus());
+				}
+			}
+
+			tx.success();
+
+		} catch (FrameworkException fex) {
+
+			fex.printStackTrace();
+			fail("Unexpected exception: " + fex.getMessage());
+		}
+	}
 }
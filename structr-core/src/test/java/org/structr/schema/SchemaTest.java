@@ -43,6 +43,7 @@ import org.structr.core.entity.SchemaMethod;
 import org.structr.core.entity.SchemaNode;
 import org.structr.core.entity.SchemaRelationshipNode;
 import org.structr.core.entity.SchemaView;
+import org.structr.core.graph.EntityConstructors;
 import org.structr.core.graph.NodeAttribute;
 import org.structr.core.graph.NodeInterface;
 import org.structr.core.graph.Tx;
@@ -638,6 +639,51 @@ public class SchemaTest extends StructrTest {
 
 	}
 
+	@Test
+	public void testDynamicTypeConstructors() {
+
+		try (final Tx tx = app.tx()) {
+
+			final JsonSchema schema = StructrSchema.createFromDatabase(app);
+
+			schema.addType("Concrete");
+			schema.addType("Abstract").setIsAbstract();
+
+			StructrSchema.extendDatabaseSchema(app, schema);
+
+			tx.success();
+
+		} catch (Throwable fex) {
+			fex.printStackTrace();
+			fail("Unexpected exception");
+		}
+
+		final Class concreteType = StructrApp.getConfiguration().getNodeEntityClass("Concrete");
+		final Class abstractType = StructrApp.getConfiguration().getNodeEntityClass("Abstract");
+
+		assertNotNull("Dynamic type Concrete was not created", concreteType);
+		assertNotNull("Dynamic type Abstract was not created", abstractType);
+
+		assertTrue("Dynamic type Concrete should use a generated constructor", EntityConstructors.isRegistered(concreteType));
+		assertFalse("Abstract dynamic type should not have a generated constructor", EntityConstructors.isRegistered(abstractType));
+
+		try (final Tx tx = app.tx()) {
+
+			app.create(concreteType, "test");
+
+			final List<NodeInterface> result = app.nodeQuery(concreteType).getAsList();
+
+			assertEquals("Invalid number of nodes", 1, result.size());
+			assertEquals("Invalid node type", concreteType, result.get(0).getClass());
+
+			tx.success();
+
+		} catch (FrameworkException fex) {
+			fex.printStackTrace();
+			fail("Unexpected exception");
+		}
+	}
+
 	// ----- private methods -----
 	private void checkSchemaString(final String source) {
 
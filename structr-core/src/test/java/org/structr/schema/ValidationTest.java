@@ -976,6 +976,49 @@ public class ValidationTest extends StructrTest {
 		}
 	}
 
+	@Test
+	public void testStringPropertyUniquenessWithConstraint() {
+
+		Settings.UniqueConstraints.setValue(true);
+
+		try {
+
+			final String keyName                = "testUnique";
+			final Class<NodeInterface> testType = createTypeWithProperty("Test", keyName, "String!");
+			final PropertyKey key               = StructrApp.key(testType, keyName);
+			String uuid                         = null;
+
+			assertNotNull("Invalid test setup", key);
+
+			try (final Tx tx = app.tx()) {
+
+				app.create(testType, new NodeAttribute<>(key, "unique00"));
+				tx.success();
+
+			} catch (FrameworkException fex) {
+				logger.warn("", fex);
+				fail("Unexpected exception.");
+			}
+
+			// the database constraint must report the same error as the validation query
+			try (final Tx tx = app.tx()) {
+
+				uuid = app.create(testType, new NodeAttribute<>(key, "unique00")).getUuid();
+				tx.success();
+
+				fail("Uniqueness constraint violated!");
+
+			} catch (FrameworkException fex) {
+
+				checkException(fex, 1, 422, "Test", keyName, "already_taken", uuid);
+			}
+
+		} finally {
+
+			Settings.UniqueConstraints.setValue(Settings.UniqueConstraints.getDefaultValue());
+		}
+	}
+
 	@Test
 	public void testStringPropertyNotNull() {
 
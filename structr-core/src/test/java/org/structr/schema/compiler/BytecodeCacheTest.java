@@ -0,0 +1,147 @@
+/**
+ * Copyright (C) 2010-2018 Structr GmbH
+ *
+ * This file is part of Structr <http://structr.org>.
+ *
+ * Structr is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * Structr is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Structr.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.structr.schema.compiler;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import org.apache.commons.io.FileUtils;
+import org.junit.After;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import org.junit.Before;
+import org.junit.Test;
+import org.structr.api.config.Settings;
+
+/**
+ *
+ *
+ */
+public class BytecodeCacheTest {
+
+	@Before
+	public void disableDiskCache() {
+		Settings.SchemaCacheEnabled.setValue(false);
+	}
+
+	@After
+	public void resetCacheSettings() {
+		Settings.SchemaCacheEnabled.setValue(Settings.SchemaCacheEnabled.getDefaultValue());
+	}
+
+	@Test
+	public void testDependencyChangeInvalidatesDependents() {
+
+		final BytecodeCache cache         = new BytecodeCache("fingerprint");
+		final Map<String, String> sources = getSources();
+		final Map<String, String> keys    = cache.getKeys(sources);
+
+		for (final String name : sources.keySet()) {
+			cache.put(name, keys.get(name), getClasses(name));
+		}
+
+		for (final String name : sources.keySet()) {
+			assertNotNull("Unchanged type must be served from the cache", cache.get(name, keys.get(name)));
+		}
+
+		sources.put("B", "public class B { public int value; }");
+
+		final Map<String, String> changedKeys = cache.getKeys(sources);
+
+		assertNull("Changed type must not be served from the cache",              cache.get("B", changedKeys.get("B")));
+		assertNull("Direct dependent of a changed type must be compiled again",   cache.get("A", changedKeys.get("A")));
+		assertNull("Indirect dependent of a changed type must be compiled again", cache.get("D", changedKeys.get("D")));
+
+		assertEquals("Unrelated type must keep its cache key",        keys.get("C"), changedKeys.get("C"));
+		assertNotNull("Unrelated type must be served from the cache", cache.get("C", changedKeys.get("C")));
+	}
+
+	@Test
+	public void testFingerprintChangeInvalidatesEverything() {
+
+		final BytecodeCache oldCache      = new BytecodeCache("a");
+		final BytecodeCache newCache      = new BytecodeCache("b");
+		final Map<String, String> sources = getSources();
+		final Map<String, String> oldKeys = oldCache.getKeys(sources);
+		final Map<String, String> newKeys = newCache.getKeys(sources);
+
+		for (final String name : sources.keySet()) {
+
+			assertNotEquals("Cache key must depend on the fingerprint", oldKeys.get(name), newKeys.get(name));
+
+			newCache.put(name, oldKeys.get(name), getClasses(name));
+
+			assertNull("Entries stored under an outdated fingerprint must not be used", newCache.get(name, newKeys.get(name)));
+		}
+	}
+
+	@Test
+	public void testFingerprint() throws IOException {
+
+		final File jar = File.createTempFile("structr-bytecode-cache", ".jar");
+
+		try {
+
+			FileUtils.writeStringToFile(jar, "1", "UTF-8");
+			jar.setLastModified(1000000000000L);
+
+			final String fingerprint = BytecodeCache.createFingerprint("1.8.0_151", jar.getAbsolutePath());
+
+			assertEquals("Fingerprint must be stable",                      fingerprint, BytecodeCache.createFingerprint("1.8.0_151", jar.getAbsolutePath()));
+			assertNotEquals("Fingerprint must change with the Java version", fingerprint, BytecodeCache.createFingerprint("1.8.0_152", jar.getAbsolutePath()));
+			assertNotEquals("Fingerprint must change with the class path",   fingerprint, BytecodeCache.createFingerprint("1.8.0_151", jar.getAbsolutePath() + File.pathSeparator + "lib"));
+
+			jar.setLastModified(1000000001000L);
+
+			final String touched = BytecodeCache.createFingerprint("1.8.0_151", jar.getAbsolutePath());
+
+			assertNotEquals("Fingerprint must change with the modification time of a class path entry", fingerprint, touched);
+
+			FileUtils.writeStringToFile(jar, "12", "UTF-8");
+			jar.setLastModified(1000000001000L);
+
+			assertNotEquals("Fingerprint must change with the size of a class path entry", touched, BytecodeCache.createFingerprint("1.8.0_151", jar.getAbsolutePath()));
+
+		} finally {
+
+			jar.delete();
+		}
+	}
+
+	// ----- private methods -----
+	private Map<String, String> getSources() {
+
+		final Map<String, String> sources = new LinkedHashMap<>();
+
+		sources.put("A", "public class A { private B b; }");
+		sources.put("B", "public class B { }");
+		sources.put("C", "public class C { }");
+		sources.put("D", "public class D extends A { }");
+
+		return sources;
+	}
+
+	private Map<String, byte[]> getClasses(final String name) {
+		return Collections.singletonMap("org.structr.dynamic." + name, new byte[] { 1, 2, 3 });
+	}
+}
@@ -18,11 +18,13 @@
  */
 package org.structr.api;
 
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import org.structr.api.graph.GraphProperties;
 import org.structr.api.graph.Node;
 import org.structr.api.graph.Relationship;
+import org.structr.api.graph.RelationshipType;
 import org.structr.api.index.Index;
 
 /**
@@ -46,9 +48,51 @@ public interface DatabaseService {
 
 	Node createNode(final Set<String> labels, final Map<String, Object> properties);
 
+	/**
+	 * Creates one node with the given labels for each of the given
+	 * property maps in a single statement.
+	 *
+	 * @param labels
+	 * @param properties
+	 * @return the new nodes, keyed by the index of their property map
+	 */
+	Map<Integer, Node> createNodes(final Set<String> labels, final List<Map<String, Object>> properties);
+
+	/**
+	 * Creates one relationship of the given type for each of the given
+	 * rows in a single statement. Each row must contain the database IDs
+	 * of the start and end node under the keys "start" and "end", and the
+	 * property map under the key "properties". Rows whose start or end
+	 * node does not exist are skipped.
+	 *
+	 * @param relationshipType
+	 * @param rows
+	 * @return the new relationships, keyed by the index of their row
+	 */
+	Map<Integer, Relationship> createRelationships(final RelationshipType relationshipType, final List<Map<String, Object>> rows);
+
 	Node getNodeById(final long id);
 	Relationship getRelationshipById(final long id);
 
+	/**
+	 * Looks up a relationship by its UUID in the database-side
+	 * relationship UUID index. Relationships that were created before
+	 * the index was enabled are only found after their UUID has been
+	 * written again, e.g. by the rebuildIndex maintenance command.
+	 *
+	 * @param uuid
+	 * @return the relationship, or null if it is not in the index
+	 */
+	Relationship getRelationshipByUuid(final String uuid);
+
+	/**
+	 * Indicates whether getRelationshipByUuid can be used, i.e. whether
+	 * the database maintains a relationship UUID index.
+	 *
+	 * @return whether the relationship UUID index is available
+	 */
+	boolean hasRelationshipUuidIndex();
+
 	QueryResult<Node> getAllNodes();
 	QueryResult<Node> getNodesByLabel(final String label);
 	QueryResult<Node> getNodesByTypeProperty(final String type);
@@ -60,6 +104,23 @@ public interface DatabaseService {
 
 	String getTenantIdentifier();
 
+	/**
+	 * Returns driver-specific runtime statistics, e.g. the size and the
+	 * hit rate of the query result cache.
+	 *
+	 * @return the statistics
+	 */
+	Map<String, Object> getStatistics();
+
+	/**
+	 * Invalidates all cached query results that depend on one of the
+	 * given type labels, or all cached query results if labels is null.
+	 * Must be called after the modifications have been committed.
+	 *
+	 * @param labels the modified type labels, or null
+	 */
+	void invalidateQueryCache(final Set<String> labels);
+
 	// ----- index -----
 	Index<Node> nodeIndex();
 	Index<Relationship> relationshipIndex();
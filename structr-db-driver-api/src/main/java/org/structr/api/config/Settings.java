@@ -64,6 +64,10 @@ public class Settings {
 	public static final Setting<String> SnapshotsPath         = new StringSetting(generalGroup,   "Paths",       "snapshot.path",              "snapshots" + File.separator, "IMPORTANT: Path is relative to base.path");
 	public static final Setting<String> LayoutsPath           = new StringSetting(generalGroup,   "Paths",       "layouts.path",               "layouts" + File.separator, "IMPORTANT: Path is relative to base.path");
 	public static final Setting<String> WebDataPath           = new StringSetting(generalGroup,   "Paths",       "data.webapp.path",           "webapp-data" + File.separator, "IMPORTANT: Path is relative to base.path");
+	public static final Setting<String> SchemaCachePath       = new StringSetting(generalGroup,   "Paths",       "schema.cache.path",          "schema-cache" + File.separator, "IMPORTANT: Path is relative to base.path");
+	public static final Setting<String> ChangelogPath         = new StringSetting(generalGroup,   "Paths",       "changelog.path",             "changelog" + File.separator, "IMPORTANT: Path is relative to base.path");
+	public static final Setting<String> JobQueuePath          = new StringSetting(generalGroup,   "Paths",       "jobqueue.path",              "jobqueue" + File.separator, "IMPORTANT: Path is relative to base.path");
+	public static final Setting<String> FulltextIndexPath     = new StringSetting(generalGroup,   "Paths",       "fulltext.path",              "fulltext" + File.separator, "IMPORTANT: Path is relative to base.path");
 	public static final Setting<Boolean> LogSchemaOutput      = new BooleanSetting(generalGroup,  "Logging",     "NodeExtender.log",           false);
 	public static final Setting<Boolean> RequestLogging       = new BooleanSetting(generalGroup,  "Logging",     "log.requests",               false);
 	public static final Setting<String> LogPrefix             = new StringSetting(generalGroup,   "Logging",     "log.prefix",                 "structr");
@@ -116,13 +120,28 @@ public class Settings {
 	public static final Setting<Integer> NodeCacheSize         = new IntegerSetting(databaseGroup, "Caching",             "database.cache.node.size",         100000);
 	public static final Setting<Integer> UuidCacheSize         = new IntegerSetting(databaseGroup, "Caching",             "database.cache.uuid.size",         100000);
 	public static final Setting<Integer> QueryCacheSize        = new IntegerSetting(databaseGroup, "Caching",             "database.cache.query.size",        1000);
+	public static final Setting<Integer> QueryCacheMaxResults  = new IntegerSetting(databaseGroup, "Caching",             "database.cache.query.maxresults",  1000);
+	public static final Setting<String> QueryCacheTypes        = new StringSetting(databaseGroup,  "Caching",             "database.cache.query.types",       "", "Comma-separated list of types whose query results are cached, or * for all types");
+	public static final Setting<Integer> PermissionCacheSize   = new IntegerSetting(databaseGroup, "Caching",             "database.cache.permission.size",   100000);
+	public static final Setting<Boolean> WriteBatchingEnabled  = new BooleanSetting(databaseGroup, "Performance",         "database.write.batching.enabled",  true);
+	public static final Setting<Integer> WriteBatchSize        = new IntegerSetting(databaseGroup, "Performance",         "database.write.batching.size",     1000);
 	public static final Setting<Boolean> CypherDebugLogging    = new BooleanSetting(databaseGroup, "Debugging",           "log.cypher.debug",                 false);
 	public static final Setting<Boolean> SyncDebugging         = new BooleanSetting(databaseGroup, "Sync debugging",      "sync.debug",                       false);
 
 	// application settings
 	public static final Setting<Integer> ResolutionDepth      = new IntegerSetting(applicationGroup, "Security",   "application.security.resolution.depth",       5);
 	public static final Setting<String> OwnerlessNodes        = new StringSetting(applicationGroup,  "Security",   "application.security.ownerless.nodes",        "read");
+	public static final Setting<Boolean> AccessControlQueries = new BooleanSetting(applicationGroup, "Security",   "application.security.query.pushdown",         false);
 	public static final Setting<Boolean> ChangelogEnabled     = new BooleanSetting(applicationGroup, "Changelog",  "application.changelog.enabled",               false);
+	public static final Setting<Integer> ChangelogSegmentSize = new IntegerSetting(applicationGroup, "Changelog",  "application.changelog.segment.size",          64);
+	public static final Setting<Integer> ChangelogRetention   = new IntegerSetting(applicationGroup, "Changelog",  "application.changelog.retention.days",        0);
+	public static final Setting<String> AgentConcurrency     = new StringSetting(applicationGroup,  "Agents",     "application.agents.concurrency",              "", "Comma-separated list of task types and the maximum number of agents that process tasks of that type at the same time, e.g. FulltextIndexingTask:4");
+	public static final Setting<Integer> AgentQueueSize       = new IntegerSetting(applicationGroup, "Agents",     "application.agents.queue.size",               10000);
+	public static final Setting<Integer> AgentMaxRetries      = new IntegerSetting(applicationGroup, "Agents",     "application.agents.retries",                  2);
+	public static final Setting<Integer> AgentRetryDelay      = new IntegerSetting(applicationGroup, "Agents",     "application.agents.retry.delay",              1000);
+	public static final Setting<Integer> AgentIdleTimeout     = new IntegerSetting(applicationGroup, "Agents",     "application.agents.idle.timeout",             30);
+	public static final Setting<Integer> JobQueueWorkers      = new IntegerSetting(applicationGroup, "Job Queue",  "application.jobqueue.workers",                4);
+	public static final Setting<String> JobQueueTypeLimits   = new StringSetting(applicationGroup,  "Job Queue",  "application.jobqueue.type.limits",            "", "Comma-separated list of job types and the maximum number of jobs of that type that run at the same time, e.g. CSV:1, XML:1");
 	public static final Setting<Boolean> FilesystemEnabled    = new BooleanSetting(applicationGroup, "Filesystem", "application.filesystem.enabled",              false);
 	public static final Setting<Boolean> UniquePaths          = new BooleanSetting(applicationGroup, "Filesystem", "application.filesystem.unique.paths",         true);
 	public static final Setting<String> DefaultChecksums      = new StringSetting(applicationGroup,  "Filesystem", "application.filesystem.checksums.default",    "", "List of checksums to be calculated on file creation by default.");
@@ -132,10 +151,14 @@ public class Settings {
 	public static final Setting<Integer> IndexingMaxLength    = new IntegerSetting(applicationGroup, "Filesystem", "application.filesystem.indexing.maxlength",   30);
 	public static final Setting<Boolean> FollowSymlinks       = new BooleanSetting(applicationGroup, "Filesystem", "application.filesystem.mount.followSymlinks", true);
 	public static final Setting<String> DefaultUploadFolder   = new StringSetting(applicationGroup,  "Filesystem", "application.uploads.folder",                  "");
+	public static final Setting<Boolean> ThumbnailsAsync      = new BooleanSetting(applicationGroup, "Filesystem", "application.filesystem.thumbnails.async",     true);
+	public static final Setting<Integer> ThumbnailConcurrency = new IntegerSetting(applicationGroup, "Filesystem", "application.filesystem.thumbnails.threads",   2);
 	public static final Setting<String> HttpProxyUrl          = new StringSetting(applicationGroup,  "Proxy",      "application.proxy.http.url",                  "");
 	public static final Setting<String> HttpProxyUser         = new StringSetting(applicationGroup,  "Proxy",      "application.proxy.http.username",             "");
 	public static final Setting<String> HttpProxyPassword     = new StringSetting(applicationGroup,  "Proxy",      "application.proxy.http.password",             "");
 	public static final Setting<Boolean> SchemAutoMigration   = new BooleanSetting(applicationGroup, "Schema",     "application.schema.automigration",            false);
+	public static final Setting<Boolean> UniqueConstraints    = new BooleanSetting(applicationGroup, "Schema",     "application.schema.uniqueconstraints",        false);
+	public static final Setting<Boolean> SchemaCacheEnabled   = new BooleanSetting(applicationGroup, "Schema",     "application.schema.cache.enabled",            true);
 
 	// mail settings
 	public static final Setting<String> SmtpHost              = new StringSetting(smtpGroup,  "SMTP Settings", "smtp.host",         "localhost");
@@ -496,6 +519,41 @@ public class Settings {
 
 	}
 
+	/**
+	 * Parses a comma-separated list of "name:limit" pairs, entries
+	 * without a valid positive limit are ignored.
+	 *
+	 * @param limitsSetting the setting that contains the list
+	 * @return a map of names to limits
+	 */
+	public static Map<String, Integer> getLimits(final Setting<String> limitsSetting) {
+
+		final Map<String, Integer> limits = new LinkedHashMap<>();
+		final String value                = limitsSetting.getValue();
+
+		if (StringUtils.isNotBlank(value)) {
+
+			for (final String part : value.split("[,\\s]+")) {
+
+				final String[] nameAndLimit = part.split(":");
+				if (nameAndLimit.length == 2) {
+
+					try {
+
+						final int limit = Integer.parseInt(nameAndLimit[1].trim());
+						if (limit > 0) {
+
+							limits.put(nameAndLimit[0].trim(), limit);
+						}
+
+					} catch (NumberFormatException ignore) {}
+				}
+			}
+		}
+
+		return limits;
+	}
+
 	private static String checkPath(final String path) {
 
 		if (path.endsWith("/")) {
@@ -32,4 +32,31 @@ public interface Index<T> {
 	void remove(final T t, final String key);
 
 	QueryResult<T> query(final QueryPredicate predicate);
+
+	/**
+	 * Returns the results of the given query, starting at the given
+	 * offset. The offset is applied by the database, so the skipped
+	 * entities are never read. Results are fetched in batches of the
+	 * given size, use the number of results that will be read.
+	 *
+	 * @param predicate the query
+	 * @param offset the number of results to skip
+	 * @param pageSize the number of results to fetch at once, or 0 for the default
+	 * @return the query result
+	 */
+	QueryResult<T> query(final QueryPredicate predicate, final int offset, final int pageSize);
+
+	/**
+	 * Returns the number of results of the given query, or -1 if the
+	 * number cannot be determined by the database. If the number exceeds
+	 * the given limit, the limit is returned and the exact number is
+	 * determined in the background, to be returned by subsequent calls
+	 * for the same query as long as the queried types, and for access
+	 * control queries the grants, are not modified.
+	 *
+	 * @param predicate the query
+	 * @param limit the maximum number of results to count synchronously
+	 * @return the number of results, or the limit if the exact number is not known yet
+	 */
+	long count(final QueryPredicate predicate, final int limit);
 }
@@ -0,0 +1,34 @@
+/**
+ * Copyright (C) 2010-2018 Structr GmbH
+ *
+ * This file is part of Structr <http://structr.org>.
+ *
+ * Structr is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * Structr is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Structr.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.structr.api.search;
+
+import java.util.Set;
+
+/**
+ * A predicate that restricts the result to nodes that are connected to
+ * the nodes with the given UUIDs by a relationship of the given type. An
+ * empty set of UUIDs matches nodes without such a relationship.
+ */
+public interface GraphQuery extends QueryPredicate {
+
+	String getRelationshipType();
+	String getOtherLabel();
+	boolean isOutgoing();
+	Set<String> getValues();
+}
@@ -18,8 +18,9 @@
  */
 package org.structr.api.util;
 
-import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
 import org.apache.commons.collections4.map.LRUMap;
 
 /**
@@ -28,45 +29,162 @@ import org.apache.commons.collections4.map.LRUMap;
  * a new entry causes the map to exceed the specified maximum
  * size.
  *
+ * Large caches are split into independently locked segments,
+ * selected by key hash, so that concurrent lookups of different
+ * keys do not contend on a single monitor. The least recently
+ * used entry is evicted per segment.
+ *
  * @param <K>
  * @param <V>
  */
 public class FixedSizeCache<K, V> {
 
-	private Map<K, V> cache  = null;
+	private static final int MIN_SEGMENT_SIZE = 1000;
+	private static final int MAX_SEGMENTS     = 64;
+
+	private final LongAdder evictions              = new LongAdder();
+	private final LongAdder misses                 = new LongAdder();
+	private final LongAdder hits                   = new LongAdder();
+	private InvalidatingLRUMap<K, V>[] segments    = null;
+	private int maxSize                            = 0;
+	private int mask                               = 0;
 
+	@SuppressWarnings("unchecked")
 	public FixedSizeCache(final int maxSize) {
-		this.cache   = Collections.synchronizedMap(new InvalidatingLRUMap<>(maxSize));
+
+		final int count = getSegmentCount(maxSize);
+
+		this.maxSize  = maxSize;
+		this.mask     = count - 1;
+		this.segments = new InvalidatingLRUMap[count];
+
+		for (int i=0; i<count; i++) {
+			segments[i] = new InvalidatingLRUMap<>(Math.max(1, maxSize / count), evictions);
+		}
+	}
+
+	public void put(final K key, final V value) {
+
+		final InvalidatingLRUMap<K, V> segment = segmentFor(key);
+
+		synchronized (segment) {
+			segment.put(key, value);
+		}
+	}
+
+	public V get(final K key) {
+
+		final InvalidatingLRUMap<K, V> segment = segmentFor(key);
+		final V value;
+
+		synchronized (segment) {
+			value = segment.get(key);
+		}
+
+		if (value != null) {
+
+			hits.increment();
+
+		} else {
+
+			misses.increment();
+		}
+
+		return value;
+	}
+
+	public void remove(final K key) {
+
+		final InvalidatingLRUMap<K, V> segment = segmentFor(key);
+
+		synchronized (segment) {
+			segment.remove(key);
+		}
 	}
 
-	public synchronized void put(final K key, final V value) {
-		cache.put(key, value);
+	public void clear() {
+
+		for (final InvalidatingLRUMap<K, V> segment : segments) {
+
+			synchronized (segment) {
+				segment.clear();
+			}
+		}
 	}
 
-	public synchronized V get(final K key) {
-		return cache.get(key);
+	public int size() {
+
+		int size = 0;
+
+		for (final InvalidatingLRUMap<K, V> segment : segments) {
+
+			synchronized (segment) {
+				size += segment.size();
+			}
+		}
+
+		return size;
 	}
 
-	public synchronized void remove(final K key) {
-		cache.remove(key);
+	public boolean isEmpty() {
+		return size() == 0;
 	}
 
-	public synchronized void clear() {
-		cache.clear();
+	/**
+	 * Returns the size, maximum size, number of segments and the
+	 * number of hits, misses and evictions since creation.
+	 *
+	 * @return cache statistics
+	 */
+	public Map<String, Object> getStatistics() {
+
+		final Map<String, Object> statistics = new LinkedHashMap<>();
+
+		statistics.put("size",      size());
+		statistics.put("maxSize",   maxSize);
+		statistics.put("segments",  segments.length);
+		statistics.put("hits",      hits.sum());
+		statistics.put("misses",    misses.sum());
+		statistics.put("evictions", evictions.sum());
+
+		return statistics;
 	}
 
-	public synchronized int size() {
-		return cache.size();
+	// ----- private methods -----
+	private InvalidatingLRUMap<K, V> segmentFor(final K key) {
+
+		if (mask == 0 || key == null) {
+			return segments[0];
+		}
+
+		final int hash = key.hashCode();
+
+		return segments[(hash ^ (hash >>> 16)) & mask];
 	}
 
-	public synchronized boolean isEmpty() {
-		return cache.isEmpty();
+	private static int getSegmentCount(final int maxSize) {
+
+		final int limit = Math.min(MAX_SEGMENTS, Runtime.getRuntime().availableProcessors() * 2);
+		int count       = 1;
+
+		// small caches are not split so that they keep exact LRU semantics
+		while (count * 2 <= limit && (maxSize / (count * 2)) >= MIN_SEGMENT_SIZE) {
+			count *= 2;
+		}
+
+		return count;
 	}
 
+	// ----- nested classes -----
 	private static class InvalidatingLRUMap<K, V> extends LRUMap<K, V> {
 
-		public InvalidatingLRUMap(final int maxSize) {
+		private LongAdder evictions = null;
+
+		public InvalidatingLRUMap(final int maxSize, final LongAdder evictions) {
+
 			super(maxSize, true);
+
+			this.evictions = evictions;
 		}
 
 		@Override
@@ -78,6 +196,8 @@ public class FixedSizeCache<K, V> {
 				((Cachable)value).onRemoveFromCache();
 			}
 
+			evictions.increment();
+
 			return true;
 		}
 	}
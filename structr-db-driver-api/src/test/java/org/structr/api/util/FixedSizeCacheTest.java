@@ -18,6 +18,9 @@
  */
 package org.structr.api.util;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
 import org.junit.Assert;
 
 /**
@@ -56,4 +59,50 @@ public class FixedSizeCacheTest {
 		}
 
 	}
+
+	@org.junit.Test
+	public void testConcurrentAccess() throws InterruptedException {
+
+		final FixedSizeCache<Long, Long> test = new FixedSizeCache<>(100000);
+		final List<Thread> threads            = new ArrayList<>();
+		final List<Throwable> errors          = new ArrayList<>();
+
+		for (int t=0; t<8; t++) {
+
+			final int offset = t;
+			final Thread thread = new Thread(() -> {
+
+				try {
+
+					for (int i=0; i<50000; i++) {
+
+						final Long value = Long.valueOf(offset * 50000 + i);
+						test.put(value, value);
+						test.get(value);
+					}
+
+				} catch (Throwable tex) {
+
+					synchronized (errors) {
+						errors.add(tex);
+					}
+				}
+			});
+
+			threads.add(thread);
+			thread.start();
+		}
+
+		for (final Thread thread : threads) {
+			thread.join();
+		}
+
+		Assert.assertTrue("Concurrent FixedSizeCache access failed: " + errors, errors.isEmpty());
+		Assert.assertTrue("Invalid FixedSizeCache size", test.size() <= 100000);
+
+		final Map<String, Object> statistics = test.getStatistics();
+
+		Assert.assertEquals("Invalid FixedSizeCache statistics", 400000L, (Long)statistics.get("hits") + (Long)statistics.get("misses"));
+		Assert.assertEquals("Invalid FixedSizeCache statistics", 400000L - test.size(), statistics.get("evictions"));
+	}
 }
@@ -18,27 +18,38 @@
  */
 package org.structr.text;
 
+import java.util.Collection;
 import java.util.LinkedHashSet;
 import java.util.Set;
 import org.apache.commons.lang3.StringUtils;
 import org.structr.api.service.LicenseManager;
 import org.structr.common.error.FrameworkException;
 import org.structr.common.fulltext.FulltextIndexer;
+import org.structr.common.fulltext.FulltextSearchResult;
 import org.structr.common.fulltext.Indexable;
 import org.structr.core.GraphObjectMap;
+import org.structr.core.Services;
 import org.structr.core.app.StructrApp;
 import org.structr.core.entity.AbstractSchemaNode;
 import org.structr.core.property.GenericProperty;
 import org.structr.module.StructrModule;
 import org.structr.schema.action.Actions;
+import org.structr.text.index.FulltextIndex;
+import org.structr.text.index.FulltextQuery;
+import org.structr.text.index.Highlighter;
 
 /**
  *
  */
 public class FulltextIndexerModule implements FulltextIndexer, StructrModule {
 
+	private static final int maxHighlights = 10;
+
 	@Override
 	public void onLoad(final LicenseManager licenseManager) {
+
+		// write buffered documents to disk before the services are stopped
+		Services.getInstance().registerShutdownCallback(FulltextIndex::closeInstance);
 	}
 
 	@Override
@@ -185,11 +196,22 @@ public class FulltextIndexerModule implements FulltextIndexer, StructrModule {
 		}
 
 		contextObject.put(contextKey, contextValues);
+		contextObject.put(new GenericProperty("highlights"), Highlighter.highlight(FulltextQuery.parse(searchTerm), text, contextLength, maxHighlights));
 
 		return contextObject;
 
 	}
 
+	@Override
+	public FulltextSearchResult search(final String searchTerm, final int offset, final int maxResults) {
+		return FulltextIndex.getInstance().search(FulltextQuery.parse(searchTerm), offset, maxResults);
+	}
+
+	@Override
+	public void removeFromFulltextIndex(final Collection<String> uuids) {
+		FulltextIndex.getInstance().remove(uuids);
+	}
+
 	// ----- interface StructrModule -----
 	@Override
 	public String getName() {
@@ -28,6 +28,7 @@ import java.util.Collections;
 import java.util.Iterator;
 import java.util.LinkedHashMap;
 import java.util.LinkedHashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
@@ -57,6 +58,7 @@ import org.structr.core.app.StructrApp;
 import org.structr.core.entity.Person;
 import org.structr.core.entity.Principal;
 import org.structr.core.graph.Tx;
+import org.structr.text.index.FulltextIndex;
 import org.structr.web.entity.File;
 
 /**
@@ -215,11 +217,16 @@ public class FulltextIndexingAgent extends Agent<String> {
 							final Set<String> stopWords             = languageStopwordMap.get(tokenizer.getLanguage());
 							final Iterator<String> wordIterator     = tokenizer.getWords().iterator();
 							final Map<String, Integer> indexedWords = new LinkedHashMap<>();
+							final List<String> terms                = new ArrayList<>();
 
 							while (wordIterator.hasNext()) {
 
 								// strip double quotes
 								final String word = StringUtils.strip(wordIterator.next(), "\"");
+
+								// the inverted index contains stop words as well, so that phrases match
+								terms.add(word);
+
 								if (!stopWords.contains(word)) {
 
 									add(indexedWords, word);
@@ -237,6 +244,8 @@ public class FulltextIndexingAgent extends Agent<String> {
 
 								logger.warn("Unable to store fulltext indexing result for {}: {}", fileName, t.getMessage());
 							}
+
+							FulltextIndex.getInstance().add(indexable.getUuid(), terms);
 						}
 					}
 				}
@@ -0,0 +1,1130 @@
+/**
+ * Copyright (C) 2010-2018 Structr GmbH
+ *
+ * This file is part of Structr <http://structr.org>.
+ *
+ * Structr is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * Structr is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Structr.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.structr.text.index;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.structr.api.config.Settings;
+import org.structr.common.fulltext.FulltextSearchResult;
+import org.structr.text.index.FulltextQuery.Clause;
+import org.structr.text.index.IndexSegment.Postings;
+
+/**
+ * Embedded inverted index for the fulltext search.
+ *
+ * Added documents are buffered in memory and written to a new segment
+ * shortly afterwards, or as soon as the buffer is full. Removing a document
+ * marks it as deleted in the segment that contains it. Segments of similar
+ * size are merged in the background, which also drops deleted documents,
+ * so that the number of segments only grows logarithmically with the
+ * number of documents.
+ *
+ * Queries are ranked with BM25, using the statistics of all segments.
+ */
+public class FulltextIndex {
+
+	private static final Logger logger                   = LoggerFactory.getLogger(FulltextIndex.class.getName());
+	static final String TMP_SUFFIX                       = ".tmp";
+	private static final String SEGMENT_SUFFIX           = ".seg";
+	private static final String DELETIONS_SUFFIX         = ".del";
+	private static final int MAX_BUFFERED_DOCUMENTS      = 1000;
+	private static final int MAX_PREFIX_TERMS            = 64;
+	private static final int MERGE_FACTOR                = 10;
+	private static final double MAX_DELETED_RATIO        = 0.3;
+	private static final long FLUSH_DELAY                = 1000L;
+	private static final double K1                       = 1.2;
+	private static final double B                        = 0.75;
+	private static final ScheduledExecutorService maintenance = Executors.newSingleThreadScheduledExecutor(r -> {
+
+		final Thread thread = new Thread(r, "FulltextIndexMaintenance");
+		thread.setDaemon(true);
+
+		return thread;
+	});
+
+	private static FulltextIndex instance = null;
+
+	private final ReentrantReadWriteLock lock             = new ReentrantReadWriteLock();
+	private final TreeMap<Integer, IndexSegment> segments = new TreeMap<>();
+	private final Map<String, Long> documents             = new HashMap<>();
+	private final Map<String, List<String>> buffer        = new LinkedHashMap<>();
+	private final AtomicBoolean flushScheduled            = new AtomicBoolean(false);
+	private final AtomicBoolean mergeScheduled            = new AtomicBoolean(false);
+	private File directory                                = null;
+	private int nextSegmentId                             = 1;
+	private boolean closed                                = false;
+
+	/**
+	 * Opens the index in the given directory.
+	 *
+	 * @param directory the directory that contains the segment files
+	 */
+	public FulltextIndex(final File directory) {
+
+		this.directory = directory;
+
+		open();
+	}
+
+	/**
+	 * @return the index in the configured fulltext index directory
+	 */
+	public static synchronized FulltextIndex getInstance() {
+
+		final File directory = new File(Settings.getFullSettingPath(Settings.FulltextIndexPath));
+
+		if (instance == null || !instance.directory.equals(directory)) {
+
+			if (instance != null) {
+				instance.close();
+			}
+
+			instance = new FulltextIndex(directory);
+		}
+
+		return instance;
+	}
+
+	/**
+	 * Writes all pending changes of the current index to disk and closes
+	 * it.
+	 */
+	public static synchronized void closeInstance() {
+
+		if (instance != null) {
+
+			instance.close();
+			instance = null;
+		}
+	}
+
+	/**
+	 * Adds a document to the index, or replaces the existing document
+	 * with the same UUID. The position of each term is its index in the
+	 * given list.
+	 *
+	 * @param uuid the UUID of the document
+	 * @param terms the analyzed terms of the document
+	 */
+	public void add(final String uuid, final List<String> terms) {
+
+		boolean flush = false;
+
+		lock.writeLock().lock();
+		try {
+
+			if (closed) {
+				return;
+			}
+
+			removeFromSegments(uuid);
+
+			buffer.put(uuid, new ArrayList<>(terms));
+
+			flush = buffer.size() >= MAX_BUFFERED_DOCUMENTS;
+
+		} finally {
+
+			lock.writeLock().unlock();
+		}
+
+		if (flush) {
+
+			flush();
+
+		} else {
+
+			scheduleFlush();
+		}
+	}
+
+	/**
+	 * Removes the documents with the given UUIDs from the index.
+	 *
+	 * @param uuids
+	 */
+	public void remove(final Collection<String> uuids) {
+
+		boolean modified = false;
+
+		lock.writeLock().lock();
+		try {
+
+			if (closed) {
+				return;
+			}
+
+			for (final String uuid : uuids) {
+
+				modified |= buffer.remove(uuid) != null;
+				modified |= removeFromSegments(uuid);
+			}
+
+		} finally {
+
+			lock.writeLock().unlock();
+		}
+
+		if (modified) {
+			scheduleFlush();
+		}
+	}
+
+	/**
+	 * Returns the UUIDs of the documents that match the given query,
+	 * ordered by descending BM25 score. Documents that were added before
+	 * are always included, even if they were not written to a segment yet.
+	 *
+	 * @param query the query
+	 * @param maxResults the maximum number of results
+	 * @return a map of UUIDs to scores
+	 */
+	public Map<String, Double> search(final FulltextQuery query, final int maxResults) {
+		return search(query, 0, maxResults).getHits();
+	}
+
+	/**
+	 * Returns a window of the UUIDs of the documents that match the given
+	 * query, ordered by descending BM25 score, and the total number of
+	 * matching documents.
+	 *
+	 * @param query the query
+	 * @param offset the number of top-ranked documents to skip
+	 * @param maxResults the maximum number of results
+	 * @return the hits and the total number of hits
+	 */
+	public FulltextSearchResult search(final FulltextQuery query, final int offset, final int maxResults) {
+
+		final Map<String, Double> result = new LinkedHashMap<>();
+		boolean hasPendingDocuments      = false;
+		int totalCount                   = 0;
+
+		lock.readLock().lock();
+		try {
+
+			hasPendingDocuments = !buffer.isEmpty();
+
+		} finally {
+
+			lock.readLock().unlock();
+		}
+
+		if (hasPendingDocuments) {
+			flush();
+		}
+
+		lock.readLock().lock();
+		try {
+
+			if (closed || query.isEmpty() || maxResults <= 0) {
+				return new FulltextSearchResult(result, 0);
+			}
+
+			final Map<Long, Double> scores    = new HashMap<>();
+			final Map<Long, Integer> required = new HashMap<>();
+			final Set<Long> forbidden         = new HashSet<>();
+			final Statistics statistics       = new Statistics();
+			int requiredCount                 = 0;
+
+			for (final Clause clause : query.getClauses()) {
+
+				final Map<Long, Double> matches = evaluate(clause, statistics);
+
+				switch (clause.getOccurrence()) {
+
+					case FORBIDDEN:
+						forbidden.addAll(matches.keySet());
+						break;
+
+					case REQUIRED:
+						requiredCount++;
+						matches.keySet().forEach(key -> required.merge(key, 1, Integer::sum));
+						matches.forEach((key, score) -> scores.merge(key, score, Double::sum));
+						break;
+
+					default:
+						matches.forEach((key, score) -> scores.merge(key, score, Double::sum));
+						break;
+				}
+			}
+
+			// lower scores first, documents that were added earlier win ties
+			final Comparator<Entry<Long, Double>> comparator = (o1, o2) -> {
+
+				final int score = Double.compare(o1.getValue(), o2.getValue());
+
+				return score != 0 ? score : Long.compare(o2.getKey(), o1.getKey());
+			};
+
+			final PriorityQueue<Entry<Long, Double>> top = new PriorityQueue<>(comparator);
+			final long limit                             = Math.max(0, offset) + (long)maxResults;
+
+			for (final Entry<Long, Double> entry : scores.entrySet()) {
+
+				final Long key = entry.getKey();
+
+				if (forbidden.contains(key) || required.getOrDefault(key, 0) < requiredCount) {
+					continue;
+				}
+
+				top.add(entry);
+				totalCount++;
+
+				if (top.size() > limit) {
+					top.poll();
+				}
+			}
+
+			final List<Entry<Long, Double>> sorted = new ArrayList<>(top);
+
+			Collections.sort(sorted, comparator.reversed());
+
+			for (final Entry<Long, Double> entry : sorted.subList(Math.min(Math.max(0, offset), sorted.size()), sorted.size())) {
+
+				final long key = entry.getKey();
+
+				result.put(segments.get(segment(key)).getUuid(document(key)), entry.getValue());
+			}
+
+		} catch (IOException ioex) {
+
+			logger.warn("Unable to read fulltext index in {}: {}", directory.getAbsolutePath(), ioex.getMessage());
+
+		} finally {
+
+			lock.readLock().unlock();
+		}
+
+		return new FulltextSearchResult(result, totalCount);
+	}
+
+	/**
+	 * Writes the buffered documents to a new segment, and the deleted
+	 * documents to the deletion files of their segments.
+	 */
+	public void flush() {
+
+		boolean merge = false;
+
+		lock.writeLock().lock();
+		try {
+
+			if (closed) {
+				return;
+			}
+
+			if (!buffer.isEmpty()) {
+				writeBuffer();
+			}
+
+			for (final IndexSegment segment : segments.values()) {
+				segment.writeDeletions();
+			}
+
+			merge = !selectMerge().isEmpty();
+
+		} catch (IOException ioex) {
+
+			logger.warn("Unable to write fulltext index to {}: {}", directory.getAbsolutePath(), ioex.getMessage());
+
+		} finally {
+
+			lock.writeLock().unlock();
+		}
+
+		if (merge) {
+			scheduleMerge();
+		}
+	}
+
+	/**
+	 * Merges segments until the merge policy is satisfied. Segments with
+	 * many deleted documents are rewritten, and segments of the same size
+	 * level are merged as soon as there are enough of them. Only one merge
+	 * can run at a time, otherwise segments could be merged twice.
+	 */
+	public synchronized void maintain() {
+
+		while (merge()) {}
+	}
+
+	public void close() {
+
+		flush();
+
+		lock.writeLock().lock();
+		try {
+
+			for (final IndexSegment segment : segments.values()) {
+				segment.close();
+			}
+
+			segments.clear();
+			documents.clear();
+			buffer.clear();
+
+			closed = true;
+
+		} finally {
+
+			lock.writeLock().unlock();
+		}
+	}
+
+	/**
+	 * @return the number of documents in the index
+	 */
+	public int getDocumentCount() {
+
+		lock.readLock().lock();
+		try {
+
+			return documents.size() + buffer.size();
+
+		} finally {
+
+			lock.readLock().unlock();
+		}
+	}
+
+	/**
+	 * @return the number of segments of the index
+	 */
+	public int getSegmentCount() {
+
+		lock.readLock().lock();
+		try {
+
+			return segments.size();
+
+		} finally {
+
+			lock.readLock().unlock();
+		}
+	}
+
+	// ----- private methods -----
+	private void open() {
+
+		lock.writeLock().lock();
+		try {
+
+			directory.mkdirs();
+
+			final TreeMap<Integer, File> segmentFiles = new TreeMap<>();
+			final List<File> deletionFiles            = new ArrayList<>();
+			final File[] files                        = directory.listFiles();
+
+			if (files != null) {
+
+				for (final File file : files) {
+
+					final String name = file.getName();
+
+					if (name.endsWith(TMP_SUFFIX)) {
+
+						// leftover of an interrupted flush or merge
+						Files.deleteIfExists(file.toPath());
+
+					} else if (name.endsWith(SEGMENT_SUFFIX)) {
+
+						segmentFiles.put(Integer.parseInt(name.substring(0, name.length() - SEGMENT_SUFFIX.length())), file);
+
+					} else if (name.endsWith(DELETIONS_SUFFIX)) {
+
+						deletionFiles.add(file);
+					}
+				}
+			}
+
+			for (final Entry<Integer, File> entry : segmentFiles.entrySet()) {
+
+				final int id = entry.getKey();
+
+				nextSegmentId = Math.max(nextSegmentId, id + 1);
+
+				try {
+
+					segments.put(id, new IndexSegment(id, entry.getValue(), deletionsFile(id)));
+
+				} catch (IOException ioex) {
+
+					logger.warn("Ignoring fulltext index segment {}: {}", entry.getValue().getAbsolutePath(), ioex.getMessage());
+				}
+			}
+
+			// deletion files of merged segments
+			for (final File file : deletionFiles) {
+
+				final String name = file.getName();
+
+				if (!segmentFiles.containsKey(Integer.parseInt(name.substring(0, name.length() - DELETIONS_SUFFIX.length())))) {
+					Files.deleteIfExists(file.toPath());
+				}
+			}
+
+			// a document can be contained in more than one segment if the
+			// deletion of the old version was not written, the newest wins
+			for (final IndexSegment segment : segments.values()) {
+
+				final int count = segment.getDocumentCount();
+
+				for (int doc=0; doc<count; doc++) {
+
+					if (!segment.isDeleted(doc)) {
+
+						final Long previous = documents.put(segment.getUuid(doc), key(segment.getId(), doc));
+						if (previous != null) {
+
+							segments.get(segment(previous)).delete(document(previous));
+						}
+					}
+				}
+			}
+
+		} catch (IOException | NumberFormatException ex) {
+
+			logger.warn("Unable to open fulltext index in {}: {}", directory.getAbsolutePath(), ex.getMessage());
+			closed = true;
+
+		} finally {
+
+			lock.writeLock().unlock();
+		}
+
+		scheduleFlush();
+	}
+
+	private boolean removeFromSegments(final String uuid) {
+
+		final Long key = documents.remove(uuid);
+		if (key != null) {
+
+			final IndexSegment segment = segments.get(segment(key));
+			if (segment != null) {
+
+				segment.delete(document(key));
+			}
+
+			return true;
+		}
+
+		return false;
+	}
+
+	/**
+	 * Inverts the buffered documents and writes them to a new segment.
+	 * Must be called with the write lock held.
+	 */
+	private void writeBuffer() throws IOException {
+
+		final TreeMap<String, List<PostingBuffer>> postings = new TreeMap<>();
+		final int id                                        = nextSegmentId++;
+		final File file                                     = segmentFile(id);
+		final File tmp                                      = new File(directory, file.getName() + TMP_SUFFIX);
+
+		try (final IndexSegment.Writer writer = new IndexSegment.Writer(tmp)) {
+
+			for (final Entry<String, List<String>> entry : buffer.entrySet()) {
+
+				final List<String> terms = entry.getValue();
+				final int doc            = writer.addDocument(entry.getKey(), terms.size());
+				final int count          = terms.size();
+
+				for (int position=0; position<count; position++) {
+
+					final String term = terms.get(position);
+					if (term != null && !term.isEmpty()) {
+
+						final List<PostingBuffer> list = postings.computeIfAbsent(term, k -> new ArrayList<>());
+						PostingBuffer posting          = list.isEmpty() ? null : list.get(list.size() - 1);
+
+						if (posting == null || posting.doc != doc) {
+
+							posting = new PostingBuffer(doc);
+							list.add(posting);
+						}
+
+						posting.add(position);
+					}
+				}
+			}
+
+			for (final Entry<String, List<PostingBuffer>> entry : postings.entrySet()) {
+
+				writer.startTerm(entry.getKey());
+
+				for (final PostingBuffer posting : entry.getValue()) {
+					writer.addPosting(posting.doc, posting.positions, posting.size);
+				}
+
+				writer.finishTerm();
+			}
+
+			writer.finish();
+		}
+
+		Files.move(tmp.toPath(), file.toPath(), StandardCopyOption.ATOMIC_MOVE);
+
+		segments.put(id, new IndexSegment(id, file, deletionsFile(id)));
+
+		int doc = 0;
+
+		for (final String uuid : buffer.keySet()) {
+			documents.put(uuid, key(id, doc++));
+		}
+
+		buffer.clear();
+	}
+
+	/**
+	 * Merges the segments selected by the merge policy into a new segment.
+	 * The deletion state of the merged segments is captured before the
+	 * merge, documents that are deleted while the merge is running are
+	 * marked as deleted in the new segment.
+	 *
+	 * @return whether segments were merged
+	 */
+	private boolean merge() {
+
+		final List<IndexSegment> sources = new ArrayList<>();
+		final List<BitSet> deletions     = new ArrayList<>();
+		final int id;
+
+		lock.writeLock().lock();
+		try {
+
+			if (closed) {
+				return false;
+			}
+
+			sources.addAll(selectMerge());
+
+			if (sources.isEmpty()) {
+				return false;
+			}
+
+			for (final IndexSegment segment : sources) {
+				deletions.add(segment.getDeletedDocuments());
+			}
+
+			id = nextSegmentId++;
+
+		} finally {
+
+			lock.writeLock().unlock();
+		}
+
+		final File file           = segmentFile(id);
+		final File tmp            = new File(directory, file.getName() + TMP_SUFFIX);
+		final int[][] documentMap = new int[sources.size()][];
+		int documentCount         = 0;
+
+		try (final IndexSegment.Writer writer = new IndexSegment.Writer(tmp)) {
+
+			final Set<String> terms = new TreeSet<>();
+
+			for (int i=0; i<sources.size(); i++) {
+
+				final IndexSegment segment = sources.get(i);
+				final BitSet deleted       = deletions.get(i);
+				final int count            = segment.getDocumentCount();
+
+				documentMap[i] = new int[count];
+
+				for (int doc=0; doc<count; doc++) {
+
+					documentMap[i][doc] = deleted.get(doc) ? -1 : writer.addDocument(segment.getUuid(doc), segment.getLength(doc));
+				}
+
+				for (int term=0; term<segment.getTermCount(); term++) {
+					terms.add(segment.getTerm(term));
+				}
+			}
+
+			for (final String term : terms) {
+
+				writer.startTerm(term);
+
+				for (int i=0; i<sources.size(); i++) {
+
+					final IndexSegment segment = sources.get(i);
+					final int index            = segment.find(term);
+
+					if (index >= 0) {
+
+						final Postings postings = segment.getPostings(index);
+
+						while (postings.next()) {
+
+							final int doc = documentMap[i][postings.getDocument()];
+							if (doc >= 0) {
+
+								writer.addPosting(doc, postings.getPositions(), postings.getFrequency());
+							}
+						}
+					}
+				}
+
+				writer.finishTerm();
+			}
+
+			writer.finish();
+
+			documentCount = writer.getDocumentCount();
+
+		} catch (IOException ioex) {
+
+			logger.warn("Unable to merge fulltext index segments in {}: {}", directory.getAbsolutePath(), ioex.getMessage());
+
+			tmp.delete();
+
+			return false;
+		}
+
+		lock.writeLock().lock();
+		try {
+
+			if (closed) {
+
+				Files.deleteIfExists(tmp.toPath());
+				return false;
+			}
+
+			if (documentCount > 0) {
+
+				final BitSet deleted = new BitSet();
+
+				// documents that were deleted during the merge
+				for (int i=0; i<sources.size(); i++) {
+
+					final IndexSegment segment = sources.get(i);
+
+					for (int doc=0; doc<documentMap[i].length; doc++) {
+
+						if (documentMap[i][doc] >= 0 && segment.isDeleted(doc)) {
+							deleted.set(documentMap[i][doc]);
+						}
+					}
+				}
+
+				// the deletions must exist before the segment, otherwise
+				// the deleted documents would be visible after a restart
+				if (!deleted.isEmpty()) {
+					IndexSegment.writeDeletions(deletionsFile(id), deleted);
+				}
+
+				Files.move(tmp.toPath(), file.toPath(), StandardCopyOption.ATOMIC_MOVE);
+
+				segments.put(id, new IndexSegment(id, file, deletionsFile(id)));
+
+			} else {
+
+				Files.deleteIfExists(tmp.toPath());
+			}
+
+			for (int i=0; i<sources.size(); i++) {
+
+				final IndexSegment segment = sources.get(i);
+
+				for (int doc=0; doc<documentMap[i].length; doc++) {
+
+					if (documentMap[i][doc] >= 0) {
+
+						final String uuid = segment.getUuid(doc);
+						final Long key    = documents.get(uuid);
+
+						if (key != null && key == key(segment.getId(), doc)) {
+							documents.put(uuid, key(id, documentMap[i][doc]));
+						}
+					}
+				}
+
+				segments.remove(segment.getId());
+				segment.delete();
+			}
+
+		} catch (IOException ioex) {
+
+			logger.warn("Unable to merge fulltext index segments in {}: {}", directory.getAbsolutePath(), ioex.getMessage());
+
+		} finally {
+
+			lock.writeLock().unlock();
+		}
+
+		return true;
+	}
+
+	/**
+	 * Selects the segments to merge. Must be called with a lock held.
+	 */
+	private List<IndexSegment> selectMerge() {
+
+		final List<IndexSegment> candidates = new ArrayList<>();
+
+		for (final IndexSegment segment : segments.values()) {
+
+			if (segment.getDeletedRatio() > MAX_DELETED_RATIO) {
+				candidates.add(segment);
+			}
+		}
+
+		if (candidates.isEmpty()) {
+
+			final Map<Integer, List<IndexSegment>> levels = new TreeMap<>();
+
+			for (final IndexSegment segment : segments.values()) {
+
+				int count = segment.getLiveDocumentCount();
+				int level = 0;
+
+				while (count >= MERGE_FACTOR) {
+
+					count /= MERGE_FACTOR;
+					level++;
+				}
+
+				final List<IndexSegment> list = levels.computeIfAbsent(level, k -> new ArrayList<>());
+
+				list.add(segment);
+
+				if (list.size() == MERGE_FACTOR) {
+					return list;
+				}
+			}
+		}
+
+		return candidates;
+	}
+
+	private Map<Long, Double> evaluate(final Clause clause, final Statistics statistics) throws IOException {
+
+		final Map<Long, Double> matches = new HashMap<>();
+		final List<String> terms        = clause.getTerms();
+
+		switch (clause.getType()) {
+
+			case Term:
+				scoreTerm(terms.get(0), statistics, matches);
+				break;
+
+			case Prefix:
+				for (final String term : expand(terms.get(0))) {
+					scoreTerm(term, statistics, matches);
+				}
+				break;
+
+			case Phrase:
+				scorePhrase(terms, statistics, matches);
+				break;
+		}
+
+		return matches;
+	}
+
+	private void scoreTerm(final String term, final Statistics statistics, final Map<Long, Double> matches) throws IOException {
+
+		final double idf = statistics.idf(term);
+
+		for (final IndexSegment segment : segments.values()) {
+
+			final int index = segment.find(term);
+			if (index >= 0) {
+
+				final Postings postings = segment.getPostings(index);
+
+				while (postings.next()) {
+
+					final int doc = postings.getDocument();
+					if (!segment.isDeleted(doc)) {
+
+						matches.merge(key(segment.getId(), doc), statistics.score(idf, postings.getFrequency(), segment.getLength(doc)), Double::sum);
+					}
+				}
+			}
+		}
+	}
+
+	/**
+	 * Scores the documents that contain the given terms at consecutive
+	 * positions, the frequency of the phrase is used as the term frequency
+	 * and the sum of the term weights as the weight of the phrase.
+	 */
+	private void scorePhrase(final List<String> terms, final Statistics statistics, final Map<Long, Double> matches) throws IOException {
+
+		final int length = terms.size();
+		double idf       = 0.0;
+
+		for (final String term : terms) {
+			idf += statistics.idf(term);
+		}
+
+		for (final IndexSegment segment : segments.values()) {
+
+			final int[] indexes = new int[length];
+			boolean complete    = true;
+
+			for (int i=0; i<length && complete; i++) {
+
+				indexes[i] = segment.find(terms.get(i));
+				complete   = indexes[i] >= 0;
+			}
+
+			if (!complete) {
+				continue;
+			}
+
+			// positions of the following terms by document
+			final List<Map<Integer, int[]>> following = new ArrayList<>();
+
+			for (int i=1; i<length; i++) {
+
+				final Map<Integer, int[]> positions = new HashMap<>();
+				final Postings postings             = segment.getPostings(indexes[i]);
+
+				while (postings.next()) {
+					positions.put(postings.getDocument(), Arrays.copyOf(postings.getPositions(), postings.getFrequency()));
+				}
+
+				following.add(positions);
+			}
+
+			final Postings first = segment.getPostings(indexes[0]);
+
+			while (first.next()) {
+
+				final int doc = first.getDocument();
+				if (segment.isDeleted(doc)) {
+					continue;
+				}
+
+				final int[][] positions = new int[length - 1][];
+				boolean containsAll     = true;
+
+				for (int i=0; i<length - 1 && containsAll; i++) {
+
+					positions[i] = following.get(i).get(doc);
+					containsAll  = positions[i] != null;
+				}
+
+				if (!containsAll) {
+					continue;
+				}
+
+				final int[] start = first.getPositions();
+				int frequency     = 0;
+
+				for (int p=0; p<first.getFrequency(); p++) {
+
+					boolean match = true;
+
+					for (int i=0; i<length - 1 && match; i++) {
+						match = Arrays.binarySearch(positions[i], start[p] + i + 1) >= 0;
+					}
+
+					if (match) {
+						frequency++;
+					}
+				}
+
+				if (frequency > 0) {
+					matches.merge(key(segment.getId(), doc), statistics.score(idf, frequency, segment.getLength(doc)), Double::sum);
+				}
+			}
+		}
+	}
+
+	/**
+	 * @return the first terms of the dictionary that start with the given prefix
+	 */
+	private Set<String> expand(final String prefix) {
+
+		final TreeSet<String> terms = new TreeSet<>();
+
+		for (final IndexSegment segment : segments.values()) {
+
+			final int count = segment.getTermCount();
+			int added       = 0;
+
+			for (int i=segment.ceiling(prefix); i<count && added < MAX_PREFIX_TERMS; i++) {
+
+				final String term = segment.getTerm(i);
+				if (!term.startsWith(prefix)) {
+					break;
+				}
+
+				terms.add(term);
+				added++;
+			}
+		}
+
+		while (terms.size() > MAX_PREFIX_TERMS) {
+			terms.pollLast();
+		}
+
+		return terms;
+	}
+
+	private void scheduleFlush() {
+
+		if (flushScheduled.compareAndSet(false, true)) {
+
+			maintenance.schedule(() -> {
+
+				flushScheduled.set(false);
+				flush();
+
+			}, FLUSH_DELAY, TimeUnit.MILLISECONDS);
+		}
+	}
+
+	private void scheduleMerge() {
+
+		if (mergeScheduled.compareAndSet(false, true)) {
+
+			maintenance.submit(() -> {
+
+				mergeScheduled.set(false);
+				maintain();
+			});
+		}
+	}
+
+	private File segmentFile(final int id) {
+		return new File(directory, String.format("%012d", id) + SEGMENT_SUFFIX);
+	}
+
+	private File deletionsFile(final int id) {
+		return new File(directory, String.format("%012d", id) + DELETIONS_SUFFIX);
+	}
+
+	private static long key(final int segment, final int document) {
+		return ((long)segment << 32) | document;
+	}
+
+	private static int segment(final long key) {
+		return (int)(key >>> 32);
+	}
+
+	private static int document(final long key) {
+		return (int)(key & 0xffffffffL);
+	}
+
+	// ----- nested classes -----
+	/**
+	 * Collection statistics for BM25, based on the live documents of all
+	 * segments.
+	 */
+	private class Statistics {
+
+		private final Map<String, Double> idfs = new HashMap<>();
+		private double averageLength           = 1.0;
+		private long documentCount             = 0L;
+
+		public Statistics() {
+
+			long totalLength = 0L;
+
+			for (final IndexSegment segment : segments.values()) {
+
+				documentCount += segment.getLiveDocumentCount();
+				totalLength   += segment.getLiveLength();
+			}
+
+			if (documentCount > 0 && totalLength > 0) {
+				averageLength = (double)totalLength / (double)documentCount;
+			}
+		}
+
+		public double idf(final String term) {
+
+			return idfs.computeIfAbsent(term, t -> {
+
+				long docFreq = 0L;
+
+				for (final IndexSegment segment : segments.values()) {
+
+					final int index = segment.find(t);
+					if (index >= 0) {
+
+						docFreq += segment.getDocFreq(index);
+					}
+				}
+
+				// deleted documents are still contained in the document frequency
+				docFreq = Math.min(docFreq, documentCount);
+
+				return Math.log(1.0 + (documentCount - docFreq + 0.5) / (docFreq + 0.5));
+			});
+		}
+
+		public double score(final double idf, final int frequency, final int length) {
+			return idf * (frequency * (K1 + 1.0)) / (frequency + K1 * (1.0 - B + B * length / averageLength));
+		}
+	}
+
+	/**
+	 * The positions of a term in a buffered document.
+	 */
+	private static class PostingBuffer {
+
+		private int[] positions = new int[4];
+		private int size        = 0;
+		private int doc         = 0;
+
+		public PostingBuffer(final int doc) {
+			this.doc = doc;
+		}
+
+		public void add(final int position) {
+
+			if (size == positions.length) {
+				positions = Arrays.copyOf(positions, size * 2);
+			}
+
+			positions[size++] = position;
+		}
+	}
+}
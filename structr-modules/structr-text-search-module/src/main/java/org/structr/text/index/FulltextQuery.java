@@ -0,0 +1,209 @@
+/**
+ * Copyright (C) 2010-2018 Structr GmbH
+ *
+ * This file is part of Structr <http://structr.org>.
+ *
+ * Structr is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * Structr is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Structr.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.structr.text.index;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import org.apache.commons.lang3.StringUtils;
+import org.structr.api.search.Occurrence;
+import org.structr.text.FulltextTokenizer;
+
+/**
+ * A parsed fulltext query.
+ *
+ * The query string consists of words, prefixes ending with "*" and phrases
+ * in double quotes, each of which can be marked as required with "+" or
+ * as forbidden with "-". Words are analyzed with the same tokenizer that
+ * is used for indexing, so they match the indexed terms.
+ */
+public class FulltextQuery {
+
+	public enum Type { Term, Prefix, Phrase }
+
+	private final List<Clause> clauses = new ArrayList<>();
+
+	private FulltextQuery() {}
+
+	public static FulltextQuery parse(final String query) {
+
+		final FulltextQuery result = new FulltextQuery();
+		final int length           = query != null ? query.length() : 0;
+		int i                      = 0;
+
+		while (i < length) {
+
+			while (i < length && Character.isWhitespace(query.charAt(i))) {
+				i++;
+			}
+
+			if (i == length) {
+				break;
+			}
+
+			Occurrence occurrence = Occurrence.OPTIONAL;
+
+			switch (query.charAt(i)) {
+
+				case '+':
+					occurrence = Occurrence.REQUIRED;
+					i++;
+					break;
+
+				case '-':
+					occurrence = Occurrence.FORBIDDEN;
+					i++;
+					break;
+			}
+
+			if (i < length && query.charAt(i) == '"') {
+
+				int end = query.indexOf('"', i + 1);
+				if (end < 0) {
+					end = length;
+				}
+
+				final List<String> terms = analyze(query.substring(i + 1, end));
+				if (terms.size() > 1) {
+
+					result.clauses.add(new Clause(Type.Phrase, occurrence, terms));
+
+				} else if (terms.size() == 1) {
+
+					result.clauses.add(new Clause(Type.Term, occurrence, terms));
+				}
+
+				i = end + 1;
+
+			} else {
+
+				int end = i;
+				while (end < length && !Character.isWhitespace(query.charAt(end))) {
+					end++;
+				}
+
+				final String word        = query.substring(i, end);
+				final boolean isPrefix   = word.endsWith("*");
+				final List<String> terms = analyze(StringUtils.stripEnd(word, "*"));
+				final int count          = terms.size();
+
+				for (int j=0; j<count; j++) {
+
+					// only the last part of a word can be a prefix
+					final Type type = isPrefix && j == count - 1 ? Type.Prefix : Type.Term;
+
+					result.clauses.add(new Clause(type, occurrence, Collections.singletonList(terms.get(j))));
+				}
+
+				i = end;
+			}
+		}
+
+		return result;
+	}
+
+	public List<Clause> getClauses() {
+		return clauses;
+	}
+
+	public boolean isEmpty() {
+		return clauses.isEmpty();
+	}
+
+	/**
+	 * @return the terms of all clauses that are not forbidden
+	 */
+	public Set<String> getTerms() {
+
+		final Set<String> terms = new LinkedHashSet<>();
+
+		for (final Clause clause : clauses) {
+
+			if (!Occurrence.FORBIDDEN.equals(clause.getOccurrence())) {
+				terms.addAll(clause.getTerms());
+			}
+		}
+
+		return terms;
+	}
+
+	/**
+	 * Splits the given text into terms like the fulltext indexing agent
+	 * does.
+	 *
+	 * @param text
+	 * @return the terms of the given text, in order
+	 */
+	public static List<String> analyze(final String text) {
+
+		final FulltextTokenizer tokenizer = new FulltextTokenizer(null);
+		final List<String> terms          = new ArrayList<>();
+
+		try {
+
+			// the tokenizer is not closed because that would start the language detection
+			tokenizer.write(text);
+			tokenizer.flush();
+
+		} catch (IOException ioex) {
+			// cannot happen, the tokenizer does not do any I/O
+		}
+
+		for (final String word : tokenizer.getWords()) {
+
+			final String term = StringUtils.strip(word, "\"");
+			if (StringUtils.isNotEmpty(term)) {
+
+				terms.add(term);
+			}
+		}
+
+		return terms;
+	}
+
+	// ----- nested classes -----
+	public static class Clause {
+
+		private Occurrence occurrence = null;
+		private List<String> terms    = null;
+		private Type type             = null;
+
+		public Clause(final Type type, final Occurrence occurrence, final List<String> terms) {
+
+			this.type       = type;
+			this.occurrence = occurrence;
+			this.terms      = terms;
+		}
+
+		public Type getType() {
+			return type;
+		}
+
+		public Occurrence getOccurrence() {
+			return occurrence;
+		}
+
+		public List<String> getTerms() {
+			return terms;
+		}
+	}
+}
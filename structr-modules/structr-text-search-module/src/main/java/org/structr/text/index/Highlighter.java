@@ -0,0 +1,205 @@
+/**
+ * Copyright (C) 2010-2018 Structr GmbH
+ *
+ * This file is part of Structr <http://structr.org>.
+ *
+ * Structr is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * Structr is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Structr.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.structr.text.index;
+
+import java.util.ArrayList;
+import java.util.List;
+import org.apache.commons.lang3.StringEscapeUtils;
+import org.structr.api.search.Occurrence;
+import org.structr.text.FulltextTokenizer;
+import org.structr.text.index.FulltextQuery.Clause;
+
+/**
+ * Extracts text fragments around the matches of a fulltext query. The text
+ * is HTML-escaped, and the matching words are enclosed in mark elements.
+ */
+public class Highlighter {
+
+	private static final String PRE_TAG  = "<mark>";
+	private static final String POST_TAG = "</mark>";
+
+	/**
+	 * @param query the query
+	 * @param text the text to highlight
+	 * @param contextLength the number of words around each match
+	 * @param maxFragments the maximum number of fragments
+	 * @return the fragments, in the order they appear in the text
+	 */
+	public static List<String> highlight(final FulltextQuery query, final String text, final int contextLength, final int maxFragments) {
+
+		final List<String> fragments = new ArrayList<>();
+		final List<Word> words       = split(text);
+		final List<Word> tokens      = new ArrayList<>();
+
+		// one token per term, so that phrases can be matched by position
+		for (final Word word : words) {
+
+			for (final String term : FulltextQuery.analyze(word.text)) {
+				tokens.add(new Word(word, term));
+			}
+		}
+
+		for (final Clause clause : query.getClauses()) {
+
+			if (Occurrence.FORBIDDEN.equals(clause.getOccurrence())) {
+				continue;
+			}
+
+			final List<String> terms = clause.getTerms();
+			final int length         = terms.size();
+
+			for (int i=0; i<=tokens.size() - length; i++) {
+
+				boolean match = true;
+
+				for (int j=0; j<length && match; j++) {
+
+					final String term = tokens.get(i + j).text;
+
+					switch (clause.getType()) {
+
+						case Prefix:
+							match = term.startsWith(terms.get(j));
+							break;
+
+						default:
+							match = term.equals(terms.get(j));
+							break;
+					}
+				}
+
+				if (match) {
+
+					for (int j=0; j<length; j++) {
+						tokens.get(i + j).source.match = true;
+					}
+				}
+			}
+		}
+
+		final int before = contextLength / 2;
+		final int after  = contextLength - before;
+		int end          = -1;
+
+		for (int i=0; i<words.size() && fragments.size() < maxFragments; i++) {
+
+			if (words.get(i).match && i > end) {
+
+				final int start = Math.max(end + 1, i - before);
+
+				end = Math.min(words.size() - 1, i + after);
+
+				// extend the fragment as long as it contains more matches
+				for (int j=i + 1; j<=end; j++) {
+
+					if (words.get(j).match) {
+						end = Math.min(words.size() - 1, j + after);
+					}
+				}
+
+				fragments.add(fragment(text, words, start, end));
+			}
+		}
+
+		return fragments;
+	}
+
+	// ----- private methods -----
+	private static String fragment(final String text, final List<Word> words, final int start, final int end) {
+
+		final StringBuilder buf = new StringBuilder();
+
+		for (int i=start; i<=end; i++) {
+
+			final Word word = words.get(i);
+
+			if (i > start) {
+				buf.append(StringEscapeUtils.escapeHtml4(text.substring(words.get(i - 1).end, word.start).replaceAll("\\s+", " ")));
+			}
+
+			if (word.match) {
+
+				buf.append(PRE_TAG);
+				buf.append(StringEscapeUtils.escapeHtml4(word.text));
+				buf.append(POST_TAG);
+
+			} else {
+
+				buf.append(StringEscapeUtils.escapeHtml4(word.text));
+			}
+		}
+
+		return buf.toString();
+	}
+
+	/**
+	 * Splits the given text into words, using the same word characters
+	 * as the tokenizer.
+	 */
+	private static List<Word> split(final String text) {
+
+		final List<Word> words = new ArrayList<>();
+		final int length       = text.length();
+		int start              = -1;
+
+		for (int i=0; i<=length; i++) {
+
+			final boolean isWordChar = i < length && isWordCharacter(text.charAt(i));
+
+			if (isWordChar && start < 0) {
+
+				start = i;
+
+			} else if (!isWordChar && start >= 0) {
+
+				words.add(new Word(text.substring(start, i), start, i));
+				start = -1;
+			}
+		}
+
+		return words;
+	}
+
+	private static boolean isWordCharacter(final char c) {
+		return Character.isAlphabetic(c) || Character.isDigit(c) || FulltextTokenizer.SpecialChars.contains(c);
+	}
+
+	// ----- nested classes -----
+	private static class Word {
+
+		private Word source   = null;
+		private String text   = null;
+		private boolean match = false;
+		private int start     = 0;
+		private int end       = 0;
+
+		public Word(final String text, final int start, final int end) {
+
+			this.text  = text;
+			this.start = start;
+			this.end   = end;
+		}
+
+		public Word(final Word source, final String term) {
+
+			this.source = source;
+			this.text   = term;
+		}
+	}
+}
@@ -0,0 +1,573 @@
+/**
+ * Copyright (C) 2010-2018 Structr GmbH
+ *
+ * This file is part of Structr <http://structr.org>.
+ *
+ * Structr is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * Structr is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Structr.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.structr.text.index;
+
+import java.io.BufferedOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.BitSet;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * An immutable segment of the fulltext index.
+ *
+ * A segment file contains the posting lists of all terms, followed by the
+ * sorted term dictionary, the document table and a fixed-size footer.
+ * Each posting consists of the document number, the term frequency and
+ * the positions of the term in the document, all delta-encoded as
+ * variable-length integers. The dictionary and the document table are
+ * kept in memory, posting lists are read from the file on demand.
+ *
+ * Deleted documents are stored in a separate bitset file next to the
+ * segment file, because segments are never modified after they were
+ * written.
+ */
+class IndexSegment implements AutoCloseable {
+
+	private static final Logger logger   = LoggerFactory.getLogger(IndexSegment.class.getName());
+	private static final int FOOTER_SIZE = 28;
+	private static final int MAGIC       = 0x53545849;
+
+	private final BitSet deleted     = new BitSet();
+	private FileChannel channel      = null;
+	private File deletionsFile       = null;
+	private File file                = null;
+	private String[] terms           = null;
+	private String[] uuids           = null;
+	private long[] offsets           = null;
+	private int[] docFreqs           = null;
+	private int[] lengths            = null;
+	private long totalLength         = 0L;
+	private long deletedLength       = 0L;
+	private boolean dirty            = false;
+	private int id                   = 0;
+
+	public IndexSegment(final int id, final File file, final File deletionsFile) throws IOException {
+
+		this.id            = id;
+		this.file          = file;
+		this.deletionsFile = deletionsFile;
+		this.channel       = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+
+		try {
+
+			final long size = channel.size();
+			if (size < FOOTER_SIZE) {
+				throw new IOException("Segment file " + file.getName() + " is incomplete");
+			}
+
+			final ByteBuffer footer    = read(size - FOOTER_SIZE, FOOTER_SIZE);
+			final long dictionaryStart = footer.getLong();
+			final long documentsStart  = footer.getLong();
+
+			this.totalLength = footer.getLong();
+
+			if (footer.getInt() != MAGIC || dictionaryStart > documentsStart || documentsStart > size - FOOTER_SIZE) {
+				throw new IOException("Segment file " + file.getName() + " is corrupt");
+			}
+
+			readDictionary(read(dictionaryStart, (int)(documentsStart - dictionaryStart)), dictionaryStart);
+			readDocuments(read(documentsStart, (int)(size - FOOTER_SIZE - documentsStart)));
+
+			if (deletionsFile.exists()) {
+
+				final BitSet bits = BitSet.valueOf(ByteBuffer.wrap(Files.readAllBytes(deletionsFile.toPath())).asLongBuffer());
+
+				for (int doc = bits.nextSetBit(0); doc >= 0 && doc < uuids.length; doc = bits.nextSetBit(doc + 1)) {
+					delete(doc);
+				}
+
+				// the loaded state is already persisted
+				dirty = false;
+			}
+
+		} catch (IOException | RuntimeException ex) {
+
+			channel.close();
+			throw ex instanceof IOException ? (IOException)ex : new IOException("Segment file " + file.getName() + " is corrupt", ex);
+		}
+	}
+
+	public int getId() {
+		return id;
+	}
+
+	public File getFile() {
+		return file;
+	}
+
+	public File getDeletionsFile() {
+		return deletionsFile;
+	}
+
+	// ----- documents -----
+	public int getDocumentCount() {
+		return uuids.length;
+	}
+
+	public int getLiveDocumentCount() {
+		return uuids.length - deleted.cardinality();
+	}
+
+	public long getLiveLength() {
+		return totalLength - deletedLength;
+	}
+
+	public String getUuid(final int doc) {
+		return uuids[doc];
+	}
+
+	public int getLength(final int doc) {
+		return lengths[doc];
+	}
+
+	public boolean isDeleted(final int doc) {
+		return deleted.get(doc);
+	}
+
+	public BitSet getDeletedDocuments() {
+		return (BitSet)deleted.clone();
+	}
+
+	public double getDeletedRatio() {
+		return uuids.length > 0 ? (double)deleted.cardinality() / (double)uuids.length : 0.0;
+	}
+
+	public void delete(final int doc) {
+
+		if (!deleted.get(doc)) {
+
+			deleted.set(doc);
+			deletedLength += lengths[doc];
+			dirty          = true;
+		}
+	}
+
+	/**
+	 * Writes the deleted documents of this segment to its deletion file
+	 * if they were modified since the last call.
+	 */
+	public void writeDeletions() throws IOException {
+
+		if (dirty) {
+
+			writeDeletions(deletionsFile, deleted);
+			dirty = false;
+		}
+	}
+
+	// ----- terms -----
+	public int getTermCount() {
+		return terms.length;
+	}
+
+	public String getTerm(final int index) {
+		return terms[index];
+	}
+
+	/**
+	 * @param term
+	 * @return the index of the given term in the dictionary, or a negative value if the term does not exist
+	 */
+	public int find(final String term) {
+		return Arrays.binarySearch(terms, term);
+	}
+
+	/**
+	 * @param prefix
+	 * @return the index of the first term that is equal to or greater than the given prefix
+	 */
+	public int ceiling(final String prefix) {
+
+		final int index = Arrays.binarySearch(terms, prefix);
+
+		return index >= 0 ? index : -index - 1;
+	}
+
+	public int getDocFreq(final int index) {
+		return docFreqs[index];
+	}
+
+	public Postings getPostings(final int index) throws IOException {
+		return new Postings(read(offsets[index], (int)(offsets[index + 1] - offsets[index])), docFreqs[index]);
+	}
+
+	@Override
+	public void close() {
+
+		try {
+
+			channel.close();
+
+		} catch (IOException ioex) {
+			logger.warn("Unable to close fulltext index segment {}: {}", file.getAbsolutePath(), ioex.getMessage());
+		}
+	}
+
+	public void delete() throws IOException {
+
+		close();
+
+		Files.deleteIfExists(file.toPath());
+		Files.deleteIfExists(deletionsFile.toPath());
+	}
+
+	// ----- public static methods -----
+	public static void writeDeletions(final File target, final BitSet deleted) throws IOException {
+
+		final File tmp          = new File(target.getParentFile(), target.getName() + FulltextIndex.TMP_SUFFIX);
+		final long[] bits       = deleted.toLongArray();
+		final ByteBuffer buffer = ByteBuffer.allocate(bits.length * 8);
+
+		buffer.asLongBuffer().put(bits);
+
+		try (final FileOutputStream out = new FileOutputStream(tmp)) {
+
+			out.write(buffer.array());
+			out.getFD().sync();
+		}
+
+		Files.move(tmp.toPath(), target.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+	}
+
+	// ----- private methods -----
+	private void readDictionary(final ByteBuffer buffer, final long end) {
+
+		final int count = readVInt(buffer);
+
+		terms    = new String[count];
+		docFreqs = new int[count];
+		offsets  = new long[count + 1];
+
+		for (int i=0; i<count; i++) {
+
+			terms[i]    = readString(buffer);
+			docFreqs[i] = readVInt(buffer);
+			offsets[i]  = readVLong(buffer);
+		}
+
+		// the posting list of the last term ends where the dictionary starts
+		offsets[count] = end;
+	}
+
+	private void readDocuments(final ByteBuffer buffer) {
+
+		final int count = readVInt(buffer);
+
+		uuids   = new String[count];
+		lengths = new int[count];
+
+		for (int i=0; i<count; i++) {
+
+			uuids[i]   = readString(buffer);
+			lengths[i] = readVInt(buffer);
+		}
+	}
+
+	private ByteBuffer read(final long position, final int length) throws IOException {
+
+		final ByteBuffer buffer = ByteBuffer.allocate(length);
+
+		while (buffer.hasRemaining()) {
+
+			if (channel.read(buffer, position + buffer.position()) < 0) {
+				throw new EOFException();
+			}
+		}
+
+		buffer.flip();
+
+		return buffer;
+	}
+
+	private static String readString(final ByteBuffer buffer) {
+
+		final byte[] bytes = new byte[readVInt(buffer)];
+
+		buffer.get(bytes);
+
+		return new String(bytes, StandardCharsets.UTF_8);
+	}
+
+	private static int readVInt(final ByteBuffer buffer) {
+		return (int)readVLong(buffer);
+	}
+
+	private static long readVLong(final ByteBuffer buffer) {
+
+		long value = 0L;
+		int shift  = 0;
+		byte b;
+
+		do {
+
+			b      = buffer.get();
+			value |= (long)(b & 0x7f) << shift;
+			shift += 7;
+
+		} while ((b & 0x80) != 0);
+
+		return value;
+	}
+
+	// ----- nested classes -----
+	/**
+	 * Iterates over the postings of a single term, in ascending document
+	 * order.
+	 */
+	public static class Postings {
+
+		private final ByteBuffer buffer;
+		private int[] positions = new int[8];
+		private int remaining   = 0;
+		private int doc         = 0;
+		private int freq        = 0;
+
+		private Postings(final ByteBuffer buffer, final int count) {
+
+			this.buffer    = buffer;
+			this.remaining = count;
+		}
+
+		public boolean next() {
+
+			if (remaining == 0) {
+				return false;
+			}
+
+			doc  += readVInt(buffer);
+			freq  = readVInt(buffer);
+
+			if (positions.length < freq) {
+				positions = new int[Math.max(freq, positions.length * 2)];
+			}
+
+			int position = 0;
+
+			for (int i=0; i<freq; i++) {
+
+				position    += readVInt(buffer);
+				positions[i] = position;
+			}
+
+			remaining--;
+
+			return true;
+		}
+
+		public int getDocument() {
+			return doc;
+		}
+
+		public int getFrequency() {
+			return freq;
+		}
+
+		/**
+		 * @return the positions of the term in the current document, only the first {@link #getFrequency()} values are valid
+		 */
+		public int[] getPositions() {
+			return positions;
+		}
+	}
+
+	/**
+	 * Writes a new segment file. All documents must be added before the
+	 * terms, which must be added in ascending order with their postings in
+	 * ascending document order.
+	 */
+	public static class Writer implements AutoCloseable {
+
+		private final ByteBuffer scratch  = ByteBuffer.allocate(10);
+		private FileOutputStream file     = null;
+		private OutputStream out          = null;
+		private String[] uuids            = new String[64];
+		private int[] lengths             = new int[64];
+		private String[] terms            = new String[256];
+		private long[] offsets            = new long[256];
+		private int[] docFreqs            = new int[256];
+		private String currentTerm        = null;
+		private long totalLength          = 0L;
+		private long position             = 0L;
+		private int documentCount         = 0;
+		private int termCount             = 0;
+		private int lastDoc               = 0;
+		private int docFreq               = 0;
+
+		public Writer(final File target) throws IOException {
+
+			this.file = new FileOutputStream(target);
+			this.out  = new BufferedOutputStream(file, 65536);
+		}
+
+		public int addDocument(final String uuid, final int length) {
+
+			if (documentCount == uuids.length) {
+
+				uuids   = Arrays.copyOf(uuids, documentCount * 2);
+				lengths = Arrays.copyOf(lengths, documentCount * 2);
+			}
+
+			uuids[documentCount]   = uuid;
+			lengths[documentCount] = length;
+			totalLength           += length;
+
+			return documentCount++;
+		}
+
+		public int getDocumentCount() {
+			return documentCount;
+		}
+
+		public void startTerm(final String term) {
+
+			currentTerm = term;
+			docFreq     = 0;
+			lastDoc     = 0;
+
+			if (termCount == terms.length) {
+
+				terms    = Arrays.copyOf(terms, termCount * 2);
+				offsets  = Arrays.copyOf(offsets, termCount * 2);
+				docFreqs = Arrays.copyOf(docFreqs, termCount * 2);
+			}
+
+			offsets[termCount] = position;
+		}
+
+		public void addPosting(final int doc, final int[] positions, final int count) throws IOException {
+
+			writeVInt(doc - lastDoc);
+			writeVInt(count);
+
+			int last = 0;
+
+			for (int i=0; i<count; i++) {
+
+				writeVInt(positions[i] - last);
+				last = positions[i];
+			}
+
+			lastDoc = doc;
+			docFreq++;
+		}
+
+		public void finishTerm() {
+
+			// terms without postings are omitted
+			if (docFreq > 0) {
+
+				terms[termCount]    = currentTerm;
+				docFreqs[termCount] = docFreq;
+				termCount++;
+			}
+
+			currentTerm = null;
+		}
+
+		/**
+		 * Writes the dictionary, the document table and the footer and
+		 * forces the file to disk.
+		 */
+		public void finish() throws IOException {
+
+			final long dictionaryStart = position;
+
+			writeVInt(termCount);
+
+			for (int i=0; i<termCount; i++) {
+
+				writeString(terms[i]);
+				writeVInt(docFreqs[i]);
+				writeVLong(offsets[i]);
+			}
+
+			final long documentsStart = position;
+
+			writeVInt(documentCount);
+
+			for (int i=0; i<documentCount; i++) {
+
+				writeString(uuids[i]);
+				writeVInt(lengths[i]);
+			}
+
+			final ByteBuffer footer = ByteBuffer.allocate(FOOTER_SIZE);
+
+			footer.putLong(dictionaryStart);
+			footer.putLong(documentsStart);
+			footer.putLong(totalLength);
+			footer.putInt(MAGIC);
+
+			out.write(footer.array());
+			out.flush();
+
+			file.getFD().sync();
+		}
+
+		@Override
+		public void close() throws IOException {
+			out.close();
+		}
+
+		// ----- private methods -----
+		private void writeString(final String value) throws IOException {
+
+			final byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+
+			writeVInt(bytes.length);
+
+			out.write(bytes);
+			position += bytes.length;
+		}
+
+		private void writeVInt(final int value) throws IOException {
+			writeVLong(value & 0xffffffffL);
+		}
+
+		private void writeVLong(final long value) throws IOException {
+
+			long remaining = value;
+
+			scratch.clear();
+
+			while ((remaining & ~0x7fL) != 0L) {
+
+				scratch.put((byte)((remaining & 0x7f) | 0x80));
+				remaining >>>= 7;
+			}
+
+			scratch.put((byte)remaining);
+
+			out.write(scratch.array(), 0, scratch.position());
+			position += scratch.position();
+		}
+	}
+}
@@ -149,6 +149,48 @@ public class FulltextIndexingTest extends TextSearchModuleTest {
 
 	}
 
+	@Test
+	public void testFulltextSearch() {
+
+		try (final Tx tx = app.tx()) {
+
+			try(final InputStream is = FulltextIndexingTest.class.getResourceAsStream("/test/test.txt")) {
+				FileHelper.createFile(securityContext, is, "", File.class, "test.txt");
+			}
+
+			tx.success();
+
+		} catch (FrameworkException|IOException fex) {
+			fail("Unexpected exception.");
+		}
+
+		delay();
+
+		try (final Tx tx = app.tx()) {
+
+			final File file = app.nodeQuery(File.class).getFirst();
+
+			Assert.assertNotNull("File should exist", file);
+
+			Assert.assertEquals("Invalid fulltext search result", Arrays.asList(file), app.nodeQuery(File.class).fulltext("pellentesque").getAsList());
+			Assert.assertEquals("Invalid prefix search result",   Arrays.asList(file), app.nodeQuery(File.class).fulltext("pellent*").getAsList());
+			Assert.assertEquals("Invalid phrase search result",   Arrays.asList(file), app.nodeQuery(File.class).fulltext("\"ligula eget dolor\"").getAsList());
+
+			Assert.assertTrue("Phrase search should respect the word order", app.nodeQuery(File.class).fulltext("\"dolor eget ligula\"").getAsList().isEmpty());
+			Assert.assertTrue("Forbidden terms should exclude the file",     app.nodeQuery(File.class).fulltext("lorem -ipsum").getAsList().isEmpty());
+
+			app.delete(file);
+
+			tx.success();
+
+		} catch (FrameworkException fex) {
+			fail("Unexpected exception.");
+		}
+
+		// deleted files must be removed from the index
+		Assert.assertTrue("Deleted file should not be found", app.getFulltextIndexer().search("pellentesque", 0, 10).getHits().isEmpty());
+	}
+
 	// ----- private methods -----
 	private void testFile() {
 
@@ -0,0 +1,241 @@
+/**
+ * Copyright (C) 2010-2018 Structr GmbH
+ *
+ * This file is part of Structr <http://structr.org>.
+ *
+ * Structr is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * Structr is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Structr.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.structr.text.index;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import static junit.framework.TestCase.assertEquals;
+import static junit.framework.TestCase.assertTrue;
+import org.junit.Test;
+
+/**
+ * Recall of the fulltext index on a synthetic corpus with a
+ * Zipf-distributed vocabulary. The ranking of term queries is compared to
+ * an exhaustive BM25 evaluation, phrase queries must find the documents
+ * that contain a planted phrase.
+ */
+public class FulltextIndexRecallTest {
+
+	private static final int DOCUMENT_COUNT  = 10000;
+	private static final int DOCUMENT_LENGTH = 100;
+	private static final int VOCABULARY_SIZE = 20000;
+	private static final int QUERY_COUNT     = 200;
+	private static final int PHRASE_COUNT    = 100;
+	private static final int TOP_K           = 10;
+
+	private final Random random = new Random(42L);
+
+	@Test
+	public void testSyntheticCorpus() {
+
+		final FulltextIndex index                    = new FulltextIndex(new File("/tmp/" + System.nanoTime() + ".fulltext"));
+		final List<Map<String, Integer>> frequencies = new ArrayList<>();
+		final List<Integer> lengths                  = new ArrayList<>();
+		final String[] vocabulary                    = new String[VOCABULARY_SIZE];
+		final double[] distribution                  = new double[VOCABULARY_SIZE];
+		double sum                                   = 0.0;
+
+		for (int i=0; i<VOCABULARY_SIZE; i++) {
+
+			vocabulary[i]   = word(i);
+			sum            += 1.0 / (i + 1);
+			distribution[i] = sum;
+		}
+
+		// corpus
+		for (int doc=0; doc<DOCUMENT_COUNT; doc++) {
+
+			final int length         = DOCUMENT_LENGTH / 2 + random.nextInt(DOCUMENT_LENGTH);
+			final List<String> terms = new ArrayList<>();
+
+			for (int i=0; i<length; i++) {
+				terms.add(vocabulary[sample(distribution, sum)]);
+			}
+
+			// planted phrases of two rare words that also occur separately elsewhere
+			if (doc < PHRASE_COUNT) {
+
+				final int position = random.nextInt(length - 1);
+
+				terms.set(position,     "needle" + word(doc));
+				terms.set(position + 1, "haystack" + word(doc));
+
+			} else if (doc < 3 * PHRASE_COUNT) {
+
+				final int phrase = doc % PHRASE_COUNT;
+
+				terms.set(0,          "haystack" + word(phrase));
+				terms.set(length - 1, "needle" + word(phrase));
+			}
+
+			final Map<String, Integer> frequency = new HashMap<>();
+
+			for (final String term : terms) {
+				frequency.merge(term, 1, Integer::sum);
+			}
+
+			frequencies.add(frequency);
+			lengths.add(terms.size());
+
+			index.add(uuid(doc), terms);
+		}
+
+		index.flush();
+		index.maintain();
+
+		// term queries, compared to an exhaustive evaluation
+		double recall = 0.0;
+
+		for (int q=0; q<QUERY_COUNT; q++) {
+
+			final List<String> terms = new ArrayList<>();
+
+			terms.add(vocabulary[10 + random.nextInt(1000)]);
+
+			if (q % 2 == 0) {
+				terms.add(vocabulary[10 + random.nextInt(5000)]);
+			}
+
+			final Map<String, Double> result = index.search(FulltextQuery.parse(String.join(" ", terms)), TOP_K);
+
+			// compare scores instead of documents, documents with equal scores can be returned in any order
+			final List<Double> expected = exhaustiveSearch(terms, frequencies, lengths);
+			final List<Double> actual   = new ArrayList<>(result.values());
+			final int count             = Math.min(TOP_K, expected.size());
+			int found                   = 0;
+
+			for (int i=0; i<count && i<actual.size(); i++) {
+
+				if (Math.abs(actual.get(i) - expected.get(i)) < 1e-9) {
+					found++;
+				}
+			}
+
+			recall += count > 0 ? (double)found / (double)count : 1.0;
+		}
+
+		recall /= QUERY_COUNT;
+
+		// phrase queries
+		int phrasesFound = 0;
+
+		for (int doc=0; doc<PHRASE_COUNT; doc++) {
+
+			final Map<String, Double> result = index.search(FulltextQuery.parse("\"needle" + word(doc) + " haystack" + word(doc) + "\""), TOP_K);
+
+			if (result.keySet().equals(Collections.singleton(uuid(doc)))) {
+				phrasesFound++;
+			}
+		}
+
+		assertEquals("Invalid recall of term queries", 1.0, recall, 1e-9);
+		assertEquals("Invalid recall of phrase queries", PHRASE_COUNT, phrasesFound);
+		assertTrue("Segments should be merged", index.getSegmentCount() < 10);
+
+		index.close();
+	}
+
+	// ----- private methods -----
+	/**
+	 * @return the BM25 scores of all matching documents, in descending order
+	 */
+	private List<Double> exhaustiveSearch(final List<String> terms, final List<Map<String, Integer>> frequencies, final List<Integer> lengths) {
+
+		final List<Double> scores = new ArrayList<>();
+		final double[] idfs       = new double[terms.size()];
+		double averageLength      = 0.0;
+
+		for (final Integer length : lengths) {
+			averageLength += length;
+		}
+
+		averageLength /= lengths.size();
+
+		for (int i=0; i<terms.size(); i++) {
+
+			int docFreq = 0;
+
+			for (final Map<String, Integer> frequency : frequencies) {
+
+				if (frequency.containsKey(terms.get(i))) {
+					docFreq++;
+				}
+			}
+
+			idfs[i] = Math.log(1.0 + (DOCUMENT_COUNT - docFreq + 0.5) / (docFreq + 0.5));
+		}
+
+		for (int doc=0; doc<DOCUMENT_COUNT; doc++) {
+
+			double score = 0.0;
+
+			for (int i=0; i<terms.size(); i++) {
+
+				final Integer frequency = frequencies.get(doc).get(terms.get(i));
+				if (frequency != null) {
+
+					score += idfs[i] * (frequency * 2.2) / (frequency + 1.2 * (0.25 + 0.75 * lengths.get(doc) / averageLength));
+				}
+			}
+
+			if (score > 0.0) {
+				scores.add(score);
+			}
+		}
+
+		Collections.sort(scores, Collections.reverseOrder());
+
+		return scores;
+	}
+
+	private int sample(final double[] distribution, final double sum) {
+
+		final int index = Arrays.binarySearch(distribution, random.nextDouble() * sum);
+
+		return Math.min(index >= 0 ? index : -index - 1, distribution.length - 1);
+	}
+
+	private static String uuid(final int doc) {
+		return String.format("%032x", doc);
+	}
+
+	/**
+	 * @return a word of at least three lowercase letters for the given number
+	 */
+	private static String word(final int number) {
+
+		final StringBuilder buf = new StringBuilder("w");
+		int remaining           = number;
+
+		do {
+
+			buf.append((char)('a' + remaining % 26));
+			remaining /= 26;
+
+		} while (remaining > 0 || buf.length() < 3);
+
+		return buf.toString();
+	}
+}
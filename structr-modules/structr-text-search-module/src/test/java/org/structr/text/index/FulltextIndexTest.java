@@ -0,0 +1,183 @@
+/**
+ * Copyright (C) 2010-2018 Structr GmbH
+ *
+ * This file is part of Structr <http://structr.org>.
+ *
+ * Structr is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * Structr is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Structr.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.structr.text.index;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import static junit.framework.TestCase.assertEquals;
+import static junit.framework.TestCase.assertTrue;
+import org.junit.Test;
+import org.structr.common.fulltext.FulltextSearchResult;
+
+/**
+ *
+ *
+ */
+public class FulltextIndexTest {
+
+	@Test
+	public void testRanking() {
+
+		final FulltextIndex index = new FulltextIndex(newDirectory());
+
+		index.add("a", terms("the quick brown fox jumps over the lazy dog"));
+		index.add("b", terms("the lazy dog sleeps the whole day, lazy dog"));
+		index.add("c", terms("a completely unrelated document about cats"));
+
+		assertEquals("Invalid search result", Arrays.asList("b", "a"), uuids(index.search(FulltextQuery.parse("lazy"), 10)));
+		assertEquals("Invalid search result", Arrays.asList("a", "b"), uuids(index.search(FulltextQuery.parse("fox lazy"), 10)));
+		assertEquals("Invalid search result", Arrays.asList("a"),      uuids(index.search(FulltextQuery.parse("fox lazy"), 1)));
+		assertEquals("Invalid search result", Arrays.asList("c"),      uuids(index.search(FulltextQuery.parse("CATS"), 10)));
+		assertEquals("Invalid search result", Collections.emptyList(), uuids(index.search(FulltextQuery.parse("elephant"), 10)));
+
+		index.close();
+	}
+
+	@Test
+	public void testPhraseAndPrefix() {
+
+		final FulltextIndex index = new FulltextIndex(newDirectory());
+
+		index.add("a", terms("the quick brown fox jumps over the lazy dog"));
+		index.add("b", terms("the brown dog and the quick fox"));
+
+		assertEquals("Invalid phrase search result", Arrays.asList("a"),      uuids(index.search(FulltextQuery.parse("\"brown fox\""), 10)));
+		assertEquals("Invalid phrase search result", Arrays.asList("b"),      uuids(index.search(FulltextQuery.parse("\"quick fox\""), 10)));
+		assertEquals("Invalid phrase search result", Collections.emptyList(), uuids(index.search(FulltextQuery.parse("\"fox brown\""), 10)));
+		assertEquals("Invalid prefix search result", Arrays.asList("a"),      uuids(index.search(FulltextQuery.parse("jum*"), 10)));
+		assertEquals("Invalid prefix search result", 2,                        index.search(FulltextQuery.parse("qui*"), 10).size());
+		assertEquals("Invalid required term result", Arrays.asList("a"),      uuids(index.search(FulltextQuery.parse("+lazy fox"), 10)));
+		assertEquals("Invalid forbidden term result", Arrays.asList("b"),     uuids(index.search(FulltextQuery.parse("fox -lazy"), 10)));
+
+		index.close();
+	}
+
+	@Test
+	public void testPaging() {
+
+		final FulltextIndex index = new FulltextIndex(newDirectory());
+
+		// same length for all documents, so that the score grows with the term frequency
+		for (int i=0; i<30; i++) {
+
+			final StringBuilder text = new StringBuilder();
+
+			for (int j=0; j<30; j++) {
+				text.append(j <= i ? " page" : " filler");
+			}
+
+			index.add("doc" + i, terms(text.toString()));
+		}
+
+		final FulltextSearchResult window = index.search(FulltextQuery.parse("page"), 10, 5);
+
+		assertEquals("Invalid search result window", Arrays.asList("doc19", "doc18", "doc17", "doc16", "doc15"), uuids(window.getHits()));
+		assertEquals("Invalid total count",          30, window.getTotalCount());
+
+		final FulltextSearchResult last = index.search(FulltextQuery.parse("page"), 28, 5);
+
+		assertEquals("Invalid search result window", Arrays.asList("doc1", "doc0"), uuids(last.getHits()));
+		assertEquals("Invalid total count",          30, last.getTotalCount());
+
+		final FulltextSearchResult beyond = index.search(FulltextQuery.parse("page"), 40, 5);
+
+		assertTrue("Window after the last hit must be empty", beyond.getHits().isEmpty());
+		assertEquals("Invalid total count", 30, beyond.getTotalCount());
+
+		index.close();
+	}
+
+	@Test
+	public void testUpdateDeleteAndReopen() {
+
+		final File directory = newDirectory();
+		FulltextIndex index  = new FulltextIndex(directory);
+
+		index.add("a", terms("first version of the document"));
+		index.add("b", terms("another document"));
+		index.flush();
+
+		index.add("a", terms("second version of the document"));
+		index.remove(Arrays.asList("b"));
+
+		assertEquals("Invalid search result", Collections.emptyList(), uuids(index.search(FulltextQuery.parse("first"), 10)));
+		assertEquals("Invalid search result", Arrays.asList("a"),      uuids(index.search(FulltextQuery.parse("second"), 10)));
+		assertEquals("Invalid search result", Arrays.asList("a"),      uuids(index.search(FulltextQuery.parse("document"), 10)));
+
+		index.close();
+
+		// the segments and the deleted documents must be restored
+		index = new FulltextIndex(directory);
+
+		assertEquals("Invalid document count after reopening", 1, index.getDocumentCount());
+		assertEquals("Invalid search result after reopening", Collections.emptyList(), uuids(index.search(FulltextQuery.parse("first"), 10)));
+		assertEquals("Invalid search result after reopening", Arrays.asList("a"),      uuids(index.search(FulltextQuery.parse("document"), 10)));
+
+		index.close();
+	}
+
+	@Test
+	public void testMerge() {
+
+		final FulltextIndex index = new FulltextIndex(newDirectory());
+
+		for (int i=0; i<25; i++) {
+
+			index.add("doc" + i, terms("document number" + i + " of the merge test"));
+			index.flush();
+		}
+
+		index.remove(Arrays.asList("doc3", "doc4"));
+		index.maintain();
+
+		assertTrue("Segments should be merged", index.getSegmentCount() < 10);
+		assertEquals("Invalid document count after merge", 23, index.getDocumentCount());
+		assertEquals("Invalid search result after merge", 23, index.search(FulltextQuery.parse("merge"), 100).size());
+		assertEquals("Invalid search result after merge", Arrays.asList("doc7"), uuids(index.search(FulltextQuery.parse("number7"), 10)));
+		assertEquals("Invalid search result after merge", Collections.emptyList(), uuids(index.search(FulltextQuery.parse("number3"), 10)));
+
+		index.close();
+	}
+
+	@Test
+	public void testHighlighting() {
+
+		final String text = "The quick brown fox jumps over the lazy dog.\n\nA brown dog & a quick fox.";
+
+		assertEquals("Invalid highlighting", Arrays.asList("The quick <mark>brown</mark> <mark>fox</mark> jumps over", "dog. A <mark>brown</mark> dog &amp; a"), Highlighter.highlight(FulltextQuery.parse("\"brown fox\" brown"), text, 4, 10));
+		assertEquals("Invalid highlighting", Arrays.asList("<mark>jumps</mark>"), Highlighter.highlight(FulltextQuery.parse("jum*"), text, 0, 10));
+	}
+
+	// ----- private methods -----
+	private File newDirectory() {
+		return new File("/tmp/" + System.nanoTime() + ".fulltext");
+	}
+
+	private List<String> terms(final String text) {
+		return FulltextQuery.analyze(text);
+	}
+
+	private List<String> uuids(final Map<String, Double> result) {
+		return new ArrayList<>(result.keySet());
+	}
+}
@@ -27,6 +27,8 @@ import java.io.Writer;
 import java.util.Collections;
 import java.util.Date;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Properties;
 import java.util.Set;
@@ -49,6 +51,7 @@ import org.slf4j.LoggerFactory;
 import org.structr.api.DatabaseService;
 import org.structr.api.NativeResult;
 import org.structr.api.NetworkException;
+import org.structr.api.NotFoundException;
 import org.structr.api.NotInTransactionException;
 import org.structr.api.QueryResult;
 import org.structr.api.Transaction;
@@ -63,6 +66,7 @@ import org.structr.api.util.QueryUtils;
 import org.structr.bolt.index.CypherNodeIndex;
 import org.structr.bolt.index.CypherRelationshipIndex;
 import org.structr.bolt.index.NodeResultStream;
+import org.structr.bolt.index.QueryResultCache;
 import org.structr.bolt.index.RelationshipResultStream;
 import org.structr.bolt.index.SimpleCypherQuery;
 import org.structr.bolt.mapper.NodeNodeMapper;
@@ -79,11 +83,14 @@ public class BoltDatabaseService implements DatabaseService, GraphProperties {
 	private static final Map<String, RelationshipType> relTypeCache   = new ConcurrentHashMap<>();
 	private static final Map<String, Label> labelCache                = new ConcurrentHashMap<>();
 	private static final ThreadLocal<SessionTransaction> sessions     = new ThreadLocal<>();
+	private static final String RELATIONSHIP_UUID_INDEX               = "relationship_auto_index";
 	private Properties globalGraphProperties                          = null;
 	private CypherRelationshipIndex relationshipIndex                 = null;
 	private CypherNodeIndex nodeIndex                                 = null;
+	private QueryResultCache queryResultCache                         = null;
 	private GraphDatabaseService graphDb                              = null;
 	private boolean needsIndexRebuild                                 = false;
+	private boolean relationshipUuidIndex                             = false;
 	private String databaseUrl                                        = null;
 	private String databasePath                                       = null;
 	private Driver driver                                             = null;
@@ -133,7 +140,9 @@ public class BoltDatabaseService implements DatabaseService, GraphProperties {
 				.setConfig("dbms.allow_format_migration", "true")
 				.setConfig( bolt.type, "BOLT" )
 				.setConfig( bolt.enabled, "true" )
-				.setConfig( bolt.address, databaseServerUrl);
+				.setConfig( bolt.address, databaseServerUrl)
+				.setConfig("dbms.auto_index.relationships.enabled", "true")
+				.setConfig("dbms.auto_index.relationships.keys", "id");
 
 			if (confFile.exists()) {
 				builder.loadPropertiesFromFile(confPath);
@@ -162,6 +171,9 @@ public class BoltDatabaseService implements DatabaseService, GraphProperties {
 			// disabled, planned for Structr 2.4
 			//createUUIDConstraint();
 
+			relationshipUuidIndex = checkRelationshipUuidIndex();
+			logger.info("Relationship UUID index {}", relationshipUuidIndex ? "enabled" : "not available, relationship lookups by UUID will scan");
+
 			// signal success
 			return true;
 
@@ -243,7 +255,117 @@ public class BoltDatabaseService implements DatabaseService, GraphProperties {
 		// make properties available to Cypher statement
 		map.put("properties", properties);
 
-		return NodeWrapper.newInstance(this, getCurrentTransaction().getNode(buf.toString(), map));
+		final SessionTransaction tx = getCurrentTransaction();
+		final NodeWrapper node      = NodeWrapper.newInstance(this, tx.getNode(buf.toString(), map));
+
+		tx.modified(node);
+
+		return node;
+	}
+
+	@Override
+	public Map<Integer, Node> createNodes(final Set<String> labels, final List<Map<String, Object>> properties) {
+
+		final StringBuilder buf        = new StringBuilder("UNWIND range(0, size({rows}) - 1) AS index CREATE (n");
+		final Map<Integer, Node> nodes = new LinkedHashMap<>();
+		final Map<String, Object> map  = new HashMap<>();
+
+		if (tenantId != null) {
+
+			buf.append(":");
+			buf.append(tenantId);
+		}
+
+		for (final String label : labels) {
+
+			buf.append(":");
+			buf.append(label);
+		}
+
+		// return the row index, the order of the result is not guaranteed
+		buf.append(") SET n = {rows}[index] RETURN index, n");
+
+		// make properties available to Cypher statement
+		map.put("rows", properties);
+
+		final SessionTransaction tx = getCurrentTransaction();
+
+		try (final NativeResult result = tx.run(buf.toString(), map)) {
+
+			while (result.hasNext()) {
+
+				final Map<String, Object> row = result.next();
+				final NodeWrapper node        = (NodeWrapper)row.get("n");
+
+				tx.modified(node);
+				nodes.put(((Number)row.get("index")).intValue(), node);
+			}
+		}
+
+		return nodes;
+	}
+
+	@Override
+	public Map<Integer, Relationship> createRelationships(final RelationshipType relationshipType, final List<Map<String, Object>> rows) {
+
+		final Map<Integer, Relationship> relationships = new LinkedHashMap<>();
+		final SessionTransaction tx                    = getCurrentTransaction();
+		final Map<String, Object> map                  = new HashMap<>();
+		final StringBuilder buf                        = new StringBuilder();
+
+		buf.append("UNWIND range(0, size({rows}) - 1) AS index WITH index, {rows}[index] AS row MATCH (n");
+
+		if (tenantId != null) {
+
+			buf.append(":");
+			buf.append(tenantId);
+		}
+
+		buf.append("), (m");
+
+		if (tenantId != null) {
+
+			buf.append(":");
+			buf.append(tenantId);
+		}
+
+		buf.append(") WHERE ID(n) = row.start AND ID(m) = row.end ");
+		buf.append("CREATE (n)-[r:");
+		buf.append(relationshipType.name());
+		buf.append("]->(m)");
+
+		// rows without start or end node are dropped by the MATCH, so
+		// the result is keyed by the index of the row
+		buf.append(" SET r = row.properties RETURN index, r");
+
+		map.put("rows", rows);
+
+		try (final NativeResult result = tx.run(buf.toString(), map)) {
+
+			while (result.hasNext()) {
+
+				final Map<String, Object> row = result.next();
+
+				relationships.put(((Number)row.get("index")).intValue(), (Relationship)row.get("r"));
+			}
+		}
+
+		// clear relationship caches of all affected nodes
+		for (final Map<String, Object> row : rows) {
+
+			for (final Object id : new Object[] { row.get("start"), row.get("end") }) {
+
+				if (id instanceof Number) {
+
+					final NodeWrapper node = NodeWrapper.newInstance(this, ((Number)id).longValue());
+
+					node.clearCaches();
+					tx.modified(node);
+				}
+			}
+		}
+
+		return relationships;
 	}
 
 	@Override
@@ -282,6 +404,51 @@ public class BoltDatabaseService implements DatabaseService, GraphProperties {
 
 	}
 
+	@Override
+	public Relationship getRelationshipByUuid(final String uuid) {
+
+		if (!relationshipUuidIndex) {
+			return null;
+		}
+
+		final StringBuilder buf       = new StringBuilder();
+		final SessionTransaction tx   = getCurrentTransaction();
+		final Map<String, Object> map = new HashMap<>();
+
+		map.put("uuid", uuid);
+
+		buf.append("START r=relationship:");
+		buf.append(RELATIONSHIP_UUID_INDEX);
+		buf.append("(id = {uuid}) MATCH (");
+
+		if (tenantId != null) {
+			buf.append(":");
+			buf.append(tenantId);
+		}
+
+		buf.append(")-[r]->(");
+
+		if (tenantId != null) {
+			buf.append(":");
+			buf.append(tenantId);
+		}
+
+		buf.append(") RETURN r");
+
+		try {
+
+			return RelationshipWrapper.newInstance(this, tx.getRelationship(buf.toString(), map));
+
+		} catch (NotFoundException nfex) {
+			return null;
+		}
+	}
+
+	@Override
+	public boolean hasRelationshipUuidIndex() {
+		return relationshipUuidIndex;
+	}
+
 	@Override
 	public QueryResult<Node> getAllNodes() {
 
@@ -294,9 +461,9 @@ public class BoltDatabaseService implements DatabaseService, GraphProperties {
 			buf.append(tenantId);
 		}
 
-		buf.append(") RETURN n");
+		buf.append(")");
 
-		return QueryUtils.map(new NodeNodeMapper(this), new NodeResultStream(this, new SimpleCypherQuery(buf.toString())));
+		return QueryUtils.map(new NodeNodeMapper(this), new NodeResultStream(this, new SimpleCypherQuery(buf.toString(), null, "n")));
 	}
 
 	@Override
@@ -317,9 +484,9 @@ public class BoltDatabaseService implements DatabaseService, GraphProperties {
 
 		buf.append(":");
 		buf.append(type);
-		buf.append(") RETURN n");
+		buf.append(")");
 
-		return QueryUtils.map(new NodeNodeMapper(this), new NodeResultStream(this, new SimpleCypherQuery(buf.toString())));
+		return QueryUtils.map(new NodeNodeMapper(this), new NodeResultStream(this, new SimpleCypherQuery(buf.toString(), null, "n")));
 	}
 
 	@Override
@@ -338,9 +505,9 @@ public class BoltDatabaseService implements DatabaseService, GraphProperties {
 			buf.append(tenantId);
 		}
 
-		buf.append(") WHERE n.type = {type} RETURN n");
+		buf.append(")");
 
-		final SimpleCypherQuery query = new SimpleCypherQuery(buf.toString());
+		final SimpleCypherQuery query = new SimpleCypherQuery(buf.toString(), "n.type = {type}", "n");
 
 		query.getParameters().put("type", type);
 
@@ -367,9 +534,9 @@ public class BoltDatabaseService implements DatabaseService, GraphProperties {
 			buf.append(tenantId);
 		}
 
-		buf.append(") RETURN r");
+		buf.append(")");
 
-		return QueryUtils.map(new RelationshipRelationshipMapper(this), new RelationshipResultStream(this, new SimpleCypherQuery(buf.toString())));
+		return QueryUtils.map(new RelationshipRelationshipMapper(this), new RelationshipResultStream(this, new SimpleCypherQuery(buf.toString(), null, "r")));
 	}
 
 	@Override
@@ -397,9 +564,9 @@ public class BoltDatabaseService implements DatabaseService, GraphProperties {
 			buf.append(tenantId);
 		}
 
-		buf.append(") RETURN r");
+		buf.append(")");
 
-		return QueryUtils.map(new RelationshipRelationshipMapper(this), new RelationshipResultStream(this, new SimpleCypherQuery(buf.toString())));
+		return QueryUtils.map(new RelationshipRelationshipMapper(this), new RelationshipResultStream(this, new SimpleCypherQuery(buf.toString(), null, "r")));
 	}
 
 	@Override
@@ -498,6 +665,30 @@ public class BoltDatabaseService implements DatabaseService, GraphProperties {
 		return tenantId;
 	}
 
+	@Override
+	public Map<String, Object> getStatistics() {
+
+		final Map<String, Object> statistics = new LinkedHashMap<>();
+
+		statistics.put("queryResultCache", getQueryResultCache().getStatistics());
+
+		return statistics;
+	}
+
+	@Override
+	public void invalidateQueryCache(final Set<String> labels) {
+		getQueryResultCache().invalidate(labels);
+	}
+
+	public synchronized QueryResultCache getQueryResultCache() {
+
+		if (queryResultCache == null) {
+			queryResultCache = new QueryResultCache(Settings.QueryCacheSize.getValue());
+		}
+
+		return queryResultCache;
+	}
+
 	public Label getOrCreateLabel(final String name) {
 
 		Label label = labelCache.get(name);
@@ -545,6 +736,44 @@ public class BoltDatabaseService implements DatabaseService, GraphProperties {
 		}
 	}
 
+	/**
+	 * Makes sure that the relationship auto index exists, and checks
+	 * whether it can be queried. A failing statement would abort the
+	 * surrounding transaction, so this is done once, in a separate
+	 * session.
+	 */
+	private boolean checkRelationshipUuidIndex() {
+
+		if (graphDb != null) {
+
+			// the auto index is created lazily, create it now so the lookup does not fail on an empty database
+			try (final org.neo4j.graphdb.Transaction tx = graphDb.beginTx()) {
+
+				graphDb.index().getRelationshipAutoIndexer().getAutoIndex();
+				tx.success();
+
+			} catch (Throwable t) {
+				logger.warn("Unable to create relationship auto index: {}", t.getMessage());
+			}
+		}
+
+		try (final Session session = driver.session()) {
+
+			try (final org.neo4j.driver.v1.Transaction tx = session.beginTransaction()) {
+
+				tx.run("START r=relationship:" + RELATIONSHIP_UUID_INDEX + "(id = '') RETURN count(r)").consume();
+				tx.success();
+
+				return true;
+			}
+
+		} catch (Throwable t) {
+			logger.debug("Relationship auto index not available: {}", t.getMessage());
+		}
+
+		return false;
+	}
+
 	private Properties getProperties() {
 
 		if (globalGraphProperties == null) {
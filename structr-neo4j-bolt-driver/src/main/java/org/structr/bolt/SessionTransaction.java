@@ -18,10 +18,16 @@
  */
 package org.structr.bolt;
 
+import java.util.ArrayList;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
 import java.util.Map;
+import java.util.Map.Entry;
 import java.util.Set;
 import org.apache.commons.lang.StringUtils;
 import org.neo4j.driver.v1.Record;
@@ -45,11 +51,13 @@ import org.structr.api.NetworkException;
 import org.structr.api.NotFoundException;
 import org.structr.api.QueryResult;
 import org.structr.api.RetryException;
+import org.structr.api.config.Settings;
 import org.structr.api.util.QueryUtils;
 import org.structr.bolt.mapper.RecordLongMapper;
 import org.structr.bolt.mapper.RecordNodeMapper;
 import org.structr.bolt.mapper.RecordRelationshipMapper;
 import org.structr.bolt.wrapper.EntityWrapper;
+import org.structr.bolt.wrapper.NodeWrapper;
 import org.structr.bolt.wrapper.StatementResultWrapper;
 
 /**
@@ -57,18 +65,28 @@ import org.structr.bolt.wrapper.StatementResultWrapper;
  */
 public class SessionTransaction implements org.structr.api.Transaction {
 
-	private final Set<EntityWrapper> modifiedEntities = new HashSet<>();
-	private BoltDatabaseService db                    = null;
-	private Session session                           = null;
-	private Transaction tx                            = null;
-	private boolean closed                            = false;
-	private boolean success                           = false;
+	private final Map<Long, Map<String, Object>> pendingNodeProperties = new LinkedHashMap<>();
+	private final Map<Long, Map<String, Object>> pendingRelProperties  = new LinkedHashMap<>();
+	private final Map<String, Set<Long>> pendingAddedLabels            = new LinkedHashMap<>();
+	private final Map<String, Set<Long>> pendingRemovedLabels          = new LinkedHashMap<>();
+	private final Set<EntityWrapper> modifiedEntities                  = new HashSet<>();
+	private BoltDatabaseService db                                     = null;
+	private Session session                                            = null;
+	private Transaction tx                                             = null;
+	private boolean batching                                           = true;
+	private boolean closed                                             = false;
+	private boolean dirty                                              = false;
+	private boolean success                                            = false;
+	private int batchSize                                              = 1000;
+	private int pendingWrites                                          = 0;
 
 	public SessionTransaction(final BoltDatabaseService db, final Session session) {
 
-		this.session = session;
-		this.tx      = session.beginTransaction();
-		this.db      = db;
+		this.session   = session;
+		this.tx        = session.beginTransaction();
+		this.db        = db;
+		this.batching  = Settings.WriteBatchingEnabled.getValue();
+		this.batchSize = Math.max(1, Settings.WriteBatchSize.getValue());
 	}
 
 	@Override
@@ -79,6 +97,9 @@ public class SessionTransaction implements org.structr.api.Transaction {
 	@Override
 	public void success() {
 
+		// send all buffered writes before the transaction can be committed
+		flush();
+
 		tx.success();
 
 		// transaction must be marked successfull explicitely
@@ -138,6 +159,17 @@ public class SessionTransaction implements org.structr.api.Transaction {
 		return closed;
 	}
 
+	/**
+	 * Indicates whether this transaction has (possibly) modified the
+	 * database, i.e. whether query results read in this transaction can
+	 * differ from the committed state.
+	 *
+	 * @return whether this transaction contains modifications
+	 */
+	public boolean isDirty() {
+		return dirty;
+	}
+
 	public void setClosed(final boolean closed) {
 		this.closed = closed;
 	}
@@ -168,6 +200,8 @@ public class SessionTransaction implements org.structr.api.Transaction {
 
 		try {
 
+			flush();
+
 			return tx.run(statement, map).next().get(0).asBoolean();
 
 		} catch (TransientException tex) {
@@ -208,6 +242,8 @@ public class SessionTransaction implements org.structr.api.Transaction {
 
 		try {
 
+			flush();
+
 			return tx.run(statement, map).next().get(0).asLong();
 
 		} catch (TransientException tex) {
@@ -228,6 +264,8 @@ public class SessionTransaction implements org.structr.api.Transaction {
 
 		try {
 
+			flush();
+
 			final StatementResult result = tx.run(statement, map);
 			if (result.hasNext()) {
 
@@ -254,6 +292,8 @@ public class SessionTransaction implements org.structr.api.Transaction {
 
 		try {
 
+			flush();
+
 			return tx.run(statement, map).next().get(0).asEntity();
 
 		} catch (TransientException tex) {
@@ -274,6 +314,8 @@ public class SessionTransaction implements org.structr.api.Transaction {
 
 		try {
 
+			flush();
+
 			return tx.run(statement, map).next().get(0).asNode();
 
 		} catch (TransientException tex) {
@@ -294,6 +336,8 @@ public class SessionTransaction implements org.structr.api.Transaction {
 
 		try {
 
+			flush();
+
 			return tx.run(statement, map).next().get(0).asRelationship();
 
 		} catch (TransientException tex) {
@@ -314,6 +358,8 @@ public class SessionTransaction implements org.structr.api.Transaction {
 
 		try {
 
+			flush();
+
 			return QueryUtils.map(new RecordNodeMapper(), new StatementIterable(tx.run(statement, map)));
 
 		} catch (TransientException tex) {
@@ -334,6 +380,8 @@ public class SessionTransaction implements org.structr.api.Transaction {
 
 		try {
 
+			flush();
+
 			return QueryUtils.map(new RecordRelationshipMapper(), new StatementIterable(tx.run(statement, map)));
 
 		} catch (TransientException tex) {
@@ -354,6 +402,8 @@ public class SessionTransaction implements org.structr.api.Transaction {
 
 		try {
 
+			flush();
+
 			return QueryUtils.map(new RecordLongMapper(), new StatementIterable(tx.run(statement, map)));
 
 		} catch (TransientException tex) {
@@ -374,6 +424,8 @@ public class SessionTransaction implements org.structr.api.Transaction {
 
 		try {
 
+			flush();
+
 			final StatementResult result = tx.run(statement, map);
 			final Record record = result.next();
 			final Value value = record.get(0);
@@ -407,8 +459,13 @@ public class SessionTransaction implements org.structr.api.Transaction {
 
 		final long t0 = System.currentTimeMillis();
 
+		// native statements can modify the database
+		dirty = true;
+
 		try {
 
+			flush();
+
 			return new StatementResultWrapper(db, tx.run(statement, map));
 
 		} catch (TransientException tex) {
@@ -429,6 +486,92 @@ public class SessionTransaction implements org.structr.api.Transaction {
 
 	public void set(final String statement, final Map<String, Object> map) {
 
+		dirty = true;
+
+		// arbitrary statements must see all previous writes
+		flush();
+
+		consume(statement, map);
+	}
+
+	public void setProperty(final EntityWrapper entity, final String key, final Object value) {
+
+		getPendingProperties(entity).put(key, value);
+		written();
+	}
+
+	public void setProperties(final EntityWrapper entity, final Map<String, Object> values) {
+
+		getPendingProperties(entity).putAll(values);
+		written();
+	}
+
+	public void removeProperty(final EntityWrapper entity, final String key) {
+
+		// a null value in "SET n += {props}" removes the property
+		getPendingProperties(entity).put(key, null);
+		written();
+	}
+
+	public void addLabel(final long id, final String label) {
+
+		getPendingLabels(pendingRemovedLabels, label).remove(id);
+		getPendingLabels(pendingAddedLabels, label).add(id);
+		written();
+	}
+
+	public void removeLabel(final long id, final String label) {
+
+		getPendingLabels(pendingAddedLabels, label).remove(id);
+		getPendingLabels(pendingRemovedLabels, label).add(id);
+		written();
+	}
+
+	/**
+	 * Sends all buffered property and label writes to the database,
+	 * coalesced into one UNWIND statement per kind of write. This is
+	 * the only place where buffered writes can fail, so failures of
+	 * EntityWrapper#setProperty etc. surface here, with the driver
+	 * exceptions translated (e.g. ConstraintViolationException), on
+	 * the next write that fills the batch, the next read or the commit.
+	 */
+	public void flush() {
+
+		if (pendingWrites == 0) {
+			return;
+		}
+
+		final String tenantIdentifier = db.getTenantIdentifier();
+		final String tenantLabel      = tenantIdentifier != null ? ":" + tenantIdentifier : "";
+
+		// reset counter first so that a failing statement does not cause an endless flush loop
+		pendingWrites = 0;
+
+		try {
+
+			flushProperties(pendingNodeProperties, "UNWIND {rows} AS row MATCH (n" + tenantLabel + ") WHERE ID(n) = row.id SET n += row.props");
+			flushProperties(pendingRelProperties,  "UNWIND {rows} AS row MATCH (" + tenantLabel + ")-[n]->(" + tenantLabel + ") WHERE ID(n) = row.id SET n += row.props");
+
+			flushLabels(pendingAddedLabels,   "UNWIND {ids} AS id MATCH (n" + tenantLabel + ") WHERE ID(n) = id SET n:");
+			flushLabels(pendingRemovedLabels, "UNWIND {ids} AS id MATCH (n" + tenantLabel + ") WHERE ID(n) = id REMOVE n:");
+
+		} catch (RuntimeException rex) {
+
+			// buffered writes are lost, so the transaction must not be committed
+			tx.failure();
+			throw rex;
+
+		} finally {
+
+			pendingNodeProperties.clear();
+			pendingRelProperties.clear();
+			pendingAddedLabels.clear();
+			pendingRemovedLabels.clear();
+		}
+	}
+
+	private void consume(final String statement, final Map<String, Object> map) {
+
 		final long t0 = System.currentTimeMillis();
 
 		try {
@@ -479,7 +622,86 @@ public class SessionTransaction implements org.structr.api.Transaction {
 	}
 
 	public void modified(final EntityWrapper wrapper) {
+
 		modifiedEntities.add(wrapper);
+		dirty = true;
+	}
+
+	// ----- private methods -----
+	private Map<String, Object> getPendingProperties(final EntityWrapper entity) {
+
+		final Map<Long, Map<String, Object>> pending = entity instanceof NodeWrapper ? pendingNodeProperties : pendingRelProperties;
+		Map<String, Object> properties               = pending.get(entity.getId());
+
+		if (properties == null) {
+
+			// HashMap allows null values, which are needed for property removal
+			properties = new HashMap<>();
+			pending.put(entity.getId(), properties);
+		}
+
+		return properties;
+	}
+
+	private Set<Long> getPendingLabels(final Map<String, Set<Long>> pending, final String label) {
+
+		Set<Long> ids = pending.get(label);
+		if (ids == null) {
+
+			ids = new LinkedHashSet<>();
+			pending.put(label, ids);
+		}
+
+		return ids;
+	}
+
+	private void written() {
+
+		dirty = true;
+		pendingWrites++;
+
+		if (!batching || pendingWrites >= batchSize) {
+			flush();
+		}
+	}
+
+	private void flushProperties(final Map<Long, Map<String, Object>> pending, final String statement) {
+
+		if (!pending.isEmpty()) {
+
+			final List<Map<String, Object>> rows = new ArrayList<>(pending.size());
+			final Map<String, Object> map        = new HashMap<>();
+
+			for (final Entry<Long, Map<String, Object>> entry : pending.entrySet()) {
+
+				final Map<String, Object> row = new HashMap<>();
+
+				row.put("id",    entry.getKey());
+				row.put("props", entry.getValue());
+
+				rows.add(row);
+			}
+
+			map.put("rows", rows);
+
+			consume(statement, map);
+		}
+	}
+
+	private void flushLabels(final Map<String, Set<Long>> pending, final String statementPrefix) {
+
+		for (final Entry<String, Set<Long>> entry : pending.entrySet()) {
+
+			final Set<Long> ids = entry.getValue();
+			if (!ids.isEmpty()) {
+
+				final Map<String, Object> map = new HashMap<>();
+
+				map.put("ids", new ArrayList<>(ids));
+
+				consume(statementPrefix + entry.getKey(), map);
+			}
+		}
 	}
 
 	// ----- public static methods -----
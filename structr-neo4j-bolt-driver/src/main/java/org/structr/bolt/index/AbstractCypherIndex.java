@@ -18,23 +18,33 @@
  */
 package org.structr.bolt.index;
 
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.structr.api.QueryResult;
+import org.structr.api.Transaction;
+import org.structr.api.config.Settings;
 import org.structr.api.graph.PropertyContainer;
 import org.structr.api.index.Index;
+import org.structr.api.search.AccessControlQuery;
 import org.structr.api.search.ArrayQuery;
+import org.structr.api.search.CachedQuery;
 import org.structr.api.search.EmptyQuery;
 import org.structr.api.search.ExactQuery;
 import org.structr.api.search.FulltextQuery;
+import org.structr.api.search.GraphQuery;
 import org.structr.api.search.GroupQuery;
 import org.structr.api.search.NotEmptyQuery;
 import org.structr.api.search.QueryPredicate;
@@ -46,6 +56,7 @@ import org.structr.api.search.TypeQuery;
 import org.structr.api.search.UuidQuery;
 import org.structr.api.util.Iterables;
 import org.structr.bolt.BoltDatabaseService;
+import org.structr.bolt.SessionTransaction;
 import org.structr.bolt.index.converter.BooleanTypeConverter;
 import org.structr.bolt.index.converter.ByteTypeConverter;
 import org.structr.bolt.index.converter.DateTypeConverter;
@@ -55,8 +66,11 @@ import org.structr.bolt.index.converter.IntTypeConverter;
 import org.structr.bolt.index.converter.LongTypeConverter;
 import org.structr.bolt.index.converter.ShortTypeConverter;
 import org.structr.bolt.index.converter.StringTypeConverter;
+import org.structr.bolt.index.factory.AccessControlQueryFactory;
 import org.structr.bolt.index.factory.ArrayQueryFactory;
+import org.structr.bolt.index.factory.CachedQueryFactory;
 import org.structr.bolt.index.factory.EmptyQueryFactory;
+import org.structr.bolt.index.factory.GraphQueryFactory;
 import org.structr.bolt.index.factory.GroupQueryFactory;
 import org.structr.bolt.index.factory.KeywordQueryFactory;
 import org.structr.bolt.index.factory.NotEmptyQueryFactory;
@@ -76,6 +90,15 @@ public abstract class AbstractCypherIndex<T extends PropertyContainer> implement
 	public static final TypeConverter DEFAULT_CONVERTER      = new StringTypeConverter();
 	public static final Map<Class, TypeConverter> CONVERTERS = new HashMap<>();
 	public static final Map<Class, QueryFactory> FACTORIES   = new HashMap<>();
+	private static final ExecutorService countExecutor       = Executors.newSingleThreadExecutor(r -> {
+
+		final Thread thread = new Thread(r, "ResultCounter");
+
+		thread.setDaemon(true);
+
+		return thread;
+	});
+	private static final Set<String> pendingCounts           = ConcurrentHashMap.newKeySet();
 
 	public static final Set<Class> INDEXABLE = new HashSet<>(Arrays.asList(new Class[] {
 		String.class,   Boolean.class,   Short.class,   Integer.class,   Long.class,   Character.class,   Float.class,   Double.class,   byte.class,
@@ -84,17 +107,20 @@ public abstract class AbstractCypherIndex<T extends PropertyContainer> implement
 
 	static {
 
-		FACTORIES.put(NotEmptyQuery.class,     new NotEmptyQueryFactory());
-		FACTORIES.put(FulltextQuery.class,     new KeywordQueryFactory());
-		FACTORIES.put(SpatialQuery.class,      new SpatialQueryFactory());
-		FACTORIES.put(GroupQuery.class,        new GroupQueryFactory());
-		FACTORIES.put(RangeQuery.class,        new RangeQueryFactory());
-		FACTORIES.put(ExactQuery.class,        new KeywordQueryFactory());
-		FACTORIES.put(ArrayQuery.class,        new ArrayQueryFactory());
-		FACTORIES.put(EmptyQuery.class,        new EmptyQueryFactory());
-		FACTORIES.put(TypeQuery.class,         new TypeQueryFactory());
-		FACTORIES.put(UuidQuery.class,         new UuidQueryFactory());
-		FACTORIES.put(RelationshipQuery.class, new RelationshipQueryFactory());
+		FACTORIES.put(NotEmptyQuery.class,      new NotEmptyQueryFactory());
+		FACTORIES.put(FulltextQuery.class,      new KeywordQueryFactory());
+		FACTORIES.put(SpatialQuery.class,       new SpatialQueryFactory());
+		FACTORIES.put(GroupQuery.class,         new GroupQueryFactory());
+		FACTORIES.put(RangeQuery.class,         new RangeQueryFactory());
+		FACTORIES.put(ExactQuery.class,         new KeywordQueryFactory());
+		FACTORIES.put(ArrayQuery.class,         new ArrayQueryFactory());
+		FACTORIES.put(EmptyQuery.class,         new EmptyQueryFactory());
+		FACTORIES.put(TypeQuery.class,          new TypeQueryFactory());
+		FACTORIES.put(UuidQuery.class,          new UuidQueryFactory());
+		FACTORIES.put(RelationshipQuery.class,  new RelationshipQueryFactory());
+		FACTORIES.put(AccessControlQuery.class, new AccessControlQueryFactory());
+		FACTORIES.put(CachedQuery.class,        new CachedQueryFactory());
+		FACTORIES.put(GraphQuery.class,         new GraphQueryFactory());
 
 		CONVERTERS.put(Boolean.class, new BooleanTypeConverter());
 		CONVERTERS.put(String.class,  new StringTypeConverter());
@@ -114,6 +140,7 @@ public abstract class AbstractCypherIndex<T extends PropertyContainer> implement
 	}
 
 	public abstract QueryResult<T> getResult(final PageableQuery query);
+	public abstract T getEntity(final long id);
 	public abstract String getQueryPrefix(final String mainType, final String sourceTypeLabel, final String targetTypeLabel);
 	public abstract String getQuerySuffix();
 
@@ -147,20 +174,111 @@ public abstract class AbstractCypherIndex<T extends PropertyContainer> implement
 
 	@Override
 	public QueryResult<T> query(final QueryPredicate predicate) {
+		return query(predicate, 0, 0);
+	}
 
-		final AdvancedCypherQuery query = new AdvancedCypherQuery(this);
+	@Override
+	public QueryResult<T> query(final QueryPredicate predicate, final int offset, final int pageSize) {
 
-		createQuery(this, predicate, query, true);
+		final AdvancedCypherQuery query = buildQuery(predicate);
 
-		final String sortKey = predicate.getSortKey();
-		if (sortKey != null) {
+		query.setOffset(offset);
 
-			query.sort(predicate.getSortType(), sortKey, predicate.sortDescending());
+		if (pageSize > 0) {
+			query.setPageSize(pageSize);
+		}
+
+		final QueryResultCache cache = db.getQueryResultCache();
+		if (query.isCacheable(cache)) {
+
+			final SessionTransaction tx = db.getCurrentTransaction();
+
+			// results must not be cached or served when the current
+			// transaction contains uncommitted modifications
+			if (!tx.isDirty()) {
+
+				final String key     = query.getCacheKey();
+				final List<Long> ids = cache.get(key);
+
+				if (ids != null) {
+					return new IdQueryResult(ids);
+				}
+
+				// snapshot must be taken before the query is executed
+				final QueryResultCache.Snapshot snapshot = cache.snapshot(query.getSnapshotLabels());
+
+				return new CachingQueryResult(getResult(query), snapshot, cache, key, tx);
+			}
 		}
 
 		return getResult(query);
 	}
 
+	@Override
+	public long count(final QueryPredicate predicate, final int limit) {
+
+		final AdvancedCypherQuery query = buildQuery(predicate);
+		final String statement          = query.getCountStatement();
+
+		if (statement == null) {
+			return -1L;
+		}
+
+		final SessionTransaction tx  = db.getCurrentTransaction();
+		final QueryResultCache cache = db.getQueryResultCache();
+		final boolean cacheable      = query.isCountCacheable() && !tx.isDirty();
+		final String key             = "count|" + query.getCacheKey();
+
+		if (cacheable) {
+
+			final Long count = cache.getCount(key);
+			if (count != null) {
+				return count;
+			}
+		}
+
+		// snapshot must be taken before the query is executed
+		final QueryResultCache.Snapshot snapshot = cache.snapshot(query.getSnapshotLabels());
+
+		// count one more than the limit to detect an inexact count
+		final int countLimit = limit < Integer.MAX_VALUE ? limit + 1 : limit;
+		final long count     = tx.getLong(statement, query.getCountParameters(countLimit));
+
+		if (count <= limit) {
+
+			if (cacheable) {
+				cache.putCount(key, snapshot, count);
+			}
+
+			return count;
+		}
+
+		if (cacheable && pendingCounts.add(key)) {
+
+			final Map<String, Object> parameters = query.getCountParameters(Integer.MAX_VALUE);
+
+			countExecutor.submit(() -> {
+
+				try (final Transaction countTx = db.beginTx()) {
+
+					cache.putCount(key, snapshot, db.getCurrentTransaction().getLong(statement, parameters));
+
+					countTx.success();
+
+				} catch (Throwable t) {
+
+					logger.warn("Unable to count query results: {}", t.getMessage());
+
+				} finally {
+
+					pendingCounts.remove(key);
+				}
+			});
+		}
+
+		return limit;
+	}
+
 	// ----- interface QueryFactory -----
 	@Override
 	public boolean createQuery(final QueryFactory parent, final QueryPredicate predicate, final AdvancedCypherQuery query, final boolean isFirst) {
@@ -182,7 +300,134 @@ public abstract class AbstractCypherIndex<T extends PropertyContainer> implement
 		return false;
 	}
 
+	// ----- private methods -----
+	private AdvancedCypherQuery buildQuery(final QueryPredicate predicate) {
+
+		final AdvancedCypherQuery query = new AdvancedCypherQuery(this);
+
+		createQuery(this, predicate, query, true);
+
+		final String sortKey = predicate.getSortKey();
+		if (sortKey != null) {
+
+			query.sort(predicate.getSortType(), sortKey, predicate.sortDescending());
+		}
+
+		return query;
+	}
+
 	// ----- nested classes -----
+	/**
+	 * Query result that instantiates the entities of a cached result.
+	 */
+	private class IdQueryResult implements QueryResult<T> {
+
+		private List<Long> ids = null;
+
+		public IdQueryResult(final List<Long> ids) {
+			this.ids = ids;
+		}
+
+		@Override
+		public void close() {
+		}
+
+		@Override
+		public Iterator<T> iterator() {
+
+			final Iterator<Long> it = ids.iterator();
+
+			return new Iterator<T>() {
+
+				@Override
+				public boolean hasNext() {
+					return it.hasNext();
+				}
+
+				@Override
+				public T next() {
+					return getEntity(it.next());
+				}
+			};
+		}
+	}
+
+	/**
+	 * Query result that records the IDs of the entities it returns and
+	 * stores them in the query result cache once it has been consumed
+	 * completely.
+	 */
+	private class CachingQueryResult implements QueryResult<T> {
+
+		private final List<Long> ids               = new ArrayList<>();
+		private QueryResultCache.Snapshot snapshot = null;
+		private QueryResultCache cache             = null;
+		private QueryResult<T> source              = null;
+		private SessionTransaction tx              = null;
+		private String key                         = null;
+		private boolean overflow                   = false;
+
+		public CachingQueryResult(final QueryResult<T> source, final QueryResultCache.Snapshot snapshot, final QueryResultCache cache, final String key, final SessionTransaction tx) {
+
+			this.snapshot = snapshot;
+			this.source   = source;
+			this.cache    = cache;
+			this.key      = key;
+			this.tx       = tx;
+		}
+
+		@Override
+		public void close() {
+			source.close();
+		}
+
+		@Override
+		public Iterator<T> iterator() {
+
+			final Iterator<T> it = source.iterator();
+			final int maxResults = Settings.QueryCacheMaxResults.getValue();
+
+			return new Iterator<T>() {
+
+				private boolean stored = false;
+
+				@Override
+				public boolean hasNext() {
+
+					final boolean hasNext = it.hasNext();
+
+					if (!hasNext && !stored && !overflow && !tx.isDirty()) {
+
+						cache.put(key, snapshot, new ArrayList<>(ids));
+						stored = true;
+					}
+
+					return hasNext;
+				}
+
+				@Override
+				public T next() {
+
+					final T next = it.next();
+
+					if (!overflow) {
+
+						ids.add(next.getId());
+
+						if (ids.size() > maxResults) {
+
+							// result too large, stop recording
+							overflow = true;
+							ids.clear();
+						}
+					}
+
+					return next;
+				}
+			};
+		}
+	}
+
 	protected class CachedQueryResult implements QueryResult<T> {
 
 		private Collection<T> result = null;
@@ -33,6 +33,7 @@ public abstract class AbstractResultStream<T> implements QueryResult<T> {
 	private BoltDatabaseService db            = null;
 
 	protected abstract QueryResult<T> fetchData(final BoltDatabaseService db, final String statement, final Map<String, Object> data);
+	protected abstract long getId(final T entity);
 
 	public AbstractResultStream(final BoltDatabaseService db, final PageableQuery query) {
 
@@ -53,6 +54,7 @@ public abstract class AbstractResultStream<T> implements QueryResult<T> {
 
 		return new Iterator<T>() {
 
+			private long lastId   = -1L;
 			private int remaining = 0;
 
 			@Override
@@ -71,6 +73,11 @@ public abstract class AbstractResultStream<T> implements QueryResult<T> {
 						// reset count
 						remaining = query.pageSize();
 
+						// resume after the last element instead of skipping
+						if (query.isSeekable()) {
+							query.seek(lastId);
+						}
+
 						final String statement            = query.getStatement();
 						final Map<String, Object> params  = query.getParameters();
 
@@ -97,8 +104,13 @@ public abstract class AbstractResultStream<T> implements QueryResult<T> {
 
 			@Override
 			public T next() {
+
+				final T next = current.next();
+
+				lastId = getId(next);
 				remaining--;
-				return current.next();
+
+				return next;
 			}
 		};
 	}
@@ -18,12 +18,14 @@
  */
 package org.structr.bolt.index;
 
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.Iterator;
-import java.util.LinkedList;
-import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
 import org.structr.api.search.SortType;
 
 /**
@@ -32,14 +34,18 @@ import org.structr.api.search.SortType;
 public class AdvancedCypherQuery implements PageableQuery {
 
 	private final Map<String, Object> parameters = new HashMap<>();
-	private final List<String> typeLabels        = new LinkedList<>();
+	private final Set<String> typeLabels         = new TreeSet<>();
+	private final Set<String> dependencyLabels   = new TreeSet<>();
 	private final StringBuilder buffer           = new StringBuilder();
 	private String sourceTypeLabel               = null;
 	private String targetTypeLabel               = null;
 	private AbstractCypherIndex<?> index         = null;
+	private boolean cachingDisabled              = false;
+	private boolean cachingEnabled               = false;
 	private boolean sortDescending               = false;
 	private SortType sortType                    = null;
 	private String sortKey                       = null;
+	private int offset                           = 0;
 	private int page                             = 0;
 	private int pageSize                         = 0;
 	private int count                            = 0;
@@ -83,102 +89,112 @@ public class AdvancedCypherQuery implements PageableQuery {
 		return this.pageSize;
 	}
 
+	/**
+	 * Returns the statement for this query. Statements only depend on the
+	 * structure of the query, all values (including paging) are passed as
+	 * parameters, and type labels are ordered canonically, so that the
+	 * number of distinct statements (and database query plans) is kept to
+	 * a minimum. The database caches query plans by statement text, so the
+	 * statement is not cached here.
+	 *
+	 * @return the statement
+	 */
 	@Override
 	public String getStatement() {
+		return isSeekable() ? getSeekStatement() : getPagedStatement();
+	}
 
-		final StringBuilder buf = new StringBuilder();
-		final int typeCount     = typeLabels.size();
-
-		switch (typeCount) {
-
-			case 0:
-
-				buf.append(index.getQueryPrefix(null, sourceTypeLabel, targetTypeLabel));
+	@Override
+	public Map<String, Object> getParameters() {
 
-				if (buffer.length() > 0) {
-					buf.append(" WHERE ");
-					buf.append(buffer);
-				}
+		parameters.put("limit", pageSize);
 
-				buf.append(index.getQuerySuffix());
-				break;
+		if (isSeekable()) {
 
-			case 1:
+			// the offset only applies to the first page, subsequent
+			// pages resume after the last element
+			parameters.put("skip", page == 0 ? offset : 0);
 
-				buf.append(index.getQueryPrefix(typeLabels.get(0), sourceTypeLabel, targetTypeLabel));
+		} else {
 
-				if (buffer.length() > 0) {
-					buf.append(" WHERE ");
-					buf.append(buffer);
-				}
+			parameters.put("skip", offset + page * pageSize);
+		}
 
-				buf.append(index.getQuerySuffix());
-				break;
+		return parameters;
+	}
 
-			default:
+	public void setPageSize(final int pageSize) {
+		this.pageSize = pageSize;
+	}
 
-				// create UNION query
-				for (final Iterator<String> it = typeLabels.iterator(); it.hasNext();) {
+	/**
+	 * Sets the number of results to skip before the first result.
+	 *
+	 * @param offset the offset
+	 */
+	public void setOffset(final int offset) {
+		this.offset = Math.max(0, offset);
+	}
 
-					buf.append(index.getQueryPrefix(it.next(), sourceTypeLabel, targetTypeLabel));
+	/**
+	 * Returns a statement that counts the distinct results of this query,
+	 * up to the limit given in the "limit" parameter, or null if the query
+	 * cannot be counted in a single statement (UNION over multiple labels).
+	 *
+	 * @return the count statement or null
+	 */
+	public String getCountStatement() {
+
+		if (typeLabels.size() > 1) {
+			return null;
+		}
 
-					if (buffer.length() > 0) {
-						buf.append(" WHERE ");
-						buf.append(buffer);
-					}
+		final StringBuilder buf = new StringBuilder();
 
-					buf.append(index.getQuerySuffix());
+		buf.append(index.getQueryPrefix(typeLabels.isEmpty() ? null : typeLabels.iterator().next(), sourceTypeLabel, targetTypeLabel));
 
-					if (it.hasNext()) {
-						buf.append(" UNION ");
-					}
-				}
-				break;
+		if (buffer.length() > 0) {
+			buf.append(" WHERE ");
+			buf.append(buffer);
 		}
 
-		if (sortKey != null) {
+		buf.append(" WITH DISTINCT n LIMIT {limit} RETURN count(n)");
 
-			switch (sortType) {
+		return buf.toString();
+	}
 
-				case Default:
-					// default is "String"
-					// no COALESCE needed => much faster
-					buf.append(" ORDER BY n.`");
-					buf.append(sortKey);
-					buf.append("` ");
-					
-					break;
+	/**
+	 * Returns the parameters for the count statement.
+	 *
+	 * @param limit the maximum number of results to count
+	 * @return the parameters
+	 */
+	public Map<String, Object> getCountParameters(final int limit) {
 
-				default:
-					// other types are numeric
-					buf.append(" ORDER BY COALESCE(n.`");
-					buf.append(sortKey);
-					buf.append("`, ");
-					
-					// COALESCE needs a correctly typed minimum value,
-					// so we need to supply a value based on the sort
-					// type.
-					
-					buf.append("-1");
-					buf.append(")");
-			}
+		final Map<String, Object> countParameters = new HashMap<>(parameters);
 
-			if (sortDescending) {
-				buf.append(" DESC");
-			}
-		}
+		countParameters.remove("skip");
+		countParameters.remove("lastId");
+		countParameters.put("limit", limit);
 
-		buf.append(" SKIP ");
-		buf.append(page * pageSize);
-		buf.append(" LIMIT ");
-		buf.append(pageSize);
+		return countParameters;
+	}
 
-		return buf.toString();
+	/**
+	 * Keyset paging is only possible if the results are ordered by
+	 * internal id, i.e. if there is no user-defined sort order and
+	 * no UNION over multiple type labels. Neo4j 3.2 has no range seek
+	 * on internal ids, so "ID(n) > {lastId}" filters a scan of all
+	 * matching nodes on every page; see SimpleCypherQuery#getStatement.
+	 */
+	@Override
+	public boolean isSeekable() {
+		return sortKey == null && typeLabels.size() <= 1;
 	}
 
 	@Override
-	public Map<String, Object> getParameters() {
-		return parameters;
+	public void seek(final long lastId) {
+		parameters.put("lastId", lastId);
 	}
 
 	public void beginGroup() {
@@ -326,6 +342,31 @@ public class AdvancedCypherQuery implements PageableQuery {
 		parameters.put(paramKey2, value2);
 	}
 
+	/**
+	 * Registers the given value as a query parameter.
+	 *
+	 * @param value the value
+	 * @return the name of the parameter
+	 */
+	public String addParameter(final Object value) {
+
+		final String paramKey = "param" + count++;
+
+		parameters.put(paramKey, value);
+
+		return paramKey;
+	}
+
+	/**
+	 * Appends a pre-built condition to the WHERE clause. Parameters used
+	 * in the condition must be registered with {@link #addParameter}.
+	 *
+	 * @param clause the condition
+	 */
+	public void addClause(final String clause) {
+		buffer.append(clause);
+	}
+
 	public void sort(final SortType sortType, final String sortKey, final boolean sortDescending) {
 
 		this.sortDescending = sortDescending;
@@ -333,6 +374,92 @@ public class AdvancedCypherQuery implements PageableQuery {
 		this.sortKey        = sortKey;
 	}
 
+	/**
+	 * Enables result caching for this query, regardless of the type
+	 * configuration of the query result cache.
+	 */
+	public void enableCaching() {
+		this.cachingEnabled = true;
+	}
+
+	/**
+	 * Prevents result caching for this query, e.g. because its result
+	 * depends on entities other than the ones returned.
+	 */
+	public void disableCaching() {
+		this.cachingDisabled = true;
+	}
+
+	/**
+	 * Declares labels or relationship types, other than the type labels,
+	 * whose modification changes the result of this query, e.g. the
+	 * relationships that grant access to the results. The results of such
+	 * queries are not cached, but their counts are, and are invalidated
+	 * when entities with one of these labels are modified.
+	 *
+	 * @param labels the labels or relationship types
+	 */
+	public void addDependencyLabels(final String... labels) {
+		this.dependencyLabels.addAll(Arrays.asList(labels));
+	}
+
+	public boolean isCacheable(final QueryResultCache cache) {
+		return !cachingDisabled && dependencyLabels.isEmpty() && (cachingEnabled || cache.isEnabled(typeLabels));
+	}
+
+	/**
+	 * Indicates whether the number of results of this query can be cached,
+	 * which is the case unless caching was disabled.
+	 *
+	 * @return whether the result count can be cached
+	 */
+	public boolean isCountCacheable() {
+		return !cachingDisabled;
+	}
+
+	/**
+	 * Returns a key that identifies the result of this query, consisting
+	 * of the structural signature and the parameter values.
+	 *
+	 * @return the cache key
+	 */
+	public String getCacheKey() {
+
+		final StringBuilder buf = new StringBuilder(getSignature());
+
+		buf.append("|offset=");
+		buf.append(offset);
+
+		for (final Entry<String, Object> entry : new TreeMap<>(parameters).entrySet()) {
+
+			buf.append("|");
+			buf.append(entry.getKey());
+			buf.append("=");
+			buf.append(Arrays.deepToString(new Object[] { entry.getValue() }));
+		}
+
+		return buf.toString();
+	}
+
+	public Set<String> getTypeLabels() {
+		return typeLabels;
+	}
+
+	/**
+	 * Returns the labels whose versions must be recorded when the result
+	 * or the count of this query is cached.
+	 *
+	 * @return the type labels and the dependency labels
+	 */
+	public Set<String> getSnapshotLabels() {
+
+		final Set<String> labels = new TreeSet<>(typeLabels);
+
+		labels.addAll(dependencyLabels);
+
+		return labels;
+	}
+
 	public void setSourceType(final String sourceTypeLabel) {
 		this.sourceTypeLabel = sourceTypeLabel;
 	}
@@ -341,6 +468,145 @@ public class AdvancedCypherQuery implements PageableQuery {
 		this.targetTypeLabel = targetTypeLabel;
 	}
 
+	// ----- private methods -----
+	private String getPagedStatement() {
+
+		final StringBuilder buf = new StringBuilder();
+		final int typeCount     = typeLabels.size();
+
+		switch (typeCount) {
+
+			case 0:
+
+				buf.append(index.getQueryPrefix(null, sourceTypeLabel, targetTypeLabel));
+
+				if (buffer.length() > 0) {
+					buf.append(" WHERE ");
+					buf.append(buffer);
+				}
+
+				buf.append(index.getQuerySuffix());
+				break;
+
+			case 1:
+
+				buf.append(index.getQueryPrefix(typeLabels.iterator().next(), sourceTypeLabel, targetTypeLabel));
+
+				if (buffer.length() > 0) {
+					buf.append(" WHERE ");
+					buf.append(buffer);
+				}
+
+				buf.append(index.getQuerySuffix());
+				break;
+
+			default:
+
+				// create UNION query
+				for (final Iterator<String> it = typeLabels.iterator(); it.hasNext();) {
+
+					buf.append(index.getQueryPrefix(it.next(), sourceTypeLabel, targetTypeLabel));
+
+					if (buffer.length() > 0) {
+						buf.append(" WHERE ");
+						buf.append(buffer);
+					}
+
+					buf.append(index.getQuerySuffix());
+
+					if (it.hasNext()) {
+						buf.append(" UNION ");
+					}
+				}
+				break;
+		}
+
+		if (sortKey != null) {
+
+			switch (sortType) {
+
+				case Default:
+					// default is "String"
+					// no COALESCE needed => much faster
+					buf.append(" ORDER BY n.`");
+					buf.append(sortKey);
+					buf.append("` ");
+					
+					break;
+
+				default:
+					// other types are numeric
+					buf.append(" ORDER BY COALESCE(n.`");
+					buf.append(sortKey);
+					buf.append("`, ");
+					
+					// COALESCE needs a correctly typed minimum value,
+					// so we need to supply a value based on the sort
+					// type.
+					
+					buf.append("-1");
+					buf.append(")");
+			}
+
+			if (sortDescending) {
+				buf.append(" DESC");
+			}
+		}
+
+		buf.append(" SKIP {skip} LIMIT {limit}");
+
+		return buf.toString();
+	}
+
+	private String getSeekStatement() {
+
+		final StringBuilder buf = new StringBuilder();
+		final String typeLabel  = typeLabels.isEmpty() ? null : typeLabels.iterator().next();
+
+		buf.append(index.getQueryPrefix(typeLabel, sourceTypeLabel, targetTypeLabel));
+		buf.append(" WHERE ");
+
+		if (buffer.length() > 0) {
+
+			buf.append("(");
+			buf.append(buffer);
+			buf.append(") AND ");
+		}
+
+		buf.append("ID(n) > {lastId}");
+		buf.append(index.getQuerySuffix());
+		buf.append(" ORDER BY ID(n) SKIP {skip} LIMIT {limit}");
+
+		return buf.toString();
+	}
+
+	private String getSignature() {
+
+		final StringBuilder buf = new StringBuilder();
+
+		buf.append(index.getClass().getSimpleName());
+		buf.append("|");
+		buf.append(index.db.getTenantIdentifier());
+		buf.append("|");
+		buf.append(isSeekable());
+		buf.append("|");
+		buf.append(typeLabels);
+		buf.append("|");
+		buf.append(sourceTypeLabel);
+		buf.append("|");
+		buf.append(targetTypeLabel);
+		buf.append("|");
+		buf.append(sortType);
+		buf.append("|");
+		buf.append(sortKey);
+		buf.append("|");
+		buf.append(sortDescending);
+		buf.append("|");
+		buf.append(buffer);
+
+		return buf.toString();
+	}
+
 	private int deepHashCode(final Map<String, Object> map) {
 
 		final StringBuilder buf = new StringBuilder();
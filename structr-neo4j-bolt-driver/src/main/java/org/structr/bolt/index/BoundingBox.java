@@ -0,0 +1,108 @@
+/**
+ * Copyright (C) 2010-2018 Structr GmbH
+ *
+ * This file is part of Structr <http://structr.org>.
+ *
+ * Structr is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * Structr is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Structr.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.structr.bolt.index;
+
+/**
+ * A latitude/longitude bounding box that contains all points within a
+ * given distance of a center point. Used to prefilter distance queries
+ * with range seeks on the indexed latitude and longitude properties,
+ * before the exact distance is evaluated.
+ */
+public class BoundingBox {
+
+	// use the polar radius (the smallest radius of the WGS84 ellipsoid)
+	// so that the box contains all points regardless of the radius that
+	// the database uses to compute distances
+	public static final double EARTH_RADIUS_KM = 6356.752;
+
+	private double minLatitude   = 0.0;
+	private double maxLatitude   = 0.0;
+	private double minLongitude  = -180.0;
+	private double maxLongitude  = 180.0;
+	private boolean hasLongitude = false;
+
+	/**
+	 * Creates the bounding box for the given center and distance.
+	 *
+	 * @param latitude the latitude of the center, in degrees
+	 * @param longitude the longitude of the center, in degrees
+	 * @param distance the distance, in kilometers
+	 */
+	public BoundingBox(final double latitude, final double longitude, final double distance) {
+
+		final double angle    = distance / EARTH_RADIUS_KM;
+		final double latDelta = Math.toDegrees(angle);
+
+		minLatitude = latitude - latDelta;
+		maxLatitude = latitude + latDelta;
+
+		// longitude range is only bounded if the box contains no pole
+		// and does not cross the antimeridian
+		if (minLatitude > -90.0 && maxLatitude < 90.0) {
+
+			// maximum longitude difference on the circle around the center
+			final double lonDelta = Math.toDegrees(Math.asin(Math.sin(angle) / Math.cos(Math.toRadians(latitude))));
+
+			if (longitude - lonDelta >= -180.0 && longitude + lonDelta <= 180.0) {
+
+				minLongitude = longitude - lonDelta;
+				maxLongitude = longitude + lonDelta;
+				hasLongitude = true;
+			}
+		}
+
+		minLatitude = Math.max(-90.0, minLatitude);
+		maxLatitude = Math.min( 90.0, maxLatitude);
+	}
+
+	public double getMinLatitude() {
+		return minLatitude;
+	}
+
+	public double getMaxLatitude() {
+		return maxLatitude;
+	}
+
+	public double getMinLongitude() {
+		return minLongitude;
+	}
+
+	public double getMaxLongitude() {
+		return maxLongitude;
+	}
+
+	/**
+	 * Indicates whether the longitude range is bounded. Boxes that contain
+	 * a pole or cross the antimeridian are only bounded in latitude.
+	 *
+	 * @return whether the longitude range is bounded
+	 */
+	public boolean hasLongitudeRange() {
+		return hasLongitude;
+	}
+
+	public boolean contains(final double latitude, final double longitude) {
+
+		if (latitude < minLatitude || latitude > maxLatitude) {
+			return false;
+		}
+
+		return !hasLongitude || (longitude >= minLongitude && longitude <= maxLongitude);
+	}
+}
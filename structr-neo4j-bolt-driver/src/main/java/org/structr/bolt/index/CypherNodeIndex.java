@@ -23,6 +23,7 @@ import org.structr.api.graph.Node;
 import org.structr.api.util.QueryUtils;
 import org.structr.bolt.BoltDatabaseService;
 import org.structr.bolt.mapper.NodeNodeMapper;
+import org.structr.bolt.wrapper.NodeWrapper;
 
 /**
  *
@@ -73,4 +74,9 @@ public class CypherNodeIndex extends AbstractCypherIndex<Node> {
 	public QueryResult<Node> getResult(final PageableQuery query) {
 		return QueryUtils.map(new NodeNodeMapper(db), new NodeResultStream(db, query));
 	}
+
+	@Override
+	public Node getEntity(final long id) {
+		return NodeWrapper.newInstance(db, id);
+	}
 }
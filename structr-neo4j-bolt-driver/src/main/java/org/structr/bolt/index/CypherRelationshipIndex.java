@@ -23,6 +23,7 @@ import org.structr.api.graph.Relationship;
 import org.structr.api.util.QueryUtils;
 import org.structr.bolt.BoltDatabaseService;
 import org.structr.bolt.mapper.RelationshipRelationshipMapper;
+import org.structr.bolt.wrapper.RelationshipWrapper;
 
 /**
  *
@@ -84,4 +85,9 @@ public class CypherRelationshipIndex extends AbstractCypherIndex<Relationship> {
 	public QueryResult<Relationship> getResult(final PageableQuery query) {
 		return QueryUtils.map(new RelationshipRelationshipMapper(db), new RelationshipResultStream(db, query));
 	}
+
+	@Override
+	public Relationship getEntity(final long id) {
+		return RelationshipWrapper.newInstance(db, id);
+	}
 }
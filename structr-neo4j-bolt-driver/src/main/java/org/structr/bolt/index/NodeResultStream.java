@@ -38,4 +38,9 @@ public class NodeResultStream extends AbstractResultStream<Node> {
 		final SessionTransaction tx = db.getCurrentTransaction();
 		return tx.getNodes(statement, data);
 	}
+
+	@Override
+	protected long getId(final Node entity) {
+		return entity.id();
+	}
 }
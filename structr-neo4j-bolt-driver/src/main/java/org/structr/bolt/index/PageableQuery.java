@@ -27,4 +27,21 @@ public interface PageableQuery {
 	String getStatement();
 	Map<String, Object> getParameters();
 
+	/**
+	 * Indicates whether this query can be paged by seeking to the last
+	 * internal id that was returned, instead of skipping an increasing
+	 * number of rows.
+	 *
+	 * @return whether keyset paging is supported
+	 */
+	boolean isSeekable();
+
+	/**
+	 * Makes the next statement resume after the given internal id. Only
+	 * called if {@link #isSeekable()} returns true.
+	 *
+	 * @param lastId the internal id of the last element that was returned
+	 */
+	void seek(final long lastId);
+
 }
@@ -0,0 +1,269 @@
+/**
+ * Copyright (C) 2010-2018 Structr GmbH
+ *
+ * This file is part of Structr <http://structr.org>.
+ *
+ * Structr is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * Structr is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Structr.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.structr.bolt.index;
+
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import org.apache.commons.lang.StringUtils;
+import org.structr.api.config.Settings;
+import org.structr.api.util.FixedSizeCache;
+
+/**
+ * Caches the internal IDs of query results, keyed by the normalized
+ * statement and its parameters.
+ *
+ * Each type label has a version that is incremented when entities with
+ * this label are modified. Cached results record the versions of their
+ * labels at the time the query was started, so results that were read
+ * while a modification was committed are never served.
+ */
+public class QueryResultCache {
+
+	private final Map<String, AtomicLong> versions = new ConcurrentHashMap<>();
+	private final AtomicLong anyVersion            = new AtomicLong();
+	private final AtomicLong allVersion            = new AtomicLong();
+	private final LongAdder invalidations          = new LongAdder();
+	private final LongAdder misses                 = new LongAdder();
+	private final LongAdder hits                   = new LongAdder();
+	private FixedSizeCache<String, Entry> cache    = null;
+	private FixedSizeCache<String, Entry> counts   = null;
+	private Set<String> enabledTypes               = Collections.emptySet();
+	private String enabledTypesSource              = "";
+
+	public QueryResultCache(final int maxSize) {
+		this.cache  = new FixedSizeCache<>(maxSize);
+		this.counts = new FixedSizeCache<>(maxSize);
+	}
+
+	/**
+	 * Indicates whether results of queries for the given type labels
+	 * are cached according to the configuration.
+	 *
+	 * @param labels the type labels of the query
+	 * @return whether the query result can be cached
+	 */
+	public boolean isEnabled(final Set<String> labels) {
+
+		final Set<String> types = getEnabledTypes();
+
+		if (types.contains("*")) {
+			return true;
+		}
+
+		return !labels.isEmpty() && types.containsAll(labels);
+	}
+
+	/**
+	 * Returns the current versions of the given labels. The snapshot must
+	 * be taken before the query is executed.
+	 *
+	 * @param labels the type labels of the query
+	 * @return the snapshot
+	 */
+	public Snapshot snapshot(final Set<String> labels) {
+
+		final Map<String, Long> labelVersions = new LinkedHashMap<>();
+
+		for (final String label : labels) {
+			labelVersions.put(label, getVersion(label).get());
+		}
+
+		return new Snapshot(anyVersion.get(), allVersion.get(), labelVersions);
+	}
+
+	public List<Long> get(final String key) {
+
+		final Entry entry = cache.get(key);
+		if (entry != null) {
+
+			if (entry.snapshot.isValid()) {
+
+				hits.increment();
+				return (List<Long>)entry.value;
+			}
+
+			cache.remove(key);
+		}
+
+		misses.increment();
+
+		return null;
+	}
+
+	public void put(final String key, final Snapshot snapshot, final List<Long> ids) {
+
+		// do not store results that are already outdated
+		if (snapshot.isValid()) {
+			cache.put(key, new Entry(snapshot, ids));
+		}
+	}
+
+	/**
+	 * Returns the cached number of results of a query. Counts are cached
+	 * independently of the type configuration, since they are usually
+	 * requested for every page of a paged result.
+	 *
+	 * @param key the cache key
+	 * @return the number of results or null
+	 */
+	public Long getCount(final String key) {
+
+		final Entry entry = counts.get(key);
+		if (entry != null) {
+
+			if (entry.snapshot.isValid()) {
+				return (Long)entry.value;
+			}
+
+			counts.remove(key);
+		}
+
+		return null;
+	}
+
+	public void putCount(final String key, final Snapshot snapshot, final long count) {
+
+		// do not store counts that are already outdated
+		if (snapshot.isValid()) {
+			counts.put(key, new Entry(snapshot, count));
+		}
+	}
+
+	public void invalidate(final Set<String> labels) {
+
+		invalidations.increment();
+
+		// versions are incremented before anything else so that
+		// concurrently started queries see the modification
+		anyVersion.incrementAndGet();
+
+		if (labels == null) {
+
+			allVersion.incrementAndGet();
+			cache.clear();
+			counts.clear();
+
+		} else {
+
+			for (final String label : labels) {
+				getVersion(label).incrementAndGet();
+			}
+		}
+	}
+
+	public Map<String, Object> getStatistics() {
+
+		final Map<String, Object> statistics = new LinkedHashMap<>();
+
+		statistics.put("enabledTypes",  getEnabledTypes());
+		statistics.put("size",          cache.size());
+		statistics.put("counts",        counts.size());
+		statistics.put("maxSize",       Settings.QueryCacheSize.getValue());
+		statistics.put("hits",          hits.sum());
+		statistics.put("misses",        misses.sum());
+		statistics.put("invalidations", invalidations.sum());
+
+		return statistics;
+	}
+
+	// ----- private methods -----
+	private AtomicLong getVersion(final String label) {
+		return versions.computeIfAbsent(label, k -> new AtomicLong());
+	}
+
+	private synchronized Set<String> getEnabledTypes() {
+
+		final String source = Settings.QueryCacheTypes.getValue();
+
+		if (!StringUtils.equals(source, enabledTypesSource)) {
+
+			final Set<String> types = new HashSet<>();
+
+			if (source != null) {
+
+				for (final String type : source.split("[, ]+")) {
+
+					if (StringUtils.isNotBlank(type)) {
+						types.add(type.trim());
+					}
+				}
+			}
+
+			enabledTypes       = types;
+			enabledTypesSource = source;
+		}
+
+		return enabledTypes;
+	}
+
+	// ----- nested classes -----
+	public class Snapshot {
+
+		private Map<String, Long> labelVersions = null;
+		private long anyVersion                 = 0L;
+		private long allVersion                 = 0L;
+
+		private Snapshot(final long anyVersion, final long allVersion, final Map<String, Long> labelVersions) {
+
+			this.labelVersions = labelVersions;
+			this.anyVersion    = anyVersion;
+			this.allVersion    = allVersion;
+		}
+
+		private boolean isValid() {
+
+			// results of untyped queries depend on all modifications
+			if (labelVersions.isEmpty()) {
+				return anyVersion == QueryResultCache.this.anyVersion.get();
+			}
+
+			if (allVersion != QueryResultCache.this.allVersion.get()) {
+				return false;
+			}
+
+			for (final Map.Entry<String, Long> entry : labelVersions.entrySet()) {
+
+				if (entry.getValue() != getVersion(entry.getKey()).get()) {
+					return false;
+				}
+			}
+
+			return true;
+		}
+	}
+
+	private static class Entry {
+
+		private Snapshot snapshot = null;
+		private Object value      = null;
+
+		public Entry(final Snapshot snapshot, final Object value) {
+
+			this.snapshot = snapshot;
+			this.value    = value;
+		}
+	}
+}
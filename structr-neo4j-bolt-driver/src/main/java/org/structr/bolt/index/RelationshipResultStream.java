@@ -37,5 +37,10 @@ public class RelationshipResultStream extends AbstractResultStream<Relationship>
 		final SessionTransaction tx = db.getCurrentTransaction();
 		return tx.getRelationships(statement, data);
 	}
+
+	@Override
+	protected long getId(final Relationship entity) {
+		return entity.id();
+	}
 }
 
@@ -27,6 +27,8 @@ import java.util.Map;
 public class SimpleCypherQuery implements PageableQuery {
 
 	private final Map<String, Object> params = new LinkedHashMap<>();
+	private String identifier                = null;
+	private String condition                 = null;
 	private String base                      = null;
 	private int pageSize                     = 0;
 	private int page                         = 0;
@@ -37,6 +39,25 @@ public class SimpleCypherQuery implements PageableQuery {
 		this.base     = base;
 	}
 
+	/**
+	 * Creates a query that is paged by internal id. The statement is
+	 * assembled from the given MATCH clause, an optional condition and
+	 * the identifier that is returned.
+	 *
+	 * @param match the MATCH clause
+	 * @param condition the WHERE condition, or null
+	 * @param identifier the identifier to return
+	 */
+	public SimpleCypherQuery(final String match, final String condition, final String identifier) {
+
+		this.pageSize   = 10000;
+		this.base       = match;
+		this.condition  = condition;
+		this.identifier = identifier;
+
+		params.put("lastId", -1L);
+	}
+
 	@Override
 	public void nextPage() {
 		page++;
@@ -47,21 +68,74 @@ public class SimpleCypherQuery implements PageableQuery {
 		return this.pageSize;
 	}
 
+	public void setPageSize(final int pageSize) {
+		this.pageSize = pageSize;
+	}
+
+	/**
+	 * Returns the statement for the next page. Seekable queries resume
+	 * after the internal id of the last element instead of skipping, so
+	 * that no element is returned twice or skipped when elements of
+	 * earlier pages are deleted. Note that Neo4j 3.2 cannot seek on a
+	 * range of internal ids: the condition "ID(n) > {lastId}" is a filter,
+	 * so every page still scans all matching elements before it sorts
+	 * them. Keyset paging makes the result complete and stable, it does
+	 * not make a page cheaper than SKIP.
+	 *
+	 * @return the statement
+	 */
 	@Override
 	public String getStatement() {
 
 		final StringBuilder buf = new StringBuilder(base);
 
-		buf.append(" SKIP ");
-		buf.append(page * pageSize);
-		buf.append(" LIMIT ");
-		buf.append(pageSize);
+		if (isSeekable()) {
+
+			buf.append(" WHERE ");
+
+			if (condition != null) {
+
+				buf.append("(");
+				buf.append(condition);
+				buf.append(") AND ");
+			}
+
+			buf.append("ID(");
+			buf.append(identifier);
+			buf.append(") > {lastId} RETURN ");
+			buf.append(identifier);
+			buf.append(" ORDER BY ID(");
+			buf.append(identifier);
+			buf.append(") LIMIT {limit}");
+
+			return buf.toString();
+		}
+
+		buf.append(" SKIP {skip} LIMIT {limit}");
 
 		return buf.toString();
 	}
 
 	@Override
 	public Map<String, Object> getParameters() {
+
+		// paging values are passed as parameters to keep the statement constant
+		params.put("limit", pageSize);
+
+		if (!isSeekable()) {
+			params.put("skip", page * pageSize);
+		}
+
 		return params;
 	}
+
+	@Override
+	public boolean isSeekable() {
+		return identifier != null;
+	}
+
+	@Override
+	public void seek(final long lastId) {
+		params.put("lastId", lastId);
+	}
 }
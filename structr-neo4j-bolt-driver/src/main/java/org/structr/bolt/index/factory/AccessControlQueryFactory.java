@@ -0,0 +1,78 @@
+/**
+ * Copyright (C) 2010-2018 Structr GmbH
+ *
+ * This file is part of Structr <http://structr.org>.
+ *
+ * Structr is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * Structr is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Structr.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.structr.bolt.index.factory;
+
+import org.structr.api.config.Settings;
+import org.structr.api.search.AccessControlQuery;
+import org.structr.api.search.QueryPredicate;
+import org.structr.bolt.index.AdvancedCypherQuery;
+
+/**
+ * Compiles the common grant paths (visibility flags, ownership and SECURITY
+ * relationships of the principal or one of its groups) into the WHERE
+ * clause, so that paging can be done by the database.
+ */
+public class AccessControlQueryFactory extends AbstractQueryFactory {
+
+	@Override
+	public boolean createQuery(final QueryFactory parent, final QueryPredicate predicate, final AdvancedCypherQuery query, final boolean isFirst) {
+
+		if (predicate instanceof AccessControlQuery) {
+
+			final AccessControlQuery accessControl = (AccessControlQuery)predicate;
+			final String principalUuid             = accessControl.getPrincipalUuid();
+
+			if (principalUuid == null) {
+				return false;
+			}
+
+			checkOccur(query, predicate.getOccurrence(), isFirst);
+
+			// the result depends on the principal, which is part of the cache
+			// key, and on ownership, SECURITY and group relationships
+			query.addDependencyLabels("OWNS", "SECURITY", "CONTAINS");
+
+			final String paramKey   = query.addParameter(principalUuid);
+			final String permission = query.addParameter(accessControl.getPermission());
+			final String principal  = "(:NodeInterface {id: {" + paramKey + "}})";
+			final String groups     = "()-[:CONTAINS*0.." + Settings.ResolutionDepth.getValue() + "]->" + principal;
+			final StringBuilder buf = new StringBuilder();
+
+			buf.append("(n.visibleToPublicUsers = true");
+			buf.append(" OR n.visibleToAuthenticatedUsers = true");
+			buf.append(" OR n.id = {");
+			buf.append(paramKey);
+			buf.append("}");
+			buf.append(" OR EXISTS((n)<-[:OWNS]-");
+			buf.append(groups);
+			buf.append(")");
+			buf.append(" OR ANY(p IN (n)<-[:SECURITY]-");
+			buf.append(groups);
+			buf.append(" WHERE {");
+			buf.append(permission);
+			buf.append("} IN relationships(p)[0].allowed))");
+
+			query.addClause(buf.toString());
+
+			return true;
+		}
+
+		return false;
+	}
+}
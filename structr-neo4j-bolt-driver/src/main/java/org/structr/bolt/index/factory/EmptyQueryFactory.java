@@ -18,6 +18,7 @@
  */
 package org.structr.bolt.index.factory;
 
+import java.util.Collection;
 import org.structr.api.search.QueryPredicate;
 import org.structr.bolt.index.AdvancedCypherQuery;
 
@@ -28,8 +29,23 @@ public class EmptyQueryFactory extends AbstractQueryFactory {
 
 		checkOccur(query, predicate.getOccurrence(), isFirst);
 
-		// not empty query is simple
-		query.addSimpleParameter(predicate.getName(), "is", null);
+		final String name = predicate.getName();
+		final Class type  = predicate.getType();
+
+		if (type != null && String.class.equals(type)) {
+
+			// blank strings are empty as well
+			query.addClause("(n.`" + name + "` IS NULL OR trim(n.`" + name + "`) = '')");
+
+		} else if (type != null && (type.isArray() || Collection.class.isAssignableFrom(type))) {
+
+			// empty arrays are empty as well
+			query.addClause("(n.`" + name + "` IS NULL OR size(n.`" + name + "`) = 0)");
+
+		} else {
+
+			query.addSimpleParameter(name, "is", null);
+		}
 
 		return true;
 	}
@@ -0,0 +1,108 @@
+/**
+ * Copyright (C) 2010-2018 Structr GmbH
+ *
+ * This file is part of Structr <http://structr.org>.
+ *
+ * Structr is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * Structr is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Structr.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.structr.bolt.index.factory;
+
+import java.util.ArrayList;
+import java.util.Set;
+import org.structr.api.search.GraphQuery;
+import org.structr.api.search.Occurrence;
+import org.structr.api.search.QueryPredicate;
+import org.structr.bolt.index.AdvancedCypherQuery;
+
+/**
+ * Creates a pattern predicate for a query on related nodes, so that the
+ * database can evaluate it together with sorting and paging.
+ */
+public class GraphQueryFactory extends AbstractQueryFactory {
+
+	@Override
+	public boolean createQuery(final QueryFactory parent, final QueryPredicate predicate, final AdvancedCypherQuery query, final boolean isFirst) {
+
+		if (predicate instanceof GraphQuery) {
+
+			checkOccur(query, predicate.getOccurrence(), isFirst);
+
+			final GraphQuery graphQuery = (GraphQuery)predicate;
+			final Set<String> values    = graphQuery.getValues();
+			final StringBuilder buf     = new StringBuilder();
+
+			if (values.isEmpty()) {
+
+				// no related nodes
+				buf.append("NOT ");
+				buf.append(getPattern(graphQuery, false));
+
+			} else {
+
+				// exact required queries match nodes that are related to all
+				// of the given nodes, all others match any of the given nodes
+				if (graphQuery.isExactMatch() && Occurrence.REQUIRED.equals(predicate.getOccurrence())) {
+
+					buf.append("ALL(x IN {");
+
+				} else {
+
+					buf.append("ANY(x IN {");
+				}
+
+				buf.append(query.addParameter(new ArrayList<>(values)));
+				buf.append("} WHERE ");
+				buf.append(getPattern(graphQuery, true));
+				buf.append(")");
+			}
+
+			query.addClause(buf.toString());
+
+			return true;
+		}
+
+		return false;
+	}
+
+	// ----- private methods -----
+	private String getPattern(final GraphQuery graphQuery, final boolean matchId) {
+
+		final StringBuilder buf = new StringBuilder("(n)");
+
+		if (graphQuery.isOutgoing()) {
+
+			buf.append("-[:`");
+			buf.append(graphQuery.getRelationshipType());
+			buf.append("`]->");
+
+		} else {
+
+			buf.append("<-[:`");
+			buf.append(graphQuery.getRelationshipType());
+			buf.append("`]-");
+		}
+
+		buf.append("(:`");
+		buf.append(graphQuery.getOtherLabel());
+		buf.append("`");
+
+		if (matchId) {
+			buf.append(" {id: x}");
+		}
+
+		buf.append(")");
+
+		return buf.toString();
+	}
+}
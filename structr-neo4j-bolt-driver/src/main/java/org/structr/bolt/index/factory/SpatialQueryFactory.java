@@ -21,9 +21,11 @@ package org.structr.bolt.index.factory;
 import org.structr.api.search.QueryPredicate;
 import org.structr.api.search.SpatialQuery;
 import org.structr.bolt.index.AdvancedCypherQuery;
+import org.structr.bolt.index.BoundingBox;
 
 /**
- *
+ * Creates a distance query that is prefiltered with a bounding box on the
+ * latitude and longitude properties.
  */
 public class SpatialQueryFactory extends AbstractQueryFactory {
 
@@ -35,26 +37,42 @@ public class SpatialQueryFactory extends AbstractQueryFactory {
 			checkOccur(query, predicate.getOccurrence(), isFirst);
 
 			final SpatialQuery spatial = (SpatialQuery)predicate;
-			final StringBuilder buf    = new StringBuilder();
 			final Double[] coords      = spatial.getCoords();
-			
-			if (coords == null || coords.length != 2)  {
+			final Double distance      = spatial.getDistance();
+
+			if (coords == null || coords.length != 2 || coords[0] == null || coords[1] == null || distance == null)  {
 				return false;
 			}
 
-			buf.append("distance(point({latitude:");
-			buf.append(coords[0]);
-			buf.append(",longitude:");
-			buf.append(coords[1]);
-			buf.append("}), point(n))");
+			final BoundingBox box      = new BoundingBox(coords[0], coords[1], distance);
+			final StringBuilder buf    = new StringBuilder();
+
+			buf.append("distance(point({latitude:{");
+			buf.append(query.addParameter(coords[0]));
+			buf.append("},longitude:{");
+			buf.append(query.addParameter(coords[1]));
+			buf.append("}}), point(n))");
 
-			// do not include nodes that have no lat/lon properties
+			// The bounding box is evaluated first and lets the database use
+			// range seeks on the indexed latitude and longitude properties,
+			// the exact distance is only computed for nodes in the box. The
+			// range predicates also exclude nodes without coordinates.
 			query.beginGroup();
-			query.addSimpleParameter("latitude", "IS NOT", null);
-			query.and();
-			query.addSimpleParameter("longitude", "IS NOT", null);
+			query.addParameters("latitude", ">=", box.getMinLatitude(), "<=", box.getMaxLatitude());
+
+			if (box.hasLongitudeRange()) {
+
+				query.and();
+				query.addParameters("longitude", ">=", box.getMinLongitude(), "<=", box.getMaxLongitude());
+
+			} else {
+
+				query.and();
+				query.addSimpleParameter("longitude", "IS NOT", null);
+			}
+
 			query.and();
-			query.addSimpleParameter(buf.toString(), "<", spatial.getDistance() * 1000.0, false); // distance is in kilometers
+			query.addSimpleParameter(buf.toString(), "<", distance * 1000.0, false); // distance is in kilometers
 			query.endGroup();
 
 			return true;
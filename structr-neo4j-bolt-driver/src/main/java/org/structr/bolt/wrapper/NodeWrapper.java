@@ -144,14 +144,9 @@ public class NodeWrapper extends EntityWrapper<org.neo4j.driver.v1.types.Node> i
 
 		assertNotStale();
 
-		final SessionTransaction tx   = db.getCurrentTransaction();
-		final Map<String, Object> map = new HashMap<>();
-		final String tenantIdentifier = db.getTenantIdentifier();
-
-		map.put("id", id);
-
-		tx.set("MATCH (n" + (tenantIdentifier != null ? ":" + tenantIdentifier : "") + ") WHERE ID(n) = {id} SET n :" + label.name(), map);
+		final SessionTransaction tx = db.getCurrentTransaction();
 
+		tx.addLabel(id, label.name());
 		tx.modified(this);
 	}
 
@@ -160,13 +155,9 @@ public class NodeWrapper extends EntityWrapper<org.neo4j.driver.v1.types.Node> i
 
 		assertNotStale();
 
-		final SessionTransaction tx   = db.getCurrentTransaction();
-		final Map<String, Object> map = new HashMap<>();
-		final String tenantIdentifier = db.getTenantIdentifier();
-
-		map.put("id", id);
+		final SessionTransaction tx = db.getCurrentTransaction();
 
-		tx.set("MATCH (n" + (tenantIdentifier != null ? ":" + tenantIdentifier : "") + ") WHERE ID(n) = {id} REMOVE n:" + label.name(), map);
+		tx.removeLabel(id, label.name());
 		tx.modified(this);
 	}
 
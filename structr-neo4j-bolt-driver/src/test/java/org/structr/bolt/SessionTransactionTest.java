@@ -0,0 +1,180 @@
+/**
+ * Copyright (C) 2010-2018 Structr GmbH
+ *
+ * This file is part of Structr <http://structr.org>.
+ *
+ * Structr is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * Structr is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Structr.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.structr.bolt;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import org.junit.After;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.fail;
+import org.junit.Before;
+import org.junit.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.structr.api.ConstraintViolationException;
+import org.structr.api.NativeResult;
+import org.structr.api.Transaction;
+import org.structr.api.config.Settings;
+import org.structr.api.graph.Label;
+import org.structr.api.graph.Node;
+import org.structr.api.graph.Relationship;
+import org.structr.api.graph.RelationshipType;
+
+/**
+ * Tests that buffered writes are visible to reads in the same transaction,
+ * and that failures of buffered writes are reported.
+ */
+public class SessionTransactionTest {
+
+	private static final Logger logger = LoggerFactory.getLogger(SessionTransactionTest.class.getName());
+
+	private BoltDatabaseService db = null;
+
+	@Before
+	public void setup() {
+
+		try {
+
+			Settings.DatabasePath.setValue(Files.createTempDirectory("structr-test").toFile().getAbsolutePath());
+			Settings.ConnectionUrl.setValue(Settings.TestingConnectionUrl.getValue());
+
+		} catch (IOException ioex) {
+			logger.warn("", ioex);
+		}
+
+		// make sure that no write is flushed before the reads
+		Settings.WriteBatchingEnabled.setValue(true);
+		Settings.WriteBatchSize.setValue(1000);
+
+		db = new BoltDatabaseService();
+		db.initialize();
+	}
+
+	@After
+	public void teardown() {
+
+		Settings.WriteBatchingEnabled.setValue(Settings.WriteBatchingEnabled.getDefaultValue());
+		Settings.WriteBatchSize.setValue(Settings.WriteBatchSize.getDefaultValue());
+
+		db.shutdown();
+	}
+
+	@Test
+	public void testReadYourWrites() {
+
+		try (final Transaction tx = db.beginTx()) {
+
+			final Node node1       = db.createNode(Collections.EMPTY_SET, Collections.EMPTY_MAP);
+			final Node node2       = db.createNode(Collections.EMPTY_SET, Collections.EMPTY_MAP);
+			final Relationship rel = node1.createRelationshipTo(node2, db.forName(RelationshipType.class, "TEST"));
+			final Label label      = db.forName(Label.class, "Buffered");
+
+			// buffered property writes
+			node1.setProperty("name", "node1");
+			node1.setProperty("count", 3L);
+
+			assertEquals("Buffered property write not visible", "node1", getValue("MATCH (n) WHERE ID(n) = {id} RETURN n.name AS value", node1.getId()));
+			assertEquals("Buffered property write not visible", 3L,      getValue("MATCH (n) WHERE ID(n) = {id} RETURN n.count AS value", node1.getId()));
+
+			node1.removeProperty("count");
+
+			assertNull("Buffered property removal not visible", getValue("MATCH (n) WHERE ID(n) = {id} RETURN n.count AS value", node1.getId()));
+
+			// buffered label writes
+			node2.addLabel(label);
+
+			assertEquals("Buffered label addition not visible", 1L, getValue("MATCH (n:Buffered) WHERE ID(n) = {id} RETURN count(n) AS value", node2.getId()));
+
+			node2.removeLabel(label);
+
+			assertEquals("Buffered label removal not visible", 0L, getValue("MATCH (n:Buffered) WHERE ID(n) = {id} RETURN count(n) AS value", node2.getId()));
+
+			// buffered relationship property writes
+			rel.setProperty("weight", 5L);
+
+			assertEquals("Buffered relationship property write not visible", 5L, getValue("MATCH ()-[r]->() WHERE ID(r) = {id} RETURN r.weight AS value", rel.getId()));
+			assertEquals("Buffered relationship property write not visible", 5L, db.getRelationshipById(rel.getId()).getProperty("weight"));
+
+			tx.success();
+
+		} catch (Throwable t) {
+			logger.warn("", t);
+			fail("Unexpected exception.");
+		}
+	}
+
+	@Test
+	public void testConstraintViolationOnFlush() {
+
+		try (final Transaction tx = db.beginTx()) {
+
+			try (final NativeResult result = db.execute("CREATE CONSTRAINT ON (n:Unique) ASSERT n.key IS UNIQUE")) {}
+
+			tx.success();
+		}
+
+		try (final Transaction tx = db.beginTx()) {
+
+			final Node node1 = db.createNode(Collections.singleton("Unique"), Collections.EMPTY_MAP);
+			final Node node2 = db.createNode(Collections.singleton("Unique"), Collections.EMPTY_MAP);
+
+			node1.setProperty("key", "value");
+			node2.setProperty("key", "value");
+
+			tx.success();
+
+			fail("Buffered write that violates a constraint must fail on commit.");
+
+		} catch (ConstraintViolationException cvex) {
+
+			assertNotNull("Constraint violation must have a message", cvex.getMessage());
+		}
+
+		// nothing was committed
+		try (final Transaction tx = db.beginTx()) {
+
+			assertEquals("Failed transaction must not be committed", 0L, getValue("MATCH (n:Unique) RETURN count(n) AS value", -1L));
+
+			tx.success();
+		}
+	}
+
+	// ----- private methods -----
+	private Object getValue(final String statement, final long id) {
+
+		final Map<String, Object> parameters = new HashMap<>();
+
+		parameters.put("id", id);
+
+		try (final NativeResult result = db.execute(statement, parameters)) {
+
+			if (result.hasNext()) {
+
+				return result.next().get("value");
+			}
+		}
+
+		return null;
+	}
+}
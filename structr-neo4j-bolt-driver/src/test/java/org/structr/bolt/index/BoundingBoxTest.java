@@ -0,0 +1,110 @@
+/**
+ * Copyright (C) 2010-2018 Structr GmbH
+ *
+ * This file is part of Structr <http://structr.org>.
+ *
+ * Structr is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * Structr is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Structr.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.structr.bolt.index;
+
+import java.util.Random;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import org.junit.Test;
+
+public class BoundingBoxTest {
+
+	// radius that Neo4j uses to compute geographic distances
+	private static final double DATABASE_EARTH_RADIUS_KM = 6378.140;
+
+	@Test
+	public void testContainsAllPointsWithinDistance() {
+
+		final Random random = new Random(42L);
+
+		for (int i=0; i<1000; i++) {
+
+			final double latitude  = random.nextDouble() * 180.0 - 90.0;
+			final double longitude = random.nextDouble() * 360.0 - 180.0;
+			final double distance  = Math.pow(10.0, random.nextDouble() * 4.0);		// 1 to 10000 km
+			final BoundingBox box  = new BoundingBox(latitude, longitude, distance);
+
+			for (int j=0; j<1000; j++) {
+
+				// random point near the center
+				final double spread = Math.toDegrees(distance / DATABASE_EARTH_RADIUS_KM) * 2.0;
+				final double lat    = Math.max(-90.0, Math.min(90.0, latitude + (random.nextDouble() * 2.0 - 1.0) * spread));
+				final double lon    = normalizeLongitude(longitude + (random.nextDouble() * 2.0 - 1.0) * spread * 4.0);
+
+				if (distance(latitude, longitude, lat, lon) < distance) {
+
+					assertTrue("Bounding box " + box.getMinLatitude() + ", " + box.getMinLongitude() + " - " + box.getMaxLatitude() + ", " + box.getMaxLongitude() + " does not contain point " + lat + ", " + lon,
+						box.contains(lat, lon)
+					);
+				}
+			}
+		}
+	}
+
+	@Test
+	public void testExcludesDistantPoints() {
+
+		final BoundingBox box = new BoundingBox(52.52, 13.40, 5.0);
+
+		assertTrue("Bounding box should have a longitude range", box.hasLongitudeRange());
+		assertTrue("Bounding box should contain its center", box.contains(52.52, 13.40));
+		assertFalse("Bounding box should not contain distant point", box.contains(48.14, 11.58));
+		assertFalse("Bounding box should not contain distant point", box.contains(52.52, 13.60));
+		assertFalse("Bounding box should not contain distant point", box.contains(52.60, 13.40));
+	}
+
+	@Test
+	public void testPolesAndAntimeridian() {
+
+		final BoundingBox pole = new BoundingBox(89.99, 0.0, 10.0);
+
+		assertFalse("Bounding box containing a pole must not restrict the longitude", pole.hasLongitudeRange());
+		assertTrue("Bounding box should contain point across the pole", pole.contains(89.99, 180.0));
+
+		final BoundingBox antimeridian = new BoundingBox(0.0, 179.99, 10.0);
+
+		assertFalse("Bounding box crossing the antimeridian must not restrict the longitude", antimeridian.hasLongitudeRange());
+		assertTrue("Bounding box should contain point across the antimeridian", antimeridian.contains(0.0, -179.99));
+	}
+
+	// ----- private methods -----
+	private double distance(final double lat1, final double lon1, final double lat2, final double lon2) {
+
+		final double dLat = Math.toRadians(lat2 - lat1);
+		final double dLon = Math.toRadians(lon2 - lon1);
+		final double a    = Math.pow(Math.sin(dLat / 2.0), 2.0) + Math.cos(Math.toRadians(lat1)) * Math.cos(Math.toRadians(lat2)) * Math.pow(Math.sin(dLon / 2.0), 2.0);
+
+		return 2.0 * DATABASE_EARTH_RADIUS_KM * Math.atan2(Math.sqrt(a), Math.sqrt(1.0 - a));
+	}
+
+	private double normalizeLongitude(final double longitude) {
+
+		double value = longitude;
+
+		while (value > 180.0) {
+			value -= 360.0;
+		}
+
+		while (value < -180.0) {
+			value += 360.0;
+		}
+
+		return value;
+	}
+}
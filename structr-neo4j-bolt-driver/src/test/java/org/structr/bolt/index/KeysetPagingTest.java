@@ -0,0 +1,190 @@
+/**
+ * Copyright (C) 2010-2018 Structr GmbH
+ *
+ * This file is part of Structr <http://structr.org>.
+ *
+ * Structr is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * Structr is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Structr.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.structr.bolt.index;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import org.junit.After;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import org.junit.Before;
+import org.junit.Test;
+import org.neo4j.driver.v1.types.Node;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.structr.api.Transaction;
+import org.structr.api.config.Settings;
+import org.structr.bolt.BoltDatabaseService;
+
+/**
+ * Tests that results paged by internal id are complete and ordered.
+ */
+public class KeysetPagingTest {
+
+	private static final Logger logger = LoggerFactory.getLogger(KeysetPagingTest.class.getName());
+	private static final int count     = 1050;
+	private static final int pageSize  = 100;
+
+	private final List<Long> ids   = new ArrayList<>();
+	private BoltDatabaseService db = null;
+
+	@Before
+	public void setup() {
+
+		try {
+
+			Settings.DatabasePath.setValue(Files.createTempDirectory("structr-test").toFile().getAbsolutePath());
+			Settings.ConnectionUrl.setValue(Settings.TestingConnectionUrl.getValue());
+
+		} catch (IOException ioex) {
+			logger.warn("", ioex);
+		}
+
+		db = new BoltDatabaseService();
+		db.initialize();
+
+		try (final Transaction tx = db.beginTx()) {
+
+			final List<Map<String, Object>> properties = new LinkedList<>();
+
+			for (int i=0; i<count; i++) {
+				properties.add(Collections.EMPTY_MAP);
+			}
+
+			for (final org.structr.api.graph.Node node : db.createNodes(Collections.singleton("Paged"), properties).values()) {
+				ids.add(node.getId());
+			}
+
+			// unrelated nodes must not appear in the result
+			db.createNodes(Collections.singleton("Other"), properties);
+
+			tx.success();
+		}
+
+		Collections.sort(ids);
+	}
+
+	@After
+	public void teardown() {
+		db.shutdown();
+	}
+
+	@Test
+	public void testSimpleQueryPaging() {
+
+		try (final Transaction tx = db.beginTx()) {
+
+			final SimpleCypherQuery query = new SimpleCypherQuery("MATCH (n:Paged)", null, "n");
+
+			query.setPageSize(pageSize);
+
+			assertEquals("Keyset paging result is incomplete or not ordered", ids, getIds(query));
+
+			tx.success();
+		}
+	}
+
+	@Test
+	public void testAdvancedQueryPaging() {
+
+		try (final Transaction tx = db.beginTx()) {
+
+			final AdvancedCypherQuery query = new AdvancedCypherQuery((AbstractCypherIndex)db.nodeIndex());
+
+			query.typeLabel("Paged");
+			query.setPageSize(pageSize);
+
+			assertTrue("Query must use keyset paging", query.isSeekable());
+			assertEquals("Keyset paging result is incomplete or not ordered", ids, getIds(query));
+
+			tx.success();
+		}
+	}
+
+	@Test
+	public void testAdvancedQueryPagingWithOffset() {
+
+		try (final Transaction tx = db.beginTx()) {
+
+			final AdvancedCypherQuery query = new AdvancedCypherQuery((AbstractCypherIndex)db.nodeIndex());
+
+			query.typeLabel("Paged");
+			query.setPageSize(pageSize);
+			query.setOffset(250);
+
+			// the offset only applies to the first page
+			assertEquals("Keyset paging result with offset is incomplete or not ordered", ids.subList(250, count), getIds(query));
+
+			tx.success();
+		}
+	}
+
+	@Test
+	public void testPagingWithDeletion() {
+
+		try (final Transaction tx = db.beginTx()) {
+
+			final SimpleCypherQuery query = new SimpleCypherQuery("MATCH (n:Paged)", null, "n");
+			final Iterator<Node> iterator = new NodeResultStream(db, query).iterator();
+			final List<Long> result       = new ArrayList<>();
+
+			query.setPageSize(pageSize);
+
+			while (iterator.hasNext()) {
+
+				final long id = iterator.next().id();
+
+				result.add(id);
+
+				// deleting elements of earlier pages must not shift the later pages
+				if (result.size() % pageSize == 0) {
+					db.getNodeById(ids.get(result.size() - pageSize)).delete();
+				}
+			}
+
+			assertEquals("Keyset paging result is incomplete or not ordered after deletion", ids, result);
+
+			tx.success();
+
+		} catch (Throwable t) {
+
+			logger.warn("", t);
+			fail("Unexpected exception.");
+		}
+	}
+
+	// ----- private methods -----
+	private List<Long> getIds(final PageableQuery query) {
+
+		final List<Long> result = new ArrayList<>();
+
+		for (final Node node : new NodeResultStream(db, query)) {
+			result.add(node.id());
+		}
+
+		return result;
+	}
+}
@@ -0,0 +1,101 @@
+/**
+ * Copyright (C) 2010-2018 Structr GmbH
+ *
+ * This file is part of Structr <http://structr.org>.
+ *
+ * Structr is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * Structr is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Structr.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.structr.bolt.index;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import org.junit.Test;
+
+public class QueryResultCacheTest {
+
+	@Test
+	public void testInvalidation() {
+
+		final QueryResultCache cache = new QueryResultCache(100);
+		final Set<String> projects   = labels("Project");
+		final Set<String> tasks      = labels("Task");
+		final List<Long> ids         = Arrays.asList(1L, 2L, 3L);
+
+		cache.put("projects", cache.snapshot(projects), ids);
+		cache.put("tasks",    cache.snapshot(tasks),    ids);
+		cache.put("untyped",  cache.snapshot(Collections.emptySet()), ids);
+
+		assertEquals("Invalid cached result", ids, cache.get("projects"));
+		assertEquals("Invalid cached result", ids, cache.get("tasks"));
+		assertEquals("Invalid cached result", ids, cache.get("untyped"));
+
+		// modification of a different type must not invalidate the result
+		cache.invalidate(tasks);
+
+		assertEquals("Result was invalidated by unrelated modification", ids, cache.get("projects"));
+		assertNull("Result was not invalidated by modification", cache.get("tasks"));
+		assertNull("Untyped result was not invalidated by modification", cache.get("untyped"));
+
+		// invalidate all
+		cache.invalidate(null);
+
+		assertNull("Result was not invalidated", cache.get("projects"));
+	}
+
+	@Test
+	public void testOutdatedSnapshot() {
+
+		final QueryResultCache cache = new QueryResultCache(100);
+		final Set<String> projects   = labels("Project");
+
+		// query is started, then a modification is committed
+		// before the result is stored
+		final QueryResultCache.Snapshot snapshot = cache.snapshot(projects);
+
+		cache.invalidate(projects);
+		cache.put("projects", snapshot, Arrays.asList(1L, 2L));
+
+		assertNull("Outdated result was stored in cache", cache.get("projects"));
+	}
+
+	@Test
+	public void testStatistics() {
+
+		final QueryResultCache cache = new QueryResultCache(1000);
+		final Set<String> projects   = labels("Project", "AbstractNode", "NodeInterface");
+
+		for (int i=0; i<100; i++) {
+			cache.put("query" + i, cache.snapshot(projects), Arrays.asList((long)i));
+		}
+
+		for (int i=0; i<1000; i++) {
+			assertEquals("Invalid cached result", Arrays.asList((long)(i % 100)), cache.get("query" + (i % 100)));
+		}
+
+		assertNull("Unknown query must not be found", cache.get("unknown"));
+
+		assertEquals("Invalid hit count",  1000L, cache.getStatistics().get("hits"));
+		assertEquals("Invalid miss count", 1L,    cache.getStatistics().get("misses"));
+	}
+
+	// ----- private methods -----
+	private Set<String> labels(final String... labels) {
+		return new LinkedHashSet<>(Arrays.asList(labels));
+	}
+}
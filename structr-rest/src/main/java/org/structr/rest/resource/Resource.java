@@ -299,6 +299,26 @@ public abstract class Resource {
 		}
 	}
 
+	protected void extractFulltextSearch(final HttpServletRequest request, final Query query) {
+
+		if (request != null) {
+
+			final String searchTerm = request.getParameter(SearchCommand.FULLTEXT_SEARCH_KEYWORD);
+			if (StringUtils.isNotBlank(searchTerm)) {
+
+				query.fulltext(searchTerm);
+			}
+		}
+	}
+
+	/**
+	 * Indicates whether the request contains a fulltext search, whose
+	 * results are ordered by relevance unless a sort key is given.
+	 */
+	protected boolean hasFulltextSearch(final HttpServletRequest request) {
+		return request != null && StringUtils.isNotBlank(request.getParameter(SearchCommand.FULLTEXT_SEARCH_KEYWORD));
+	}
+
 	protected void extractSearchableAttributes(final SecurityContext securityContext, final Class type, final HttpServletRequest request, final Query query) throws FrameworkException {
 
 		if (type != null && request != null && !request.getParameterMap().isEmpty()) {
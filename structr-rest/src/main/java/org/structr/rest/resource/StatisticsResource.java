@@ -0,0 +1,109 @@
+/**
+ * Copyright (C) 2010-2018 Structr GmbH
+ *
+ * This file is part of Structr <http://structr.org>.
+ *
+ * Structr is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * Structr is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Structr.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.structr.rest.resource;
+
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import javax.servlet.http.HttpServletRequest;
+import org.structr.common.PermissionResolutionCache;
+import org.structr.common.SecurityContext;
+import org.structr.common.error.FrameworkException;
+import org.structr.core.GraphObjectMap;
+import org.structr.core.Result;
+import org.structr.core.app.StructrApp;
+import org.structr.core.graph.TransactionCommand;
+import org.structr.core.property.GenericProperty;
+import org.structr.core.property.PropertyKey;
+import org.structr.core.script.Scripting;
+import org.structr.rest.RestMethodResult;
+import org.structr.rest.exception.IllegalMethodException;
+import org.structr.rest.exception.IllegalPathException;
+import org.structr.rest.exception.NotAllowedException;
+
+/**
+ * Debug resource that returns runtime statistics of the database driver
+ * and the internal caches, restricted to admin users.
+ */
+public class StatisticsResource extends Resource {
+
+	public enum UriPart {
+		_stats
+	}
+
+	@Override
+	public boolean checkAndConfigure(String part, SecurityContext securityContext, HttpServletRequest request) throws FrameworkException {
+
+		this.securityContext = securityContext;
+
+		return (UriPart._stats.name().equals(part));
+	}
+
+	@Override
+	public Result doGet(PropertyKey sortKey, boolean sortDescending, int pageSize, int page) throws FrameworkException {
+
+		// Admins only
+		if (!securityContext.isSuperUser()) {
+
+			throw new NotAllowedException("Use of the statistics endpoint is restricted to admin users");
+		}
+
+		final List<GraphObjectMap> resultList = new LinkedList<>();
+		final GraphObjectMap info             = new GraphObjectMap();
+
+		info.setProperty(new GenericProperty("database"),        StructrApp.getInstance(securityContext).getDatabaseService().getStatistics());
+		info.setProperty(new GenericProperty("permissionCache"), PermissionResolutionCache.getStatistics());
+		info.setProperty(new GenericProperty("locks"),           TransactionCommand.getLockStatistics());
+		info.setProperty(new GenericProperty("scripting"),       Scripting.getEvaluationStatistics());
+
+		resultList.add(info);
+
+		return new Result(resultList, resultList.size(), false, false);
+	}
+
+	@Override
+	public RestMethodResult doPost(Map<String, Object> propertySet) throws FrameworkException {
+		throw new IllegalMethodException("POST not allowed on " + getResourceSignature());
+	}
+
+	@Override
+	public Resource tryCombineWith(Resource next) throws FrameworkException {
+		throw new IllegalPathException(getResourceSignature() + " has no subresources");
+	}
+
+	@Override
+	public String getUriPart() {
+		return getResourceSignature();
+	}
+
+	@Override
+	public Class getEntityClass() {
+		return null;
+	}
+
+	@Override
+	public String getResourceSignature() {
+		return UriPart._stats.name();
+	}
+
+	@Override
+	public boolean isCollectionResource() throws FrameworkException {
+		return false;
+	}
+}
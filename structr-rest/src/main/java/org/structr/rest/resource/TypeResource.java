@@ -132,8 +132,8 @@ public class TypeResource extends SortableResource {
 
 			collectSearchAttributes(query);
 
-			// default sort key & order
-			if (actualSortKey == null) {
+			// default sort key & order, fulltext results are ordered by relevance
+			if (actualSortKey == null && !hasFulltextSearch(request)) {
 
 				try {
 
@@ -349,6 +349,9 @@ public class TypeResource extends SortableResource {
 
 		// second step: distance search?
 		extractDistanceSearch(request, query);
+
+		// third step: fulltext search?
+		extractFulltextSearch(request, query);
 	}
 
 	// ----- private methods -----
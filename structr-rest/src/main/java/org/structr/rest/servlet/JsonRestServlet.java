@@ -36,7 +36,6 @@ import javax.servlet.ServletException;
 import javax.servlet.http.HttpServlet;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
-import org.apache.commons.io.IOUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.structr.api.RetryException;
@@ -45,9 +44,7 @@ import org.structr.common.PagingHelper;
 import org.structr.common.SecurityContext;
 import org.structr.common.error.FrameworkException;
 import org.structr.core.GraphObject;
-import org.structr.core.IJsonInput;
 import org.structr.core.JsonInput;
-import org.structr.core.JsonSingleInput;
 import org.structr.core.Result;
 import org.structr.core.Services;
 import org.structr.core.Value;
@@ -59,6 +56,7 @@ import org.structr.core.graph.NodeFactory;
 import org.structr.core.graph.Tx;
 import org.structr.core.graph.search.SearchCommand;
 import org.structr.core.property.PropertyKey;
+import org.structr.core.rest.JsonInputReader;
 import org.structr.rest.ResourceProvider;
 import org.structr.rest.RestMethodResult;
 import org.structr.rest.resource.Resource;
@@ -67,7 +65,6 @@ import org.structr.rest.serialization.StreamingHtmlWriter;
 import org.structr.rest.serialization.StreamingJsonWriter;
 import org.structr.rest.service.HttpServiceServlet;
 import org.structr.rest.service.StructrHttpServiceConfig;
-import org.tuckey.web.filters.urlrewrite.utils.StringUtils;
 
 //~--- classes ----------------------------------------------------------------
 
@@ -80,6 +77,7 @@ public class JsonRestServlet extends HttpServlet implements HttpServiceServlet {
 
 	public static final int DEFAULT_VALUE_PAGE_SIZE                     = 20;
 	public static final String DEFAULT_VALUE_SORT_ORDER                 = "asc";
+	public static final String REQUEST_PARAMETER_CHUNK_SIZE             = "chunkSize";
 	public static final String REQUEST_PARAMETER_LOOSE_SEARCH           = "loose";
 	public static final String REQUEST_PARAMETER_PAGE_NUMBER            = "page";
 	public static final String REQUEST_PARAMETER_PAGE_SIZE              = "pageSize";
@@ -97,6 +95,7 @@ public class JsonRestServlet extends HttpServlet implements HttpServiceServlet {
 		commonRequestParameters.add(REQUEST_PARAMETER_SORT_KEY);
 		commonRequestParameters.add(REQUEST_PARAMETER_SORT_ORDER);
 		commonRequestParameters.add(REQUEST_PARAMTER_OUTPUT_DEPTH);
+		commonRequestParameters.add(REQUEST_PARAMETER_CHUNK_SIZE);
 		commonRequestParameters.add("debugLoggingEnabled");
 		commonRequestParameters.add("ignoreResultCount");
 
@@ -110,6 +109,7 @@ public class JsonRestServlet extends HttpServlet implements HttpServiceServlet {
 		commonRequestParameters.add(SearchCommand.CITY_SEARCH_KEYWORD);
 		commonRequestParameters.add(SearchCommand.STATE_SEARCH_KEYWORD);
 		commonRequestParameters.add(SearchCommand.COUNTRY_SEARCH_KEYWORD);
+		commonRequestParameters.add(SearchCommand.FULLTEXT_SEARCH_KEYWORD);
 	}
 
 	// final fields
@@ -404,7 +404,7 @@ public class JsonRestServlet extends HttpServlet implements HttpServiceServlet {
 			response.setContentType("application/json; charset=utf-8");
 
 			// get reader before initalizing security context
-			final String input = IOUtils.toString(request.getReader());
+			final JsonInputReader input = new JsonInputReader(request.getReader());
 
 			// isolate request authentication in a transaction
 			try (final Tx tx = StructrApp.getInstance().tx()) {
@@ -413,8 +413,8 @@ public class JsonRestServlet extends HttpServlet implements HttpServiceServlet {
 				tx.success();
 			}
 
-			final App app              = StructrApp.getInstance(securityContext);
-			final IJsonInput jsonInput = cleanAndParseJsonString(app, input);
+			final App app       = StructrApp.getInstance(securityContext);
+			final int chunkSize = Services.parseInt(request.getParameter(REQUEST_PARAMETER_CHUNK_SIZE), 0);
 
 			if (securityContext != null) {
 
@@ -426,42 +426,17 @@ public class JsonRestServlet extends HttpServlet implements HttpServiceServlet {
 					tx.success();
 				}
 
-				// isolate doPost
-				boolean retry = true;
-				while (retry) {
-
-					if (resource.createPostTransaction()) {
-
-						try (final Tx tx = app.tx()) {
-
-							for (JsonInput propertySet : jsonInput.getJsonInputs()) {
-
-								results.add(resource.doPost(convertPropertySetToMap(propertySet)));
-							}
-
-							tx.success();
-							retry = false;
-
-						} catch (RetryException ddex) {
-							retry = true;
-						}
+				// large batches can be committed in chunks of a given size
+				if (chunkSize > 0) {
 
-					} else {
-
-						try {
-
-							for (JsonInput propertySet : jsonInput.getJsonInputs()) {
-
-								results.add(resource.doPost(convertPropertySetToMap(propertySet)));
-							}
+					doChunkedPost(app, resource, input, chunkSize, response);
+					return;
+				}
 
-							retry = false;
+				final List<JsonInput> propertySets = readJsonInputs(input, Integer.MAX_VALUE);
 
-						} catch (RetryException ddex) {
-							retry = true;
-						}
-					}
-				}
+				// isolate doPost
+				results.addAll(postPropertySets(app, resource, propertySets));
 
 				// set default value for property view
 				propertyView.set(securityContext, config.getDefaultPropertyView());
@@ -591,7 +566,7 @@ public class JsonRestServlet extends HttpServlet implements HttpServiceServlet {
 			response.setContentType("application/json; charset=utf-8");
 
 			// get reader before initalizing security context
-			final String input = IOUtils.toString(request.getReader());
+			final JsonInputReader input = new JsonInputReader(request.getReader());
 
 			// isolate request authentication in a transaction
 			try (final Tx tx = StructrApp.getInstance().tx()) {
@@ -600,8 +575,10 @@ public class JsonRestServlet extends HttpServlet implements HttpServiceServlet {
 				tx.success();
 			}
 
-			final App app              = StructrApp.getInstance(securityContext);
-			final IJsonInput jsonInput = cleanAndParseJsonString(app, input);
+			final App app = StructrApp.getInstance(securityContext);
+
+			// PUT only uses the first object of the request body
+			final List<JsonInput> propertySets = readJsonInputs(input, 1);
 
 			if (securityContext != null) {
 
@@ -619,7 +596,7 @@ public class JsonRestServlet extends HttpServlet implements HttpServiceServlet {
 				while (retry) {
 
 					try (final Tx tx = app.tx()) {
-						result = resource.doPut(convertPropertySetToMap(jsonInput.getJsonInputs().get(0)));
+						result = resource.doPut(convertPropertySetToMap(propertySets.isEmpty() ? null : propertySets.get(0)));
 						tx.success();
 						retry = false;
 
@@ -714,38 +691,132 @@ public class JsonRestServlet extends HttpServlet implements HttpServiceServlet {
 
 	// <editor-fold defaultstate="collapsed" desc="private methods">
 
-	private IJsonInput cleanAndParseJsonString(final App app, final String input) throws FrameworkException {
-
-		IJsonInput jsonInput = null;
+	private List<JsonInput> readJsonInputs(final JsonInputReader input, final int maxCount) throws FrameworkException {
 
-		// isolate input parsing (will include read and write operations)
-		try (final Tx tx = app.tx()) {
+		try {
 
-			jsonInput   = gson.get().fromJson(input, IJsonInput.class);
-			tx.success();
+			return input.next(maxCount);
 
 		} catch (JsonSyntaxException jsx) {
 			logger.warn("", jsx);
 			throw new FrameworkException(400, jsx.getMessage());
 		}
+	}
+
+	private List<RestMethodResult> postPropertySets(final App app, final Resource resource, final List<JsonInput> propertySets) throws FrameworkException {
+
+		final List<RestMethodResult> results = new LinkedList<>();
+
+		boolean retry = true;
+		while (retry) {
 
-		if (jsonInput == null) {
+			// discard results of a failed attempt
+			results.clear();
 
-			if (StringUtils.isBlank(input)) {
+			if (resource.createPostTransaction()) {
 
 				try (final Tx tx = app.tx()) {
-					jsonInput   = gson.get().fromJson("{}", IJsonInput.class);
+
+					for (JsonInput propertySet : propertySets) {
+
+						results.add(resource.doPost(convertPropertySetToMap(propertySet)));
+					}
+
 					tx.success();
+					retry = false;
+
+				} catch (RetryException ddex) {
+					retry = true;
 				}
 
 			} else {
-				//throw new JsonParseException("Invalid or empty JSON string, must at least contain {} to be valid!");
-				jsonInput = new JsonSingleInput();
+
+				try {
+
+					for (JsonInput propertySet : propertySets) {
+
+						results.add(resource.doPost(convertPropertySetToMap(propertySet)));
+					}
+
+					retry = false;
+
+				} catch (RetryException ddex) {
+					retry = true;
+				}
+			}
+		}
+
+		return results;
+	}
+
+	/**
+	 * Reads and commits the request body in chunks of the given size, so
+	 * that neither the parsed input nor the transaction grows with the
+	 * size of the request. The response contains one entry per chunk with
+	 * the UUIDs of the created objects. Processing stops at the first
+	 * failed chunk, all chunks before it stay committed.
+	 */
+	private void doChunkedPost(final App app, final Resource resource, final JsonInputReader input, final int chunkSize, final HttpServletResponse response) throws FrameworkException {
+
+		final List<Map<String, Object>> chunks = new LinkedList<>();
+		int status                             = HttpServletResponse.SC_CREATED;
+		int chunkIndex                         = 0;
+
+		while (true) {
+
+			final Map<String, Object> chunk = new LinkedHashMap<>();
+
+			chunk.put("chunk", chunkIndex++);
+
+			try {
+
+				final List<JsonInput> propertySets = readJsonInputs(input, chunkSize);
+				if (propertySets.isEmpty()) {
+					break;
+				}
+
+				final List<String> ids = new LinkedList<>();
+
+				for (final RestMethodResult result : postPropertySets(app, resource, propertySets)) {
+
+					final List<GraphObject> content = result != null ? result.getContent() : null;
+					if (content != null) {
+
+						for (final GraphObject obj : content) {
+							ids.add(obj.getUuid());
+						}
+					}
+				}
+
+				chunk.put("count", propertySets.size());
+				chunk.put("result", ids);
+				chunks.add(chunk);
+
+			} catch (FrameworkException fex) {
+
+				status = fex.getStatus();
+
+				chunk.put("count", 0);
+				chunk.put("code", status);
+				chunk.put("message", fex.getMessage());
+				chunks.add(chunk);
+
+				logger.warn("Chunked POST aborted in chunk {}: {}", chunk.get("chunk"), fex.getMessage());
+
+				break;
 			}
 		}
 
-		return jsonInput;
+		// isolate write output
+		try (final Tx tx = app.tx()) {
+
+			final RestMethodResult result = new RestMethodResult(status);
+
+			result.setNonGraphObjectResult(chunks);
+			result.commitResponse(gson.get(), response);
 
+			tx.success();
+		}
 	}
 
 	private Map<String, Object> convertPropertySetToMap(JsonInput propertySet) {
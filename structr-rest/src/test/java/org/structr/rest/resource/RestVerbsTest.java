@@ -107,6 +107,46 @@ public class RestVerbsTest extends StructrRestTest {
 		expectNotOk(200).body("result_count", Matchers.equalTo(70)).when().get("/TestOne");
 	}
 
+	@Test
+	public void test05ChunkedPOST() {
+
+		// 250 objects in chunks of 100 => three chunks
+		RestAssured
+			.given()
+				.contentType("application/json; charset=UTF-8")
+				.filter(ResponseLoggingFilter.logResponseIfStatusCodeIs(400))
+				.filter(ResponseLoggingFilter.logResponseIfStatusCodeIs(500))
+				.body(createBatch(0, 250, "]"))
+			.expect()
+				.statusCode(201)
+				.body("result_count",    Matchers.equalTo(3))
+				.body("result[0].count", Matchers.equalTo(100))
+				.body("result[1].count", Matchers.equalTo(100))
+				.body("result[2].count", Matchers.equalTo(50))
+				.body("result[2].result", Matchers.hasSize(50))
+			.when()
+				.post("/TestOne?chunkSize=100");
+
+		expectOk(200).body("result_count", Matchers.equalTo(250)).when().get("/TestOne");
+
+		// invalid JSON after the first chunk => first chunk stays committed
+		RestAssured
+			.given()
+				.contentType("application/json; charset=UTF-8")
+				.filter(ResponseLoggingFilter.logResponseIfStatusCodeIs(201))
+				.filter(ResponseLoggingFilter.logResponseIfStatusCodeIs(500))
+				.body(createBatch(250, 150, ", {"))
+			.expect()
+				.statusCode(400)
+				.body("result_count",    Matchers.equalTo(2))
+				.body("result[0].count", Matchers.equalTo(100))
+				.body("result[1].code",  Matchers.equalTo(400))
+			.when()
+				.post("/TestOne?chunkSize=100");
+
+		expectOk(200).body("result_count", Matchers.equalTo(350)).when().get("/TestOne");
+	}
+
 	// ----- private methods -----
 	private ResponseSpecification expectOk(final int statusCode) {
 
@@ -156,4 +196,20 @@ public class RestVerbsTest extends StructrRestTest {
 
 		return null;
 	}
+
+	private String createBatch(final int offset, final int count, final String suffix) {
+
+		final StringBuilder buf = new StringBuilder("[");
+
+		for (int i=0; i<count; i++) {
+
+			if (i > 0) {
+				buf.append(",");
+			}
+
+			buf.append("{\"name\":\"node").append(offset + i).append("\"}");
+		}
+
+		return buf.append(suffix).toString();
+	}
 }
@@ -0,0 +1,164 @@
+/**
+ * Copyright (C) 2010-2018 Structr GmbH
+ *
+ * This file is part of Structr <http://structr.org>.
+ *
+ * Structr is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * Structr is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Structr.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.structr.web.agent;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.structr.agent.Agent;
+import org.structr.agent.AgentService;
+import org.structr.agent.ReturnValue;
+import org.structr.agent.Task;
+import org.structr.api.config.Settings;
+import org.structr.common.PropertyView;
+import org.structr.core.Services;
+import org.structr.core.app.App;
+import org.structr.core.app.StructrApp;
+import org.structr.core.graph.Tx;
+import org.structr.core.property.PropertyKey;
+import org.structr.web.entity.Image;
+import org.structr.web.property.ThumbnailProperty;
+
+/**
+ * Creates thumbnails outside of the request that needs them. Tasks for the
+ * same thumbnail are only queued once until the thumbnail is created, the
+ * number of concurrent agents is limited by a configuration setting.
+ */
+public class ThumbnailAgent extends Agent<String> {
+
+	private static final Logger logger        = LoggerFactory.getLogger(ThumbnailAgent.class.getName());
+	private static final Set<String> inFlight = ConcurrentHashMap.newKeySet();
+	public static final String TASK_NAME      = "Thumbnail";
+
+	@Override
+	public ReturnValue processTask(final Task<String> task) throws Throwable {
+
+		if (TASK_NAME.equals(task.getType()) && task instanceof ThumbnailTask) {
+
+			final ThumbnailTask thumbnailTask = (ThumbnailTask)task;
+			final App app                     = StructrApp.getInstance();
+			boolean retry                     = false;
+
+			try (final Tx tx = app.tx()) {
+
+				final Image image = app.get(Image.class, thumbnailTask.getImageId());
+				if (image == null) {
+
+					// transaction that created the image is not committed yet,
+					// the queue gives up after the maximum number of retries
+					retry = thumbnailTask.getRetryCount() < Settings.AgentMaxRetries.getValue();
+
+					tx.success();
+
+					return ReturnValue.Retry;
+				}
+
+				Image.createThumbnail(image, thumbnailTask.getMaxWidth(), thumbnailTask.getMaxHeight(), thumbnailTask.getCropToFit());
+
+				tx.success();
+
+			} catch (Throwable t) {
+
+				logger.warn("Unable to create thumbnail {}: {}", thumbnailTask.getKey(), t.getMessage());
+
+			} finally {
+
+				// remove key after the transaction is closed so that readers
+				// cannot schedule the same thumbnail again, keep it while the
+				// task is waiting to be retried
+				if (!retry) {
+					inFlight.remove(thumbnailTask.getKey());
+				}
+			}
+
+			return ReturnValue.Success;
+		}
+
+		return ReturnValue.Abort;
+	}
+
+	@Override
+	public Class getSupportedTaskType() {
+		return ThumbnailTask.class;
+	}
+
+	@Override
+	public boolean createEnclosingTransaction() {
+		return false;
+	}
+
+	@Override
+	public int getMaxAgents() {
+		return Math.max(1, Settings.ThumbnailConcurrency.getValue());
+	}
+
+	// ----- public static methods -----
+	/**
+	 * Indicates whether thumbnails are created in the background, which
+	 * requires a running AgentService.
+	 *
+	 * @return whether thumbnail creation is asynchronous
+	 */
+	public static boolean isEnabled() {
+		return Settings.ThumbnailsAsync.getValue() && Services.getInstance().isReady(AgentService.class);
+	}
+
+	/**
+	 * Schedules creation of the given thumbnail unless a task for the
+	 * same image, size and crop mode is already queued or running.
+	 *
+	 * @param image
+	 * @param maxWidth
+	 * @param maxHeight
+	 * @param cropToFit
+	 */
+	public static void scheduleThumbnail(final Image image, final int maxWidth, final int maxHeight, final boolean cropToFit) {
+
+		final ThumbnailTask task = new ThumbnailTask(image.getUuid(), maxWidth, maxHeight, cropToFit);
+
+		if (inFlight.add(task.getKey())) {
+
+			StructrApp.getInstance().processTasks(task);
+		}
+	}
+
+	/**
+	 * Schedules creation of all thumbnails defined by thumbnail properties
+	 * of the given image's type.
+	 *
+	 * @param image
+	 */
+	public static void scheduleThumbnails(final Image image) {
+
+		if (image.isThumbnail() || !isEnabled()) {
+			return;
+		}
+
+		for (final PropertyKey key : StructrApp.getConfiguration().getPropertySet(image.getClass(), PropertyView.All)) {
+
+			if (key instanceof ThumbnailProperty) {
+
+				final ThumbnailProperty thumbnailProperty = (ThumbnailProperty)key;
+
+				scheduleThumbnail(image, thumbnailProperty.getWidth(), thumbnailProperty.getHeight(), thumbnailProperty.getCrop());
+			}
+		}
+	}
+}
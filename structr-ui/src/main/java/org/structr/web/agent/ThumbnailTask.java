@@ -0,0 +1,66 @@
+/**
+ * Copyright (C) 2010-2018 Structr GmbH
+ *
+ * This file is part of Structr <http://structr.org>.
+ *
+ * Structr is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * Structr is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with Structr.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.structr.web.agent;
+
+import org.structr.agent.AbstractTask;
+
+/**
+ * Task to create a single thumbnail of an image in the background.
+ */
+public class ThumbnailTask extends AbstractTask<String> {
+
+	private int maxWidth      = 0;
+	private int maxHeight     = 0;
+	private boolean cropToFit = false;
+
+	public ThumbnailTask(final String imageId, final int maxWidth, final int maxHeight, final boolean cropToFit) {
+
+		super(ThumbnailAgent.TASK_NAME, null, imageId);
+
+		this.maxWidth  = maxWidth;
+		this.maxHeight = maxHeight;
+		this.cropToFit = cropToFit;
+	}
+
+	public String getImageId() {
+		return getWorkObjects().get(0);
+	}
+
+	public int getMaxWidth() {
+		return maxWidth;
+	}
+
+	public int getMaxHeight() {
+		return maxHeight;
+	}
+
+	public boolean getCropToFit() {
+		return cropToFit;
+	}
+
+	/**
+	 * Identifies the thumbnail this task creates, used to detect
+	 * tasks that are already queued or running.
+	 *
+	 * @return the key of this task
+	 */
+	public String getKey() {
+		return getImageId() + "/" + maxWidth + "x" + maxHeight + (cropToFit ? "c" : "");
+	}
+}
@@ -20,8 +20,10 @@ package org.structr.web.common;
 
 import java.util.Set;
 import org.structr.api.service.LicenseManager;
+import org.structr.core.Services;
 import org.structr.core.entity.AbstractSchemaNode;
 import org.structr.core.function.Functions;
+import org.structr.core.scheduler.JobQueueManager;
 import org.structr.module.StructrModule;
 import org.structr.schema.action.Actions;
 import org.structr.web.function.AddHeaderFunction;
@@ -54,6 +56,9 @@ import org.structr.web.function.StripHtmlFunction;
 import org.structr.web.function.ToGraphObjectFunction;
 import org.structr.web.function.ToJsonFunction;
 import org.structr.web.function.UnescapeHtmlFunction;
+import org.structr.web.importer.CSVFileImportJob;
+import org.structr.web.importer.ScriptJob;
+import org.structr.web.importer.XMLFileImportJob;
 
 /**
  */
@@ -103,6 +108,15 @@ public class UiModule implements StructrModule {
 		Functions.put(enterpriseEdition, LicenseManager.Enterprise, "parse",                    new ParseFunction());
 		Functions.put(enterpriseEdition, LicenseManager.Enterprise, "create_archive",           new CreateArchiveFunction());
 		Functions.put(enterpriseEdition, LicenseManager.Enterprise, "schedule",                 new ScheduleFunction());
+
+		// jobs from the job journal are resumed when the services are ready
+		final JobQueueManager jobQueue = JobQueueManager.getInstance();
+
+		jobQueue.registerJobFactory("CSV",    CSVFileImportJob::resume);
+		jobQueue.registerJobFactory("XML",    XMLFileImportJob::resume);
+		jobQueue.registerJobFactory("SCRIPT", ScriptJob::resume);
+
+		Services.getInstance().registerInitializationCallback(jobQueue::resumeJobs);
 	}
 
 	@Override
@@ -72,6 +72,7 @@ import org.structr.schema.json.JsonMethod;
 import org.structr.schema.json.JsonObjectType;
 import org.structr.schema.json.JsonReferenceType;
 import org.structr.schema.json.JsonSchema;
+import org.structr.web.agent.ThumbnailAgent;
 import org.structr.web.common.ClosingFileOutputStream;
 import org.structr.web.common.FileHelper;
 import org.structr.web.common.RenderContext;
@@ -359,6 +360,11 @@ public interface File extends AbstractFile, Indexable, Linkable, JavaScriptSourc
 			final FulltextIndexer indexer = StructrApp.getInstance(thisFile.getSecurityContext()).getFulltextIndexer();
 			indexer.addToFulltextIndex(thisFile);
 
+			// create thumbnails in the background before they are requested
+			if (thisFile instanceof Image) {
+				ThumbnailAgent.scheduleThumbnails((Image)thisFile);
+			}
+
 		} catch (FrameworkException fex) {
 
 			logger.warn("Unable to index {}: {}", thisFile, fex.getMessage());
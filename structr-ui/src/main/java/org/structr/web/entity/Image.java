@@ -45,6 +45,7 @@ import org.structr.schema.json.JsonSchema.Cascade;
 import org.structr.web.common.FileHelper;
 import org.structr.web.common.ImageHelper;
 import org.structr.web.common.ImageHelper.Thumbnail;
+import org.structr.web.agent.ThumbnailAgent;
 import org.structr.web.property.ImageDataProperty;
 import org.structr.web.property.ThumbnailProperty;
 
@@ -326,14 +327,50 @@ public interface Image extends File {
 	 * */
 	public static Image getScaledImage(final Image thisImage, final int maxWidth, final int maxHeight, final boolean cropToFit) {
 
+		// Return self if SVG image
+		if (isVectorOrIcon(thisImage)) {
+
+			return thisImage;
+		}
+
+		if (!ThumbnailAgent.isEnabled()) {
+
+			return createThumbnail(thisImage, maxWidth, maxHeight, cropToFit);
+		}
+
+		final List<Image> oldThumbnails = new LinkedList<>();
+		final Image thumbnail           = findThumbnail(thisImage, maxWidth, maxHeight, thisImage.getChecksum(), oldThumbnails);
+
+		if (thumbnail != null) {
+
+			return thumbnail;
+		}
+
+		// thumbnail is created in the background, return outdated thumbnail (if any) in the meantime
+		ThumbnailAgent.scheduleThumbnail(thisImage, maxWidth, maxHeight, cropToFit);
+
+		return oldThumbnails.isEmpty() ? null : oldThumbnails.get(0);
+	}
+
+	/**
+	 * Create (down-)scaled image of this image
+	 *
+	 * If no scaled image of the requested size exists or the image is newer than the scaled image, create a new one.
+	 *
+	 * @param thisImage
+	 * @param maxWidth
+	 * @param maxHeight
+	 * @param cropToFit if true, scale down until the shorter edge fits inside the rectangle, and then crop
+	 *
+	 * @return scaled image
+	 */
+	public static Image createThumbnail(final Image thisImage, final int maxWidth, final int maxHeight, final boolean cropToFit) {
+
 		final Class<Relation> thumbnailRel              = StructrApp.getConfiguration().getRelationshipEntityClass("ImageTHUMBNAILImage");
-		final Iterable<Relation> thumbnailRelationships = thisImage.getOutgoingRelationships(thumbnailRel);
 		final SecurityContext securityContext           = thisImage.getSecurityContext();
 		final List<Image> oldThumbnails                 = new LinkedList<>();
 		Image thumbnail                                 = null;
 		final Image originalImage                       = thisImage;
-		final Integer origWidth                         = originalImage.getWidth();
-		final Integer origHeight                        = originalImage.getHeight();
 		final Long currentChecksum                      = originalImage.getChecksum();
 		Long newChecksum                                = 0L;
 
@@ -362,43 +399,28 @@ public interface Image extends File {
 		ImageHelper.getExifData(originalImage);
 
 		// Return self if SVG image
-		final String _contentType = thisImage.getContentType();
-		if (_contentType != null && (_contentType.startsWith("image/svg") || (_contentType.startsWith("image/") && _contentType.endsWith("icon")))) {
+		if (isVectorOrIcon(thisImage)) {
 
 			return thisImage;
 		}
 
-		if (origWidth != null && origHeight != null && thumbnailRelationships != null) {
-
-			for (final Relation r : thumbnailRelationships) {
-
-				final Integer w = r.getProperty(StructrApp.key(Image.class, "width"));
-				final Integer h = r.getProperty(StructrApp.key(Image.class, "height"));
-
-				if (w != null && h != null) {
-
-					// orginal image is equal or smaller than requested size
-					if (((w == maxWidth) && (h <= maxHeight)) || ((w <= maxWidth) && (h == maxHeight)) || ((origWidth <= w) && (origHeight <= h))) {
-
-						thumbnail = (Image)r.getTargetNode();
-
-						// Use thumbnail only if checksum of original image matches with stored checksum
-						final Long storedChecksum = r.getProperty(StructrApp.key(Image.class, "checksum"));
+		thumbnail = findThumbnail(originalImage, maxWidth, maxHeight, newChecksum, oldThumbnails);
+		if (thumbnail != null) {
 
-						if (storedChecksum != null && storedChecksum.equals(newChecksum)) {
+			if (!newChecksum.equals(currentChecksum)) {
 
-							return thumbnail;
+				try {
 
-						} else {
-
-							oldThumbnails.add(thumbnail);
-						}
-					}
+					// store checksum so that readers can find the thumbnail without calculating it
+					originalImage.unlockSystemPropertiesOnce();
+					originalImage.setProperty(StructrApp.key(File.class, "checksum"), newChecksum);
 
+				} catch (FrameworkException fex) {
+					logger.warn("Unable to store checksum of {}: {}", originalImage.getName(), fex.getMessage());
 				}
-
 			}
 
+			return thumbnail;
 		}
 
 		if (originalImage.getIsCreatingThumb()) {
@@ -492,6 +514,61 @@ public interface Image extends File {
 		return thumbnail;
 	}
 
+	/**
+	 * Returns the existing thumbnail of the given size whose checksum matches the
+	 * given checksum of the original image. Thumbnails of matching size but with
+	 * a different checksum are added to the given list.
+	 */
+	static Image findThumbnail(final Image originalImage, final int maxWidth, final int maxHeight, final Long checksum, final List<Image> oldThumbnails) {
+
+		final Class<Relation> thumbnailRel              = StructrApp.getConfiguration().getRelationshipEntityClass("ImageTHUMBNAILImage");
+		final Iterable<Relation> thumbnailRelationships = originalImage.getOutgoingRelationships(thumbnailRel);
+		final Integer origWidth                         = originalImage.getWidth();
+		final Integer origHeight                        = originalImage.getHeight();
+
+		if (origWidth != null && origHeight != null && thumbnailRelationships != null) {
+
+			for (final Relation r : thumbnailRelationships) {
+
+				final Integer w = r.getProperty(StructrApp.key(Image.class, "width"));
+				final Integer h = r.getProperty(StructrApp.key(Image.class, "height"));
+
+				if (w != null && h != null) {
+
+					// orginal image is equal or smaller than requested size
+					if (((w == maxWidth) && (h <= maxHeight)) || ((w <= maxWidth) && (h == maxHeight)) || ((origWidth <= w) && (origHeight <= h))) {
+
+						final Image thumbnail = (Image)r.getTargetNode();
+
+						// Use thumbnail only if checksum of original image matches with stored checksum
+						final Long storedChecksum = r.getProperty(StructrApp.key(Image.class, "checksum"));
+
+						if (storedChecksum != null && storedChecksum.equals(checksum)) {
+
+							return thumbnail;
+
+						} else {
+
+							oldThumbnails.add(thumbnail);
+						}
+					}
+
+				}
+
+			}
+
+		}
+
+		return null;
+	}
+
+	static boolean isVectorOrIcon(final Image image) {
+
+		final String _contentType = image.getContentType();
+
+		return _contentType != null && (_contentType.startsWith("image/svg") || (_contentType.startsWith("image/") && _contentType.endsWith("icon")));
+	}
+
 	/**
 	 * Return true if this image is a thumbnail image.
 	 *
@@ -22,8 +22,10 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.text.SimpleDateFormat;
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
 import org.apache.commons.lang3.StringUtils;
 import org.slf4j.Logger;
@@ -36,7 +38,6 @@ import org.structr.core.JsonInput;
 import org.structr.core.app.App;
 import org.structr.core.app.StructrApp;
 import org.structr.core.entity.Principal;
-import org.structr.core.graph.Tx;
 import org.structr.core.property.PropertyMap;
 import org.structr.module.StructrModule;
 import org.structr.module.api.APIBuilder;
@@ -51,6 +52,21 @@ public class CSVFileImportJob extends FileImportJob {
 		super(file, user, configuration);
 	}
 
+	public static CSVFileImportJob resume(final Principal user, final Map<String, Object> configuration, final Map<String, Object> data, final boolean interrupted) throws FrameworkException {
+
+		final File file = getFile(data);
+		if (file != null) {
+
+			final CSVFileImportJob job = new CSVFileImportJob(file, user, configuration);
+
+			job.resumeFrom(data);
+
+			return job;
+		}
+
+		return null;
+	}
+
 	@Override
 	public boolean runInitialChecks () throws FrameworkException {
 
@@ -120,35 +136,36 @@ public class CSVFileImportJob extends FileImportJob {
 				final Character quoteCharacter     = StringUtils.isNotEmpty(quoteChar) ? quoteChar.charAt(0) : null;
 				final Iterable<JsonInput> iterable = CsvHelper.cleanAndParseCSV(threadContext, new InputStreamReader(is, "utf-8"), targetEntityType, fieldSeparator, quoteCharacter, range, reverse(importMappings));
 				final Iterator<JsonInput> iterator = iterable.iterator();
-				int chunks                         = 0;
-				int overallCount                   = 0;
+
+				skipProcessedObjects(iterator);
 
 				while (iterator.hasNext()) {
 
-					int count = 0;
+					final long chunkStartTime = System.currentTimeMillis();
 
-					try (final Tx tx = app.tx()) {
+					runChunk(app.tx(), () -> {
 
-						final long chunkStartTime = System.currentTimeMillis();
+						final List<PropertyMap> chunk = new ArrayList<>(commitInterval);
 
-						while (iterator.hasNext() && count++ < commitInterval) {
+						while (iterator.hasNext() && chunk.size() < commitInterval) {
 
 							final JsonInput input = iterator.next();
 
 							mapper.transformInput(threadContext, targetEntityType, input);
 
-							app.create(targetEntityType, PropertyMap.inputTypeToJavaType(threadContext, targetEntityType, input));
-
-							overallCount++;
+							chunk.add(PropertyMap.inputTypeToJavaType(threadContext, targetEntityType, input));
 						}
 
-						tx.success();
+						// create all nodes of this chunk in a single statement
+						app.createAll(targetEntityType, chunk);
 
-						chunks++;
+						return chunk.size();
 
-						chunkFinished(chunkStartTime, chunks, commitInterval, overallCount);
+					}, count -> {
 
-					}
+						// record progress only after the chunk was committed
+						chunkFinished(chunkStartTime, processedChunks + 1, commitInterval, processedObjects + count);
+					});
 
 					// do this outside of the transaction!
 					shouldPause();
@@ -158,7 +175,7 @@ public class CSVFileImportJob extends FileImportJob {
 
 				}
 
-				importFinished(startTime, overallCount);
+				importFinished(startTime, processedObjects);
 
 			} catch (IOException | FrameworkException fex) {
 
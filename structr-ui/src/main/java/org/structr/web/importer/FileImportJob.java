@@ -21,6 +21,7 @@ package org.structr.web.importer;
 import java.io.InputStream;
 import java.text.DecimalFormat;
 import java.text.DecimalFormatSymbols;
+import java.util.Iterator;
 import java.util.LinkedHashMap;
 import java.util.Locale;
 import java.util.Map;
@@ -45,6 +46,7 @@ abstract class FileImportJob extends ScheduledJob {
 	protected String fileName;
 	protected Long fileSize;
 	protected Integer processedChunks = 0;
+	protected Integer processedObjects = 0;
 
 	public FileImportJob (final File file, final Principal user, final Map<String, Object> configuration) {
 
@@ -76,6 +78,23 @@ abstract class FileImportJob extends ScheduledJob {
 		return processedChunks;
 	}
 
+	@Override
+	public Number getProgress() {
+		return processedObjects;
+	}
+
+	@Override
+	public Map<String, Object> getResumeData() {
+
+		final Map<String, Object> data = new LinkedHashMap<>();
+
+		data.put("fileUuid",         fileUuid);
+		data.put("processedChunks",  processedChunks);
+		data.put("processedObjects", processedObjects);
+
+		return data;
+	}
+
 	@Override
 	public Map<String, Object> getStatusData (final JobStatusMessageSubtype subtype) {
 
@@ -111,9 +130,15 @@ abstract class FileImportJob extends ScheduledJob {
 		return jobInfo;
 	}
 
+	/**
+	 * Reports a finished chunk and records the progress of this job in the
+	 * job journal. Must only be called after the chunk was committed, see
+	 * {@link ScheduledJob#runChunk}.
+	 */
 	protected void chunkFinished(final long chunkStartTime, final int currentChunkNo, final int chunkSize, final int overallCount) {
 
 		processedChunks                   = currentChunkNo;
+		processedObjects                  = overallCount;
 
 		final long duration               = System.currentTimeMillis() - chunkStartTime;
 		final DecimalFormat decimalFormat = new DecimalFormat("0.00", DecimalFormatSymbols.getInstance(Locale.ENGLISH));
@@ -129,6 +154,7 @@ abstract class FileImportJob extends ScheduledJob {
 		data.put("objectsPerSecond", objectsPerSecond);
 		TransactionCommand.simpleBroadcastGenericMessage(data);
 
+		jobProgress();
 	}
 
 	protected void importFinished(final long startTime, final int objectCount) {
@@ -159,6 +185,34 @@ abstract class FileImportJob extends ScheduledJob {
 		TransactionCommand.simpleBroadcastException(ex, data, true);
 	}
 
+	/**
+	 * Continues after the chunks that were committed before the job was
+	 * interrupted.
+	 */
+	protected void resumeFrom(final Map<String, Object> data) {
+
+		processedChunks  = parseInt(data.get("processedChunks"), 0);
+		processedObjects = parseInt(data.get("processedObjects"), 0);
+	}
+
+	/**
+	 * Skips the objects that were imported before the job was interrupted.
+	 */
+	protected <T> void skipProcessedObjects(final Iterator<T> iterator) {
+
+		for (int i=0; i<processedObjects && iterator.hasNext(); i++) {
+			iterator.next();
+		}
+
+		if (processedObjects > 0) {
+			logger.info("{}: Resuming import of file '{}' after {} objects", getJobType(), filePath, processedObjects);
+		}
+	}
+
+	protected static File getFile(final Map<String, Object> data) throws FrameworkException {
+		return StructrApp.getInstance().get(File.class, (String)data.get("fileUuid"));
+	}
+
 	protected InputStream getFileInputStream(final SecurityContext ctx) {
 
 		final App app = StructrApp.getInstance(ctx);
@@ -47,6 +47,18 @@ public class ScriptJob extends ScheduledJob {
 		this.script  = script;
 	}
 
+	public static ScriptJob resume(final Principal user, final Map<String, Object> configuration, final Map<String, Object> data, final boolean interrupted) {
+
+		// the script may have committed some of its changes already
+		if (interrupted) {
+
+			logger.warn("Not running interrupted script job again: {}", data.get("script"));
+			return null;
+		}
+
+		return new ScriptJob(user, configuration, data.get("script"));
+	}
+
 	@Override
 	public boolean runInitialChecks() throws FrameworkException {
 		return true;
@@ -121,6 +133,22 @@ public class ScriptJob extends ScheduledJob {
 		return data;
 	}
 
+	@Override
+	public Map<String, Object> getResumeData() {
+
+		// compiled JavaScript functions cannot be written to the journal
+		if (script instanceof String) {
+
+			final Map<String, Object> data = new LinkedHashMap<>();
+
+			data.put("script", script);
+
+			return data;
+		}
+
+		return null;
+	}
+
 	@Override
 	public Map<String, Object> getJobInfo () {
 
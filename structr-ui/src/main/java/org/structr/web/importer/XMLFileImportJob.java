@@ -54,6 +54,21 @@ public class XMLFileImportJob extends FileImportJob {
 		contentType = file.getContentType();
 	}
 
+	public static XMLFileImportJob resume(final Principal user, final Map<String, Object> configuration, final Map<String, Object> data, final boolean interrupted) throws FrameworkException {
+
+		final File file = getFile(data);
+		if (file != null) {
+
+			final XMLFileImportJob job = new XMLFileImportJob(file, user, configuration);
+
+			job.resumeFrom(data);
+
+			return job;
+		}
+
+		return null;
+	}
+
 	@Override
 	public boolean runInitialChecks() throws FrameworkException {
 
@@ -85,7 +100,7 @@ public class XMLFileImportJob extends FileImportJob {
 
 			final SecurityContext threadContext = SecurityContext.getInstance(user, AccessMode.Backend);
 			final App app                       = StructrApp.getInstance(threadContext);
-			int overallCount                    = 0;
+			int overallCount                    = processedObjects;
 
 			// disable transaction notifications
 			threadContext.disableModificationOfAccessTime();
@@ -105,7 +120,9 @@ public class XMLFileImportJob extends FileImportJob {
 
 					final Iterator<Map<String, Object>> iterator = new XMLHandler(configuration, reader);
 					final int batchSize                          = 100;
-					int chunks                                   = 0;
+					int chunks                                   = processedChunks;
+
+					skipProcessedObjects(iterator);
 
 					final long startTime = System.currentTimeMillis();
 
@@ -121,6 +138,9 @@ public class XMLFileImportJob extends FileImportJob {
 						// make transaction available in context
 						threadContext.setAttribute("currentTransaction", tx);
 
+						// objects are created one by one instead of with app.createAll(): with
+						// setNestedProperties, the conversion of an object can look up and reuse
+						// nodes created for the objects before it in the same chunk
 						while (iterator.hasNext() && ++count <= batchSize) {
 
 							app.create(AbstractNode.class, PropertyMap.inputTypeToJavaType(threadContext, iterator.next()));
@@ -134,6 +154,7 @@ public class XMLFileImportJob extends FileImportJob {
 
 						chunks++;
 
+						// record progress only after the chunk was committed
 						chunkFinished(chunkStartTime, chunks, batchSize, overallCount);
 
 						// do this outside of the transaction!
@@ -33,6 +33,7 @@ import java.nio.file.Paths;
 import java.nio.file.StandardCopyOption;
 import java.text.DecimalFormat;
 import java.text.DecimalFormatSymbols;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.Date;
@@ -1373,6 +1374,8 @@ public class DeployCommand extends NodeServiceCommand implements MaintenanceComm
 
 		try (final Tx tx = app.tx()) {
 
+			final List<PropertyMap> maps = new ArrayList<>(data.size());
+
 			for (final T toDelete : app.nodeQuery(type).getAsList()) {
 				app.delete(toDelete);
 			}
@@ -1386,9 +1389,11 @@ public class DeployCommand extends NodeServiceCommand implements MaintenanceComm
 					map.putAll(add);
 				}
 
-				app.create(type, map);
+				maps.add(map);
 			}
 
+			app.createAll(type, maps);
+
 			tx.success();
 
 		} catch (FrameworkException fex) {
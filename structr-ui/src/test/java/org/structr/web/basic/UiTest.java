@@ -27,27 +27,32 @@ import org.apache.tika.io.IOUtils;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotEquals;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 import org.junit.Test;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.structr.agent.AgentService;
 import org.structr.api.config.Settings;
 import org.structr.api.util.Iterables;
 import org.structr.common.AccessMode;
 import org.structr.common.Permission;
 import org.structr.common.SecurityContext;
 import org.structr.common.error.FrameworkException;
+import org.structr.core.Services;
 import org.structr.core.app.App;
 import org.structr.core.app.StructrApp;
 import org.structr.core.entity.AbstractNode;
 import org.structr.core.graph.NodeAttribute;
 import org.structr.core.graph.Tx;
+import org.structr.core.property.PropertyKey;
 import org.structr.core.property.PropertyMap;
 import org.structr.schema.export.StructrSchema;
 import org.structr.schema.json.JsonSchema;
 import org.structr.schema.json.JsonType;
 import org.structr.web.StructrUiTest;
+import org.structr.web.agent.ThumbnailAgent;
 import org.structr.web.common.FileHelper;
 import org.structr.web.common.ImageHelper;
 import org.structr.web.common.ImageHelper.Thumbnail;
@@ -93,6 +98,66 @@ public class UiTest extends StructrUiTest {
 		}
 	}
 
+	@Test
+	public void test01CreateThumbnailAsync() {
+
+		final Class imageType                 = createTestImageType();
+		final PropertyKey<Image> thumbnailKey = StructrApp.key(imageType, "thumbnail");
+		final Services services               = Services.getInstance();
+		String imageId                        = null;
+
+		services.startService(AgentService.class);
+
+		try {
+
+			assertTrue("Thumbnails should be created in the background", ThumbnailAgent.isEnabled());
+
+			try (final Tx tx = app.tx()) {
+
+				final Image img = (Image) ImageHelper.createFileBase64(securityContext, base64Image, imageType);
+
+				// the agent cannot see the image before this transaction is committed
+				assertNull(img.getProperty(thumbnailKey));
+
+				imageId = img.getUuid();
+
+				tx.success();
+			}
+
+			// the agent retries after the configured delay
+			final long deadline = System.currentTimeMillis() + 30000;
+			Image tn            = null;
+
+			while (tn == null && System.currentTimeMillis() < deadline) {
+
+				Thread.sleep(100);
+
+				try (final Tx tx = app.tx()) {
+
+					final Image img = (Image)app.get(imageType, imageId);
+
+					tn = img.getProperty(thumbnailKey);
+
+					tx.success();
+				}
+			}
+
+			assertNotNull("Thumbnail was not created by ThumbnailAgent", tn);
+			assertEquals(new Integer(200), tn.getWidth());
+			assertEquals(new Integer(48), tn.getHeight());
+			assertEquals("image/" + Thumbnail.Format.jpeg, tn.getContentType());
+
+		} catch (Exception ex) {
+
+			ex.printStackTrace();
+			fail("Unexpected exception");
+
+		} finally {
+
+			services.shutdownService(AgentService.class);
+		}
+	}
+
 	@Test
 	public void test01AutoRenameThumbnail() {
 